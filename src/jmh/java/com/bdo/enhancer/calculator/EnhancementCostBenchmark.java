@@ -0,0 +1,82 @@
+package com.bdo.enhancer.calculator;
+
+import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.item.EnhancementType;
+import com.bdo.enhancer.model.result.AccessoryEnhancementResult;
+import com.bdo.enhancer.model.result.EnhancementStatistics;
+import com.bdo.enhancer.model.stack.AbstractStack;
+import com.bdo.enhancer.model.stack.AccessoryStack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Cost of an enhancement: simulating the consumption of one stack set and level, and
+ * pricing an accessory from already simulated statistics.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EnhancementCostBenchmark {
+
+    // PRI-DUO-TRI-TET stack counts
+    @Param({"30-40-45-110", "10-15-20-25"})
+    public String stackSet;
+
+    @Param({"1000"})
+    public int simulationRuns;
+
+    private ConsumptionStatisticsCache.Key tetKey;
+    private AccessoryProfitCalculator calculator;
+    private Accessory accessory;
+
+    @Setup
+    public void setUp() {
+        List<AbstractStack> stacks = Arrays.stream(stackSet.split("-"))
+                .map(count -> (AbstractStack) AccessoryStack.findByStackCount(Integer.parseInt(count)))
+                .collect(Collectors.toList());
+        tetKey = ConsumptionStatisticsCache.Key.of(EnhancementType.ACCESSORY, stacks, 4, simulationRuns);
+
+        calculator = new AccessoryProfitCalculator();
+        calculator.setSimulationRuns(simulationRuns);
+        calculator.setMonStack(stacks.get(0));
+        calculator.setDuoStack(stacks.get(1));
+        calculator.setTriStack(stacks.get(2));
+        calculator.setTetStack(stacks.get(3));
+
+        accessory = new Accessory("Deboreka Necklace", 11653);
+        accessory.setBasePrice(120_000_000);
+        accessory.setDuoPrice(1_080_000_000);
+        accessory.setTriPrice(3_240_000_000L);
+        accessory.setTetPrice(9_720_000_000L);
+
+        // Simulated once, so the pricing benchmark measures pricing only
+        calculator.calculateAccessoryProfit(accessory);
+    }
+
+    @Benchmark
+    public EnhancementStatistics simulateConsumption() {
+        return ConsumptionSimulator.simulate(tetKey);
+    }
+
+    @Benchmark
+    public AccessoryEnhancementResult priceFromStatistics() {
+        return calculator.calculateAccessoryProfit(accessory);
+    }
+}
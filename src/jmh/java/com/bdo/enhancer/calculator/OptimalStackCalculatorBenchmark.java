@@ -0,0 +1,67 @@
+package com.bdo.enhancer.calculator;
+
+import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.result.OptimalStackResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stack optimization of a single accessory with cold statistics, which simulates every TRI
+ * stack combination, and of a full market listing with warm statistics, which only prices.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OptimalStackCalculatorBenchmark {
+
+    @Param({"1", "4"})
+    public int threadCount;
+
+    @Param({"200"})
+    public int simulationRunsPerCombination;
+
+    private final List<Accessory> listing = new ArrayList<>();
+    private ConsumptionStatisticsCache warmStatistics;
+
+    @Setup
+    public void setUp() {
+        for (int id = 1; id <= 200; id++) {
+            Accessory ring = new Accessory("Test Ring " + id, id);
+            ring.setBasePrice(10_000_000L * id);
+            ring.setTriPrice(300_000_000L * id);
+            listing.add(ring);
+        }
+
+        warmStatistics = new ConsumptionStatisticsCache();
+        new OptimalStackCalculator(simulationRunsPerCombination, threadCount, warmStatistics)
+                .findOptimalStacks(listing.subList(0, 1), null);
+    }
+
+    @Benchmark
+    public List<OptimalStackResult> optimizeAccessoryCold() {
+        return new OptimalStackCalculator(simulationRunsPerCombination, threadCount, new ConsumptionStatisticsCache())
+                .findOptimalStacks(listing.subList(0, 1), null);
+    }
+
+    @Benchmark
+    public List<OptimalStackResult> optimizeListingWarm() {
+        return new OptimalStackCalculator(simulationRunsPerCombination, threadCount, warmStatistics)
+                .findOptimalStacks(listing, null);
+    }
+}
@@ -0,0 +1,69 @@
+package com.bdo.enhancer.core;
+
+import com.bdo.enhancer.model.item.MaterialPrices;
+import com.bdo.enhancer.model.stack.AbstractStack;
+import com.bdo.enhancer.model.stack.AccessoryStack;
+import com.bdo.enhancer.model.stack.FailStackSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One simulated enhancement from a fresh accessory to the target level, the unit of work
+ * repeated by every consumption simulation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AccessoryEnhancerBenchmark {
+
+    // PRI-DUO-TRI-TET stack counts
+    @Param({"30-40-45-110", "10-15-20-25", "55-60-60-110"})
+    public String stackSet;
+
+    @Param({"3", "4"})
+    public int targetLevel;
+
+    private double[] enhanceChances;
+    private int[] failstackBlackStones;
+    private FailStackSet stacksUsed;
+    private final MaterialPrices materialPrices = MaterialPrices.defaults();
+
+    @Setup
+    public void setUp() {
+        AbstractStack[] stacks = Arrays.stream(stackSet.split("-"))
+                .map(count -> AccessoryStack.findByStackCount(Integer.parseInt(count)))
+                .toArray(AbstractStack[]::new);
+        enhanceChances = new double[] {
+                stacks[0].getMonChance(), stacks[1].getDuoChance(), stacks[2].getTriChance(), stacks[3].getTetChance()
+        };
+        failstackBlackStones = Arrays.stream(stacks).mapToInt(AbstractStack::getBlackStoneCount).toArray();
+        stacksUsed = new FailStackSet(stacks[0], stacks[1], stacks[2], stacks[3]);
+    }
+
+    @Benchmark
+    public void enhanceToTarget(Blackhole blackhole) {
+        AccessoryEnhancer enhancer = new AccessoryEnhancer(0, enhanceChances, failstackBlackStones, materialPrices);
+        enhancer.setStacksUsed(stacksUsed);
+        while (enhancer.getCurrentLevel() < targetLevel) {
+            enhancer.enhance();
+        }
+        blackhole.consume(enhancer.getTotalItemsConsumed());
+        blackhole.consume(enhancer.getMaterialUnits());
+    }
+}
@@ -0,0 +1,41 @@
+package com.bdo.enhancer.core;
+
+import com.bdo.enhancer.model.item.EnhancementType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One simulated Manos clothing enhancement from +0 to the market level of DUO, TRI or TET.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ManosClothingEnhancerBenchmark {
+
+    @Param({"2", "3", "4"})
+    public int resultLevel;
+
+    @Benchmark
+    public void enhanceToTarget(Blackhole blackhole) {
+        int targetLevel = EnhancementType.MANOS_CLOTHING.getMarketLevel(resultLevel);
+        ManosClothingEnhancer enhancer = new ManosClothingEnhancer(0);
+        while (enhancer.getCurrentLevel() < targetLevel) {
+            enhancer.enhance();
+        }
+        blackhole.consume(enhancer.getMaterialUnits());
+    }
+}
@@ -0,0 +1,77 @@
+package com.bdo.enhancer.market;
+
+import com.bdo.enhancer.model.item.Accessory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of market payloads in the format returned by the listing and sub list endpoints,
+ * read from the sample payloads in {@code src/jmh/resources/market}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MarketParsingBenchmark {
+
+    @Param({"sub-list-accessory", "sub-list-manos"})
+    public String subListPayload;
+
+    private String subList;
+    private Map<String, String> listings;
+    private BDOMarketConnector connector;
+
+    @Setup
+    public void setUp() {
+        subList = payload(subListPayload);
+        listings = Map.of(
+                "ring", payload("ring"),
+                "necklace", payload("necklace"),
+                "costume", payload("costume"));
+        connector = new BDOMarketConnector();
+    }
+
+    @Benchmark
+    public Accessory appendBaseEnhancementData() {
+        Accessory accessory = subListPayload.endsWith("manos")
+                ? new Accessory("Manos Cook's Clothes", 705037)
+                : new Accessory("Deboreka Necklace", 11653);
+        BDOMarketConnector.appendBaseEnhancementData(accessory, subList);
+        return accessory;
+    }
+
+    @Benchmark
+    public List<Accessory> createAndFilterItems() {
+        return connector.createAndFilterItems(listings);
+    }
+
+    private static String payload(String name) {
+        try (InputStream in = MarketParsingBenchmark.class.getResourceAsStream("/market/" + name + ".json")) {
+            if (in == null) {
+                throw new IllegalStateException("Missing market payload " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
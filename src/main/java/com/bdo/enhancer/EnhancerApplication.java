@@ -1,5 +1,7 @@
 package com.bdo.enhancer;
 
+import com.bdo.enhancer.cli.EnhancerCli;
+import com.bdo.enhancer.server.RankingServer;
 import com.bdo.enhancer.ui.EnhancerMainFrame;
 
 import javax.swing.*;
@@ -10,9 +12,19 @@ import javax.swing.*;
 public class EnhancerApplication {
     
     /**
-     * Application entry point
+     * Application entry point; {@code --batch} runs the headless {@link EnhancerCli} and
+     * {@code --serve} the {@link RankingServer} instead of the window
      */
     public static void main(String[] args) {
+        if (EnhancerCli.isBatchMode(args)) {
+            EnhancerCli.main(args);
+            return;
+        }
+        if (RankingServer.isServerMode(args)) {
+            RankingServer.main(args);
+            return;
+        }
+
         // Start Swing UI in the Event Dispatch Thread
         SwingUtilities.invokeLater(() -> {
             try {
@@ -1,48 +1,93 @@
 package com.bdo.enhancer.calculator;
 
-import com.bdo.enhancer.core.AccessoryEnhancer;
-import com.bdo.enhancer.core.ManosClothingEnhancer;
 import com.bdo.enhancer.market.MarketDataService;
+import com.bdo.enhancer.market.PriceHistoryStore;
 import com.bdo.enhancer.model.constants.Constants;
+import com.bdo.enhancer.metrics.MetricsRegistry;
+import com.bdo.enhancer.metrics.Timer;
+import com.bdo.enhancer.model.constants.MarketRegion;
 import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.item.EnhancementType;
+import com.bdo.enhancer.model.item.MaterialPrices;
 import com.bdo.enhancer.model.result.AccessoryEnhancementResult;
-import com.bdo.enhancer.model.result.EnhancementResult;
-import com.bdo.enhancer.model.result.SimulationRun;
+import com.bdo.enhancer.model.result.EnhancementStatistics;
+import com.bdo.enhancer.model.result.ProfitRisk;
 import com.bdo.enhancer.model.stack.AbstractStack;
 import com.bdo.enhancer.model.stack.AccessoryStack;
-import com.bdo.enhancer.model.stack.CostumeStack;
-import com.bdo.enhancer.model.stack.FailStackSet;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Setter
 @Getter
 @Slf4j
 public class AccessoryProfitCalculator {
 
-    private int simulationRuns = Constants.SIMULATION_RUN_COUNT;
+    private static final Timer PRICE_TIMER = MetricsRegistry.global().timer("calculate.price.item");
+
+    // Settings may be changed from the UI thread while a calculation runs; calculations read them once via currentSettings()
+    private volatile int simulationRuns = Constants.SIMULATION_RUN_COUNT;
+
+    // Prices of failstack and Manos materials, usually from the market
+    private volatile MaterialPrices materialPrices = MaterialPrices.defaults();
+
+    // How the profit spread is turned into the risk-adjusted profit
+    private volatile RiskModel riskModel = RiskModel.defaults();
+
+    // Recorded prices of the calculated market region for the sale price volatility; without it only the cost varies
+    private PriceHistoryStore priceHistory;
+
+    // Daily sale price volatility by item id, indexed by level; read from the history once per market
+    // refresh of the item, so repricing for other stacks or prices does not query the history again
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Map<Integer, double[]> dailyVolatilities = new ConcurrentHashMap<>();
 
     // Default stacks that can be overridden - using the new Stack interface instead of OldAccessoryStack
-    private AbstractStack monStack = AccessoryStack.THIRTY;
-    private AbstractStack duoStack = AccessoryStack.FOURTY;
-    private AbstractStack triStack = AccessoryStack.FOURTYFIVE;
-    private AbstractStack tetStack = AccessoryStack.HUNDREDTEN_FREE;
+    private volatile AbstractStack monStack = AccessoryStack.THIRTY;
+    private volatile AbstractStack duoStack = AccessoryStack.FOURTY;
+    private volatile AbstractStack triStack = AccessoryStack.FOURTYFIVE;
+    private volatile AbstractStack tetStack = AccessoryStack.HUNDREDTEN_FREE;
 
     // Cached market accessories list
     private List<Accessory> cachedAccessories = null;
 
+    // Results of the last calculation by item id, reused by incremental recalculations
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Map<Integer, AccessoryEnhancementResult> cachedResults = new ConcurrentHashMap<>();
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Settings cachedResultSettings;
+
+    // Simulated consumption per enhancement type, stack set and level; prices are applied afterwards
+    @Setter(AccessLevel.NONE)
+    private final ConsumptionStatisticsCache statisticsCache = new ConsumptionStatisticsCache();
+
+    // Serializes calculations from the UI and the background refresh; a separate lock because
+    // the worker threads synchronize on the calculator itself while a calculation waits for them
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final Object calculationLock = new Object();
+
     // Add method to set the progress callback
     @Setter
     private Consumer<String> progressCallback;
@@ -60,79 +105,429 @@ public class AccessoryProfitCalculator {
 
     public List<AccessoryEnhancementResult> calculateProfitsWithAccessories(List<Accessory> accessories) {
 
+        synchronized (calculationLock) {
+            // Any item may have new market data and price samples
+            dailyVolatilities.clear();
+            return calculateAllProfits(accessories);
+        }
+    }
+
+    // Callers hold the calculation lock
+    private List<AccessoryEnhancementResult> calculateAllProfits(List<Accessory> accessories) {
         // Cache accessories to calculate without fetching every time
         this.cachedAccessories = accessories;
 
-        // Initialize enhancement results for all accessories
-        Map<String, AccessoryEnhancementResult> resultMap = new ConcurrentHashMap<>();
+        // Taken before calculating: if the stacks change meanwhile the next call recalculates
+        Settings settings = currentSettings();
+        Map<Integer, AccessoryEnhancementResult> resultMap = calculateResults(accessories, settings);
+        cachedResults.clear();
+        cachedResults.putAll(resultMap);
+        cachedResultSettings = settings;
+
+        // Final progress update
+        updateProgress("All calculations complete");
+
+        // Convert map to list for return
+        return new ArrayList<>(resultMap.values());
+    }
+
+    /**
+     * Calculates all levels of a single accessory on the calling thread and merges the
+     * result into the cached results. Used by {@link ProfitPipeline} to calculate items
+     * while the rest of the market data is still being fetched.
+     *
+     * @param accessory The enriched accessory
+     * @return The result for this accessory
+     */
+    public AccessoryEnhancementResult calculateAccessoryProfit(Accessory accessory) {
+        dailyVolatilities.remove(accessory.getId());
+        Settings settings = currentSettings();
+        AccessoryEnhancementResult result = priceResult(accessory, settings, settings.simulationRuns);
+
+        synchronized (calculationLock) {
+            // Results calculated with other stacks can no longer be merged with this one
+            if (!settings.equals(cachedResultSettings)) {
+                cachedResults.clear();
+                cachedResultSettings = settings;
+            }
+            cachedResults.put(accessory.getId(), result);
+        }
+        return result;
+    }
+
+    /**
+     * Recalculates only the changed accessories, plus any accessory without a previous
+     * result, and merges them into the results of the previous calculation. Falls back
+     * to a full calculation if there are no previous results or the stacks, simulation
+     * runs or material prices changed since. Thanks to the cached consumption
+     * statistics that only simulates again if the stacks or simulation runs changed.
+     *
+     * @param accessories All currently known accessories
+     * @param changedAccessories Accessories whose market data changed
+     * @return Results for all accessories
+     */
+    public List<AccessoryEnhancementResult> recalculateChangedProfits(List<Accessory> accessories,
+                                                                      List<Accessory> changedAccessories) {
+        synchronized (calculationLock) {
+            changedAccessories.forEach(accessory -> dailyVolatilities.remove(accessory.getId()));
+            Settings settings = currentSettings();
+            if (cachedResults.isEmpty() || !settings.equals(cachedResultSettings)) {
+                return calculateAllProfits(accessories);
+            }
+
+            this.cachedAccessories = accessories;
+            Set<Integer> changedIds = changedAccessories.stream().map(Accessory::getId).collect(Collectors.toSet());
+            List<Accessory> toCalculate = accessories.stream()
+                    .filter(accessory -> changedIds.contains(accessory.getId())
+                            || !cachedResults.containsKey(accessory.getId()))
+                    .collect(Collectors.toList());
+            if (!toCalculate.isEmpty()) {
+                cachedResults.putAll(calculateResults(toCalculate, settings));
+            }
+
+            Set<Integer> knownIds = accessories.stream().map(Accessory::getId).collect(Collectors.toSet());
+            cachedResults.keySet().retainAll(knownIds);
+
+            updateProgress(String.format("Recalculated %d changed of %d accessories",
+                    toCalculate.size(), accessories.size()));
+            return new ArrayList<>(cachedResults.values());
+        }
+    }
+
+    /**
+     * Calculates results for several market regions. The consumption statistics are
+     * shared, so an additional region only costs the repricing, not another simulation.
+     * The results of the single-region calculations are left untouched.
+     *
+     * @param accessoriesByRegion Enriched accessories per region
+     * @return Results per region
+     */
+    public Map<MarketRegion, List<AccessoryEnhancementResult>> calculateRegionalProfits(
+            Map<MarketRegion, List<Accessory>> accessoriesByRegion) {
+        return calculateRegionalProfits(accessoriesByRegion, Map.of());
+    }
+
+    /**
+     * Like {@link #calculateRegionalProfits(Map)}, but prices each region with the material
+     * prices of its own market.
+     *
+     * @param accessoriesByRegion Enriched accessories per region
+     * @param materialPricesByRegion Material prices per region; regions without use the calculator's prices
+     * @return Results per region
+     */
+    public Map<MarketRegion, List<AccessoryEnhancementResult>> calculateRegionalProfits(
+            Map<MarketRegion, List<Accessory>> accessoriesByRegion,
+            Map<MarketRegion, MaterialPrices> materialPricesByRegion) {
+        Settings settings = currentSettings();
+        simulateMissingStatistics(accessoriesByRegion.values().stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList()), settings.stacks, settings.simulationRuns);
+
+        Map<MarketRegion, List<AccessoryEnhancementResult>> resultsByRegion = new EnumMap<>(MarketRegion.class);
+        accessoriesByRegion.forEach((region, accessories) -> {
+            Settings regional = settings.withMaterialPrices(
+                    materialPricesByRegion.getOrDefault(region, settings.materialPrices));
+            resultsByRegion.put(region, accessories.stream()
+                    .map(accessory -> priceResult(accessory, regional, regional.simulationRuns))
+                    .collect(Collectors.toList()));
+        });
+
+        updateProgress("Regional calculations complete");
+        return resultsByRegion;
+    }
+
+    /**
+     * @return True if all accessories can be priced with the current stacks without simulating
+     */
+    public boolean hasStatisticsFor(List<Accessory> accessories) {
+        Settings settings = currentSettings();
+        return accessories.stream()
+                .map(Accessory::getEnhancementType)
+                .distinct()
+                .allMatch(type -> IntStream.rangeClosed(2, 4)
+                        .allMatch(level -> statisticsCache.contains(
+                                statisticsKey(type, level, settings.stacks, settings.simulationRuns))));
+    }
+
+    /**
+     * Quick estimate for the current stacks, based on a short simulation with the given
+     * number of runs. Used to show what-if results while the full simulation is still
+     * running; the cached results are left untouched.
+     *
+     * @param accessories Accessories to estimate
+     * @param previewRuns Simulation runs per stack and level combination
+     * @return Estimated results
+     */
+    public List<AccessoryEnhancementResult> calculatePreviewProfits(List<Accessory> accessories, int previewRuns) {
+        Settings settings = currentSettings();
+        int runs = Math.min(previewRuns, settings.simulationRuns);
+        simulateMissingStatistics(accessories, settings.stacks, runs);
+        return accessories.stream()
+                .map(accessory -> priceResult(accessory, settings, runs))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Expected cost, profit and base item consumption of enhancing each accessory once to
+     * DUO, TRI and TET with the current stacks and prices, as input for the
+     * {@link PortfolioOptimizer}. Simulates only stack combinations not known yet.
+     */
+    public List<PortfolioOptimizer.Candidate> portfolioCandidates(List<Accessory> accessories) {
+        Settings settings = currentSettings();
+        int runs = settings.simulationRuns;
+        simulateMissingStatistics(accessories, settings.stacks, runs);
+
+        List<PortfolioOptimizer.Candidate> candidates = new ArrayList<>();
         for (Accessory accessory : accessories) {
-            resultMap.put(accessory.getName(), new AccessoryEnhancementResult(
-                    accessory.getName(),
-                    accessory.getBaseStock(),
-                    0, 0,  // DUO items and profit (to be filled)
-                    0, 0,  // TRI items and profit (to be filled)
-                    0, 0   // TET items and profit (to be filled)
-            ));
+            for (int level = 2; level <= 4; level++) {
+                EnhancementStatistics statistics = statisticsFor(accessory.getEnhancementType(), level,
+                        settings.stacks, runs);
+                long cost = statistics.avgCost(accessory.getBasePrice(), settings.materialPrices);
+                candidates.add(new PortfolioOptimizer.Candidate(accessory.getId(), accessory.getName(), level,
+                        cost, calculateProfit(getPrice(accessory, level), cost), statistics.avgItems,
+                        accessory.getBaseStock()));
+            }
         }
+        return candidates;
+    }
 
-        // Erstelle einen Thread-Pool
-        ExecutorService executorService = Executors.newWorkStealingPool();
+    /**
+     * Prices and consumption statistics of enhancing each accessory to DUO, TRI and TET with
+     * the current stacks, as input for the {@link ScenarioEvaluator}. Simulates only stack
+     * combinations not known yet, so any number of scenarios reuses the cached statistics.
+     */
+    public List<ScenarioEvaluator.Input> scenarioInputs(List<Accessory> accessories) {
+        Settings settings = currentSettings();
+        int runs = settings.simulationRuns;
+        simulateMissingStatistics(accessories, settings.stacks, runs);
+
+        List<ScenarioEvaluator.Input> inputs = new ArrayList<>();
+        for (Accessory accessory : accessories) {
+            for (int level = 2; level <= 4; level++) {
+                inputs.add(new ScenarioEvaluator.Input(accessory.getId(), accessory.getName(), level,
+                        accessory.getBasePrice(), getPrice(accessory, level),
+                        statisticsFor(accessory.getEnhancementType(), level, settings.stacks, runs)));
+            }
+        }
+        return inputs;
+    }
 
-        try {
-            // Simulate and calculate DUO enhancement
-            calculateLevelInParallel(accessories, resultMap, 2, executorService);
+    /**
+     * Drops all simulated statistics, e.g. after the game's enhancement rules changed.
+     */
+    public void invalidateStatistics() {
+        statisticsCache.clear();
+    }
 
-            // Simulate and calculate TRI enhancement
-            calculateLevelInParallel(accessories, resultMap, 3, executorService);
+    /**
+     * Prices all levels of an accessory from the consumption statistics: a dot product
+     * of the expected items and material units with the current prices.
+     */
+    private AccessoryEnhancementResult priceResult(Accessory accessory, Settings settings, int runs) {
+        long start = System.nanoTime();
+        MaterialPrices materialPrices = settings.materialPrices;
+        AccessoryEnhancementResult result = emptyResult(accessory);
+        for (int level = 2; level <= 4; level++) {
+            EnhancementStatistics statistics = statisticsFor(accessory.getEnhancementType(), level,
+                    settings.stacks, runs);
+            long cost = statistics.avgCost(accessory.getBasePrice(), materialPrices);
+            long price = getPrice(accessory, level);
+            long profit = calculateProfit(price, cost);
+            updateAccessoryResult(result, level, (long) statistics.avgItems, profit);
+            updateDepthProfits(result, level, depthProfits(accessory, level, statistics, materialPrices));
+
+            // Cost and sale price vary independently; the price only by its recent volatility
+            double saleVariance = Constants.MARKET_TAX * Constants.MARKET_TAX * salePriceVariance(accessory, level, price);
+            updateRisk(result, level, settings.riskModel.assess(profit,
+                    statistics.costVariance(accessory.getBasePrice(), materialPrices) + saleVariance));
+        }
+        PRICE_TIMER.recordSince(start);
+        return result;
+    }
 
-            // Simulate and calculate TET enhancement
-            calculateLevelInParallel(accessories, resultMap, 4, executorService);
+    /**
+     * Expected cost of enhancing the given number of copies with the current stacks. The
+     * base items are bought along the order book of the base item, so every further copy
+     * pays the next cheapest listings instead of the lowest price again.
+     */
+    public long costForEnhancements(Accessory accessory, int level, int enhancements) {
+        Settings settings = currentSettings();
+        return costForEnhancements(accessory, statisticsFor(accessory.getEnhancementType(), level,
+                settings.stacks, settings.simulationRuns), enhancements, settings.materialPrices);
+    }
 
-        } finally {
-            executorService.shutdown();
+    /**
+     * Silver received after tax for selling the given number of enhanced copies along the
+     * order book of the level.
+     */
+    public long revenueForSales(Accessory accessory, int level, int units) {
+        long revenue = accessory.getPriceLadder(level).revenueFromSelling(units, getPrice(accessory, level));
+        return (long) (revenue * Constants.MARKET_TAX);
+    }
+
+    /**
+     * @return Profit of the last of the given number of enhancements, i.e. what one more copy adds
+     */
+    public long marginalProfit(Accessory accessory, int level, int enhancements) {
+        Settings settings = currentSettings();
+        EnhancementStatistics statistics = statisticsFor(accessory.getEnhancementType(), level,
+                settings.stacks, settings.simulationRuns);
+        return depthProfit(accessory, level, statistics, enhancements, settings.materialPrices)
+                - depthProfit(accessory, level, statistics, enhancements - 1, settings.materialPrices);
+    }
+
+    private long[] depthProfits(Accessory accessory, int level, EnhancementStatistics statistics,
+                                MaterialPrices materialPrices) {
+        long[] profits = new long[Constants.DEPTH_QUANTITIES.length];
+        for (int index = 0; index < profits.length; index++) {
+            profits[index] = depthProfit(accessory, level, statistics, Constants.DEPTH_QUANTITIES[index],
+                    materialPrices);
         }
+        return profits;
+    }
 
-        // Final progress update
-        updateProgress("All calculations complete");
+    private long depthProfit(Accessory accessory, int level, EnhancementStatistics statistics, int enhancements,
+                             MaterialPrices materialPrices) {
+        if (enhancements <= 0) {
+            return 0;
+        }
+        return revenueForSales(accessory, level, enhancements)
+                - costForEnhancements(accessory, statistics, enhancements, materialPrices);
+    }
 
-        // Convert map to list for return
-        return new ArrayList<>(resultMap.values());
+    private long costForEnhancements(Accessory accessory, EnhancementStatistics statistics, int enhancements,
+                                     MaterialPrices materialPrices) {
+        if (enhancements <= 0) {
+            return 0;
+        }
+        // Buy whole items along the ladder, but only pay for the expected share of the last one
+        double items = enhancements * statistics.avgItems;
+        long wholeItems = (long) Math.ceil(items);
+        double itemPrice = wholeItems > 0
+                ? accessory.getPriceLadder(0).costToBuy(wholeItems, accessory.getBasePrice()) / (double) wholeItems
+                : 0;
+        return (long) (items * itemPrice + enhancements * materialPrices.cost(statistics.avgMaterialUnits));
     }
 
-    private void calculateLevelInParallel(List<Accessory> accessories,
-                                          Map<String, AccessoryEnhancementResult> resultMap,
-                                          int targetLevel,
-                                          ExecutorService executorService) {
-        String levelName = getLevelName(targetLevel);
-        updateProgress("Calculating " + levelName + " enhancements for all accessories...");
+    /**
+     * Sets the price history the sale price volatility is read from and drops the volatilities read
+     * from the previous one.
+     */
+    public void setPriceHistory(PriceHistoryStore priceHistory) {
+        this.priceHistory = priceHistory;
+        dailyVolatilities.clear();
+    }
+
+    /**
+     * Variance of the sale price over {@link Constants#RISK_HORIZON_DAYS}, from the daily volatility
+     * in the recorded price history; 0 without history.
+     */
+    private double salePriceVariance(Accessory accessory, int level, long price) {
+        PriceHistoryStore history = priceHistory;
+        if (history == null) {
+            return 0;
+        }
+        double dailyVolatility = dailyVolatilities.computeIfAbsent(accessory.getId(),
+                id -> dailyVolatilities(history, id))[level];
+        double stdDev = price * dailyVolatility * Math.sqrt(Constants.RISK_HORIZON_DAYS);
+        return stdDev * stdDev;
+    }
+
+    private static double[] dailyVolatilities(PriceHistoryStore history, int itemId) {
+        long now = System.currentTimeMillis();
+        long from = now - TimeUnit.DAYS.toMillis(Constants.VOLATILITY_WINDOW_DAYS);
+        double[] volatilities = new double[5];
+        for (int level = 2; level <= 4; level++) {
+            volatilities[level] = history.series(itemId, level, from, now).dailyVolatility();
+        }
+        return volatilities;
+    }
+
+    private Settings currentSettings() {
+        return new Settings(List.of(monStack, duoStack, triStack, tetStack), simulationRuns, materialPrices, riskModel);
+    }
+
+    private Map<Integer, AccessoryEnhancementResult> calculateResults(List<Accessory> accessories, Settings settings) {
+        // Only stack and level combinations not simulated before cost simulation time
+        int runs = settings.simulationRuns;
+        simulateMissingStatistics(accessories, settings.stacks, runs);
+
+        updateProgress("Pricing " + accessories.size() + " accessories...");
+        Map<Integer, AccessoryEnhancementResult> resultMap = new ConcurrentHashMap<>();
+        for (Accessory accessory : accessories) {
+            try {
+                resultMap.put(accessory.getId(), priceResult(accessory, settings, runs));
+            } catch (Exception e) {
+                log.error("Error calculating enhancement for {}", accessory.getName(), e);
+            }
+        }
+        return resultMap;
+    }
+
+    private void simulateMissingStatistics(List<Accessory> accessories, List<AbstractStack> stacks, int runs) {
+        Set<ConsumptionStatisticsCache.Key> missing = new LinkedHashSet<>();
+        for (Accessory accessory : accessories) {
+            for (int level = 2; level <= 4; level++) {
+                ConsumptionStatisticsCache.Key key = statisticsKey(accessory.getEnhancementType(), level, stacks, runs);
+                if (!statisticsCache.contains(key)) {
+                    missing.add(key);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
 
         // Progress bar values
         AtomicInteger completedCount = new AtomicInteger(0);
-        int totalCount = accessories.size();
-
-        // Create a list of CompletableFuture tasks
-        List<CompletableFuture<Void>> futures = accessories.stream()
-                .map(accessory -> CompletableFuture.runAsync(() -> {
-                    try {
-                        // Simulate enhancement and calculate cost/profit
-                        EnhancementResult result = calculateEnhancementCost(accessory, targetLevel);
-                        long profit = calculateProfit(getPrice(accessory, targetLevel), result.avgCost);
-
-                        // Update resultMap
-                        AccessoryEnhancementResult accessoryResult = resultMap.get(accessory.getName());
-                        updateAccessoryResult(accessoryResult, targetLevel, result.avgItems, profit);
-
-                        // Update progress bar output
-                        int completed = completedCount.incrementAndGet();
-                        updateProgress("Calculating " + levelName + " enhancements: " + completed + "/" + totalCount + " complete");
-                    } catch (Exception e) {
-                        log.error("Error calculating enhancement for {} at level {}", accessory.getName(), targetLevel, e);
-                    }
-                }, executorService))
-                .collect(Collectors.toList());
+        int totalCount = missing.size();
+        updateProgress("Simulating " + totalCount + " stack and level combinations...");
+
+        // Erstelle einen Thread-Pool
+        ExecutorService executorService = Executors.newWorkStealingPool();
+        try {
+            List<CompletableFuture<Void>> futures = missing.stream()
+                    .map(key -> CompletableFuture.runAsync(() -> {
+                        try {
+                            statisticsCache.get(key, () -> ConsumptionSimulator.simulate(key));
+                            int completed = completedCount.incrementAndGet();
+                            updateProgress("Simulating stack and level combinations: " + completed + "/" + totalCount + " complete");
+                        } catch (Exception e) {
+                            log.error("Error simulating {}", key, e);
+                        }
+                    }, executorService))
+                    .collect(Collectors.toList());
+
+            // Wait for all futures to complete
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        } finally {
+            executorService.shutdown();
+        }
+
+        // Next session starts with these statistics
+        statisticsCache.flush();
+    }
+
+    private EnhancementStatistics statisticsFor(EnhancementType enhancementType, int targetLevel,
+                                                List<AbstractStack> stacks, int runs) {
+        ConsumptionStatisticsCache.Key key = statisticsKey(enhancementType, targetLevel, stacks, runs);
+        return statisticsCache.get(key, () -> ConsumptionSimulator.simulate(key));
+    }
+
+    private static ConsumptionStatisticsCache.Key statisticsKey(EnhancementType enhancementType, int targetLevel,
+                                                               List<AbstractStack> stacks, int runs) {
+        return ConsumptionStatisticsCache.Key.of(enhancementType, stacks, targetLevel, runs);
+    }
 
-        // Wait for all futures to complete
-        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    private static AccessoryEnhancementResult emptyResult(Accessory accessory) {
+        return new AccessoryEnhancementResult(
+                accessory.getId(),
+                accessory.getName(),
+                accessory.getBaseStock(),
+                0, 0,  // DUO items and profit (to be filled)
+                0, 0,  // TRI items and profit (to be filled)
+                0, 0   // TET items and profit (to be filled)
+        );
     }
 
     private long getPrice(Accessory accessory, int level) {
@@ -162,13 +557,22 @@ public class AccessoryProfitCalculator {
         }
     }
 
-    private String getLevelName(int level) {
-        return switch (level) {
-            case 2 -> "DUO";
-            case 3 -> "TRI";
-            case 4 -> "TET";
-            default -> "Level " + level;
-        };
+    private synchronized void updateDepthProfits(AccessoryEnhancementResult result, int level, long[] profits) {
+        switch (level) {
+            case 2 -> result.duoDepthProfits = profits;
+            case 3 -> result.triDepthProfits = profits;
+            case 4 -> result.tetDepthProfits = profits;
+            default -> throw new IllegalArgumentException("Unsupported enhancement level: " + level);
+        }
+    }
+
+    private synchronized void updateRisk(AccessoryEnhancementResult result, int level, ProfitRisk risk) {
+        switch (level) {
+            case 2 -> result.duoRisk = risk;
+            case 3 -> result.triRisk = risk;
+            case 4 -> result.tetRisk = risk;
+            default -> throw new IllegalArgumentException("Unsupported enhancement level: " + level);
+        }
     }
 
     // Helper method to send progress updates
@@ -178,84 +582,32 @@ public class AccessoryProfitCalculator {
         }
     }
 
-    private EnhancementResult calculateEnhancementCost(Accessory accessory, int targetLevel) {
-        long totalCost = 0;
-        long totalItems = 0;
-
-        for (int i = 0; i < simulationRuns; i++) {
-            SimulationRun run = simulateEnhancement(accessory, targetLevel);
-            totalCost += run.cost;
-            totalItems += run.items;
-        }
-
-        return new EnhancementResult(totalCost / simulationRuns, totalItems / simulationRuns);
+    private long calculateProfit(long salePrice, long cost) {
+        return (long) ((salePrice * Constants.MARKET_TAX) - cost);
     }
 
-    private SimulationRun simulateEnhancement(Accessory item, int targetLevel) {
-
-        if (item.isManosClothing()) {
-            return simulateManosClothingEnhancement(item, targetLevel);
+    /**
+     * Stacks, runs and prices of one calculation. Read once when a calculation starts and
+     * passed down, so stacks changed by a what-if in the meantime cannot end up mixed into
+     * one result or be cached under the wrong settings.
+     */
+    @EqualsAndHashCode
+    private static final class Settings {
+        private final List<AbstractStack> stacks;
+        private final int simulationRuns;
+        private final MaterialPrices materialPrices;
+        private final RiskModel riskModel;
+
+        private Settings(List<AbstractStack> stacks, int simulationRuns, MaterialPrices materialPrices,
+                         RiskModel riskModel) {
+            this.stacks = stacks;
+            this.simulationRuns = simulationRuns;
+            this.materialPrices = materialPrices;
+            this.riskModel = riskModel;
         }
 
-        AbstractStack selectedMonStack = monStack;
-        AbstractStack selectedDuoStack = duoStack;
-        AbstractStack selectedTriStack = triStack;
-        AbstractStack selectedTetStack = tetStack;
-
-        if (item.isCostume()) {
-            // Apply costume stacks
-            selectedMonStack = CostumeStack.findByStackCount(monStack.getStackCount());
-            selectedDuoStack = CostumeStack.findByStackCount(duoStack.getStackCount());
-            selectedTriStack = CostumeStack.findByStackCount(triStack.getStackCount());
-            selectedTetStack = CostumeStack.findByStackCount(tetStack.getStackCount());
+        private Settings withMaterialPrices(MaterialPrices prices) {
+            return new Settings(stacks, simulationRuns, prices, riskModel);
         }
-
-        // Get stack costs
-        long monStackCost = selectedMonStack.getBlackStoneCount() * Constants.BLACK_STONE_PRICE;
-        long duoStackCost = selectedDuoStack.getBlackStoneCount() * Constants.BLACK_STONE_PRICE;
-        long triStackCost = selectedTriStack.getBlackStoneCount() * Constants.BLACK_STONE_PRICE;
-        long tetStackCost = selectedTetStack.getBlackStoneCount() * Constants.BLACK_STONE_PRICE;
-
-        // Setup used stacks
-        FailStackSet stacksUsed = new FailStackSet(
-                selectedMonStack, selectedDuoStack, selectedTriStack, selectedTetStack);
-
-        // Setup enhance chances
-        double[] enhanceChances = new double[]{
-                selectedMonStack.getMonChance(),
-                selectedDuoStack.getDuoChance(),
-                selectedTriStack.getTriChance(),
-                selectedTetStack.getTetChance()
-        };
-
-        // Setup failstack cost
-        long[] failstackCost = new long[]{monStackCost, duoStackCost, triStackCost, tetStackCost};
-
-        // Init enhancer with stack data
-        AccessoryEnhancer enhancer = new AccessoryEnhancer(item.getBasePrice(), enhanceChances, failstackCost);
-        enhancer.setStacksUsed(stacksUsed);
-
-        // Enhance until target level is reached
-        while (enhancer.getCurrentLevel() < targetLevel) {
-            enhancer.enhance();
-        }
-
-        // Seperate cost value needed as it also includes stacks used
-        return new SimulationRun(enhancer.getTotalEnhanceCost(), enhancer.getTotalItemsConsumed());
-    }
-
-    private SimulationRun simulateManosClothingEnhancement(Accessory item, int targetLevel) {
-        int manosTargetLevel = item.getEnhancementType().getMarketLevel(targetLevel);
-        ManosClothingEnhancer enhancer = new ManosClothingEnhancer(item.getBasePrice());
-
-        while (enhancer.getCurrentLevel() < manosTargetLevel) {
-            enhancer.enhance();
-        }
-
-        return new SimulationRun(enhancer.getTotalEnhanceCost(), enhancer.getTotalItemsConsumed());
-    }
-
-    private long calculateProfit(long salePrice, long cost) {
-        return (long) ((salePrice * Constants.MARKET_TAX) - cost);
     }
 }
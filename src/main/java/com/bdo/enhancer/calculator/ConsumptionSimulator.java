@@ -0,0 +1,144 @@
+package com.bdo.enhancer.calculator;
+
+import com.bdo.enhancer.core.AccessoryEnhancer;
+import com.bdo.enhancer.core.ManosClothingEnhancer;
+import com.bdo.enhancer.metrics.Counter;
+import com.bdo.enhancer.metrics.MetricsRegistry;
+import com.bdo.enhancer.metrics.SimulationBatchEvent;
+import com.bdo.enhancer.model.item.EnhancementType;
+import com.bdo.enhancer.model.item.Material;
+import com.bdo.enhancer.model.item.MaterialPrices;
+import com.bdo.enhancer.model.result.EnhancementStatistics;
+import com.bdo.enhancer.model.result.SimulationRun;
+import com.bdo.enhancer.model.stack.AbstractStack;
+import com.bdo.enhancer.model.stack.FailStackSet;
+
+import java.util.List;
+
+/**
+ * Runs the enhancement simulation for a {@link ConsumptionStatisticsCache.Key} and records
+ * the consumed base items and material units, which do not depend on any market price.
+ * Shared by the profit calculator and the stack optimizer.
+ */
+final class ConsumptionSimulator {
+
+    /**
+     * Revision of the simulation logic itself. Bump it whenever the way a run is simulated
+     * changes, so persisted statistics are recognized as stale.
+     */
+    static final int SIMULATION_REVISION = 1;
+
+    private static final Counter SIMULATION_RUNS = MetricsRegistry.global().counter("simulate.runs");
+
+    private ConsumptionSimulator() {
+    }
+
+    static EnhancementStatistics simulate(ConsumptionStatisticsCache.Key key) {
+        SimulationBatchEvent event = new SimulationBatchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        int dimensions = Material.VALUES.length + 1;
+        // Sums of the consumed (base items, material units) and of their pairwise products,
+        // so the cost variance comes from the same pass as the mean
+        long[] totals = new long[dimensions];
+        double[] products = new double[EnhancementStatistics.covarianceSize(Material.VALUES.length)];
+        long[] consumed = new long[dimensions];
+        int runs = key.getSimulationRuns();
+
+        for (int i = 0; i < runs; i++) {
+            SimulationRun run = simulateRun(key);
+            consumed[0] = run.items;
+            System.arraycopy(run.materialUnits, 0, consumed, 1, run.materialUnits.length);
+            int entry = 0;
+            for (int row = 0; row < dimensions; row++) {
+                totals[row] += consumed[row];
+                for (int column = row; column < dimensions; column++) {
+                    products[entry++] += (double) consumed[row] * consumed[column];
+                }
+            }
+        }
+        SIMULATION_RUNS.add(runs);
+        // Simulations are shared by all items of a type, so they are timed per type and level
+        MetricsRegistry.global()
+                .timer("simulate." + key.getEnhancementType().name().toLowerCase() + ".level" + key.getTargetLevel())
+                .recordSince(start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.enhancementType = key.getEnhancementType().name();
+            event.stacks = key.describeStacks();
+            event.targetLevel = key.getTargetLevel();
+            event.runs = runs;
+            event.commit();
+        }
+
+        double[] means = new double[dimensions];
+        for (int row = 0; row < dimensions; row++) {
+            means[row] = totals[row] / (double) runs;
+        }
+        double[] covariance = new double[products.length];
+        int entry = 0;
+        for (int row = 0; row < dimensions; row++) {
+            for (int column = row; column < dimensions; column++) {
+                covariance[entry] = products[entry] / runs - means[row] * means[column];
+                entry++;
+            }
+        }
+        double[] avgMaterialUnits = new double[Material.VALUES.length];
+        System.arraycopy(means, 1, avgMaterialUnits, 0, avgMaterialUnits.length);
+        return new EnhancementStatistics(means[0], avgMaterialUnits, covariance);
+    }
+
+    private static SimulationRun simulateRun(ConsumptionStatisticsCache.Key key) {
+        int targetLevel = key.getTargetLevel();
+
+        if (key.getEnhancementType() == EnhancementType.MANOS_CLOTHING) {
+            return simulateManosClothingRun(targetLevel);
+        }
+
+        // Accessory or costume stacks, already resolved by the key; one stack per attempted level
+        List<AbstractStack> stacks = key.getStacks();
+        double[] enhanceChances = new double[stacks.size()];
+        int[] failstackBlackStones = new int[stacks.size()];
+        for (int level = 0; level < stacks.size(); level++) {
+            AbstractStack stack = stacks.get(level);
+            enhanceChances[level] = switch (level) {
+                case 0 -> stack.getMonChance();
+                case 1 -> stack.getDuoChance();
+                case 2 -> stack.getTriChance();
+                default -> stack.getTetChance();
+            };
+            failstackBlackStones[level] = stack.getBlackStoneCount();
+        }
+
+        FailStackSet stacksUsed = new FailStackSet(stackAt(stacks, 0), stackAt(stacks, 1),
+                stackAt(stacks, 2), stackAt(stacks, 3));
+
+        // Prices are applied to the statistics later
+        AccessoryEnhancer enhancer = new AccessoryEnhancer(0, enhanceChances,
+                failstackBlackStones, MaterialPrices.defaults());
+        enhancer.setStacksUsed(stacksUsed);
+
+        while (enhancer.getCurrentLevel() < targetLevel) {
+            enhancer.enhance();
+        }
+
+        return new SimulationRun(enhancer.getTotalEnhanceCost(), enhancer.getTotalItemsConsumed(),
+                enhancer.getMaterialUnits());
+    }
+
+    private static SimulationRun simulateManosClothingRun(int targetLevel) {
+        int manosTargetLevel = EnhancementType.MANOS_CLOTHING.getMarketLevel(targetLevel);
+        ManosClothingEnhancer enhancer = new ManosClothingEnhancer(0);
+
+        while (enhancer.getCurrentLevel() < manosTargetLevel) {
+            enhancer.enhance();
+        }
+
+        return new SimulationRun(enhancer.getTotalEnhanceCost(), enhancer.getTotalItemsConsumed(),
+                enhancer.getMaterialUnits());
+    }
+
+    private static AbstractStack stackAt(List<AbstractStack> stacks, int level) {
+        return level < stacks.size() ? stacks.get(level) : null;
+    }
+}
@@ -0,0 +1,176 @@
+package com.bdo.enhancer.calculator;
+
+import com.bdo.enhancer.model.item.EnhancementType;
+import com.bdo.enhancer.model.result.EnhancementStatistics;
+import com.bdo.enhancer.model.stack.AbstractStack;
+import com.bdo.enhancer.model.stack.CostumeStack;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Simulated consumption per enhancement type, stack set and target level.
+ *
+ * <p>How many items, black stones and materials an enhancement consumes does not
+ * depend on any market price, so the statistics are simulated once per key and
+ * every price change afterwards is just a dot product. Callers asking for a key
+ * that is being simulated wait for that simulation instead of starting another.</p>
+ *
+ * <p>Once attached to a {@link StatisticsLibrary} the cache starts with the statistics
+ * persisted by earlier sessions, and {@link #flush()} writes newly simulated ones back.</p>
+ */
+@Slf4j
+public class ConsumptionStatisticsCache {
+
+    /**
+     * Everything the simulated consumption depends on.
+     */
+    @Getter
+    @ToString
+    @EqualsAndHashCode
+    public static final class Key {
+        private final EnhancementType enhancementType;
+        // Empty for enhancement types with fixed chances
+        private final List<AbstractStack> stacks;
+        private final int targetLevel;
+        private final int simulationRuns;
+
+        public Key(EnhancementType enhancementType, List<AbstractStack> stacks, int targetLevel, int simulationRuns) {
+            this.enhancementType = enhancementType;
+            this.stacks = List.copyOf(stacks);
+            this.targetLevel = targetLevel;
+            this.simulationRuns = simulationRuns;
+        }
+
+        /**
+         * Creates the key for enhancing to the target level with the selected stacks.
+         * Only the stacks of the attempted levels are part of the key, so e.g. TRI
+         * statistics are shared by all TET stack choices. Costume stacks are resolved
+         * from the stack counts and fixed-chance items ignore the stacks.
+         *
+         * @param selectedStacks The PRI, DUO, TRI (and TET) stacks
+         */
+        public static Key of(EnhancementType enhancementType, List<AbstractStack> selectedStacks,
+                             int targetLevel, int simulationRuns) {
+            List<AbstractStack> attemptedStacks = selectedStacks.subList(0, targetLevel);
+            List<AbstractStack> stacks = switch (enhancementType) {
+                case ACCESSORY -> attemptedStacks;
+                case SILVER_EMBROIDERED_CLOTHING -> attemptedStacks.stream()
+                        .map(stack -> (AbstractStack) CostumeStack.findByStackCount(stack.getStackCount()))
+                        .collect(Collectors.toList());
+                // Fixed chances, the selected stacks do not matter
+                case MANOS_CLOTHING -> List.of();
+            };
+            return new Key(enhancementType, stacks, targetLevel, simulationRuns);
+        }
+
+        /**
+         * @return The stack counts of the attempted levels, e.g. {@code 30/40/45}
+         */
+        public String describeStacks() {
+            return stacks.stream()
+                    .map(stack -> String.valueOf(stack.getStackCount()))
+                    .collect(Collectors.joining("/"));
+        }
+    }
+
+    private final Map<Key, CompletableFuture<EnhancementStatistics>> entries = new ConcurrentHashMap<>();
+    // Set when statistics were simulated that the attached library does not know yet
+    private final AtomicBoolean modified = new AtomicBoolean();
+    private volatile StatisticsLibrary library;
+
+    /**
+     * Returns the statistics of the key, running the simulation if they are not known yet.
+     */
+    public EnhancementStatistics get(Key key, Supplier<EnhancementStatistics> simulation) {
+        CompletableFuture<EnhancementStatistics> created = new CompletableFuture<>();
+        CompletableFuture<EnhancementStatistics> existing = entries.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing.join();
+        }
+
+        try {
+            created.complete(simulation.get());
+            modified.set(true);
+        } catch (RuntimeException e) {
+            // Do not keep the failure, the next caller simulates again
+            entries.remove(key, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+        return created.join();
+    }
+
+    /**
+     * Adds already known statistics, keeping any entry that is present.
+     */
+    void put(Key key, EnhancementStatistics statistics) {
+        entries.putIfAbsent(key, CompletableFuture.completedFuture(statistics));
+    }
+
+    /**
+     * @return All statistics that finished simulating
+     */
+    public Map<Key, EnhancementStatistics> snapshot() {
+        Map<Key, EnhancementStatistics> statistics = new LinkedHashMap<>();
+        entries.forEach((key, entry) -> {
+            if (entry.isDone() && !entry.isCompletedExceptionally()) {
+                statistics.put(key, entry.join());
+            }
+        });
+        return statistics;
+    }
+
+    /**
+     * Loads the statistics persisted in the library and writes later simulations back to it
+     * on {@link #flush()}.
+     *
+     * @return Number of loaded statistics
+     */
+    public int attach(StatisticsLibrary library) {
+        this.library = library;
+        Map<Key, EnhancementStatistics> persisted = library.load();
+        persisted.forEach(this::put);
+        return persisted.size();
+    }
+
+    /**
+     * Persists the statistics if anything was simulated since the last flush. Failures are
+     * logged only: the statistics can always be simulated again.
+     */
+    public void flush() {
+        StatisticsLibrary target = library;
+        if (target == null || !modified.getAndSet(false)) {
+            return;
+        }
+        try {
+            target.save(snapshot());
+        } catch (IOException e) {
+            log.warn("Could not persist consumption statistics to {}", target.getFile(), e);
+        }
+    }
+
+    public boolean contains(Key key) {
+        CompletableFuture<EnhancementStatistics> entry = entries.get(key);
+        return entry != null && entry.isDone() && !entry.isCompletedExceptionally();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+}
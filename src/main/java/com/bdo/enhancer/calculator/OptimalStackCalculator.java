@@ -1,33 +1,56 @@
 package com.bdo.enhancer.calculator;
 
-import com.bdo.enhancer.core.AccessoryEnhancer;
+import com.bdo.enhancer.metrics.MetricsRegistry;
+import com.bdo.enhancer.metrics.StackCombinationEvent;
+import com.bdo.enhancer.metrics.Timer;
 import com.bdo.enhancer.model.constants.Constants;
 import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.item.EnhancementType;
+import com.bdo.enhancer.model.item.MaterialPrices;
+import com.bdo.enhancer.model.result.EnhancementStatistics;
 import com.bdo.enhancer.model.result.OptimalStackResult;
 import com.bdo.enhancer.model.stack.AbstractStack;
 import com.bdo.enhancer.model.stack.AccessoryStack;
 import com.bdo.enhancer.model.stack.CostumeStack;
-import com.bdo.enhancer.model.stack.FailStackSet;
+import com.bdo.enhancer.model.stack.FailstackModel;
 import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.CountDownLatch;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
+import java.util.function.IntToLongFunction;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 
 /**
  * Klasse zum Berechnen der optimalen Failstack-Kombination für jedes Accessoire
  * Optimiert für TRI Enhancement (Level 3)
+ *
+ * <p>Every integer stack of the {@link FailstackModel} can be chosen, so the combinations
+ * are searched instead of enumerated: coordinate by coordinate, each stack is optimized
+ * by a golden-section search while the others stay fixed. Per level a higher stack raises
+ * the chance less and less but costs more and more black stones, so the profit along one
+ * stack rises and then falls, which is what the golden-section search relies on. Only the
+ * visited combinations are simulated, a few dozen per item instead of tens of thousands.</p>
  */
 @Slf4j
 public class OptimalStackCalculator {
 
+    private static final Timer OPTIMIZE_TIMER = MetricsRegistry.global().timer("optimize.item");
+    private static final double INVERSE_GOLDEN_RATIO = (Math.sqrt(5) - 1) / 2;
+
     // Einstellbare Parameter
     private final int simulationRunsPerCombination;
     private final int threadCount;
@@ -35,11 +58,28 @@ public class OptimalStackCalculator {
     @Getter
     private final List<OptimalStackResult> results = new ArrayList<>();
 
+    // Materialpreise für die Failstack-Kosten
+    @Setter
+    private MaterialPrices materialPrices = MaterialPrices.defaults();
+
+    // Simulierter Verbrauch je Stack-Kombination, geteilt mit dem Profit-Rechner
+    @Getter
+    private final ConsumptionStatisticsCache statisticsCache;
+
     /**
      * Konstruktor mit Standard-Simulationsläufen und Thread-Anzahl
      */
     public OptimalStackCalculator() {
-        this(Constants.OPTIMIZATION_RUN_COUNT, Runtime.getRuntime().availableProcessors());
+        this(new ConsumptionStatisticsCache());
+    }
+
+    /**
+     * Konstruktor mit Standard-Simulationsläufen und Thread-Anzahl, der bereits simulierte Statistiken wiederverwendet
+     *
+     * @param statisticsCache Cache mit dem simulierten Verbrauch
+     */
+    public OptimalStackCalculator(ConsumptionStatisticsCache statisticsCache) {
+        this(Constants.OPTIMIZATION_RUN_COUNT, Runtime.getRuntime().availableProcessors(), statisticsCache);
     }
 
     /**
@@ -49,8 +89,21 @@ public class OptimalStackCalculator {
      * @param threadCount Anzahl der zu verwendenden Threads
      */
     public OptimalStackCalculator(int simulationRunsPerCombination, int threadCount) {
+        this(simulationRunsPerCombination, threadCount, new ConsumptionStatisticsCache());
+    }
+
+    /**
+     * Konstruktor mit anpassbaren Parametern
+     *
+     * @param simulationRunsPerCombination Anzahl der Simulationsläufe pro Stack-Kombination
+     * @param threadCount Anzahl der zu verwendenden Threads
+     * @param statisticsCache Cache mit dem simulierten Verbrauch
+     */
+    public OptimalStackCalculator(int simulationRunsPerCombination, int threadCount,
+                                  ConsumptionStatisticsCache statisticsCache) {
         this.simulationRunsPerCombination = simulationRunsPerCombination;
         this.threadCount = threadCount;
+        this.statisticsCache = statisticsCache;
     }
 
     /**
@@ -62,6 +115,25 @@ public class OptimalStackCalculator {
      */
     public List<OptimalStackResult> findOptimalStacks(List<Accessory> accessories,
                                                       Consumer<String> progressCallback) {
+        return findOptimalStacks(accessories, progressCallback, result -> { }, () -> false);
+    }
+
+    /**
+     * Findet die optimale Stack-Kombination für jedes Accessoire in der übergebenen Reihenfolge
+     * und meldet jedes Ergebnis sofort. Accessoires desselben Verbesserungstyps teilen sich die
+     * bereits simulierten Kombinationen über den Cache.
+     *
+     * @param accessories Liste der Accessoires, wichtigste zuerst
+     * @param progressCallback Callback für Fortschrittsmeldungen
+     * @param resultListener Erhält jedes Ergebnis, sobald es gefunden wurde
+     * @param cancelled Bricht die Optimierung ab, sobald true geliefert wird, auch laufende Suchen;
+     *                  bisherige Ergebnisse bleiben erhalten
+     * @return Liste mit optimalen Stack-Kombinationen der bis dahin fertigen Accessoires
+     */
+    public List<OptimalStackResult> findOptimalStacks(List<Accessory> accessories,
+                                                      Consumer<String> progressCallback,
+                                                      Consumer<OptimalStackResult> resultListener,
+                                                      BooleanSupplier cancelled) {
         results.clear();
 
         List<Accessory> optimizableAccessories = accessories.stream()
@@ -75,48 +147,61 @@ public class OptimalStackCalculator {
                     skippedFixedChanceItems));
         }
 
-        // Thread-Pool für parallele Berechnung
+        // Thread-Pool für parallele Simulation
         ExecutorService executorService = Executors.newFixedThreadPool(threadCount);
 
         try {
             // Log der Konfiguration
             logConfiguration(progressCallback);
 
-            // Für jedes Accessoire die optimale Kombination berechnen
-            int totalAccessories = optimizableAccessories.size();
-            AtomicInteger processedCount = new AtomicInteger(0);
-            CountDownLatch latch = new CountDownLatch(totalAccessories);
-            long startTime = System.currentTimeMillis();
-
-            for (Accessory accessory : optimizableAccessories) {
-                executorService.submit(() -> {
-                    try {
-                        OptimalStackResult optimalResult = findOptimalStacksForAccessory(accessory);
-
-                        synchronized (results) {
-                            results.add(optimalResult);
+            // Searches run in parallel in the given order, so the most important items finish first
+            AtomicInteger simulatedCombinations = new AtomicInteger();
+            List<Future<OptimalStackResult>> searches = optimizableAccessories.stream()
+                    .map(accessory -> executorService.submit(() -> {
+                        long start = System.nanoTime();
+                        try {
+                            OptimalStackResult result = findOptimalStacksForAccessory(accessory,
+                                    simulatedCombinations, cancelled);
+                            OPTIMIZE_TIMER.recordSince(start);
+                            return result;
+                        } catch (CancellationException e) {
+                            return null;
                         }
+                    }))
+                    .collect(Collectors.toList());
 
-                        // Fortschritt melden
-                        int completed = processedCount.incrementAndGet();
-                        if (progressCallback != null) {
-                            String message = createProgressMessage(
-                                    accessory.getName(), completed, totalAccessories, startTime);
-                            progressCallback.accept(message);
-                        }
-                    } catch (Exception e) {
-                        log.error("Error optimizing stacks for {}", accessory.getName(), e);
-                    } finally {
-                        latch.countDown();
+            // Ergebnisse in der übergebenen Reihenfolge melden
+            for (int index = 0; index < searches.size(); index++) {
+                if (cancelled.getAsBoolean()) {
+                    break;
+                }
+                try {
+                    OptimalStackResult result = searches.get(index).get();
+                    if (result != null) {
+                        results.add(result);
+                        resultListener.accept(result);
                     }
-                });
+                } catch (ExecutionException e) {
+                    log.error("Error optimizing stacks for {}", optimizableAccessories.get(index).getName(), e.getCause());
+                }
+                if (progressCallback != null) {
+                    progressCallback.accept(String.format("Optimized stacks of %d/%d items, %d stack combinations simulated",
+                            results.size(), optimizableAccessories.size(), simulatedCombinations.get()));
+                }
             }
 
-            // Warten bis alle Berechnungen abgeschlossen sind
-            latch.await();
+            // Queued searches never start, running ones stop at their next combination
+            searches.forEach(search -> search.cancel(false));
+            executorService.shutdown();
+            executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+            // Beim nächsten Start sind diese Kombinationen bereits bekannt
+            statisticsCache.flush();
 
             if (progressCallback != null) {
-                progressCallback.accept("Stack optimization completed for all stack-dependent items (optimized for TRI)");
+                progressCallback.accept(cancelled.getAsBoolean()
+                        ? String.format("Stack optimization cancelled after %d of %d items", results.size(), optimizableAccessories.size())
+                        : "Stack optimization completed for all stack-dependent items (optimized for TRI)");
             }
 
         } catch (InterruptedException e) {
@@ -133,14 +218,9 @@ public class OptimalStackCalculator {
      * Gibt Konfigurationsinformationen aus
      */
     private void logConfiguration(Consumer<String> progressCallback) {
-        AbstractStack[] nonFreeStacks = getNonFreeStacks(false);
-        int totalStacks = AccessoryStack.VALUES.length;
-        int usedStacks = nonFreeStacks.length;
-        long combinations = (long) Math.pow(usedStacks, 2); // Nur PRI und DUO variieren für TRI
-
         String message = String.format(
-                "Optimizing for TRI with non-FREE stacks: %d of %d stacks used (%d combinations per accessory)",
-                usedStacks, totalStacks, combinations);
+                "Optimizing for TRI over every stack from %d to %d by coordinate search (PRI <= DUO <= TRI)",
+                Constants.OPTIMIZATION_MIN_STACK, Constants.OPTIMIZATION_MAX_STACK);
 
         log.info(message);
 
@@ -149,169 +229,136 @@ public class OptimalStackCalculator {
         }
     }
 
-    /**
-     * Erstellt eine Fortschrittsmeldung mit Zeitschätzung
-     */
-    private String createProgressMessage(String accessoryName, int completed, int total, long startTime) {
-        double percentage = completed * 100.0 / total;
-
-        // Berechne verstrichene Zeit und schätze verbleibende Zeit
-        long elapsedTimeMs = System.currentTimeMillis() - startTime;
-        long estimatedTotalTimeMs = (completed > 0)
-                ? (long) (elapsedTimeMs * (total / (double) completed))
-                : 0;
-        long remainingTimeMs = Math.max(0, estimatedTotalTimeMs - elapsedTimeMs);
-
-        // Formatiere Zeitangaben
-        String elapsedTime = formatTime(elapsedTimeMs);
-        String remainingTime = formatTime(remainingTimeMs);
-
-        return String.format(
-                "Optimizing TRI stacks: %d/%d completed (%.1f%%) - %s (Elapsed: %s, Remaining: %s)",
-                completed, total, percentage, accessoryName, elapsedTime, remainingTime
-        );
-    }
-
-    /**
-     * Formatiert Millisekunden in ein lesbares Format (mm:ss oder hh:mm:ss)
-     */
-    private String formatTime(long timeMs) {
-        long totalSeconds = timeMs / 1000;
-        long hours = totalSeconds / 3600;
-        long minutes = (totalSeconds % 3600) / 60;
-        long seconds = totalSeconds % 60;
-
-        if (hours > 0) {
-            return String.format("%02d:%02d:%02d", hours, minutes, seconds);
-        } else {
-            return String.format("%02d:%02d", minutes, seconds);
-        }
-    }
-
     /**
      * Findet die optimale Stack-Kombination für ein einzelnes Accessoire
      * Optimiert für TRI Enhancement
      *
      * @param accessory Das zu analysierende Accessoire
+     * @param simulatedCombinations Counts the combinations simulated for the search
+     * @param cancelled Checked before every combination
      * @return Die optimale Stack-Kombination mit Profiten
+     * @throws CancellationException if the optimization was cancelled during the search
      */
-    private OptimalStackResult findOptimalStacksForAccessory(Accessory accessory) {
-        // Filtere alle Stacks, die "FREE" im Namen haben
-        AbstractStack[] nonFreeStacks = getNonFreeStacks(accessory.isCostume());
-
-        OptimalStackResult bestResult = new OptimalStackResult(
-                accessory.getName(),
-                AccessoryStack.FOURTY,
-                AccessoryStack.FOURTY,
-                AccessoryStack.FOURTYFIVE,
-                Long.MIN_VALUE
-        );
-
-        // Try all combinations of stacks to find the most profitable one
-        for (AbstractStack priStack : nonFreeStacks) {
-            for (AbstractStack duoStack : nonFreeStacks) {
-
-                // DUO stack must be higher than PRI
-                if (priStack.getStackCount() > duoStack.getStackCount()) {
-                    continue;
-                }
-
-                for (AbstractStack triStack : nonFreeStacks) {
-
-                    // TRI stack must be higher than PRI and DUO
-                    if (priStack.getStackCount() > triStack.getStackCount() || duoStack.getStackCount() > triStack.getStackCount()) {
-                        continue;
+    private OptimalStackResult findOptimalStacksForAccessory(Accessory accessory, AtomicInteger simulatedCombinations,
+                                                             BooleanSupplier cancelled) {
+        // Profit per visited (PRI, DUO, TRI) combination; rounds revisit many of them
+        Map<List<Integer>, Long> profits = new HashMap<>();
+        ToLongFunction<int[]> profit = counts -> profits.computeIfAbsent(
+                List.of(counts[0], counts[1], counts[2]),
+                combination -> {
+                    if (cancelled.getAsBoolean()) {
+                        throw new CancellationException("Stack optimization cancelled");
                     }
+                    return calculateProfitForCombination(accessory, stacks(accessory, counts), simulatedCombinations);
+                });
 
-                    // Calculate profit for current stack configuration
-                    long triProfit = calculateProfitForCombination(
-                            accessory, priStack, duoStack, triStack, 3);
-
-                    // Save best result
-                    if (triProfit > bestResult.totalProfit) {
-                        bestResult = new OptimalStackResult(
-                                accessory.getName(),
-                                priStack,
-                                duoStack,
-                                triStack,
-                                triProfit
-                        );
-                    }
+        int[] best = Constants.OPTIMIZATION_START_STACKS.clone();
+        long bestProfit = profit.applyAsLong(best);
+        for (int round = 0; round < Constants.OPTIMIZATION_MAX_ROUNDS; round++) {
+            boolean improved = false;
+            for (int level = 0; level < best.length; level++) {
+                // Kein Stack kleiner als der des vorherigen Levels
+                int low = level == 0 ? Constants.OPTIMIZATION_MIN_STACK : best[level - 1];
+                int high = level == best.length - 1 ? Constants.OPTIMIZATION_MAX_STACK : best[level + 1];
+                int[] candidate = best.clone();
+                int optimizedLevel = level;
+                candidate[level] = maximize(low, high, stack -> {
+                    candidate[optimizedLevel] = stack;
+                    return profit.applyAsLong(candidate);
+                });
+
+                long candidateProfit = profit.applyAsLong(candidate);
+                if (candidateProfit > bestProfit) {
+                    best = candidate;
+                    bestProfit = candidateProfit;
+                    improved = true;
                 }
             }
+            if (!improved) {
+                break;
+            }
         }
 
-        return bestResult;
+        List<AbstractStack> stacks = stacks(accessory, best);
+        return new OptimalStackResult(accessory.getName(), stacks.get(0), stacks.get(1), stacks.get(2), bestProfit);
     }
 
     /**
-     * Filtert alle Stacks, die "FREE" im Namen haben
+     * Integer golden-section search for the maximum of a function that rises and then falls.
+     * Each value is computed once; the last few stacks are compared directly.
      *
-     * @return Array mit allen Stacks, die nicht "FREE" im Namen haben
+     * @return The argument of the highest value in [low, high], the lowest one on ties
      */
-    private AbstractStack[] getNonFreeStacks(boolean isCostume) {
-        if (isCostume) {
-            return Arrays.stream(CostumeStack.VALUES)
-                    .filter(stack -> stack.getStackCount() <= 60)
-                    .toArray(AbstractStack[]::new);
+    static int maximize(int low, int high, IntToLongFunction function) {
+        Map<Integer, Long> values = new HashMap<>();
+        IntToLongFunction value = stack -> values.computeIfAbsent(stack, function::applyAsLong);
+
+        int from = low;
+        int to = high;
+        while (to - from > 3) {
+            int lower = from + (int) Math.round((to - from) * (1 - INVERSE_GOLDEN_RATIO));
+            int upper = Math.max(lower + 1, from + (int) Math.round((to - from) * INVERSE_GOLDEN_RATIO));
+            if (value.applyAsLong(lower) < value.applyAsLong(upper)) {
+                from = lower + 1;
+            } else {
+                to = upper - 1;
+            }
+        }
+
+        int best = from;
+        for (int stack = from + 1; stack <= to; stack++) {
+            if (value.applyAsLong(stack) > value.applyAsLong(best)) {
+                best = stack;
+            }
+        }
+        return best;
+    }
+
+    private static List<AbstractStack> stacks(Accessory accessory, int[] counts) {
+        List<AbstractStack> stacks = new ArrayList<>(counts.length);
+        for (int count : counts) {
+            stacks.add(accessory.isCostume() ? CostumeStack.findByStackCount(count) : AccessoryStack.findByStackCount(count));
         }
-        return Arrays.stream(AccessoryStack.VALUES)
-                .filter(stack -> stack.getStackCount() <= 60)
-                .toArray(AbstractStack[]::new);
+        return stacks;
+    }
+
+    private ConsumptionStatisticsCache.Key statisticsKey(EnhancementType enhancementType, List<AbstractStack> stacks) {
+        return ConsumptionStatisticsCache.Key.of(enhancementType, stacks, 3, simulationRunsPerCombination);
     }
 
     /**
-     * Berechnet den Profit für eine bestimmte Kombination von Stacks
+     * Berechnet den Profit für eine bestimmte Kombination von Stacks aus dem simulierten Verbrauch
      *
      * @param accessory Das zu analysierende Accessoire
-     * @param priStack PRI Stack
-     * @param duoStack DUO Stack
-     * @param triStack TRI Stack
-     * @param targetLevel Ziel-Level (jetzt 3 für TRI)
+     * @param stacks PRI, DUO und TRI Stack
+     * @param simulatedCombinations Incremented if the combination had to be simulated
      * @return Berechneter Profit
      */
-    private long calculateProfitForCombination(Accessory accessory,
-                                               AbstractStack priStack,
-                                               AbstractStack duoStack,
-                                               AbstractStack triStack,
-                                               int targetLevel) {
-        // Calc stack costs
-        long priStackCost = priStack.getBlackStoneCount() * Constants.BLACK_STONE_PRICE;
-        long duoStackCost = duoStack.getBlackStoneCount() * Constants.BLACK_STONE_PRICE;
-        long triStackCost = triStack.getBlackStoneCount() * Constants.BLACK_STONE_PRICE;
-
-        // Setup enhancement chances
-        double[] enhanceChances = new double[]{
-                priStack.getMonChance(),
-                duoStack.getDuoChance(),
-                triStack.getTriChance(),
-                0 // Only up to TRI for now
-        };
-
-        // Setup failstack Cost
-        long[] failstackCost = new long[]{priStackCost, duoStackCost, triStackCost, 0};
-
-        // Kosten und Verbrauchte Items berechnen
-        long totalCost = 0;
-
-        FailStackSet stacksUsed = new FailStackSet(priStack, duoStack, triStack, null);
-
-        for (int i = 0; i < simulationRunsPerCombination; i++) {
-            AccessoryEnhancer enhancer = new AccessoryEnhancer(accessory.getBasePrice(), enhanceChances, failstackCost);
-            enhancer.setStacksUsed(stacksUsed);
-
-            while (enhancer.getCurrentLevel() < targetLevel) {
-                enhancer.enhance();
-            }
-
-            totalCost += enhancer.getTotalEnhanceCost();
-        }
+    private long calculateProfitForCombination(Accessory accessory, List<AbstractStack> stacks,
+                                               AtomicInteger simulatedCombinations) {
+        StackCombinationEvent event = new StackCombinationEvent();
+        event.begin();
+        ConsumptionStatisticsCache.Key key = statisticsKey(accessory.getEnhancementType(), stacks);
+        EnhancementStatistics statistics = statisticsCache.get(key, () -> {
+            simulatedCombinations.incrementAndGet();
+            return ConsumptionSimulator.simulate(key);
+        });
 
         // Durchschnittliche Kosten berechnen
-        long avgCost = totalCost / simulationRunsPerCombination;
+        long avgCost = statistics.avgCost(accessory.getBasePrice(), materialPrices);
 
         // Profit berechnen - jetzt mit TRI-Preis statt TET-Preis
         long salePrice = accessory.getTriPrice(); // Für TRI
-        return (long) ((salePrice * Constants.MARKET_TAX) - avgCost);
+        long profit = (long) ((salePrice * Constants.MARKET_TAX) - avgCost);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.itemId = accessory.getId();
+            event.itemName = accessory.getName();
+            event.stacks = key.describeStacks();
+            event.profit = profit;
+            event.commit();
+        }
+        return profit;
     }
 }
@@ -0,0 +1,174 @@
+package com.bdo.enhancer.calculator;
+
+import com.bdo.enhancer.model.constants.Constants;
+import com.bdo.enhancer.model.result.PortfolioPlan;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chooses what to enhance with a fixed silver budget.
+ *
+ * <p>Every item can be enhanced to one target level a number of times. Each enhancement
+ * costs its expected cost, earns its expected profit and consumes its expected number of
+ * base items, so the listed base stock limits the quantity. The risk tolerance caps the
+ * share of the budget a single item may take; at 1 everything may go into the best item.</p>
+ *
+ * <p>This is a multiple-choice bounded knapsack. It is solved exactly by dynamic
+ * programming over the budget, split into {@value Constants#PORTFOLIO_BUDGET_STEPS} steps with
+ * costs rounded up, so a plan never exceeds the budget. The bounded quantities are handled
+ * with a sliding window maximum per cost residue, which keeps the work at
+ * items × levels × steps.</p>
+ */
+public class PortfolioOptimizer {
+
+    /**
+     * Expected outcome of enhancing an item to one target level once.
+     */
+    public static final class Candidate {
+        public final int id;
+        public final String name;
+        public final int level;
+        public final long expectedCost;
+        public final long expectedProfit;
+        public final double expectedItems;
+        public final long baseStock;
+
+        public Candidate(int id, String name, int level, long expectedCost, long expectedProfit,
+                         double expectedItems, long baseStock) {
+            this.id = id;
+            this.name = name;
+            this.level = level;
+            this.expectedCost = expectedCost;
+            this.expectedProfit = expectedProfit;
+            this.expectedItems = expectedItems;
+            this.baseStock = baseStock;
+        }
+    }
+
+    private final int budgetSteps;
+
+    public PortfolioOptimizer() {
+        this(Constants.PORTFOLIO_BUDGET_STEPS);
+    }
+
+    PortfolioOptimizer(int budgetSteps) {
+        this.budgetSteps = budgetSteps;
+    }
+
+    /**
+     * @param candidates Expected outcome per item and level, see {@link AccessoryProfitCalculator#portfolioCandidates}
+     * @param budget Silver available for all enhancements
+     * @param riskTolerance Largest share of the budget a single item may take, in (0, 1]
+     * @return The plan with the highest expected profit
+     */
+    public PortfolioPlan optimize(List<Candidate> candidates, long budget, double riskTolerance) {
+        if (riskTolerance <= 0 || riskTolerance > 1) {
+            throw new IllegalArgumentException("Risk tolerance must be in (0, 1]: " + riskTolerance);
+        }
+        if (budget <= 0) {
+            return new PortfolioPlan(Math.max(0, budget), List.of());
+        }
+
+        int steps = budgetSteps;
+        long stepSize = Math.max(1, (budget + steps - 1) / steps);
+        long itemBudget = (long) (budget * riskTolerance);
+
+        // One group per item; only profitable enhancements the stock and the item budget allow
+        Map<Integer, List<Option>> groups = new LinkedHashMap<>();
+        for (Candidate candidate : candidates) {
+            if (candidate.expectedProfit <= 0 || candidate.expectedCost <= 0 || candidate.expectedItems <= 0) {
+                continue;
+            }
+            int costSteps = (int) Math.min(Integer.MAX_VALUE, (candidate.expectedCost + stepSize - 1) / stepSize);
+            long byStock = (long) Math.floor(candidate.baseStock / candidate.expectedItems);
+            long byBudget = itemBudget / candidate.expectedCost;
+            int quantity = (int) Math.min(Math.min(byStock, byBudget), steps / costSteps);
+            if (quantity > 0) {
+                groups.computeIfAbsent(candidate.id, id -> new ArrayList<>()).add(new Option(candidate, costSteps, quantity));
+            }
+        }
+
+        List<List<Option>> items = new ArrayList<>(groups.values());
+        long[] best = new long[steps + 1];
+        // Per item and budget step: chosen option index + 1 and quantity, 0 if the item is skipped
+        int[][] chosenOption = new int[items.size()][];
+        int[][] chosenQuantity = new int[items.size()][];
+
+        long[] next = new long[steps + 1];
+        int[] windowIndex = new int[steps + 1];
+        long[] windowValue = new long[steps + 1];
+        for (int item = 0; item < items.size(); item++) {
+            System.arraycopy(best, 0, next, 0, best.length);
+            int[] option = new int[steps + 1];
+            int[] quantity = new int[steps + 1];
+
+            List<Option> options = items.get(item);
+            for (int index = 0; index < options.size(); index++) {
+                Option candidate = options.get(index);
+                int cost = candidate.steps;
+                long profit = candidate.candidate.expectedProfit;
+                for (int residue = 0; residue < cost && residue <= steps; residue++) {
+                    // Monotone deque over k of best[residue + k * cost] - k * profit
+                    int head = 0;
+                    int tail = 0;
+                    for (int j = 0, w = residue; w <= steps; j++, w += cost) {
+                        long value = best[w] - j * profit;
+                        while (tail > head && windowValue[tail - 1] <= value) {
+                            tail--;
+                        }
+                        windowIndex[tail] = j;
+                        windowValue[tail++] = value;
+                        if (windowIndex[head] < j - candidate.maxQuantity) {
+                            head++;
+                        }
+
+                        int count = j - windowIndex[head];
+                        long total = windowValue[head] + j * profit;
+                        if (count > 0 && total > next[w]) {
+                            next[w] = total;
+                            option[w] = index + 1;
+                            quantity[w] = count;
+                        }
+                    }
+                }
+            }
+
+            chosenOption[item] = option;
+            chosenQuantity[item] = quantity;
+            long[] swap = best;
+            best = next;
+            next = swap;
+        }
+
+        List<PortfolioPlan.Position> positions = new ArrayList<>();
+        int remaining = steps;
+        for (int item = items.size() - 1; item >= 0; item--) {
+            int index = chosenOption[item][remaining];
+            if (index == 0) {
+                continue;
+            }
+            Option option = items.get(item).get(index - 1);
+            int count = chosenQuantity[item][remaining];
+            Candidate candidate = option.candidate;
+            positions.add(0, new PortfolioPlan.Position(candidate.id, candidate.name, candidate.level, count,
+                    count * candidate.expectedItems, count * candidate.expectedCost, count * candidate.expectedProfit));
+            remaining -= count * option.steps;
+        }
+        return new PortfolioPlan(budget, positions);
+    }
+
+    private static final class Option {
+        final Candidate candidate;
+        final int steps;
+        final int maxQuantity;
+
+        Option(Candidate candidate, int steps, int maxQuantity) {
+            this.candidate = candidate;
+            this.steps = steps;
+            this.maxQuantity = maxQuantity;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.bdo.enhancer.calculator;
+
+import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.result.AccessoryEnhancementResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Staged fetch → simulate pipeline.
+ *
+ * <p>Enriched accessories are submitted as soon as the market layer has priced
+ * them. A calculation stage simulates them concurrently and publishes every
+ * finished {@link AccessoryEnhancementResult} right away, so network time and
+ * simulation time overlap. The stages are connected through bounded
+ * {@link SubmissionPublisher} buffers: if the simulation falls behind,
+ * {@link #submit(Accessory)} blocks the fetching threads instead of piling up
+ * work.</p>
+ */
+@Slf4j
+public class ProfitPipeline {
+
+    private static final int BUFFER_SIZE = 32;
+
+    private final AccessoryProfitCalculator calculator;
+    private final int parallelism;
+    private final ExecutorService computeExecutor;
+    private final ExecutorService deliveryExecutor;
+    private final SubmissionPublisher<Accessory> accessories;
+    private final SubmissionPublisher<AccessoryEnhancementResult> results;
+    private final CompletableFuture<Void> calculationsDone = new CompletableFuture<>();
+    private final List<CompletableFuture<Void>> resultConsumers = new ArrayList<>();
+
+    public ProfitPipeline(AccessoryProfitCalculator calculator) {
+        this(calculator, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ProfitPipeline(AccessoryProfitCalculator calculator, int parallelism) {
+        this.calculator = calculator;
+        this.parallelism = parallelism;
+        this.computeExecutor = Executors.newFixedThreadPool(parallelism);
+        this.deliveryExecutor = Executors.newCachedThreadPool();
+        this.accessories = new SubmissionPublisher<>(deliveryExecutor, BUFFER_SIZE);
+        this.results = new SubmissionPublisher<>(deliveryExecutor, BUFFER_SIZE);
+        this.accessories.subscribe(new CalculationStage());
+    }
+
+    /**
+     * Registers a consumer for finished results. Must be called before the first submit.
+     */
+    public void onResult(Consumer<AccessoryEnhancementResult> consumer) {
+        resultConsumers.add(results.consume(consumer));
+    }
+
+    /**
+     * Hands an enriched accessory to the calculation stage, blocking while the stage's buffer is full.
+     */
+    public void submit(Accessory accessory) {
+        accessories.submit(accessory);
+    }
+
+    /**
+     * Signals that no more accessories will be submitted and waits until every result
+     * was handed to the result consumers.
+     */
+    public void completeAndAwait() {
+        accessories.close();
+        try {
+            calculationsDone.join();
+            results.close();
+            CompletableFuture.allOf(resultConsumers.toArray(new CompletableFuture[0])).join();
+        } finally {
+            results.close();
+            computeExecutor.shutdown();
+            deliveryExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Requests as many accessories as it can simulate concurrently and asks for the
+     * next one whenever a simulation finishes.
+     */
+    private class CalculationStage implements Flow.Subscriber<Accessory> {
+
+        private final AtomicInteger running = new AtomicInteger();
+        private volatile boolean upstreamDone;
+        private Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(parallelism);
+        }
+
+        @Override
+        public void onNext(Accessory accessory) {
+            running.incrementAndGet();
+            computeExecutor.execute(() -> {
+                try {
+                    results.submit(calculator.calculateAccessoryProfit(accessory));
+                } catch (Exception e) {
+                    log.error("Error calculating enhancement for {}", accessory.getName(), e);
+                } finally {
+                    running.decrementAndGet();
+                    if (upstreamDone) {
+                        finishIfIdle();
+                    } else {
+                        subscription.request(1);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            log.error("Accessory stream failed", throwable);
+            upstreamDone = true;
+            finishIfIdle();
+        }
+
+        @Override
+        public void onComplete() {
+            upstreamDone = true;
+            finishIfIdle();
+        }
+
+        private void finishIfIdle() {
+            if (running.get() == 0) {
+                calculationsDone.complete(null);
+            }
+        }
+    }
+}
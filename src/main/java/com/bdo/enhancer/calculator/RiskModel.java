@@ -0,0 +1,151 @@
+package com.bdo.enhancer.calculator;
+
+import com.bdo.enhancer.model.constants.Constants;
+import com.bdo.enhancer.model.result.ProfitRisk;
+import lombok.AccessLevel;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Turns the mean and variance of a profit into a {@link ProfitRisk}: its standard
+ * deviation, the probability of a loss and a risk-adjusted profit to rank by.
+ *
+ * <p>The profit is the taxed sale price minus the cost of many independent attempts,
+ * so it is treated as normally distributed. The risk-adjusted profit is either the
+ * mean minus k standard deviations, or the conditional value at risk: the expected
+ * profit in the worst given share of outcomes.</p>
+ */
+@Getter
+@EqualsAndHashCode
+public final class RiskModel {
+
+    public enum Measure {
+        MEAN_MINUS_K_SIGMA, CVAR
+    }
+
+    private final Measure measure;
+    // k for MEAN_MINUS_K_SIGMA, the tail probability for CVAR
+    private final double parameter;
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    private final double tailFactor;
+
+    private RiskModel(Measure measure, double parameter) {
+        this.measure = measure;
+        this.parameter = parameter;
+        // For CVAR the penalty in standard deviations is φ(z) / α with z the α-quantile
+        this.tailFactor = measure == Measure.CVAR
+                ? normalDensity(inverseNormalCdf(parameter)) / parameter
+                : parameter;
+    }
+
+    /**
+     * @param k Standard deviations to subtract, 0 ranks by the mean profit
+     */
+    public static RiskModel meanMinusSigma(double k) {
+        if (k < 0 || Double.isNaN(k)) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        return new RiskModel(Measure.MEAN_MINUS_K_SIGMA, k);
+    }
+
+    /**
+     * @param tail Share of the worst outcomes to average, in (0, 1)
+     */
+    public static RiskModel conditionalValueAtRisk(double tail) {
+        if (!(tail > 0 && tail < 1)) {
+            throw new IllegalArgumentException("The tail must be in (0, 1): " + tail);
+        }
+        return new RiskModel(Measure.CVAR, tail);
+    }
+
+    public static RiskModel defaults() {
+        return meanMinusSigma(Constants.RISK_AVERSION);
+    }
+
+    /**
+     * Parses {@code sigma:<k>} or {@code cvar:<tail>}, e.g. {@code sigma:1} or {@code cvar:0.05}.
+     */
+    public static RiskModel parse(String text) {
+        int separator = text.indexOf(':');
+        if (separator > 0) {
+            String measure = text.substring(0, separator).trim().toLowerCase();
+            String parameter = text.substring(separator + 1).trim();
+            try {
+                if (measure.equals("sigma")) {
+                    return meanMinusSigma(Double.parseDouble(parameter));
+                }
+                if (measure.equals("cvar")) {
+                    return conditionalValueAtRisk(Double.parseDouble(parameter));
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+        }
+        throw new IllegalArgumentException("Expected sigma:<k> or cvar:<tail>: " + text);
+    }
+
+    /**
+     * @param meanProfit Expected profit
+     * @param variance Variance of the profit
+     */
+    public ProfitRisk assess(long meanProfit, double variance) {
+        double stdDev = Math.sqrt(Math.max(0, variance));
+        if (stdDev == 0) {
+            return new ProfitRisk(0, meanProfit < 0 ? 1 : 0, meanProfit);
+        }
+        double lossProbability = normalCdf(-meanProfit / stdDev);
+        return new ProfitRisk(stdDev, lossProbability, Math.round(meanProfit - tailFactor * stdDev));
+    }
+
+    @Override
+    public String toString() {
+        return (measure == Measure.CVAR ? "cvar:" : "sigma:") + parameter;
+    }
+
+    static double normalDensity(double x) {
+        return Math.exp(-0.5 * x * x) / Math.sqrt(2 * Math.PI);
+    }
+
+    /**
+     * Standard normal distribution function, by the complementary error function
+     * (Numerical Recipes erfc approximation, relative error below 1.2e-7).
+     */
+    static double normalCdf(double x) {
+        double z = Math.abs(x) / Math.sqrt(2);
+        double t = 1 / (1 + 0.5 * z);
+        double erfc = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+                + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+                + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? 1 - erfc / 2 : erfc / 2;
+    }
+
+    /**
+     * Quantile of the standard normal distribution (Acklam's rational approximation,
+     * relative error below 1.2e-9).
+     */
+    static double inverseNormalCdf(double p) {
+        double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+                1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+                6.680131188771972e+01, -1.328068155288572e+01};
+        double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+                -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+                3.754408661907416e+00};
+        double low = 0.02425;
+
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - low) {
+            return -inverseNormalCdf(1 - p);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+}
@@ -0,0 +1,216 @@
+package com.bdo.enhancer.calculator;
+
+import com.bdo.enhancer.model.constants.Constants;
+import com.bdo.enhancer.model.item.Material;
+import com.bdo.enhancer.model.item.MaterialPrices;
+import com.bdo.enhancer.model.result.EnhancementStatistics;
+import com.bdo.enhancer.model.result.ScenarioReport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Prices every item and target level under every scenario of a {@link ScenarioGrid}.
+ *
+ * <p>The consumption statistics do not depend on prices, so a scenario is only a dot
+ * product of the expected base items and material units with the scaled prices. The
+ * unscaled cost terms are computed once per item and level and kept column by column;
+ * the scenarios are split into chunks that are evaluated in parallel, each keeping
+ * only the running minimum, maximum and sum per item, so memory does not grow with
+ * the grid.</p>
+ */
+public class ScenarioEvaluator {
+
+    /**
+     * Prices and consumption of enhancing an item to one target level once.
+     */
+    public static final class Input {
+        public final int id;
+        public final String name;
+        public final int level;
+        public final long basePrice;
+        public final long salePrice;
+        public final EnhancementStatistics statistics;
+
+        public Input(int id, String name, int level, long basePrice, long salePrice,
+                     EnhancementStatistics statistics) {
+            this.id = id;
+            this.name = name;
+            this.level = level;
+            this.basePrice = basePrice;
+            this.salePrice = salePrice;
+            this.statistics = statistics;
+        }
+    }
+
+    private final MaterialPrices materialPrices;
+
+    public ScenarioEvaluator(MaterialPrices materialPrices) {
+        this.materialPrices = materialPrices;
+    }
+
+    /**
+     * @param inputs Items and levels, see {@link AccessoryProfitCalculator#scenarioInputs}
+     * @return The profit range and break-even prices of every input, in input order
+     */
+    public ScenarioReport evaluate(List<Input> inputs, ScenarioGrid grid) {
+        long start = System.nanoTime();
+        Columns columns = new Columns(inputs, materialPrices);
+
+        int scenarios = grid.size();
+        int chunks = Math.min(scenarios, ForkJoinPool.getCommonPoolParallelism() * 4);
+        Accumulator total = IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(chunk -> columns.evaluate(grid,
+                        (int) ((long) scenarios * chunk / chunks),
+                        (int) ((long) scenarios * (chunk + 1) / chunks)))
+                .reduce(Accumulator::merge)
+                .orElseThrow();
+
+        List<ScenarioReport.Outcome> outcomes = new ArrayList<>(inputs.size());
+        for (int row = 0; row < inputs.size(); row++) {
+            outcomes.add(outcome(inputs.get(row), row, columns, total, grid));
+        }
+        return new ScenarioReport(scenarios, System.nanoTime() - start, outcomes);
+    }
+
+    private ScenarioReport.Outcome outcome(Input input, int row, Columns columns, Accumulator total, ScenarioGrid grid) {
+        EnhancementStatistics statistics = input.statistics;
+        long cost = statistics.avgCost(input.basePrice, materialPrices);
+        long profit = (long) (input.salePrice * Constants.MARKET_TAX - cost);
+
+        // Every price moves the profit linearly, by the units consumed of it
+        long breakEvenBasePrice = statistics.avgItems > 0
+                ? Math.max(0, input.basePrice + (long) Math.floor(profit / statistics.avgItems))
+                : -1;
+        long[] breakEvenMaterialPrices = new long[Material.VALUES.length];
+        for (Material material : Material.VALUES) {
+            double units = statistics.avgMaterialUnits[material.ordinal()];
+            breakEvenMaterialPrices[material.ordinal()] = units > 0
+                    ? Math.max(0, materialPrices.get(material) + (long) Math.floor(profit / units))
+                    : -1;
+        }
+
+        return new ScenarioReport.Outcome(input.id, input.name, input.level, profit,
+                total.worst[row], grid.describe(total.worstScenario[row]), total.best[row],
+                Math.round(total.sum[row] / grid.size()), (double) total.profitable[row] / grid.size(),
+                (long) Math.ceil(cost / Constants.MARKET_TAX), (long) Math.ceil(total.requiredSalePrice[row]),
+                breakEvenBasePrice, breakEvenMaterialPrices);
+    }
+
+    /**
+     * Unscaled sale and cost terms of all inputs, one array per term.
+     */
+    private static final class Columns {
+        final int rows;
+        final int[] saleFactor;
+        final double[] salePrice;
+        final double[] itemCost;
+        // Material cost terms by Material ordinal, then row
+        final double[][] materialCost;
+
+        Columns(List<Input> inputs, MaterialPrices materialPrices) {
+            rows = inputs.size();
+            saleFactor = new int[rows];
+            salePrice = new double[rows];
+            itemCost = new double[rows];
+            materialCost = new double[Material.VALUES.length][rows];
+            for (int row = 0; row < rows; row++) {
+                Input input = inputs.get(row);
+                saleFactor[row] = ScenarioGrid.saleFactor(input.level);
+                salePrice[row] = input.salePrice;
+                itemCost[row] = input.statistics.avgItems * input.basePrice;
+                for (Material material : Material.VALUES) {
+                    materialCost[material.ordinal()][row] =
+                            input.statistics.avgMaterialUnits[material.ordinal()] * materialPrices.get(material);
+                }
+            }
+        }
+
+        Accumulator evaluate(ScenarioGrid grid, int fromScenario, int toScenario) {
+            Accumulator accumulator = new Accumulator(rows);
+            double[] multipliers = new double[ScenarioGrid.FACTORS];
+            double[] cost = new double[rows];
+            for (int scenario = fromScenario; scenario < toScenario; scenario++) {
+                grid.multipliers(scenario, multipliers);
+
+                // Summed in the order of MaterialPrices.cost, so unscaled prices give the ranking's profits
+                Arrays.fill(cost, 0);
+                for (int material = 0; material < materialCost.length; material++) {
+                    double multiplier = multipliers[material];
+                    double[] terms = materialCost[material];
+                    for (int row = 0; row < rows; row++) {
+                        cost[row] += terms[row] * multiplier;
+                    }
+                }
+
+                double baseMultiplier = multipliers[ScenarioGrid.BASE_FACTOR];
+                for (int row = 0; row < rows; row++) {
+                    long totalCost = (long) (itemCost[row] * baseMultiplier + cost[row]);
+                    double saleMultiplier = multipliers[saleFactor[row]];
+                    long profit = (long) (salePrice[row] * saleMultiplier * Constants.MARKET_TAX - totalCost);
+                    accumulator.add(row, scenario, profit,
+                            saleMultiplier > 0 ? totalCost / (saleMultiplier * Constants.MARKET_TAX) : Double.POSITIVE_INFINITY);
+                }
+            }
+            return accumulator;
+        }
+    }
+
+    /**
+     * Running profit statistics per row over a range of scenarios.
+     */
+    private static final class Accumulator {
+        final long[] worst;
+        final int[] worstScenario;
+        final long[] best;
+        final double[] sum;
+        final int[] profitable;
+        // Highest current sale price any scenario needs to break even
+        final double[] requiredSalePrice;
+
+        Accumulator(int rows) {
+            worst = new long[rows];
+            Arrays.fill(worst, Long.MAX_VALUE);
+            worstScenario = new int[rows];
+            best = new long[rows];
+            Arrays.fill(best, Long.MIN_VALUE);
+            sum = new double[rows];
+            profitable = new int[rows];
+            requiredSalePrice = new double[rows];
+        }
+
+        void add(int row, int scenario, long profit, double requiredPrice) {
+            if (profit < worst[row]) {
+                worst[row] = profit;
+                worstScenario[row] = scenario;
+            }
+            best[row] = Math.max(best[row], profit);
+            sum[row] += profit;
+            if (profit > 0) {
+                profitable[row]++;
+            }
+            requiredSalePrice[row] = Math.max(requiredSalePrice[row], requiredPrice);
+        }
+
+        /**
+         * Merges the statistics of a later range of scenarios; ties keep the earlier worst scenario.
+         */
+        Accumulator merge(Accumulator later) {
+            for (int row = 0; row < worst.length; row++) {
+                if (later.worst[row] < worst[row]) {
+                    worst[row] = later.worst[row];
+                    worstScenario[row] = later.worstScenario[row];
+                }
+                best[row] = Math.max(best[row], later.best[row]);
+                sum[row] += later.sum[row];
+                profitable[row] += later.profitable[row];
+                requiredSalePrice[row] = Math.max(requiredSalePrice[row], later.requiredSalePrice[row]);
+            }
+            return this;
+        }
+    }
+}
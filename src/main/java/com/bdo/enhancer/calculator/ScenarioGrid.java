@@ -0,0 +1,203 @@
+package com.bdo.enhancer.calculator;
+
+import com.bdo.enhancer.model.item.Material;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * What-if price multipliers: every combination of the multipliers given per factor is
+ * one scenario. The factors are the material prices, the base item price and the sale
+ * prices of DUO, TRI and TET; a factor without multipliers stays at 1.
+ *
+ * <p>Scenarios are not stored but decoded from their index, so a grid of millions of
+ * combinations costs only its axes.</p>
+ */
+public final class ScenarioGrid {
+
+    /** Factor of the base item price */
+    public static final int BASE_FACTOR = Material.VALUES.length;
+    public static final int FACTORS = BASE_FACTOR + 4;
+
+    private static final double[] UNCHANGED = {1.0};
+
+    private final double[][] multipliers;
+    private final int size;
+
+    private ScenarioGrid(double[][] multipliers) {
+        this.multipliers = multipliers;
+        long combinations = 1;
+        for (double[] axis : multipliers) {
+            combinations *= axis.length;
+            if (combinations > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many scenarios: more than " + Integer.MAX_VALUE);
+            }
+        }
+        this.size = (int) combinations;
+    }
+
+    /**
+     * @return The grid with the single scenario of unchanged prices
+     */
+    public static ScenarioGrid unchanged() {
+        double[][] multipliers = new double[FACTORS][];
+        Arrays.fill(multipliers, UNCHANGED);
+        return new ScenarioGrid(multipliers);
+    }
+
+    /**
+     * @return A copy with the multipliers of a material price replaced
+     */
+    public ScenarioGrid withMaterial(Material material, double... values) {
+        return with(material.ordinal(), values);
+    }
+
+    /**
+     * @return A copy with the multipliers of the base item price replaced
+     */
+    public ScenarioGrid withBasePrice(double... values) {
+        return with(BASE_FACTOR, values);
+    }
+
+    /**
+     * @param level Sale level: 2 = DUO, 3 = TRI, 4 = TET
+     * @return A copy with the multipliers of the sale price of a level replaced
+     */
+    public ScenarioGrid withSalePrice(int level, double... values) {
+        return with(saleFactor(level), values);
+    }
+
+    private ScenarioGrid with(int factor, double[] values) {
+        if (values.length == 0) {
+            throw new IllegalArgumentException("No multipliers for " + factorName(factor));
+        }
+        for (double value : values) {
+            if (!(value >= 0) || Double.isInfinite(value)) {
+                throw new IllegalArgumentException("Invalid multiplier for " + factorName(factor) + ": " + value);
+            }
+        }
+        double[][] copy = multipliers.clone();
+        copy[factor] = values.clone();
+        return new ScenarioGrid(copy);
+    }
+
+    /**
+     * Parses axes separated by {@code ;}, each a factor and its multipliers, e.g.
+     * {@code CRYSTALLIZED_DESPAIR=0.8,1.0;TET=0.9,1.0} or {@code BLACK_STONE=0.5..1.5/0.25}.
+     * Factors are the material names, {@code BASE}, {@code DUO}, {@code TRI} and {@code TET}.
+     */
+    public static ScenarioGrid parse(String text) {
+        ScenarioGrid grid = unchanged();
+        for (String axis : text.split(";")) {
+            if (axis.isBlank()) {
+                continue;
+            }
+            int separator = axis.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected <factor>=<multipliers>: " + axis.trim());
+            }
+            int factor = factorIndex(axis.substring(0, separator).trim());
+            grid = grid.with(factor, parseMultipliers(axis.substring(separator + 1).trim()));
+        }
+        return grid;
+    }
+
+    private static double[] parseMultipliers(String text) {
+        try {
+            int range = text.indexOf("..");
+            if (range < 0) {
+                return Arrays.stream(text.split(",")).mapToDouble(value -> Double.parseDouble(value.trim())).toArray();
+            }
+            int stepSeparator = text.indexOf('/', range);
+            if (stepSeparator < 0) {
+                throw new IllegalArgumentException("A range needs a step, e.g. 0.5..1.5/0.25: " + text);
+            }
+            double from = Double.parseDouble(text.substring(0, range).trim());
+            double to = Double.parseDouble(text.substring(range + 2, stepSeparator).trim());
+            double step = Double.parseDouble(text.substring(stepSeparator + 1).trim());
+            if (!(step > 0) || to < from) {
+                throw new IllegalArgumentException("Invalid range: " + text);
+            }
+            // The end is included despite rounding errors of the step
+            int steps = (int) Math.floor((to - from) / step + 1e-9);
+            double[] values = new double[steps + 1];
+            for (int index = 0; index <= steps; index++) {
+                values[index] = Math.round((from + index * step) * 1e9) / 1e9;
+            }
+            return values;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid multipliers: " + text);
+        }
+    }
+
+    /**
+     * @return The number of scenarios, the product of the axis lengths
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Writes the multipliers of one scenario, indexed by factor, into the given array.
+     */
+    public void multipliers(int scenario, double[] target) {
+        int remainder = scenario;
+        for (int factor = 0; factor < FACTORS; factor++) {
+            double[] axis = multipliers[factor];
+            target[factor] = axis[remainder % axis.length];
+            remainder /= axis.length;
+        }
+    }
+
+    /**
+     * @return The changed factors of a scenario, e.g. {@code CRYSTALLIZED_DESPAIR x0.8, TET x0.9}
+     */
+    public String describe(int scenario) {
+        double[] values = new double[FACTORS];
+        multipliers(scenario, values);
+        StringBuilder description = new StringBuilder();
+        for (int factor = 0; factor < FACTORS; factor++) {
+            if (values[factor] != 1.0) {
+                if (description.length() > 0) {
+                    description.append(", ");
+                }
+                description.append(factorName(factor)).append(" x").append(values[factor]);
+            }
+        }
+        return description.length() == 0 ? "unchanged" : description.toString();
+    }
+
+    /**
+     * @param level Sale level: 2 = DUO, 3 = TRI, 4 = TET
+     */
+    public static int saleFactor(int level) {
+        if (level < 2 || level > 4) {
+            throw new IllegalArgumentException("Unsupported enhancement level: " + level);
+        }
+        return BASE_FACTOR + level - 1;
+    }
+
+    static String factorName(int factor) {
+        if (factor < BASE_FACTOR) {
+            return Material.VALUES[factor].name();
+        }
+        return switch (factor - BASE_FACTOR) {
+            case 0 -> "BASE";
+            case 1 -> "DUO";
+            case 2 -> "TRI";
+            case 3 -> "TET";
+            default -> throw new IndexOutOfBoundsException("Unknown factor: " + factor);
+        };
+    }
+
+    private static int factorIndex(String name) {
+        String upperCase = name.toUpperCase(Locale.ROOT);
+        for (int factor = 0; factor < FACTORS; factor++) {
+            if (factorName(factor).equals(upperCase)) {
+                return factor;
+            }
+        }
+        throw new IllegalArgumentException("Unknown factor: " + name
+                + " (expected a material, BASE, DUO, TRI or TET)");
+    }
+}
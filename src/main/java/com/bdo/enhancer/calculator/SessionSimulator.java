@@ -0,0 +1,197 @@
+package com.bdo.enhancer.calculator;
+
+import com.bdo.enhancer.core.AccessoryEnhancer;
+import com.bdo.enhancer.metrics.Counter;
+import com.bdo.enhancer.metrics.MetricsRegistry;
+import com.bdo.enhancer.model.constants.Constants;
+import com.bdo.enhancer.model.item.EnhancementType;
+import com.bdo.enhancer.model.result.SessionReport;
+import com.bdo.enhancer.model.stack.FailstackModel;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Simulates enhancement sessions: a number of items enhanced one after another with an
+ * inventory of failstacks that carries over from click to click.
+ *
+ * <p>The consumption simulation prices every successful click with a freshly built stack.
+ * In a session a failed click instead grows the stack it used by
+ * {@link Constants#SESSION_STACK_GROWTH}, and the grown stack goes back to the inventory for
+ * later clicks, possibly on a higher level; a successful click consumes its stack. The
+ * {@link StackPolicy} picks the stack for every click or builds a new one. Chances come
+ * from the {@link FailstackModel}; pity works as in {@link AccessoryEnhancer}.</p>
+ *
+ * <p>Sessions are independent and run in parallel, each with its own {@link SplittableRandom}
+ * seeded from the session number, so a seed reproduces the report. The state of a session
+ * lives in a few primitive arrays and the click loop allocates nothing.</p>
+ */
+public class SessionSimulator {
+
+    private static final Counter SESSION_CLICKS = MetricsRegistry.global().counter("simulate.session.clicks");
+    private static final long SEED_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final int targetLevel;
+    private final StackPolicy policy;
+    private final int[] initialStacks;
+    // Success chance in percent by level and stack, and black stones by stack as the presets price them:
+    // free stacks cost nothing, and stacks grown past the last bought preset are worth only that preset
+    private final double[][] chances;
+    private final long[] blackStones;
+    private final int[] pityThresholds;
+
+    /**
+     * @param enhancementType Accessories or costumes; fixed-chance items do not use stacks
+     * @param targetLevel Level an item is finished at: 1 = PRI up to 4 = TET
+     * @param policy Chooses the stack of every click
+     * @param initialStacks Stacks on hand when every session starts
+     */
+    public SessionSimulator(EnhancementType enhancementType, int targetLevel, StackPolicy policy, int[] initialStacks) {
+        if (enhancementType == EnhancementType.MANOS_CLOTHING) {
+            throw new IllegalArgumentException("Manos clothing has fixed chances and uses no failstacks");
+        }
+        if (targetLevel < 1 || targetLevel > 4) {
+            throw new IllegalArgumentException("Unsupported enhancement level: " + targetLevel);
+        }
+        FailstackModel model = enhancementType == EnhancementType.SILVER_EMBROIDERED_CLOTHING
+                ? FailstackModel.COSTUME
+                : FailstackModel.ACCESSORY;
+        this.targetLevel = targetLevel;
+        this.policy = policy;
+        this.initialStacks = initialStacks.clone();
+
+        chances = new double[4][FailstackModel.MAX_STACK + 1];
+        blackStones = new long[FailstackModel.MAX_STACK + 1];
+        for (int stack = FailstackModel.MIN_STACK; stack <= FailstackModel.MAX_STACK; stack++) {
+            for (int level = 0; level < 4; level++) {
+                chances[level][stack] = model.chance(level, stack);
+            }
+            blackStones[stack] = FailstackModel.blackStones(stack);
+        }
+        pityThresholds = new int[4];
+        for (int level = 0; level < 4; level++) {
+            pityThresholds[level] = AccessoryEnhancer.pityThreshold(level);
+        }
+        for (int stack : initialStacks) {
+            if (stack < FailstackModel.MIN_STACK || stack > FailstackModel.MAX_STACK) {
+                throw new IllegalArgumentException("Invalid stack on hand: " + stack);
+            }
+        }
+    }
+
+    /**
+     * @param sessions Independent sessions to simulate
+     * @param itemsPerSession Items each session finishes
+     * @param seed Seed of the first session's random numbers
+     */
+    public SessionReport simulate(int sessions, int itemsPerSession, long seed) {
+        if (sessions <= 0 || itemsPerSession <= 0) {
+            throw new IllegalArgumentException("Sessions and items per session must be positive");
+        }
+        long start = System.nanoTime();
+        long[] clicks = new long[sessions];
+        long[] baseItems = new long[sessions];
+        long[] boughtBlackStones = new long[sessions];
+        long[] freshBlackStones = new long[sessions];
+        long[] stockChange = new long[sessions];
+
+        // Each session writes only its own entries
+        IntStream.range(0, sessions).parallel().forEach(session -> {
+            Session state = new Session(new SplittableRandom(seed + session * SEED_GAMMA));
+            state.run(itemsPerSession);
+            clicks[session] = state.clicks;
+            baseItems[session] = state.baseItems;
+            boughtBlackStones[session] = state.boughtBlackStones;
+            freshBlackStones[session] = state.freshBlackStones;
+            stockChange[session] = state.stockValue() - stockValue(initialStacks, initialStacks.length);
+        });
+        SESSION_CLICKS.add(Arrays.stream(clicks).sum());
+
+        return new SessionReport(targetLevel, itemsPerSession, System.nanoTime() - start, clicks, baseItems,
+                boughtBlackStones, freshBlackStones, stockChange);
+    }
+
+    private long stockValue(int[] stacks, int count) {
+        long value = 0;
+        for (int index = 0; index < count; index++) {
+            value += blackStones[stacks[index]];
+        }
+        return value;
+    }
+
+    /**
+     * Mutable state of one session.
+     */
+    private final class Session {
+        private final SplittableRandom random;
+        // Stacks on hand; one item is enhanced at a time, so only a few are built beyond the initial ones
+        private int[] stacks;
+        private int stackCount;
+        private final int[] fails = new int[4];
+
+        long clicks;
+        long baseItems;
+        long boughtBlackStones;
+        long freshBlackStones;
+
+        Session(SplittableRandom random) {
+            this.random = random;
+            this.stacks = Arrays.copyOf(initialStacks, initialStacks.length + 8);
+            this.stackCount = initialStacks.length;
+        }
+
+        void run(int items) {
+            int level = 0;
+            int finished = 0;
+            while (finished < items) {
+                clicks++;
+                // The first attempt uses two base items, every later one the item and one more
+                baseItems += level == 0 ? 2 : 1;
+
+                int index = policy.select(level, stacks, stackCount);
+                if (index < 0) {
+                    int built = policy.stackToBuild(level);
+                    boughtBlackStones += blackStones[built];
+                    index = add(built);
+                }
+                int stack = stacks[index];
+
+                boolean pity = fails[level] >= pityThresholds[level];
+                if (pity || random.nextDouble() * 100 <= chances[level][stack]) {
+                    // Pity succeeds without consuming the stack
+                    if (!pity) {
+                        freshBlackStones += blackStones[policy.stackToBuild(level)];
+                        remove(index);
+                    }
+                    fails[level] = 0;
+                    level++;
+                    if (level == targetLevel) {
+                        finished++;
+                        level = 0;
+                    }
+                } else {
+                    stacks[index] = Math.min(FailstackModel.MAX_STACK, stack + Constants.SESSION_STACK_GROWTH[level]);
+                    fails[level]++;
+                    level = 0;
+                }
+            }
+        }
+
+        long stockValue() {
+            return SessionSimulator.this.stockValue(stacks, stackCount);
+        }
+
+        private int add(int stack) {
+            if (stackCount == stacks.length) {
+                stacks = Arrays.copyOf(stacks, stacks.length * 2);
+            }
+            stacks[stackCount] = stack;
+            return stackCount++;
+        }
+
+        private void remove(int index) {
+            stacks[index] = stacks[--stackCount];
+        }
+    }
+}
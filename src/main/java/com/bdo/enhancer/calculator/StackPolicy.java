@@ -0,0 +1,70 @@
+package com.bdo.enhancer.calculator;
+
+import com.bdo.enhancer.model.stack.FailstackModel;
+
+/**
+ * Chooses the failstack for the next click of an enhancement session from the stacks
+ * on hand, or decides to build a new one. Called for every click, so implementations
+ * must not allocate.
+ */
+public interface StackPolicy {
+
+    /**
+     * @param level Attempted level: 0 = PRI, 1 = DUO, 2 = TRI, 3 = TET
+     * @param stacks Stacks on hand, only the first {@code count} entries are valid
+     * @return Index of the stack to click with, or -1 to build {@link #stackToBuild(int)}
+     */
+    int select(int level, int[] stacks, int count);
+
+    /**
+     * @return The stack to build when none on hand is chosen for the level
+     */
+    int stackToBuild(int level);
+
+    /**
+     * Clicks every level with the smallest stack on hand that reaches its target but not yet
+     * the target of a higher level, and builds the target stack if there is none. Stacks that
+     * grow into the range of a higher level are kept for it instead of being spent below.
+     *
+     * @param targets Target stack for PRI, DUO, TRI and TET
+     */
+    static StackPolicy byLevelTargets(int... targets) {
+        if (targets.length != 4) {
+            throw new IllegalArgumentException("Expected a target stack for PRI, DUO, TRI and TET");
+        }
+        for (int target : targets) {
+            if (target < FailstackModel.MIN_STACK || target > FailstackModel.MAX_STACK) {
+                throw new IllegalArgumentException("Invalid target stack: " + target);
+            }
+        }
+        int[] lowest = targets.clone();
+        // Exclusive upper end per level: the next higher target of a later level
+        int[] limits = new int[targets.length];
+        for (int level = 0; level < targets.length; level++) {
+            limits[level] = Integer.MAX_VALUE;
+            for (int higher = level + 1; higher < targets.length; higher++) {
+                if (targets[higher] > targets[level]) {
+                    limits[level] = Math.min(limits[level], targets[higher]);
+                }
+            }
+        }
+        return new StackPolicy() {
+            @Override
+            public int select(int level, int[] stacks, int count) {
+                int best = -1;
+                for (int index = 0; index < count; index++) {
+                    int stack = stacks[index];
+                    if (stack >= lowest[level] && stack < limits[level] && (best < 0 || stack < stacks[best])) {
+                        best = index;
+                    }
+                }
+                return best;
+            }
+
+            @Override
+            public int stackToBuild(int level) {
+                return lowest[level];
+            }
+        };
+    }
+}
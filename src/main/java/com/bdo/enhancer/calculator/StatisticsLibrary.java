@@ -0,0 +1,218 @@
+package com.bdo.enhancer.calculator;
+
+import com.bdo.enhancer.core.AccessoryEnhancer;
+import com.bdo.enhancer.core.ManosClothingEnhancer;
+import com.bdo.enhancer.model.item.EnhancementType;
+import com.bdo.enhancer.model.item.Material;
+import com.bdo.enhancer.model.result.EnhancementStatistics;
+import com.bdo.enhancer.model.stack.AbstractStack;
+import com.bdo.enhancer.model.stack.AccessoryStack;
+import com.bdo.enhancer.model.stack.CostumeStack;
+import com.bdo.enhancer.model.stack.FailstackModel;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary file of simulated consumption statistics, so the calculator and the optimizer
+ * start warm instead of simulating every stack combination again each session.
+ *
+ * <p>The statistics depend only on the game rules and the chosen stacks. The header
+ * therefore carries a hash over the stack tables and enhancement rules; a file written
+ * under other rules is ignored as stale. The file is read into the heap in one go and
+ * not mapped, since a live mapping keeps Windows from replacing it on the next save.</p>
+ *
+ * <p>Layout (big-endian): magic, format version, rules hash, material count, entry count,
+ * then per entry the enhancement type ordinal, the number of stacks, their stack counts,
+ * the target level, the simulation runs, the average items, the average units of
+ * every material and the packed covariance of items and material units.</p>
+ */
+@Slf4j
+public class StatisticsLibrary {
+
+    static final int MAGIC = 0x42444F53; // "BDOS"
+    static final int FORMAT_VERSION = 2;
+
+    private static final int HEADER_BYTES = Integer.BYTES * 4 + Long.BYTES;
+
+    @Getter
+    private final Path file;
+
+    public StatisticsLibrary(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads the persisted statistics. Missing, stale or damaged files yield no statistics,
+     * which only means they are simulated again.
+     */
+    public Map<ConsumptionStatisticsCache.Key, EnhancementStatistics> load() {
+        try {
+            if (Files.isRegularFile(file)) {
+                return read(ByteBuffer.wrap(Files.readAllBytes(file)), file.toString());
+            }
+        } catch (IOException e) {
+            log.warn("Could not read consumption statistics from {}", file, e);
+        }
+        return Map.of();
+    }
+
+    /**
+     * Replaces the file with the given statistics. The file is written next to the target
+     * and moved into place, so readers never see a partially written library.
+     */
+    public void save(Map<ConsumptionStatisticsCache.Key, EnhancementStatistics> statistics) throws IOException {
+        int entryBytes = 0;
+        for (ConsumptionStatisticsCache.Key key : statistics.keySet()) {
+            entryBytes += entryBytes(key);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + entryBytes);
+        buffer.putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(rulesHash())
+                .putInt(Material.VALUES.length)
+                .putInt(statistics.size());
+        statistics.forEach((key, entry) -> {
+            buffer.put((byte) key.getEnhancementType().ordinal());
+            buffer.put((byte) key.getStacks().size());
+            key.getStacks().forEach(stack -> buffer.putInt(stack.getStackCount()));
+            buffer.putInt(key.getTargetLevel());
+            buffer.putInt(key.getSimulationRuns());
+            buffer.putDouble(entry.avgItems);
+            for (double units : entry.avgMaterialUnits) {
+                buffer.putDouble(units);
+            }
+            for (double covariance : entry.covariance) {
+                buffer.putDouble(covariance);
+            }
+        });
+        buffer.flip();
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        log.info("Persisted {} consumption statistics to {}", statistics.size(), file);
+    }
+
+    /**
+     * Hash over everything the simulated consumption depends on besides the key: the
+     * stack tables and the failstack model, the enhancement rules and the order of the enum
+     * values stored by ordinal.
+     */
+    static long rulesHash() {
+        long hash = 0xcbf29ce484222325L;
+        hash = mix(hash, FORMAT_VERSION);
+        hash = mix(hash, ConsumptionSimulator.SIMULATION_REVISION);
+        hash = mix(hash, AccessoryEnhancer.rulesHashCode());
+        hash = mix(hash, ManosClothingEnhancer.rulesHashCode());
+        for (AbstractStack stack : AccessoryStack.VALUES) {
+            hash = mix(hash, stack);
+        }
+        for (AbstractStack stack : CostumeStack.VALUES) {
+            hash = mix(hash, stack);
+        }
+        hash = mix(hash, FailstackModel.rulesHashCode());
+        for (Material material : Material.VALUES) {
+            hash = mix(hash, material.name().hashCode());
+        }
+        for (EnhancementType type : EnhancementType.values()) {
+            hash = mix(hash, type.name().hashCode());
+        }
+        return hash;
+    }
+
+    private static Map<ConsumptionStatisticsCache.Key, EnhancementStatistics> read(ByteBuffer buffer, String source) {
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                log.info("Ignoring consumption statistics in {}: unknown format", source);
+                return Map.of();
+            }
+            if (buffer.getLong() != rulesHash() || buffer.getInt() != Material.VALUES.length) {
+                log.info("Ignoring consumption statistics in {}: simulated under other enhancement rules", source);
+                return Map.of();
+            }
+
+            int entryCount = buffer.getInt();
+            EnhancementType[] types = EnhancementType.values();
+            Map<ConsumptionStatisticsCache.Key, EnhancementStatistics> statistics = new LinkedHashMap<>();
+            for (int entry = 0; entry < entryCount; entry++) {
+                EnhancementType type = types[buffer.get()];
+                int stackCount = buffer.get();
+                List<AbstractStack> stacks = new ArrayList<>(stackCount);
+                for (int level = 0; level < stackCount; level++) {
+                    stacks.add(findStack(type, buffer.getInt()));
+                }
+                int targetLevel = buffer.getInt();
+                int simulationRuns = buffer.getInt();
+                double avgItems = buffer.getDouble();
+                double[] avgMaterialUnits = new double[Material.VALUES.length];
+                for (int material = 0; material < avgMaterialUnits.length; material++) {
+                    avgMaterialUnits[material] = buffer.getDouble();
+                }
+                double[] covariance = new double[EnhancementStatistics.covarianceSize(avgMaterialUnits.length)];
+                for (int index = 0; index < covariance.length; index++) {
+                    covariance[index] = buffer.getDouble();
+                }
+                statistics.put(new ConsumptionStatisticsCache.Key(type, stacks, targetLevel, simulationRuns),
+                        new EnhancementStatistics(avgItems, avgMaterialUnits, covariance));
+            }
+            log.info("Loaded {} consumption statistics from {}", statistics.size(), source);
+            return statistics;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            log.warn("Ignoring damaged consumption statistics in {}", source, e);
+            return Map.of();
+        }
+    }
+
+    private static AbstractStack findStack(EnhancementType type, int stackCount) {
+        return type == EnhancementType.SILVER_EMBROIDERED_CLOTHING
+                ? CostumeStack.findByStackCount(stackCount)
+                : AccessoryStack.findByStackCount(stackCount);
+    }
+
+    private static int entryBytes(ConsumptionStatisticsCache.Key key) {
+        return 2 + Integer.BYTES * (key.getStacks().size() + 2)
+                + Double.BYTES * (1 + Material.VALUES.length + EnhancementStatistics.covarianceSize(Material.VALUES.length));
+    }
+
+    private static long mix(long hash, AbstractStack stack) {
+        hash = mix(hash, stack.getStackCount());
+        hash = mix(hash, stack.getBlackStoneCount());
+        hash = mix(hash, Double.hashCode(stack.getMonChance()));
+        hash = mix(hash, Double.hashCode(stack.getDuoChance()));
+        hash = mix(hash, Double.hashCode(stack.getTriChance()));
+        return mix(hash, Double.hashCode(stack.getTetChance()));
+    }
+
+    // FNV-1a over the four bytes of the value
+    private static long mix(long hash, int value) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            hash ^= (value >>> shift) & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
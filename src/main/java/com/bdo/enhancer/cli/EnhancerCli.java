@@ -0,0 +1,416 @@
+package com.bdo.enhancer.cli;
+
+import com.bdo.enhancer.calculator.AccessoryProfitCalculator;
+import com.bdo.enhancer.calculator.OptimalStackCalculator;
+import com.bdo.enhancer.calculator.RiskModel;
+import com.bdo.enhancer.calculator.ScenarioEvaluator;
+import com.bdo.enhancer.calculator.ScenarioGrid;
+import com.bdo.enhancer.calculator.SessionSimulator;
+import com.bdo.enhancer.calculator.StackPolicy;
+import com.bdo.enhancer.calculator.StatisticsLibrary;
+import com.bdo.enhancer.market.DeltaRefreshResult;
+import com.bdo.enhancer.market.MarketDataService;
+import com.bdo.enhancer.market.MultiRegionMarketService;
+import com.bdo.enhancer.market.PriceHistoryStore;
+import com.bdo.enhancer.market.MarketFetchResult;
+import com.bdo.enhancer.market.MarketRequestScheduler;
+import com.bdo.enhancer.metrics.MetricsRegistry;
+import com.bdo.enhancer.model.constants.Constants;
+import com.bdo.enhancer.model.constants.MarketRegion;
+import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.item.MaterialPrices;
+import com.bdo.enhancer.model.result.AccessoryEnhancementResult;
+import com.bdo.enhancer.model.result.OptimalStackResult;
+import com.bdo.enhancer.model.result.ScenarioReport;
+import com.bdo.enhancer.model.result.SessionReport;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Headless batch mode: fetches the market (or reads a saved snapshot), calculates all
+ * items, optionally finds their optimal stacks, writes the ranking and exits.
+ *
+ * <p>Nothing here references AWT, Swing or FlatLaf, so none of them is loaded and the
+ * batch mode runs on servers without a display. The exit code tells scheduled runs
+ * whether the ranking is based on complete market data.</p>
+ */
+@Slf4j
+public final class EnhancerCli {
+
+    /** Every item was fetched and calculated */
+    public static final int EXIT_OK = 0;
+    /** Unexpected failure, e.g. the output could not be written */
+    public static final int EXIT_FAILURE = 1;
+    /** Invalid command line */
+    public static final int EXIT_USAGE = 2;
+    /** The ranking was written, but some categories or items could not be fetched */
+    public static final int EXIT_PARTIAL_DATA = 3;
+    /** No usable market data, nothing was ranked */
+    public static final int EXIT_NO_DATA = 4;
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java -jar BlackDesertEnhancer.jar --batch [options]",
+            "  --input <file>        Calculate a saved market snapshot instead of fetching the market",
+            "  --save-market <file>  Save the fetched market data as snapshot for later runs",
+            "  --output <file>       Ranking file, standard output if omitted",
+            "  --format csv|json     Output format, taken from the output file extension by default",
+            "  --region eu|na|sea|kr Market region, default " + Constants.DEFAULT_MARKET_REGION.getCode()
+                    + "; several, e.g. eu,na, are fetched together and ranked",
+            "                        into one output file each, named like ranking-eu.csv",
+            "  --runs <n>            Simulation runs per stack combination, default " + Constants.SIMULATION_RUN_COUNT,
+            "  --optimize            Also find the optimal TRI stacks of every item",
+            "  --risk sigma:<k>|cvar:<tail>  Risk-adjusted profit, default sigma:" + Constants.RISK_AVERSION,
+            "  --scenarios <grid>    Price multipliers to evaluate, e.g. CRYSTALLIZED_DESPAIR=0.8,1;TET=0.9..1/0.05",
+            "  --scenario-output <file>  Profit ranges and break-even prices of the scenarios as CSV",
+            "  --session <items>     Simulate sessions of enhancing that many items to TRI, carrying failstacks over",
+            "  --data-dir <dir>      Directory of the statistics cache, price history and metrics, default the working directory",
+            "",
+            "Exit codes: 0 complete, 1 failure, 2 usage, 3 partial market data, 4 no market data");
+
+    private EnhancerCli() {
+    }
+
+    /**
+     * @return True if the arguments ask for the batch mode instead of the window
+     */
+    public static boolean isBatchMode(String[] args) {
+        return args.length > 0 && "--batch".equals(args[0]);
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.out, System.err));
+    }
+
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return EXIT_USAGE;
+        }
+        if (options.help) {
+            out.println(USAGE);
+            return EXIT_OK;
+        }
+
+        try {
+            return run(options, out, err);
+        } catch (IOException e) {
+            err.println("Batch run failed: " + e.getMessage());
+            log.error("Batch run failed", e);
+            return EXIT_FAILURE;
+        } finally {
+            MetricsRegistry.global().writeJson(options.dataDirectory.resolve(Constants.METRICS_FILE));
+        }
+    }
+
+    private static int run(Options options, PrintStream out, PrintStream err) throws IOException {
+        if (options.regions.size() > 1) {
+            return runRegions(options, new MultiRegionMarketService(), err);
+        }
+
+        // Live fetches extend the history, and its volatility feeds the risk-adjusted profits. A snapshot
+        // adds no samples, so its runs leave the history alone.
+        PriceHistoryStore priceHistory = options.input != null ? null : PriceHistoryStore.openForRegion(
+                options.dataDirectory.resolve(Constants.PRICE_HISTORY_DIRECTORY), options.regions.get(0));
+        try {
+            return run(options, priceHistory, out, err);
+        } finally {
+            if (priceHistory != null) {
+                priceHistory.close();
+            }
+        }
+    }
+
+    private static int run(Options options, PriceHistoryStore priceHistory, PrintStream out, PrintStream err)
+            throws IOException {
+        MarketSnapshot market;
+        String marketStatus;
+        boolean complete;
+        if (options.input != null) {
+            market = MarketSnapshot.read(options.input);
+            marketStatus = market.getAccessories().size() + " accessories from " + options.input;
+            complete = true;
+        } else {
+            MarketDataService marketService = new MarketDataService(options.regions.get(0), MarketRequestScheduler.shared());
+            marketService.setProgressCallback(err::println);
+            marketService.setPriceHistory(priceHistory);
+            MarketFetchResult fetchResult = marketService.fetchAccessories();
+            market = new MarketSnapshot(fetchResult.getAccessories(), marketService.getMaterialPrices());
+            marketStatus = fetchResult.describe();
+            complete = fetchResult.isComplete();
+            if (options.saveMarket != null && !market.getAccessories().isEmpty()) {
+                market.write(options.saveMarket);
+            }
+        }
+        err.println("Market data: " + marketStatus);
+
+        if (market.getAccessories().isEmpty()) {
+            err.println("No usable market data, nothing to rank");
+            return EXIT_NO_DATA;
+        }
+
+        AccessoryProfitCalculator calculator = newCalculator(options, err);
+        calculator.setMaterialPrices(market.getMaterialPrices());
+        calculator.setPriceHistory(priceHistory);
+        List<AccessoryEnhancementResult> results = calculator.calculateProfitsWithAccessories(market.getAccessories());
+
+        List<OptimalStackResult> optimalStacks = List.of();
+        if (options.optimize) {
+            OptimalStackCalculator optimizer = new OptimalStackCalculator(calculator.getStatisticsCache());
+            optimizer.setMaterialPrices(market.getMaterialPrices());
+            optimalStacks = optimizer.findOptimalStacks(market.getAccessories(), err::println);
+        }
+
+        if (options.scenarios != null) {
+            ScenarioEvaluator evaluator = new ScenarioEvaluator(market.getMaterialPrices());
+            ScenarioReport report = evaluator.evaluate(calculator.scenarioInputs(market.getAccessories()),
+                    options.scenarios);
+            writeFile(options.scenarioOutput, writer -> new ScenarioWriter(report).write(writer));
+            err.printf("%,d scenarios evaluated in %d ms, written to %s%n",
+                    report.scenarios, report.elapsedNanos / 1_000_000, options.scenarioOutput);
+        }
+
+        if (options.sessionItems > 0) {
+            reportSessions(calculator, market, options.sessionItems, err);
+        }
+
+        RankingWriter ranking = new RankingWriter(results, optimalStacks, marketStatus, complete);
+        if (options.output == null) {
+            ranking.write(options.format, new PrintWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8)));
+        } else {
+            writeFile(options.output, writer -> ranking.write(options.format, writer));
+            err.println("Ranking of " + results.size() + " items written to " + options.output);
+        }
+
+        return complete ? EXIT_OK : EXIT_PARTIAL_DATA;
+    }
+
+    /**
+     * Fetches several regions at once and ranks each of them into its own output file. All regions
+     * send their requests through the scheduler of the given service, and one simulation pass prices
+     * all of them. The price history of each region is extended, but the rankings leave out the sale
+     * price volatility, which the calculator only knows for a single region.
+     */
+    static int runRegions(Options options, MultiRegionMarketService markets, PrintStream err) throws IOException {
+        List<PriceHistoryStore> histories = new ArrayList<>();
+        try {
+            for (MarketRegion region : options.regions) {
+                PriceHistoryStore history = PriceHistoryStore.openForRegion(
+                        options.dataDirectory.resolve(Constants.PRICE_HISTORY_DIRECTORY), region);
+                histories.add(history);
+                markets.getService(region).setPriceHistory(history);
+            }
+            return rankRegions(options, markets, err);
+        } finally {
+            for (PriceHistoryStore history : histories) {
+                history.close();
+            }
+        }
+    }
+
+    private static int rankRegions(Options options, MultiRegionMarketService markets, PrintStream err)
+            throws IOException {
+        markets.setProgressCallback(err::println);
+        Map<MarketRegion, DeltaRefreshResult> refreshes = markets.refreshRegions(options.regions);
+
+        Map<MarketRegion, List<Accessory>> accessoriesByRegion = new EnumMap<>(MarketRegion.class);
+        Map<MarketRegion, MaterialPrices> materialPricesByRegion = new EnumMap<>(MarketRegion.class);
+        boolean complete = true;
+        for (MarketRegion region : options.regions) {
+            DeltaRefreshResult refresh = refreshes.get(region);
+            if (refresh == null || refresh.getAccessories().isEmpty()) {
+                err.println("Market data " + region.getCode() + ": no usable market data");
+                complete = false;
+                continue;
+            }
+            err.println("Market data " + region.getCode() + ": " + refresh.getFetchResult().describe());
+            complete &= refresh.getFetchResult().isComplete();
+            accessoriesByRegion.put(region, refresh.getAccessories());
+            materialPricesByRegion.put(region, markets.getService(region).getMaterialPrices());
+        }
+
+        if (accessoriesByRegion.isEmpty()) {
+            err.println("No usable market data, nothing to rank");
+            return EXIT_NO_DATA;
+        }
+
+        Map<MarketRegion, List<AccessoryEnhancementResult>> resultsByRegion = newCalculator(options, err)
+                .calculateRegionalProfits(accessoriesByRegion, materialPricesByRegion);
+        for (Map.Entry<MarketRegion, List<AccessoryEnhancementResult>> entry : resultsByRegion.entrySet()) {
+            MarketFetchResult fetchResult = refreshes.get(entry.getKey()).getFetchResult();
+            RankingWriter ranking = new RankingWriter(entry.getValue(), List.of(), fetchResult.describe(),
+                    fetchResult.isComplete());
+            Path output = regionalOutput(options.output, entry.getKey());
+            writeFile(output, writer -> ranking.write(options.format, writer));
+            err.println("Ranking of " + entry.getValue().size() + " " + entry.getKey().getCode()
+                    + " items written to " + output);
+        }
+
+        return complete ? EXIT_OK : EXIT_PARTIAL_DATA;
+    }
+
+    private static AccessoryProfitCalculator newCalculator(Options options, PrintStream err) {
+        AccessoryProfitCalculator calculator = new AccessoryProfitCalculator();
+        calculator.getStatisticsCache().attach(new StatisticsLibrary(
+                options.dataDirectory.resolve(Constants.STATISTICS_LIBRARY_FILE)));
+        calculator.setSimulationRuns(options.runs);
+        calculator.setRiskModel(options.riskModel);
+        calculator.setProgressCallback(err::println);
+        return calculator;
+    }
+
+    /**
+     * @return The output file with the region code appended to its name, e.g. ranking-eu.csv
+     */
+    static Path regionalOutput(Path output, MarketRegion region) {
+        String name = output.getFileName().toString();
+        int extension = name.lastIndexOf('.');
+        String regionalName = extension > 0
+                ? name.substring(0, extension) + "-" + region.getCode() + name.substring(extension)
+                : name + "-" + region.getCode();
+        return output.resolveSibling(regionalName);
+    }
+
+    /**
+     * Simulates sessions per enhancement type with the calculator's stacks as targets and reports
+     * the consumption per finished item next to what fresh stacks for every click would take.
+     */
+    private static void reportSessions(AccessoryProfitCalculator calculator, MarketSnapshot market, int items,
+                                       PrintStream err) {
+        StackPolicy policy = StackPolicy.byLevelTargets(calculator.getMonStack().getStackCount(),
+                calculator.getDuoStack().getStackCount(), calculator.getTriStack().getStackCount(),
+                calculator.getTetStack().getStackCount());
+        market.getAccessories().stream()
+                .filter(Accessory::usesFailstacks)
+                .map(Accessory::getEnhancementType)
+                .distinct()
+                .forEach(type -> {
+                    SessionReport report = new SessionSimulator(type, 3, policy, new int[0])
+                            .simulate(Constants.SESSION_COUNT, items, System.nanoTime());
+                    err.printf("%s sessions of %d TRI items: %.1f clicks, %.2f base items and %.0f black stones "
+                                    + "per item (%.0f with fresh stacks), %,d clicks in %d ms%n",
+                            type, items, report.clicksPerItem(), report.baseItemsPerItem(),
+                            report.blackStonesPerItem(), report.freshBlackStonesPerItem(),
+                            report.totalClicks(), report.elapsedNanos / 1_000_000);
+                });
+    }
+
+    private static void writeFile(Path file, Consumer<PrintWriter> content) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            content.accept(new PrintWriter(writer));
+        }
+    }
+
+    /**
+     * Parsed command line.
+     */
+    static final class Options {
+        Path input;
+        Path saveMarket;
+        Path output;
+        RankingWriter.Format format;
+        List<MarketRegion> regions = List.of(Constants.DEFAULT_MARKET_REGION);
+        int runs = Constants.SIMULATION_RUN_COUNT;
+        boolean optimize;
+        RiskModel riskModel = RiskModel.defaults();
+        ScenarioGrid scenarios;
+        Path scenarioOutput;
+        int sessionItems;
+        // Relative locations of caches and metrics are resolved against it
+        Path dataDirectory = Path.of("");
+        boolean help;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            // The optional --batch switch only selects this entry point
+            int index = isBatchMode(args) ? 1 : 0;
+            while (index < args.length) {
+                String option = args[index++];
+                switch (option) {
+                    case "--input" -> options.input = Path.of(value(args, index++, option));
+                    case "--save-market" -> options.saveMarket = Path.of(value(args, index++, option));
+                    case "--output" -> options.output = Path.of(value(args, index++, option));
+                    case "--format" -> options.format = RankingWriter.Format.fromName(value(args, index++, option));
+                    case "--region" -> options.regions = regions(value(args, index++, option));
+                    case "--runs" -> options.runs = positive(value(args, index++, option), option);
+                    case "--optimize" -> options.optimize = true;
+                    case "--risk" -> options.riskModel = RiskModel.parse(value(args, index++, option));
+                    case "--scenarios" -> options.scenarios = ScenarioGrid.parse(value(args, index++, option));
+                    case "--scenario-output" -> options.scenarioOutput = Path.of(value(args, index++, option));
+                    case "--session" -> options.sessionItems = positive(value(args, index++, option), option);
+                    case "--data-dir" -> options.dataDirectory = Path.of(value(args, index++, option));
+                    case "--help", "-h" -> options.help = true;
+                    default -> throw new IllegalArgumentException("Unknown option: " + option);
+                }
+            }
+
+            if (options.input != null && options.saveMarket != null) {
+                throw new IllegalArgumentException("--save-market only applies when fetching the market");
+            }
+            if ((options.scenarios == null) != (options.scenarioOutput == null)) {
+                throw new IllegalArgumentException("--scenarios and --scenario-output go together");
+            }
+            if (options.regions.size() > 1) {
+                if (options.input != null || options.saveMarket != null || options.optimize
+                        || options.scenarios != null || options.sessionItems > 0) {
+                    throw new IllegalArgumentException("Several regions are only fetched and ranked; "
+                            + "--input, --save-market, --optimize, --scenarios and --session take a single region");
+                }
+                if (options.output == null) {
+                    throw new IllegalArgumentException("Several regions need --output, each is written to its own file");
+                }
+            }
+            if (options.format == null) {
+                boolean json = options.output != null && options.output.toString().toLowerCase().endsWith(".json");
+                options.format = json ? RankingWriter.Format.JSON : RankingWriter.Format.CSV;
+            }
+            return options;
+        }
+
+        private static List<MarketRegion> regions(String codes) {
+            return Arrays.stream(codes.split(","))
+                    .map(String::trim)
+                    .map(MarketRegion::fromCode)
+                    .distinct()
+                    .collect(Collectors.toList());
+        }
+
+        private static String value(String[] args, int index, String option) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            return args[index];
+        }
+
+        private static int positive(String value, String option) {
+            try {
+                int number = Integer.parseInt(value);
+                if (number > 0) {
+                    return number;
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw new IllegalArgumentException(option + " expects a positive number: " + value);
+        }
+    }
+}
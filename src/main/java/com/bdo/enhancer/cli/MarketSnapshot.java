@@ -0,0 +1,143 @@
+package com.bdo.enhancer.cli;
+
+import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.item.EnhancementType;
+import com.bdo.enhancer.model.item.Material;
+import com.bdo.enhancer.model.item.MaterialPrices;
+import com.bdo.enhancer.model.item.PriceLadder;
+import lombok.Getter;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Enriched market data saved by one batch run and calculated by later ones, so a scheduled
+ * job can fetch once and rank with different settings without touching the market again.
+ */
+@Getter
+public class MarketSnapshot {
+
+    private static final int FORMAT_VERSION = 1;
+    // Result levels with an order book: the base item, DUO, TRI and TET
+    private static final int[] LADDER_LEVELS = {0, 2, 3, 4};
+
+    private final List<Accessory> accessories;
+    private final MaterialPrices materialPrices;
+
+    public MarketSnapshot(List<Accessory> accessories, MaterialPrices materialPrices) {
+        this.accessories = List.copyOf(accessories);
+        this.materialPrices = materialPrices;
+    }
+
+    public static MarketSnapshot read(Path file) throws IOException {
+        try {
+            JSONObject json = new JSONObject(Files.readString(file, StandardCharsets.UTF_8));
+            if (json.getInt("version") != FORMAT_VERSION) {
+                throw new IOException("Unsupported market snapshot version in " + file);
+            }
+
+            MaterialPrices materialPrices = MaterialPrices.defaults();
+            JSONObject prices = json.getJSONObject("materialPrices");
+            for (Material material : Material.VALUES) {
+                if (prices.has(material.name())) {
+                    materialPrices = materialPrices.with(material, prices.getLong(material.name()));
+                }
+            }
+
+            List<Accessory> accessories = new ArrayList<>();
+            JSONArray items = json.getJSONArray("items");
+            for (int i = 0; i < items.length(); i++) {
+                JSONObject item = items.getJSONObject(i);
+                Accessory accessory = new Accessory(item.getString("name"), item.getInt("id"),
+                        EnhancementType.valueOf(item.getString("enhancementType")));
+                accessory.setBasePrice(item.getLong("basePrice"));
+                accessory.setBaseStock(item.optInt("baseStock"));
+                accessory.setCurrentStock(item.optLong("currentStock"));
+                accessory.setDuoPrice(item.getLong("duoPrice"));
+                accessory.setTriPrice(item.getLong("triPrice"));
+                accessory.setTetPrice(item.getLong("tetPrice"));
+                JSONObject orderBooks = item.optJSONObject("orderBooks");
+                if (orderBooks != null) {
+                    for (String level : orderBooks.keySet()) {
+                        accessory.setPriceLadder(Integer.parseInt(level), readLadder(orderBooks.getJSONObject(level)));
+                    }
+                }
+                accessories.add(accessory);
+            }
+            return new MarketSnapshot(accessories, materialPrices);
+        } catch (JSONException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IOException("Invalid market snapshot " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    public void write(Path file) throws IOException {
+        JSONObject prices = new JSONObject();
+        for (Material material : Material.VALUES) {
+            prices.put(material.name(), materialPrices.get(material));
+        }
+
+        JSONArray items = new JSONArray();
+        for (Accessory accessory : accessories) {
+            JSONObject orderBooks = new JSONObject();
+            for (int level : LADDER_LEVELS) {
+                PriceLadder ladder = accessory.getPriceLadder(level);
+                if (!ladder.isEmpty()) {
+                    orderBooks.put(String.valueOf(level), writeLadder(ladder));
+                }
+            }
+            items.put(new JSONObject()
+                    .put("id", accessory.getId())
+                    .put("name", accessory.getName())
+                    .put("enhancementType", accessory.getEnhancementType().name())
+                    .put("basePrice", accessory.getBasePrice())
+                    .put("baseStock", accessory.getBaseStock())
+                    .put("currentStock", accessory.getCurrentStock())
+                    .put("duoPrice", accessory.getDuoPrice())
+                    .put("triPrice", accessory.getTriPrice())
+                    .put("tetPrice", accessory.getTetPrice())
+                    .put("orderBooks", orderBooks));
+        }
+
+        JSONObject json = new JSONObject()
+                .put("version", FORMAT_VERSION)
+                .put("materialPrices", prices)
+                .put("items", items);
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Files.writeString(file, json.toString(2), StandardCharsets.UTF_8);
+    }
+
+    private static PriceLadder readLadder(JSONObject json) {
+        JSONArray prices = json.getJSONArray("prices");
+        JSONArray sellers = json.getJSONArray("sellers");
+        JSONArray buyers = json.getJSONArray("buyers");
+        long[] priceSteps = new long[prices.length()];
+        int[] sellerSteps = new int[prices.length()];
+        int[] buyerSteps = new int[prices.length()];
+        for (int step = 0; step < priceSteps.length; step++) {
+            priceSteps[step] = prices.getLong(step);
+            sellerSteps[step] = sellers.getInt(step);
+            buyerSteps[step] = buyers.getInt(step);
+        }
+        return new PriceLadder(priceSteps, sellerSteps, buyerSteps);
+    }
+
+    private static JSONObject writeLadder(PriceLadder ladder) {
+        JSONArray prices = new JSONArray();
+        JSONArray sellers = new JSONArray();
+        JSONArray buyers = new JSONArray();
+        for (int step = 0; step < ladder.steps(); step++) {
+            prices.put(ladder.price(step));
+            sellers.put(ladder.sellers(step));
+            buyers.put(ladder.buyers(step));
+        }
+        return new JSONObject().put("prices", prices).put("sellers", sellers).put("buyers", buyers);
+    }
+}
@@ -0,0 +1,175 @@
+package com.bdo.enhancer.cli;
+
+import com.bdo.enhancer.model.constants.Constants;
+import com.bdo.enhancer.model.result.AccessoryEnhancementResult;
+import com.bdo.enhancer.model.result.OptimalStackResult;
+import com.bdo.enhancer.model.result.ProfitRisk;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.PrintWriter;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the calculated results ranked by TRI profit, the level the stack optimizer
+ * optimizes for, as CSV or JSON. Also renders the JSON served by the ranking server.
+ */
+public class RankingWriter {
+
+    public enum Format {
+        CSV, JSON;
+
+        static Format fromName(String name) {
+            for (Format format : values()) {
+                if (format.name().equalsIgnoreCase(name)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown format: " + name + " (expected csv or json)");
+        }
+    }
+
+    private static final String[] CSV_COLUMNS = {
+            "rank", "id", "name", "baseStock",
+            "duoItems", "duoProfit", "triItems", "triProfit", "tetItems", "tetProfit",
+            "duoRiskAdjustedProfit", "triRiskAdjustedProfit", "tetRiskAdjustedProfit",
+            "optimalPriStack", "optimalDuoStack", "optimalTriStack", "optimalTriProfit"
+    };
+
+    private final List<AccessoryEnhancementResult> ranking;
+    // Optimal stacks by accessory name, empty unless the optimizer ran
+    private final Map<String, OptimalStackResult> optimalStacks;
+    private final String marketStatus;
+    private final boolean complete;
+
+    public RankingWriter(List<AccessoryEnhancementResult> results, List<OptimalStackResult> optimalStacks,
+                  String marketStatus, boolean complete) {
+        this.ranking = results.stream()
+                .sorted(Comparator.comparingLong((AccessoryEnhancementResult result) -> result.triProfit).reversed()
+                        .thenComparing(result -> result.name))
+                .collect(Collectors.toList());
+        this.optimalStacks = optimalStacks.stream()
+                .collect(Collectors.toMap(result -> result.accessoryName, result -> result, (first, second) -> first));
+        this.marketStatus = marketStatus;
+        this.complete = complete;
+    }
+
+    public List<AccessoryEnhancementResult> getRanking() {
+        return ranking;
+    }
+
+    public void write(Format format, PrintWriter out) {
+        if (format == Format.JSON) {
+            writeJson(out);
+        } else {
+            writeCsv(out);
+        }
+        out.flush();
+    }
+
+    private void writeCsv(PrintWriter out) {
+        out.println(String.join(",", CSV_COLUMNS));
+        int rank = 1;
+        for (AccessoryEnhancementResult result : ranking) {
+            OptimalStackResult optimal = optimalStacks.get(result.name);
+            out.println(String.join(",",
+                    String.valueOf(rank++),
+                    String.valueOf(result.id),
+                    csvField(result.name),
+                    String.valueOf(result.baseStock),
+                    String.valueOf(result.duoItems),
+                    String.valueOf(result.duoProfit),
+                    String.valueOf(result.triItems),
+                    String.valueOf(result.triProfit),
+                    String.valueOf(result.tetItems),
+                    String.valueOf(result.tetProfit),
+                    String.valueOf(result.duoRisk.riskAdjustedProfit),
+                    String.valueOf(result.triRisk.riskAdjustedProfit),
+                    String.valueOf(result.tetRisk.riskAdjustedProfit),
+                    optimal == null ? "" : String.valueOf(optimal.optimalPriStack.getStackCount()),
+                    optimal == null ? "" : String.valueOf(optimal.optimalDuoStack.getStackCount()),
+                    optimal == null ? "" : String.valueOf(optimal.optimalTriStack.getStackCount()),
+                    optimal == null ? "" : String.valueOf(optimal.totalProfit)));
+        }
+    }
+
+    private void writeJson(PrintWriter out) {
+        out.println(toJson().toString(2));
+    }
+
+    /**
+     * @return Metadata and the ranked results, each rendered by {@link #toJson(int, AccessoryEnhancementResult)}
+     */
+    public JSONObject toJson() {
+        JSONArray items = new JSONArray();
+        int rank = 1;
+        for (AccessoryEnhancementResult result : ranking) {
+            items.put(toJson(rank++, result));
+        }
+
+        return new JSONObject()
+                .put("generatedAt", Instant.now().toString())
+                .put("complete", complete)
+                .put("marketStatus", marketStatus)
+                .put("results", items);
+    }
+
+    /**
+     * @return A single ranked result including its optimal stacks, if known
+     */
+    public JSONObject toJson(int rank, AccessoryEnhancementResult result) {
+        JSONObject item = new JSONObject()
+                .put("rank", rank)
+                .put("id", result.id)
+                .put("name", result.name)
+                .put("baseStock", result.baseStock)
+                .put("duo", level(result.duoItems, result.duoProfit, result.duoDepthProfits, result.duoRisk))
+                .put("tri", level(result.triItems, result.triProfit, result.triDepthProfits, result.triRisk))
+                .put("tet", level(result.tetItems, result.tetProfit, result.tetDepthProfits, result.tetRisk));
+        OptimalStackResult optimal = optimalStacks.get(result.name);
+        if (optimal != null) {
+            item.put("optimalStacks", toJson(optimal));
+        }
+        return item;
+    }
+
+    /**
+     * @return The optimal stacks and their TRI profit
+     */
+    public static JSONObject toJson(OptimalStackResult optimal) {
+        return new JSONObject()
+                .put("pri", optimal.optimalPriStack.getStackCount())
+                .put("duo", optimal.optimalDuoStack.getStackCount())
+                .put("tri", optimal.optimalTriStack.getStackCount())
+                .put("triProfit", optimal.totalProfit);
+    }
+
+    private static JSONObject level(long items, long profit, long[] depthProfits, ProfitRisk risk) {
+        JSONObject level = new JSONObject()
+                .put("items", items)
+                .put("profit", profit)
+                .put("profitStdDev", Math.round(risk.stdDev))
+                .put("lossProbability", risk.lossProbability)
+                .put("riskAdjustedProfit", risk.riskAdjustedProfit);
+        if (depthProfits.length > 0) {
+            // Total profit by number of enhancements, priced along the order books
+            JSONObject byQuantity = new JSONObject();
+            for (int index = 0; index < depthProfits.length; index++) {
+                byQuantity.put(String.valueOf(Constants.DEPTH_QUANTITIES[index]), depthProfits[index]);
+            }
+            level.put("profitByQuantity", byQuantity);
+        }
+        return level;
+    }
+
+    static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
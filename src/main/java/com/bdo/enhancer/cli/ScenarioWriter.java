@@ -0,0 +1,60 @@
+package com.bdo.enhancer.cli;
+
+import com.bdo.enhancer.model.item.Material;
+import com.bdo.enhancer.model.result.ScenarioReport;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+/**
+ * Writes a {@link ScenarioReport} as CSV, one line per item and target level, the
+ * enhancements with the best worst case first.
+ */
+public class ScenarioWriter {
+
+    private final ScenarioReport report;
+
+    public ScenarioWriter(ScenarioReport report) {
+        this.report = report;
+    }
+
+    public void write(PrintWriter out) {
+        List<String> columns = new ArrayList<>(List.of(
+                "id", "name", "level", "currentProfit", "worstProfit", "worstScenario", "bestProfit", "meanProfit",
+                "profitableShare", "breakEvenSalePrice", "robustBreakEvenSalePrice", "breakEvenBasePrice"));
+        for (Material material : Material.VALUES) {
+            columns.add("breakEven_" + material.name());
+        }
+        out.println(String.join(",", columns));
+
+        List<ScenarioReport.Outcome> outcomes = report.outcomes.stream()
+                .sorted(Comparator.comparingLong((ScenarioReport.Outcome outcome) -> outcome.worstProfit).reversed()
+                        .thenComparing(outcome -> outcome.name)
+                        .thenComparingInt(outcome -> outcome.level))
+                .collect(Collectors.toList());
+        for (ScenarioReport.Outcome outcome : outcomes) {
+            List<String> fields = new ArrayList<>(List.of(
+                    String.valueOf(outcome.id),
+                    RankingWriter.csvField(outcome.name),
+                    String.valueOf(outcome.level),
+                    String.valueOf(outcome.currentProfit),
+                    String.valueOf(outcome.worstProfit),
+                    RankingWriter.csvField(outcome.worstScenario),
+                    String.valueOf(outcome.bestProfit),
+                    String.valueOf(outcome.meanProfit),
+                    String.format(Locale.ROOT, "%.4f", outcome.profitableShare),
+                    String.valueOf(outcome.breakEvenSalePrice),
+                    String.valueOf(outcome.robustBreakEvenSalePrice),
+                    String.valueOf(outcome.breakEvenBasePrice)));
+            for (long price : outcome.breakEvenMaterialPrices) {
+                fields.add(String.valueOf(price));
+            }
+            out.println(String.join(",", fields));
+        }
+        out.flush();
+    }
+}
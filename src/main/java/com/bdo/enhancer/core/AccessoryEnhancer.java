@@ -1,10 +1,15 @@
 package com.bdo.enhancer.core;
 
-import com.bdo.enhancer.model.constants.Constants;
+import com.bdo.enhancer.metrics.Counter;
+import com.bdo.enhancer.metrics.MetricsRegistry;
+import com.bdo.enhancer.model.item.Material;
+import com.bdo.enhancer.model.item.MaterialPrices;
 import com.bdo.enhancer.model.stack.FailStackSet;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.Arrays;
+import java.util.Objects;
 import java.util.Random;
 
 /**
@@ -18,6 +23,14 @@ public class AccessoryEnhancer {
 	// Constants
 	private static final int BASE_LEVEL = 0;
 
+	// Game rules per enhancement level (PRI, DUO, TRI, TET)
+	private static final int[] PITY_THRESHOLDS = { 5, 6, 8, 10 };
+	private static final double[] CHANCE_INCREASE_ON_FAIL = { 0.025, 0.01, 0.0075, 0.0025 };
+	private static final double[] CHANCE_INCREASE_ON_FAIL_AFTER_SOFTCAP = { 0.005, 0.002, 0.0015, 0.0005 };
+	private static final int[] SOFTCAP_THRESHOLDS = { 18, 40, 44, 110 };
+
+	private static final Counter ENHANCE_CALLS = MetricsRegistry.global().counter("enhance.calls.accessory");
+
 	// Base properties
 	private final long basePrice;
 	private final Random random;
@@ -25,6 +38,8 @@ public class AccessoryEnhancer {
 	// Enhancement parameters
 	private final double[] enhanceChances;      // Success chance per level
 	private final long[] failstackCost;         // Cost of failstack at each level
+	private final Material[] failstackMaterials;// Material the failstack at each level is built from
+	private final int[] failstackUnits;         // Units of that material per failstack
 	private final int[] pityThreshold;          // Number of fails needed for guaranteed success
 	private final double[] chanceIncreaseOnFail;// How much the chance increases per fail
 	private final double[] chanceIncreaseOnFailAfterSoftcap;
@@ -44,37 +59,59 @@ public class AccessoryEnhancer {
 	@Getter
 	private int totalItemsConsumed;             // Total number of items used
 
+	// Consumed material units indexed by Material ordinal
+	private final long[] materialUnits = new long[Material.VALUES.length];
+
 	/**
 	 * Creates an AccessoryEnhancer with default enhancement parameters.
 	 */
 	public AccessoryEnhancer() {
 		this(450000000,
 				new double[] { 83.5, 54, 47.4 },
-				new long[] {
-						406 * Constants.BLACK_STONE_PRICE,
-						8 * Constants.CRYSTALLIZED_DESPAIR_PRICE,
-						35 * Constants.CRYSTALLIZED_DESPAIR_PRICE
-				});
+				new Material[] { Material.BLACK_STONE, Material.CRYSTALLIZED_DESPAIR, Material.CRYSTALLIZED_DESPAIR },
+				new int[] { 406, 8, 35 },
+				MaterialPrices.defaults());
+	}
+
+	/**
+	 * Creates an AccessoryEnhancer whose failstacks are built from black stones.
+	 *
+	 * @param basePrice             The base price of the accessory
+	 * @param enhanceChances        Success chances for each enhancement level
+	 * @param failstackBlackStones  Black stones needed to build the failstack for each enhancement level
+	 * @param materialPrices        Prices to convert the consumed materials into silver
+	 */
+	public AccessoryEnhancer(long basePrice, double[] enhanceChances, int[] failstackBlackStones,
+							 MaterialPrices materialPrices) {
+		this(basePrice, enhanceChances, blackStones(failstackBlackStones.length), failstackBlackStones, materialPrices);
 	}
 
 	/**
 	 * Creates an AccessoryEnhancer with custom enhancement parameters.
 	 *
-	 * @param basePrice       The base price of the accessory
-	 * @param enhanceChances  Success chances for each enhancement level
-	 * @param failstackCost   Cost of failstack for each enhancement level
+	 * @param basePrice           The base price of the accessory
+	 * @param enhanceChances      Success chances for each enhancement level
+	 * @param failstackMaterials  Material the failstack for each enhancement level is built from
+	 * @param failstackUnits      Units of that material needed for each enhancement level
+	 * @param materialPrices      Prices to convert the consumed materials into silver
 	 */
-	public AccessoryEnhancer(long basePrice, double[] enhanceChances, long[] failstackCost) {
+	public AccessoryEnhancer(long basePrice, double[] enhanceChances, Material[] failstackMaterials,
+							 int[] failstackUnits, MaterialPrices materialPrices) {
 		this.basePrice = basePrice;
 		this.enhanceChances = enhanceChances;
-		this.failstackCost = failstackCost;
+		this.failstackMaterials = failstackMaterials;
+		this.failstackUnits = failstackUnits;
+		this.failstackCost = new long[failstackUnits.length];
+		for (int level = 0; level < failstackUnits.length; level++) {
+			failstackCost[level] = failstackUnits[level] * materialPrices.get(failstackMaterials[level]);
+		}
 
 		this.random = new Random();
-		this.pityThreshold = new int[] { 5, 6, 8, 10 };
+		this.pityThreshold = PITY_THRESHOLDS.clone();
 		this.failCounter = new int[] { 0, 0, 0, 0 };
-		this.chanceIncreaseOnFail = new double[] { 0.025, 0.01, 0.0075, 0.0025 };
-		this.chanceIncreaseOnFailAfterSoftcap = new double[] { 0.005, 0.002, 0.0015, 0.0005 };
-		this.softcapThreshold = new int[] { 18, 40, 44, 110 };
+		this.chanceIncreaseOnFail = CHANCE_INCREASE_ON_FAIL.clone();
+		this.chanceIncreaseOnFailAfterSoftcap = CHANCE_INCREASE_ON_FAIL_AFTER_SOFTCAP.clone();
+		this.softcapThreshold = SOFTCAP_THRESHOLDS.clone();
 
 		this.totalEnhanceCost = 0;
 		this.totalItemsConsumed = 0;
@@ -82,10 +119,37 @@ public class AccessoryEnhancer {
 		this.stacksUsed = null;
 	}
 
+	/**
+	 * Hash of the game rules applied by this enhancer, used to detect stale persisted statistics.
+	 */
+	public static int rulesHashCode() {
+		return Objects.hash(BASE_LEVEL,
+				Arrays.hashCode(PITY_THRESHOLDS),
+				Arrays.hashCode(CHANCE_INCREASE_ON_FAIL),
+				Arrays.hashCode(CHANCE_INCREASE_ON_FAIL_AFTER_SOFTCAP),
+				Arrays.hashCode(SOFTCAP_THRESHOLDS));
+	}
+
+	/**
+	 * @param level Attempted level: 0 = PRI, 1 = DUO, 2 = TRI, 3 = TET
+	 * @return Failed attempts at the level after which the next attempt always succeeds
+	 */
+	public static int pityThreshold(int level) {
+		return PITY_THRESHOLDS[level];
+	}
+
+	private static Material[] blackStones(int levels) {
+		Material[] materials = new Material[levels];
+		Arrays.fill(materials, Material.BLACK_STONE);
+		return materials;
+	}
+
 	/**
 	 * Attempts to enhance the accessory to the next level.
 	 */
 	public void enhance() {
+		ENHANCE_CALLS.increment();
+
 		// Calculate and add material cost
 		addMaterialCost();
 
@@ -167,6 +231,7 @@ public class AccessoryEnhancer {
 		// Add failstack cost if not from pity system
 		if (!pity) {
 			totalEnhanceCost += failstackCost[currentLevel];
+			materialUnits[failstackMaterials[currentLevel].ordinal()] += failstackUnits[currentLevel];
 		}
 
 		// Reset fail counter and increase level
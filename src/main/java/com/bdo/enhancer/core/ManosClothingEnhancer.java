@@ -1,8 +1,13 @@
 package com.bdo.enhancer.core;
 
-import com.bdo.enhancer.model.constants.Constants;
+import com.bdo.enhancer.metrics.Counter;
+import com.bdo.enhancer.metrics.MetricsRegistry;
+import com.bdo.enhancer.model.item.Material;
+import com.bdo.enhancer.model.item.MaterialPrices;
 import lombok.Getter;
 
+import java.util.Arrays;
+import java.util.Objects;
 import java.util.Random;
 
 /**
@@ -35,6 +40,8 @@ public class ManosClothingEnhancer {
             7, 8, 10, 15, 35
     };
 
+    private static final Counter ENHANCE_CALLS = MetricsRegistry.global().counter("enhance.calls.manos");
+
     private static final int[] BLACK_GEMS_PER_ATTEMPT = {
             1, 1, 1, 1, 1,
             2, 2, 2,
@@ -44,18 +51,30 @@ public class ManosClothingEnhancer {
     };
 
     private final Random random;
+    private final MaterialPrices materialPrices;
     private final int[] failCounter = new int[FIXED_SUCCESS_CHANCES.length];
+    // Consumed material units indexed by Material ordinal
+    private final long[] materialUnits = new long[Material.VALUES.length];
 
     private int currentLevel;
     private long totalEnhanceCost;
     private final int totalItemsConsumed = 1;
 
     public ManosClothingEnhancer(long baseItemPrice) {
-        this(baseItemPrice, new Random());
+        this(baseItemPrice, MaterialPrices.defaults());
+    }
+
+    public ManosClothingEnhancer(long baseItemPrice, MaterialPrices materialPrices) {
+        this(baseItemPrice, materialPrices, new Random());
     }
 
     ManosClothingEnhancer(long baseItemPrice, Random random) {
+        this(baseItemPrice, MaterialPrices.defaults(), random);
+    }
+
+    ManosClothingEnhancer(long baseItemPrice, MaterialPrices materialPrices, Random random) {
         this.random = random;
+        this.materialPrices = materialPrices;
         this.totalEnhanceCost = baseItemPrice;
     }
 
@@ -71,6 +90,7 @@ public class ManosClothingEnhancer {
     }
 
     public void enhance() {
+        ENHANCE_CALLS.increment();
         if (currentLevel >= PEN_LEVEL) {
             throw new IllegalStateException("Manos clothing is already at PEN");
         }
@@ -98,20 +118,34 @@ public class ManosClothingEnhancer {
 
     private void addAttemptCost(int attemptedLevel) {
         if (attemptedLevel < 15) {
-            totalEnhanceCost += (long) BLACK_GEMS_PER_ATTEMPT[attemptedLevel]
-                    * Constants.BLACK_GEM_PRICE;
+            consume(Material.BLACK_GEM, BLACK_GEMS_PER_ATTEMPT[attemptedLevel]);
             return;
         }
 
-        totalEnhanceCost += Constants.CONCENTRATED_MAGICAL_BLACK_GEM_PRICE;
+        consume(Material.CONCENTRATED_MAGICAL_BLACK_GEM, 1);
     }
 
     private void addRepairCost(int attemptedLevel) {
         int durabilityLoss = attemptedLevel < 15 ? 5 : 10;
-        totalEnhanceCost += (long) durabilityLoss * Constants.MEMORY_FRAGMENT_PRICE;
+        consume(Material.MEMORY_FRAGMENT, durabilityLoss);
+    }
+
+    private void consume(Material material, int units) {
+        materialUnits[material.ordinal()] += units;
+        totalEnhanceCost += units * materialPrices.get(material);
     }
 
     static int getPityThreshold(int attemptedLevel) {
         return PITY_THRESHOLDS[attemptedLevel];
     }
+
+    /**
+     * Hash of the game rules applied by this enhancer, used to detect stale persisted statistics.
+     */
+    public static int rulesHashCode() {
+        return Objects.hash(PEN_LEVEL,
+                Arrays.hashCode(FIXED_SUCCESS_CHANCES),
+                Arrays.hashCode(PITY_THRESHOLDS),
+                Arrays.hashCode(BLACK_GEMS_PER_ATTEMPT));
+    }
 }
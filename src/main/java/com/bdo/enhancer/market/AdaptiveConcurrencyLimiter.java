@@ -0,0 +1,124 @@
+package com.bdo.enhancer.market;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD concurrency limit for market requests.
+ *
+ * <p>The limit grows by roughly one slot per fully used window while requests
+ * complete quickly. It shrinks multiplicatively when the server throttles
+ * (429/5xx, timeouts) and slightly when the latency drifts far above the
+ * observed baseline, which is the first sign of a queue building up on the
+ * server side.</p>
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double DROP_BACKOFF = 0.5;
+    private static final double LATENCY_BACKOFF = 0.9;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    // Lets the latency baseline slowly follow the server if it gets permanently slower
+    private static final double BASELINE_DECAY = 0.01;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private double baselineLatencyNanos = Double.NaN;
+
+    public AdaptiveConcurrencyLimiter(int minLimit, int initialLimit, int maxLimit) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Expected 1 <= min <= initial <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Blocks until the number of requests in flight is below the current limit.
+     */
+    public void acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= getLimit()) {
+                slotFreed.await();
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a slot after a request that the server answered normally.
+     */
+    public void onSuccess(long latencyNanos) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (Double.isNaN(baselineLatencyNanos) || latencyNanos < baselineLatencyNanos) {
+                baselineLatencyNanos = latencyNanos;
+            } else {
+                baselineLatencyNanos += (latencyNanos - baselineLatencyNanos) * BASELINE_DECAY;
+            }
+
+            if (latencyNanos > baselineLatencyNanos * LATENCY_TOLERANCE) {
+                limit = Math.max(minLimit, limit * LATENCY_BACKOFF);
+            } else {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a slot after the server throttled or failed the request.
+     */
+    public void onDropped() {
+        lock.lock();
+        try {
+            inFlight--;
+            limit = Math.max(minLimit, limit * DROP_BACKOFF);
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a slot without feeding the request into the limit, e.g. for client-side errors.
+     */
+    public void onIgnored() {
+        lock.lock();
+        try {
+            inFlight--;
+            slotFreed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,66 +1,204 @@
 package com.bdo.enhancer.market;
 
+import com.bdo.enhancer.metrics.MetricsRegistry;
+import com.bdo.enhancer.metrics.Timer;
 import com.bdo.enhancer.model.constants.Constants;
+import com.bdo.enhancer.model.constants.MarketRegion;
 import com.bdo.enhancer.model.item.Accessory;
 import com.bdo.enhancer.model.item.Item;
+import com.bdo.enhancer.model.item.PriceLadder;
+import lombok.Getter;
 import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.json.JSONArray;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.io.InterruptedIOException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 @Setter
+@Slf4j
 public class BDOMarketConnector {
 
+    private static final Timer LISTING_PARSE_TIMER = MetricsRegistry.global().timer("market.parse.listing");
+    private static final Timer ENHANCEMENT_PARSE_TIMER = MetricsRegistry.global().timer("market.parse.enhancementData");
+    private static final Timer ORDER_BOOK_PARSE_TIMER = MetricsRegistry.global().timer("market.parse.orderBook");
+    private static final Timer ENRICH_TIMER = MetricsRegistry.global().timer("market.enrich.item");
+    // Enrichment executors by region, held weakly so the region's queue gauge keeps no discarded connector alive
+    static final Map<String, Set<ThreadPoolExecutor>> ENRICHMENT_EXECUTORS = new ConcurrentHashMap<>();
+
     private Consumer<String> progressCallback;
-    // Thread pool for parallel operations
-    private final ExecutorService executorService = Executors.newWorkStealingPool();
+    // Thread pool for parallel operations; the scheduler decides how many requests actually run at once
+    private final ThreadPoolExecutor executorService = new ThreadPoolExecutor(
+            Constants.MARKET_MAX_CONCURRENCY + 1, Constants.MARKET_MAX_CONCURRENCY + 1,
+            60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new DaemonThreadFactory("market-enrichment"));
+    private final MarketHttpClient httpClient;
+    // Shared between connectors so that concurrent refreshes of the same item reuse one request
+    private final OrderBookCache orderBookCache;
+    @Getter
+    private final MarketRegion region;
+    // Headers expected by the official trade market endpoints
+    private final Map<String, String> officialMarketHeaders;
+
+    public BDOMarketConnector() {
+        this(MarketRequestScheduler.shared());
+    }
+
+    public BDOMarketConnector(MarketRequestScheduler scheduler) {
+        this(scheduler, OrderBookCache.shared(), Constants.DEFAULT_MARKET_REGION);
+    }
+
+    /**
+     * @param scheduler Request scheduler; connectors of several regions may share one to share its rate limit
+     * @param orderBookCache Order book cache, keyed by region so it can be shared across regions as well
+     * @param region The market region all requests of this connector go to
+     */
+    public BDOMarketConnector(MarketRequestScheduler scheduler, OrderBookCache orderBookCache, MarketRegion region) {
+        this.httpClient = new MarketHttpClient(scheduler);
+        this.orderBookCache = orderBookCache;
+        this.region = region;
+        this.officialMarketHeaders = Map.of(
+                "Accept", "*/*",
+                "User-Agent", "Mozilla/5.0",
+                "Origin", region.getTradeHost(),
+                "Referer", region.getTradeHost() + "/");
+        // Idle threads end, so a discarded connector and its executor can be collected
+        executorService.allowCoreThreadTimeOut(true);
+        registerQueueGauge(region.getCode(), executorService);
+    }
+
+    /**
+     * Adds the executor to the queue gauge of its region; the gauge is registered once per region
+     * and sums the queues of all connectors of the region.
+     */
+    private static void registerQueueGauge(String regionCode, ThreadPoolExecutor executor) {
+        ENRICHMENT_EXECUTORS.computeIfAbsent(regionCode, code -> {
+            Set<ThreadPoolExecutor> executors = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+            MetricsRegistry.global().gauge("market.enrichment.queued." + code, () -> queued(executors));
+            return executors;
+        }).add(executor);
+    }
+
+    private static long queued(Set<ThreadPoolExecutor> executors) {
+        synchronized (executors) {
+            return executors.stream().mapToLong(executor -> executor.getQueue().size()).sum();
+        }
+    }
+
+    /**
+     * Drops the cached order books of an item so the next enrichment fetches them from the market.
+     */
+    public void invalidateOrderBooks(int itemId) {
+        orderBookCache.invalidate(region.getCode(), itemId);
+    }
 
     public List<Accessory> getAccessories() {
+        return fetchAccessories().getAccessories();
+    }
+
+    /**
+     * Fetches all accessories and returns whatever could be priced before the refresh deadline,
+     * together with the fetch status of every item.
+     */
+    public MarketFetchResult fetchAccessories() {
         updateProgress("Initializing market data retrieval...");
-        List<Accessory> accessories = new ArrayList<>();
+        MarketListing listing = fetchListing();
+        return enrichAccessories(listing.getAccessories(), listing.getFailedCategories());
+    }
 
+    /**
+     * Fetches the category listings only. These are a handful of cheap requests which
+     * carry the list price and stock of every item, but no order book prices.
+     */
+    public MarketListing fetchListing() {
         try {
             // Step 1: Fetch accessory data in parallel
             updateProgress("Fetching accessory data from market API ...");
-            Map<String, String> accessoryDataMap = getAccessoryDataParallel();
+            List<String> failedCategories = new ArrayList<>();
+            Map<String, String> accessoryDataMap = getAccessoryDataParallel(failedCategories);
 
             // Step 2: Process each accessory type in parallel
-            List<Accessory> accessoryList = createAndFilterItems(accessoryDataMap);
+            return new MarketListing(createAndFilterItems(accessoryDataMap), failedCategories);
+        } catch (Exception e) {
+            updateProgress("Error loading market data: " + e.getMessage());
+            log.error("Error loading market listings", e);
+            return new MarketListing(List.of(), List.of());
+        }
+    }
 
-            // Step 3: Enrich accessory data in parallel
-            updateProgress(String.format("Enrichment progress: %d of %d accessories (%d%%)", 0, accessoryList.size(), 0));
-            accessories = enrichData(accessoryList);
+    /**
+     * Enriches the given items with order book prices.
+     *
+     * @param accessories Items from {@link #fetchListing()}
+     * @param failedCategories Categories whose listing failed, reported in the result
+     * @return Partial result with all items priced before the refresh deadline
+     */
+    public MarketFetchResult enrichAccessories(List<Accessory> accessories, List<String> failedCategories) {
+        return enrichAccessories(accessories, failedCategories, null);
+    }
 
-            updateProgress("Market data processing complete. Found " + accessories.size() + " valid accessories");
+    /**
+     * Enriches the given items with order book prices and hands every usable item to
+     * the listener as soon as it is priced, on the enriching thread.
+     *
+     * @param accessories Items from {@link #fetchListing()}
+     * @param failedCategories Categories whose listing failed, reported in the result
+     * @param enrichedListener Receives each usable item right after its enrichment, may be null
+     * @return Partial result with all items priced before the refresh deadline
+     */
+    public MarketFetchResult enrichAccessories(List<Accessory> accessories, List<String> failedCategories,
+                                               Consumer<Accessory> enrichedListener) {
+        try {
+            // Step 3: Enrich accessory data in parallel
+            updateProgress(String.format("Enrichment progress: %d of %d accessories (%d%%)", 0, accessories.size(), 0));
+            MarketFetchResult result = enrichData(accessories, failedCategories, enrichedListener);
 
+            updateProgress("Market data processing complete. Found " + result.describe());
+            return result;
         } catch (Exception e) {
             updateProgress("Error loading market data: " + e.getMessage());
-            e.printStackTrace();
-        } finally {
-            // Cleanup resources
-            executorService.shutdown();
+            log.error("Error loading market data", e);
+            return MarketFetchResult.empty();
         }
+    }
 
-        return accessories;
+    /**
+     * Refetches the order books of a single item on the calling thread, without progress messages.
+     *
+     * @return The fetch status; the item is only updated in place if it is usable
+     */
+    public ItemFetchStatus enrichItem(Item item) {
+        return enrichEnhancedData(item);
+    }
+
+    /**
+     * Looks up the cheapest sell order of a plain (unenhanced) item such as an enhancement material.
+     *
+     * @return The lowest listed price, or -1 if nothing is listed
+     */
+    public long fetchLowestPrice(int itemId) throws IOException {
+        JSONObject jsonResponse = new JSONObject(getBiddingInfoList(itemId, 0));
+        return findLowestPrice(jsonResponse.getJSONArray("orders"));
     }
 
     List<Accessory> createAndFilterItems(Map<String, String> accessoryDataMap) {
+        long start = System.nanoTime();
         List<Accessory> allAccessories = new ArrayList<>();
 
         for (Map.Entry<String, String> entry : accessoryDataMap.entrySet()) {
@@ -77,7 +215,8 @@ public class BDOMarketConnector {
                 int id = jsonObject.getInt("id");
 
                 Accessory accessory = new Accessory(name, id);
-                accessory.setBasePrice(jsonObject.getInt("basePrice"));
+                accessory.setBasePrice(jsonObject.getLong("basePrice"));
+                accessory.setCurrentStock(jsonObject.optLong("currentStock", 0));
 
                 if (!shouldIncludeAccessory(accessory, isFunctionalArmor)) {
                     continue;
@@ -87,6 +226,7 @@ public class BDOMarketConnector {
             }
         }
 
+        LISTING_PARSE_TIMER.recordSince(start);
         return allAccessories;
     }
 
@@ -97,50 +237,84 @@ public class BDOMarketConnector {
         return !skipCurrentAccessory(accessory);
     }
 
-    private List<Accessory> enrichData(List<Accessory> accessoryList) {
+    private MarketFetchResult enrichData(List<Accessory> accessoryList, List<String> failedCategories,
+                                         Consumer<Accessory> enrichedListener) {
         final int totalEnrichments = accessoryList.size();
         AtomicInteger enrichedCount = new AtomicInteger(0);
-        List<CompletableFuture<Accessory>> enrichmentFutures = new ArrayList<>();
+        AtomicBoolean enrichmentFinished = new AtomicBoolean(false);
+        Map<Integer, ItemFetchStatus> statuses = new ConcurrentHashMap<>();
 
         // Seperate future to keep track of progress in a single process
-        CompletableFuture<Void> progressFuture = createAndRunProgressFuture(totalEnrichments, enrichedCount);
+        CompletableFuture<Void> progressFuture = createAndRunProgressFuture(totalEnrichments, enrichedCount, enrichmentFinished);
 
         // The actual futures that call the api for data enrichment in parallel
-        createAndRunEnrichmentFutures(accessoryList, enrichedCount, enrichmentFutures);
+        List<Future<?>> enrichmentFutures = createAndRunEnrichmentFutures(accessoryList, enrichedCount, statuses,
+                enrichedListener);
 
-        // Add to also wait for progress future to finish
-        enrichmentFutures.add(progressFuture.thenApply(v -> null));
+        // Wait for the enrichments, but never longer than the refresh deadline
+        try {
+            awaitEnrichments(enrichmentFutures);
+        } finally {
+            enrichmentFinished.set(true);
+            progressFuture.join();
+        }
+
+        // Items still running at this point missed the deadline
+        accessoryList.forEach(accessory -> statuses.putIfAbsent(accessory.getId(), ItemFetchStatus.TIMED_OUT));
+        Map<Integer, ItemFetchStatus> finalStatuses = new HashMap<>(statuses);
 
-        // Wait for all futures to complete then return collected data as accessories
-        return enrichmentFutures.stream()
-                .map(CompletableFuture::join)
-                .filter(Objects::nonNull)
+        List<Accessory> usableAccessories = accessoryList.stream()
+                .filter(accessory -> finalStatuses.get(accessory.getId()).isUsable())
                 .collect(Collectors.toList());
+        return new MarketFetchResult(usableAccessories, finalStatuses, failedCategories);
     }
 
-    private void createAndRunEnrichmentFutures(List<Accessory> accessoryList, AtomicInteger enrichedCount, List<CompletableFuture<Accessory>> enrichmentFutures) {
+    private List<Future<?>> createAndRunEnrichmentFutures(List<Accessory> accessoryList, AtomicInteger enrichedCount,
+                                                          Map<Integer, ItemFetchStatus> statuses,
+                                                          Consumer<Accessory> enrichedListener) {
+        List<Future<?>> enrichmentFutures = new ArrayList<>();
         for (Accessory accessory : accessoryList) {
-            CompletableFuture<Accessory> future = CompletableFuture.supplyAsync(() -> {
+            enrichmentFutures.add(executorService.submit(() -> {
                 try {
-                    enrichEnhancedData(accessory);
-                    return accessory;
-                } catch (Exception e) {
-                    updateProgress("Error enriching data for " + accessory.getName() + ": " + e.getMessage());
-                    return null;
+                    ItemFetchStatus status = enrichEnhancedData(accessory);
+                    statuses.putIfAbsent(accessory.getId(), status);
+                    if (enrichedListener != null && status.isUsable()) {
+                        enrichedListener.accept(accessory);
+                    }
                 } finally {
                     enrichedCount.incrementAndGet();
                 }
-            }, executorService);
+            }));
+        }
+        return enrichmentFutures;
+    }
 
-            enrichmentFutures.add(future);
+    private void awaitEnrichments(List<Future<?>> enrichmentFutures) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(Constants.MARKET_REFRESH_DEADLINE_SECONDS);
+        try {
+            for (Future<?> future : enrichmentFutures) {
+                try {
+                    future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException e) {
+                    log.error("Unexpected enrichment failure", e.getCause());
+                }
+            }
+        } catch (TimeoutException e) {
+            updateProgress("Refresh deadline reached, continuing with the items fetched so far");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // Interrupts enrichments which missed the deadline so their threads are free for the next refresh
+            enrichmentFutures.forEach(future -> future.cancel(true));
         }
     }
 
-    private CompletableFuture<Void> createAndRunProgressFuture(int totalEnrichments, AtomicInteger enrichedCount) {
+    private CompletableFuture<Void> createAndRunProgressFuture(int totalEnrichments, AtomicInteger enrichedCount,
+                                                               AtomicBoolean enrichmentFinished) {
         // Kurze Pause, um CPU-Belastung zu reduzieren
         return CompletableFuture.runAsync(() -> {
             int lastReported = 0;
-            while (lastReported < totalEnrichments) {
+            while (lastReported < totalEnrichments && !enrichmentFinished.get()) {
                 int currentCount = enrichedCount.get();
                 if (currentCount > lastReported) {
                     updateProgress(String.format("Enrichment progress: %d of %d accessories (%d%%)",
@@ -158,15 +332,15 @@ public class BDOMarketConnector {
         }, executorService);
     }
 
-    private Map<String, String> getAccessoryDataParallel() {
+    private Map<String, String> getAccessoryDataParallel(List<String> failedCategories) {
         Map<String, CompletableFuture<String>> futures = new HashMap<>();
 
         Map<String, String> endpoints = new HashMap<>();
-        endpoints.put("ring", Constants.ACCESSORY_RING_CALL_URL);
-        endpoints.put("necklace", Constants.ACCESSORY_NECKLACE_CALL_URL);
-        endpoints.put("earring", Constants.ACCESSORY_EARRING_CALL_URL);
-        endpoints.put("belt", Constants.ACCESSORY_BELT_CALL_URL);
-        endpoints.put("costume", Constants.FUNCTIONAL_ARMOR_CALL_URL);
+        endpoints.put("ring", region.apiUrl(Constants.ACCESSORY_RING_CALL_URL));
+        endpoints.put("necklace", region.apiUrl(Constants.ACCESSORY_NECKLACE_CALL_URL));
+        endpoints.put("earring", region.apiUrl(Constants.ACCESSORY_EARRING_CALL_URL));
+        endpoints.put("belt", region.apiUrl(Constants.ACCESSORY_BELT_CALL_URL));
+        endpoints.put("costume", region.apiUrl(Constants.FUNCTIONAL_ARMOR_CALL_URL));
 
         AtomicInteger processed = new AtomicInteger(0);
         int total = endpoints.size();
@@ -182,25 +356,10 @@ public class BDOMarketConnector {
                         accessoryType, current, total));
 
                 try {
-                    StringBuilder result = new StringBuilder();
-                    URL url = new URL(endpoint);
-                    HttpURLConnection con = (HttpURLConnection) url.openConnection();
-                    con.setRequestMethod("GET");
-
-                    if (con.getResponseCode() == HttpURLConnection.HTTP_OK) {
-                        try (BufferedReader reader = new BufferedReader(
-                                new InputStreamReader(con.getInputStream(), StandardCharsets.UTF_8))) {
-                            String line;
-                            while ((line = reader.readLine()) != null) {
-                                result.append(line);
-                            }
-                        }
-                        return result.toString();
-                    } else {
-                        String errorMsg = String.format("HTTP error for %s: %d", accessoryType, con.getResponseCode());
-                        updateProgress(errorMsg);
-                        throw new RuntimeException(errorMsg);
-                    }
+                    return httpClient.get(endpoint, Map.of());
+                } catch (MarketRequestException e) {
+                    updateProgress(String.format("HTTP error for %s: %d", accessoryType, e.getStatus()));
+                    throw new RuntimeException("Error fetching " + accessoryType + ": " + e.getMessage(), e);
                 } catch (Exception e) {
                     throw new RuntimeException("Error fetching " + accessoryType + ": " + e.getMessage(), e);
                 }
@@ -209,9 +368,15 @@ public class BDOMarketConnector {
             futures.put(accessoryType, future);
         }
 
+        // A failing category must not discard the others
         Map<String, String> accessoryDataMap = new ConcurrentHashMap<>();
         for (Map.Entry<String, CompletableFuture<String>> entry : futures.entrySet()) {
-            accessoryDataMap.put(entry.getKey(), entry.getValue().join());
+            try {
+                accessoryDataMap.put(entry.getKey(), entry.getValue().join());
+            } catch (CompletionException e) {
+                log.warn("Skipping category {}: {}", entry.getKey(), e.getCause().getMessage());
+                failedCategories.add(entry.getKey());
+            }
         }
 
         return accessoryDataMap;
@@ -242,69 +407,85 @@ public class BDOMarketConnector {
         return accessory.getBasePrice() < Constants.BASE_PRICE_ACCESSORY_THRESHOLD;
     }
 
-    // Synchronized to prevent concurrent HTTP connections from overwhelming the server
-    private synchronized void enrichEnhancedData(Item item) throws IOException {
-        enrichBaseEnhancedData(item);
+    // Request pacing is left to the scheduler, so items can be enriched concurrently
+    private ItemFetchStatus enrichEnhancedData(Item item) {
+        long start = System.nanoTime();
+        List<Exception> failures = new ArrayList<>();
+
+        collectFailure(failures, () -> enrichBaseEnhancedData(item));
 
         // Get Base bidding info list
-        enrichBiddingInfoForResultLevel(item, 0);
+        collectFailure(failures, () -> enrichBiddingInfoForResultLevel(item, 0));
 
         // Get DUO bidding info list
-        enrichBiddingInfoForResultLevel(item, 2);
+        collectFailure(failures, () -> enrichBiddingInfoForResultLevel(item, 2));
 
         // Get TRI bidding info list
-        enrichBiddingInfoForResultLevel(item, 3);
+        collectFailure(failures, () -> enrichBiddingInfoForResultLevel(item, 3));
 
         // Get TET bidding info list
-        enrichBiddingInfoForResultLevel(item, 4);
+        collectFailure(failures, () -> enrichBiddingInfoForResultLevel(item, 4));
+
+        ENRICH_TIMER.recordSince(start);
+        return classifyEnrichment(item, failures);
     }
 
-    private void enrichBaseEnhancedData(Item item) throws IOException {
-        StringBuilder result = new StringBuilder();
-        URL url = new URL(Constants.ENHANCED_COST_URL);
-        HttpURLConnection con = (HttpURLConnection) url.openConnection();
+    private interface EnrichmentStep {
+        void run() throws IOException;
+    }
 
-        // Request-Methode setzen
-        con.setRequestMethod("POST");
+    private static void collectFailure(List<Exception> failures, EnrichmentStep step) {
+        // Once interrupted (deadline passed) the remaining steps are skipped
+        if (Thread.currentThread().isInterrupted()) {
+            failures.add(new InterruptedIOException("Enrichment interrupted"));
+            return;
+        }
 
-        // Header setzen
-        con.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-        con.setRequestProperty("Accept", "*/*");
-        con.setRequestProperty("User-Agent", "Mozilla/5.0");
-        con.setRequestProperty("Origin", "https://eu-trade.naeu.playblackdesert.com");
-        con.setRequestProperty("Referer", "https://eu-trade.naeu.playblackdesert.com/");
+        try {
+            step.run();
+        } catch (Exception e) {
+            failures.add(e);
+        }
+    }
 
-        // Request-Body vorbereiten
-        String postData = String.format("keyType=0&mainKey=%d", item.getId());
-        byte[] postDataBytes = postData.getBytes(StandardCharsets.UTF_8);
+    static ItemFetchStatus classifyEnrichment(Item item, List<Exception> failures) {
+        if (failures.isEmpty()) {
+            return ItemFetchStatus.OK;
+        }
 
-        // Content-Length entsprechend der tatsächlichen Datengröße setzen
-        con.setRequestProperty("Content-Length", String.valueOf(postDataBytes.length));
+        log.debug("Enrichment of {} had {} failed request(s): {}", item.getName(), failures.size(), failures.get(0).getMessage());
 
-        // Output aktivieren und Daten senden
-        con.setDoOutput(true);
-        try (var os = con.getOutputStream()) {
-            os.write(postDataBytes);
+        boolean hasAnyTargetPrice = item.getDuoPrice() > 0 || item.getTriPrice() > 0 || item.getTetPrice() > 0;
+        if (item.getBasePrice() > 0 && hasAnyTargetPrice) {
+            return ItemFetchStatus.PARTIAL;
         }
-
-        // Response lesen
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(con.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                result.append(line);
-            }
+        if (failures.stream().anyMatch(InterruptedIOException.class::isInstance)) {
+            return ItemFetchStatus.TIMED_OUT;
+        }
+        if (failures.stream().allMatch(CircuitOpenException.class::isInstance)) {
+            return ItemFetchStatus.CIRCUIT_OPEN;
         }
+        return ItemFetchStatus.FAILED;
+    }
 
-        appendBaseEnhancementData(item, result.toString());
+    private void enrichBaseEnhancedData(Item item) throws IOException {
+        // Request-Body vorbereiten
+        String postData = String.format("keyType=0&mainKey=%d", item.getId());
+        String result = httpClient.post(region.tradeUrl(Constants.ENHANCED_COST_URL), officialMarketHeaders, postData);
+
+        appendBaseEnhancementData(item, result);
     }
 
     private void enrichBiddingInfoForResultLevel(Item item, int resultLevel) throws IOException {
         int marketLevel = item.getEnhancementType().getMarketLevel(resultLevel);
-        StringBuilder result = getBiddingInfoList(item, marketLevel);
-        JSONObject jsonResponse = new JSONObject(result.toString());
-
-        JSONArray orders = jsonResponse.getJSONArray("orders");
-        long lowestPrice = findLowestPrice(orders);
+        String result = getBiddingInfoList(item, marketLevel);
+        long start = System.nanoTime();
+        JSONObject jsonResponse = new JSONObject(result);
+
+        PriceLadder ladder = parsePriceLadder(jsonResponse.getJSONArray("orders"));
+        long lowestPrice = ladder.lowestAsk();
+        ORDER_BOOK_PARSE_TIMER.recordSince(start);
+        item.setPriceLadder(resultLevel, ladder);
         if (lowestPrice >= 0) {
             switch (resultLevel) {
                 case 0 -> item.setBasePrice(lowestPrice);
@@ -315,6 +496,32 @@ public class BDOMarketConnector {
         }
     }
 
+    /**
+     * Keeps every price step of an order book with its sell and buy volume, merging steps
+     * listed twice.
+     */
+    static PriceLadder parsePriceLadder(JSONArray orders) {
+        TreeMap<Long, int[]> steps = new TreeMap<>();
+        for (int i = 0; i < orders.length(); i++) {
+            JSONObject order = orders.getJSONObject(i);
+            int[] volume = steps.computeIfAbsent(order.getLong("price"), price -> new int[2]);
+            volume[0] += Math.max(0, order.optInt("sellers", 0));
+            volume[1] += Math.max(0, order.optInt("buyers", 0));
+        }
+
+        long[] prices = new long[steps.size()];
+        int[] sellers = new int[steps.size()];
+        int[] buyers = new int[steps.size()];
+        int step = 0;
+        for (Map.Entry<Long, int[]> entry : steps.entrySet()) {
+            prices[step] = entry.getKey();
+            sellers[step] = entry.getValue()[0];
+            buyers[step] = entry.getValue()[1];
+            step++;
+        }
+        return new PriceLadder(prices, sellers, buyers);
+    }
+
     private long findLowestPrice(JSONArray orders) {
         return IntStream.range(0, orders.length())
                 .mapToObj(orders::getJSONObject)
@@ -324,37 +531,23 @@ public class BDOMarketConnector {
                 .orElse(-1);
     }
 
-    private static StringBuilder getBiddingInfoList(Item item, int level) throws IOException {
-        StringBuilder result = new StringBuilder();
+    private String getBiddingInfoList(Item item, int level) throws IOException {
+        return getBiddingInfoList(item.getId(), level);
+    }
 
+    private String getBiddingInfoList(int itemId, int level) throws IOException {
         // URL mit Query-Parametern erstellen
         String urlWithParams = String.format("%s?id=%d&sid=%d",
-                Constants.BIDDING_INFO_LIST_URL,
-                item.getId(),
+                region.apiUrl(Constants.BIDDING_INFO_LIST_URL),
+                itemId,
                 level);
-        URL url = new URL(urlWithParams);
-        HttpURLConnection con = (HttpURLConnection) url.openConnection();
-
-        // Request-Methode auf GET setzen
-        con.setRequestMethod("GET");
-
-        // Header setzen
-        con.setRequestProperty("Accept", "*/*");
-        con.setRequestProperty("User-Agent", "Mozilla/5.0");
-        con.setRequestProperty("Origin", "https://eu-trade.naeu.playblackdesert.com");
-        con.setRequestProperty("Referer", "https://eu-trade.naeu.playblackdesert.com/");
-
-        // Response lesen
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(con.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                result.append(line);
-            }
-        }
-        return result;
+
+        return orderBookCache.get(region.getCode(), itemId, level,
+                () -> httpClient.get(urlWithParams, officialMarketHeaders));
     }
 
     static void appendBaseEnhancementData(Item item, String response) {
+        long start = System.nanoTime();
         JSONObject jsonResponse = new JSONObject(response);
         String resultMsg = jsonResponse.getString("resultMsg");
 
@@ -387,6 +580,7 @@ public class BDOMarketConnector {
         } else {
             System.out.println("Could not append enhancement data for " + item.getName());
         }
+        ENHANCEMENT_PARSE_TIMER.recordSince(start);
     }
 
     // Thread-safe method to send progress updates
@@ -0,0 +1,188 @@
+package com.bdo.enhancer.market;
+
+import com.bdo.enhancer.model.constants.Constants;
+import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.result.AccessoryEnhancementResult;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Keeps the most valuable items fresh by spending a fixed request budget per minute.
+ *
+ * <p>Every tick the tracked items are ranked in a priority queue by last known
+ * profit, observed price volatility and data age. The top item's order books
+ * are refetched and the refreshed item is handed to the refresh listener,
+ * which is expected to recalculate its profit and report it back through
+ * {@link #updateProfits(Collection)}.</p>
+ */
+@Slf4j
+public class BackgroundRefreshScheduler {
+
+    // Weight of the newest relative price change in the volatility average
+    private static final double VOLATILITY_SMOOTHING = 0.3;
+
+    private final MarketDataService marketService;
+    private final int requestBudgetPerMinute;
+    private final long targetMaxAgeMillis;
+    private final LongSupplier clock;
+    private final Map<Integer, TrackedItem> trackedItems = new ConcurrentHashMap<>();
+
+    @Setter
+    private Consumer<Accessory> refreshListener;
+
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> tickFuture;
+
+    public BackgroundRefreshScheduler(MarketDataService marketService) {
+        this(marketService, Constants.BACKGROUND_REFRESH_REQUESTS_PER_MINUTE,
+                Constants.BACKGROUND_REFRESH_TARGET_AGE_MILLIS, System::currentTimeMillis);
+    }
+
+    BackgroundRefreshScheduler(MarketDataService marketService, int requestBudgetPerMinute,
+                               long targetMaxAgeMillis, LongSupplier clock) {
+        this.marketService = marketService;
+        this.requestBudgetPerMinute = requestBudgetPerMinute;
+        this.targetMaxAgeMillis = targetMaxAgeMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts refreshing in the background. One item refresh costs
+     * {@link Constants#REQUESTS_PER_ITEM_REFRESH} requests, so the tick period is
+     * chosen to stay within the request budget.
+     */
+    public synchronized void start() {
+        if (tickFuture != null) {
+            return;
+        }
+
+        long itemsPerMinute = Math.max(1, requestBudgetPerMinute / Constants.REQUESTS_PER_ITEM_REFRESH);
+        long periodMillis = TimeUnit.MINUTES.toMillis(1) / itemsPerMinute;
+        executor = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("market-background-refresh"));
+        tickFuture = executor.scheduleAtFixedRate(this::tick, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        log.info("Background refresh started: {} items per minute", itemsPerMinute);
+    }
+
+    public synchronized void stop() {
+        if (tickFuture == null) {
+            return;
+        }
+        tickFuture.cancel(false);
+        executor.shutdownNow();
+        tickFuture = null;
+        executor = null;
+    }
+
+    public synchronized boolean isRunning() {
+        return tickFuture != null;
+    }
+
+    /**
+     * Registers the items to keep fresh. Items already tracked keep their statistics.
+     */
+    public void track(Collection<Accessory> accessories, long refreshedAtMillis) {
+        for (Accessory accessory : accessories) {
+            trackedItems.computeIfAbsent(accessory.getId(), id -> new TrackedItem(accessory, refreshedAtMillis))
+                    .observe(accessory, refreshedAtMillis);
+        }
+    }
+
+    /**
+     * Feeds the latest calculated profits back into the priorities.
+     */
+    public void updateProfits(Collection<AccessoryEnhancementResult> results) {
+        for (AccessoryEnhancementResult result : results) {
+            TrackedItem item = trackedItems.get(result.id);
+            if (item != null) {
+                item.lastProfit = Math.max(result.duoProfit, Math.max(result.triProfit, result.tetProfit));
+            }
+        }
+    }
+
+    void tick() {
+        try {
+            Accessory next = selectNext();
+            if (next == null) {
+                return;
+            }
+
+            Accessory refreshed = marketService.refreshItem(next);
+            long now = clock.getAsLong();
+            if (refreshed == null) {
+                // Push the failed item back a little so one broken order book does not eat the budget
+                trackedItems.get(next.getId()).lastRefreshMillis = now;
+                return;
+            }
+
+            trackedItems.get(refreshed.getId()).observe(refreshed, now);
+            if (refreshListener != null) {
+                refreshListener.accept(refreshed);
+            }
+        } catch (Exception e) {
+            log.error("Background refresh tick failed", e);
+        }
+    }
+
+    /**
+     * @return The tracked item with the highest refresh priority, or null if none is tracked
+     */
+    Accessory selectNext() {
+        long now = clock.getAsLong();
+        PriorityQueue<TrackedItem> queue = new PriorityQueue<>(
+                Comparator.comparingDouble((TrackedItem item) -> item.priority(now, targetMaxAgeMillis)).reversed());
+        queue.addAll(trackedItems.values());
+        TrackedItem top = queue.poll();
+        return top == null ? null : top.accessory;
+    }
+
+    List<Integer> trackedIds() {
+        return List.copyOf(trackedItems.keySet());
+    }
+
+    private static class TrackedItem {
+        private Accessory accessory;
+        private long lastRefreshMillis;
+        private long lastProfit;
+        private double volatility;
+        private long lastPriceSum;
+
+        private TrackedItem(Accessory accessory, long refreshedAtMillis) {
+            this.accessory = accessory;
+            this.lastRefreshMillis = refreshedAtMillis;
+        }
+
+        private void observe(Accessory refreshed, long refreshedAtMillis) {
+            long priceSum = refreshed.getDuoPrice() + refreshed.getTriPrice() + refreshed.getTetPrice();
+            if (lastPriceSum > 0 && priceSum > 0) {
+                double relativeChange = Math.abs(priceSum - lastPriceSum) / (double) lastPriceSum;
+                volatility += (relativeChange - volatility) * VOLATILITY_SMOOTHING;
+            }
+            lastPriceSum = priceSum;
+            accessory = refreshed;
+            lastRefreshMillis = Math.max(lastRefreshMillis, refreshedAtMillis);
+        }
+
+        /**
+         * Profit sets the base weight (log scaled so a single outlier does not starve the rest),
+         * volatility amplifies it and age makes every item climb until it gets its turn.
+         */
+        private double priority(long now, long targetMaxAgeMillis) {
+            double value = Math.log1p(Math.max(0, lastProfit)) + 1;
+            double age = Math.max(0, now - lastRefreshMillis) / (double) targetMaxAgeMillis;
+            return value * (1 + volatility * 10) * age;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.bdo.enhancer.market;
+
+import java.io.IOException;
+
+/**
+ * Signals that a request was not sent because the circuit of its endpoint is open.
+ */
+public class CircuitOpenException extends IOException {
+
+    public CircuitOpenException(String endpoint) {
+        super("Circuit open for " + endpoint + ", request skipped");
+    }
+}
@@ -0,0 +1,31 @@
+package com.bdo.enhancer.market;
+
+import com.bdo.enhancer.model.item.Accessory;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Outcome of an incremental market refresh.
+ */
+@Getter
+@AllArgsConstructor
+public class DeltaRefreshResult {
+
+    /** All currently known items: freshly fetched ones plus unchanged cached ones */
+    private final List<Accessory> accessories;
+
+    /** Items whose order books were refetched in this refresh */
+    private final List<Accessory> changedAccessories;
+
+    /** Fetch status of the refetched items */
+    private final MarketFetchResult fetchResult;
+
+    /**
+     * @return true if no cached state existed and every item was fetched
+     */
+    public boolean isFullRefresh() {
+        return changedAccessories.size() == accessories.size();
+    }
+}
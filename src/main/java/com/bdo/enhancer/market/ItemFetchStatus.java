@@ -0,0 +1,21 @@
+package com.bdo.enhancer.market;
+
+/**
+ * Outcome of fetching the market data of a single item.
+ */
+public enum ItemFetchStatus {
+    /** All requests of the item succeeded */
+    OK,
+    /** Some requests failed, the item is usable with the prices that could be fetched */
+    PARTIAL,
+    /** The item could not be priced and was dropped */
+    FAILED,
+    /** The item was dropped because an endpoint circuit was open */
+    CIRCUIT_OPEN,
+    /** The item did not finish before the refresh deadline and was dropped */
+    TIMED_OUT;
+
+    public boolean isUsable() {
+        return this == OK || this == PARTIAL;
+    }
+}
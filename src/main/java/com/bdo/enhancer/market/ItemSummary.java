@@ -0,0 +1,31 @@
+package com.bdo.enhancer.market;
+
+import com.bdo.enhancer.model.item.Item;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * The cheap per-item fields of a category listing. If they did not change since the
+ * last refresh, the order books of the item are assumed unchanged as well.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class ItemSummary {
+
+    private final long basePrice;
+    private final long currentStock;
+
+    public ItemSummary(long basePrice, long currentStock) {
+        this.basePrice = basePrice;
+        this.currentStock = currentStock;
+    }
+
+    /**
+     * Captures the listing fields of an item; must be called before enrichment overwrites the base price.
+     */
+    public static ItemSummary of(Item item) {
+        return new ItemSummary(item.getBasePrice(), item.getCurrentStock());
+    }
+}
@@ -0,0 +1,41 @@
+package com.bdo.enhancer.market;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent request latencies of an endpoint to derive percentiles.
+ */
+public class LatencyTracker {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+
+    public LatencyTracker(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long latencyNanos) {
+        samples[next] = latencyNanos;
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 1, e.g. 0.95
+     * @return The latency at the given percentile, or -1 if fewer than {@code minSamples} were recorded
+     */
+    public long percentile(double percentile, int minSamples) {
+        long[] copy;
+        synchronized (this) {
+            if (size < minSamples || size == 0) {
+                return -1;
+            }
+            copy = Arrays.copyOf(samples, size);
+        }
+
+        Arrays.sort(copy);
+        int index = (int) Math.ceil(percentile * copy.length) - 1;
+        return copy[Math.max(0, Math.min(index, copy.length - 1))];
+    }
+}
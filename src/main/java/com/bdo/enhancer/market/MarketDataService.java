@@ -1,10 +1,17 @@
 package com.bdo.enhancer.market;
 
+import com.bdo.enhancer.model.constants.Constants;
+import com.bdo.enhancer.model.constants.MarketRegion;
 import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.item.MaterialPrices;
 import lombok.Setter;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Service-Klasse, die den Zugriff auf Marktdaten kapselt
@@ -13,10 +20,37 @@ import java.util.function.Consumer;
 public class MarketDataService {
     
     private BDOMarketConnector marketConnector;
+    private MaterialPriceProvider materialPriceProvider;
     private Consumer<String> progressCallback;
+    // Receives every freshly fetched item, may be null
+    private PriceHistoryStore priceHistory;
+
+    // Zuletzt bekannter Zustand je Item für den Delta-Abruf
+    private final Map<Integer, CachedItem> itemCache = new ConcurrentHashMap<>();
+    private long itemTtlMillis = Constants.MARKET_ITEM_TTL_MILLIS;
     
     public MarketDataService() {
-        this.marketConnector = new BDOMarketConnector();
+        this(new BDOMarketConnector());
+    }
+
+    public MarketDataService(BDOMarketConnector marketConnector) {
+        this.marketConnector = marketConnector;
+        this.materialPriceProvider = new MaterialPriceProvider(marketConnector);
+    }
+
+    /**
+     * Dienst für eine bestimmte Region; mehrere Regionen können sich einen Scheduler
+     * und damit ein gemeinsames Request-Limit teilen
+     */
+    public MarketDataService(MarketRegion region, MarketRequestScheduler scheduler) {
+        this(new BDOMarketConnector(scheduler, OrderBookCache.shared(), region));
+    }
+
+    /**
+     * @return Die Region, deren Markt dieser Dienst abfragt
+     */
+    public MarketRegion getRegion() {
+        return marketConnector.getRegion();
     }
     
     /**
@@ -28,7 +62,141 @@ public class MarketDataService {
         if (progressCallback != null) {
             marketConnector.setProgressCallback(progressCallback);
         }
-        return marketConnector.getAccessories();
+        List<Accessory> accessories = marketConnector.getAccessories();
+        recordHistory(accessories);
+        return accessories;
+    }
+
+    /**
+     * Holt alle Accessoires vom Markt inklusive Abrufstatus je Item
+     *
+     * @return Teilergebnis mit allen rechtzeitig bepreisten Accessoires
+     */
+    public MarketFetchResult fetchAccessories() {
+        if (progressCallback != null) {
+            marketConnector.setProgressCallback(progressCallback);
+        }
+        MarketFetchResult result = marketConnector.fetchAccessories();
+        recordHistory(result.getAccessories());
+        return result;
+    }
+
+    /**
+     * Inkrementeller Abruf: lädt nur die Kategorielisten und holt Orderbücher
+     * ausschließlich für Items, deren Listenpreis oder Bestand sich geändert hat
+     * oder deren Cache-Eintrag abgelaufen ist. Beim ersten Aufruf werden alle Items geladen.
+     *
+     * @return Alle bekannten Accessoires sowie die neu abgerufenen
+     */
+    public DeltaRefreshResult refreshAccessories() {
+        return refreshAccessories(null);
+    }
+
+    /**
+     * Inkrementeller Abruf wie {@link #refreshAccessories()}, reicht aber jedes neu
+     * abgerufene Item sofort an den Listener weiter, damit die Berechnung schon
+     * während des Abrufs beginnen kann
+     *
+     * @param fetchedListener Erhält jedes neu bepreiste Item, darf null sein
+     * @return Alle bekannten Accessoires sowie die neu abgerufenen
+     */
+    public DeltaRefreshResult refreshAccessories(Consumer<Accessory> fetchedListener) {
+        if (progressCallback != null) {
+            marketConnector.setProgressCallback(progressCallback);
+        }
+
+        MarketListing listing = marketConnector.fetchListing();
+        long now = System.currentTimeMillis();
+
+        List<Accessory> staleAccessories = new ArrayList<>();
+        Map<Integer, ItemSummary> listedSummaries = new ConcurrentHashMap<>();
+        for (Accessory listed : listing.getAccessories()) {
+            ItemSummary summary = ItemSummary.of(listed);
+            listedSummaries.put(listed.getId(), summary);
+
+            CachedItem cached = itemCache.get(listed.getId());
+            boolean listingChanged = cached != null && !cached.summary.equals(summary);
+            if (cached == null || listingChanged || now - cached.fetchedAtMillis > itemTtlMillis) {
+                staleAccessories.add(listed);
+            }
+            if (listingChanged) {
+                // Gecachte Orderbücher passen nicht mehr zum neuen Listing
+                marketConnector.invalidateOrderBooks(listed.getId());
+            }
+        }
+
+        updateProgress(String.format("Delta refresh: %d of %d items changed or expired",
+                staleAccessories.size(), listing.getAccessories().size()));
+        MarketFetchResult fetchResult = marketConnector.enrichAccessories(staleAccessories, listing.getFailedCategories(),
+                fetchedListener);
+
+        recordHistory(fetchResult.getAccessories());
+        for (Accessory fetched : fetchResult.getAccessories()) {
+            itemCache.put(fetched.getId(), new CachedItem(listedSummaries.get(fetched.getId()), fetched, now));
+        }
+
+        // Items missing from a successful listing are gone; if a category failed we cannot tell, so they are kept
+        if (listing.getFailedCategories().isEmpty()) {
+            itemCache.keySet().retainAll(listedSummaries.keySet());
+        }
+
+        List<Accessory> accessories = itemCache.values().stream()
+                .map(cached -> cached.accessory)
+                .collect(Collectors.toList());
+
+        return new DeltaRefreshResult(accessories, fetchResult.getAccessories(), fetchResult);
+    }
+
+    /**
+     * Lädt die Orderbücher eines einzelnen Items neu und aktualisiert den Cache,
+     * z. B. für die Hintergrundaktualisierung
+     *
+     * @param accessory Das zu aktualisierende Accessoire
+     * @return Neu bepreiste Kopie des Accessoires oder null, wenn der Abruf fehlschlug
+     */
+    public Accessory refreshItem(Accessory accessory) {
+        Accessory refreshed = new Accessory(accessory.getName(), accessory.getId(), accessory.getEnhancementType());
+        refreshed.setBasePrice(accessory.getBasePrice());
+        refreshed.setCurrentStock(accessory.getCurrentStock());
+        ItemSummary listedSummary = ItemSummary.of(refreshed);
+
+        // Die Hintergrundaktualisierung will frische Orderbücher, nicht den Cache
+        marketConnector.invalidateOrderBooks(accessory.getId());
+        if (!marketConnector.enrichItem(refreshed).isUsable()) {
+            return null;
+        }
+
+        // The listing summary stays as it was, only the next listing tells whether it changed
+        CachedItem cached = itemCache.get(accessory.getId());
+        ItemSummary summary = cached != null ? cached.summary : listedSummary;
+        itemCache.put(accessory.getId(), new CachedItem(summary, refreshed, System.currentTimeMillis()));
+        recordHistory(List.of(refreshed));
+        return refreshed;
+    }
+
+    /**
+     * Liefert die Marktpreise der Verbesserungsmaterialien, gecacht mit TTL
+     *
+     * @return Preisvektor für Failstack- und Manos-Materialien
+     */
+    public MaterialPrices getMaterialPrices() {
+        return materialPriceProvider.getPrices();
+    }
+
+    /**
+     * @return Alle aktuell gecachten Accessoires
+     */
+    public List<Accessory> getCachedAccessories() {
+        return itemCache.values().stream()
+                .map(cached -> cached.accessory)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Verwirft den Delta-Cache, der nächste Abruf lädt wieder alle Items
+     */
+    public void invalidateCache() {
+        itemCache.clear();
     }
     
     /**
@@ -42,4 +210,28 @@ public class MarketDataService {
             marketConnector.setProgressCallback(callback);
         }
     }
+
+    private void recordHistory(List<Accessory> fetched) {
+        if (priceHistory != null && !fetched.isEmpty()) {
+            priceHistory.recordAll(fetched);
+        }
+    }
+
+    private void updateProgress(String message) {
+        if (progressCallback != null) {
+            progressCallback.accept(message);
+        }
+    }
+
+    private static class CachedItem {
+        private final ItemSummary summary;
+        private final Accessory accessory;
+        private final long fetchedAtMillis;
+
+        private CachedItem(ItemSummary summary, Accessory accessory, long fetchedAtMillis) {
+            this.summary = summary;
+            this.accessory = accessory;
+            this.fetchedAtMillis = fetchedAtMillis;
+        }
+    }
 }
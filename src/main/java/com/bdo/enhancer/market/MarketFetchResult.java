@@ -0,0 +1,63 @@
+package com.bdo.enhancer.market;
+
+import com.bdo.enhancer.model.item.Accessory;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Partial result of a market refresh: the usable items plus the status of every
+ * item and category that was attempted.
+ */
+@Getter
+public class MarketFetchResult {
+
+    private final List<Accessory> accessories;
+    private final Map<Integer, ItemFetchStatus> itemStatuses;
+    private final List<String> failedCategories;
+
+    public MarketFetchResult(List<Accessory> accessories, Map<Integer, ItemFetchStatus> itemStatuses,
+                             List<String> failedCategories) {
+        this.accessories = Collections.unmodifiableList(accessories);
+        this.itemStatuses = Collections.unmodifiableMap(new LinkedHashMap<>(itemStatuses));
+        this.failedCategories = Collections.unmodifiableList(failedCategories);
+    }
+
+    public static MarketFetchResult empty() {
+        return new MarketFetchResult(List.of(), Map.of(), List.of());
+    }
+
+    /**
+     * @return true if every category and every item was fetched without errors
+     */
+    public boolean isComplete() {
+        return failedCategories.isEmpty()
+                && itemStatuses.values().stream().allMatch(status -> status == ItemFetchStatus.OK);
+    }
+
+    public Map<ItemFetchStatus, Integer> getStatusCounts() {
+        Map<ItemFetchStatus, Integer> counts = new EnumMap<>(ItemFetchStatus.class);
+        itemStatuses.values().forEach(status -> counts.merge(status, 1, Integer::sum));
+        return counts;
+    }
+
+    /**
+     * Short human readable summary, e.g. for progress messages
+     */
+    public String describe() {
+        StringBuilder summary = new StringBuilder(accessories.size() + " valid accessories");
+        getStatusCounts().forEach((status, count) -> {
+            if (status != ItemFetchStatus.OK) {
+                summary.append(", ").append(count).append(' ').append(status.name().toLowerCase().replace('_', ' '));
+            }
+        });
+        if (!failedCategories.isEmpty()) {
+            summary.append(", failed categories: ").append(String.join(", ", failedCategories));
+        }
+        return summary.toString();
+    }
+}
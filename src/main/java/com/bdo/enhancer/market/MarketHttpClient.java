@@ -0,0 +1,343 @@
+package com.bdo.enhancer.market;
+
+import com.bdo.enhancer.metrics.MarketRequestEvent;
+import com.bdo.enhancer.metrics.MetricsRegistry;
+import com.bdo.enhancer.model.constants.Constants;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Performs market HTTP requests through a shared {@link MarketRequestScheduler}.
+ *
+ * <p>Every request has connect and read timeouts and is guarded by a circuit
+ * breaker per endpoint. Idempotent GET requests are hedged: once a request
+ * runs longer than the endpoint's observed P95 latency, a duplicate is sent
+ * and whichever answers first wins; the other one is disconnected right away
+ * instead of holding a thread until its read timeout. All clients share one
+ * bounded pool for the hedged requests.</p>
+ */
+@Slf4j
+public class MarketHttpClient {
+
+    private static final int LATENCY_SAMPLES = 256;
+    private static final int MIN_SAMPLES_FOR_HEDGING = 20;
+    private static final double HEDGE_PERCENTILE = 0.95;
+    private static final ExecutorService HEDGE_EXECUTOR = hedgeExecutor();
+
+    @Getter
+    private final MarketRequestScheduler scheduler;
+    private final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    private final Map<String, LatencyTracker> latencyTrackers = new ConcurrentHashMap<>();
+
+    public MarketHttpClient(MarketRequestScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public String get(String url, Map<String, String> headers) throws IOException {
+        String endpoint = endpointOf(url);
+        return guarded(endpoint, () -> hedged(endpoint, attempt -> scheduler.execute("GET " + url,
+                () -> timed(endpoint, () -> send("GET", url, headers, null, attempt)))));
+    }
+
+    public String post(String url, Map<String, String> headers, String formData) throws IOException {
+        String endpoint = endpointOf(url);
+        return guarded(endpoint, () -> scheduler.execute("POST " + url,
+                () -> timed(endpoint, () -> send("POST", url, headers, formData, new Attempt()))));
+    }
+
+    public CircuitBreaker.State getCircuitState(String url) {
+        CircuitBreaker breaker = circuitBreakers.get(endpointOf(url));
+        return breaker == null ? CircuitBreaker.State.CLOSED : breaker.getState();
+    }
+
+    private interface Request {
+        String execute() throws IOException;
+    }
+
+    private interface HedgeableRequest {
+        String execute(Attempt attempt) throws IOException;
+    }
+
+    /**
+     * One try of a request that can be cut off from another thread; disconnecting its
+     * connection unblocks a pending read.
+     */
+    private static final class Attempt {
+        private volatile HttpURLConnection connection;
+        private volatile boolean cancelled;
+
+        private void open(HttpURLConnection connection) {
+            this.connection = connection;
+            if (cancelled) {
+                connection.disconnect();
+                throw new CancellationException("Hedged request no longer needed");
+            }
+        }
+
+        private void cancel() {
+            cancelled = true;
+            HttpURLConnection current = connection;
+            if (current != null) {
+                current.disconnect();
+            }
+        }
+    }
+
+    private String guarded(String endpoint, Request request) throws IOException {
+        CircuitBreaker breaker = circuitBreakers.computeIfAbsent(endpoint, key -> new CircuitBreaker(
+                Constants.MARKET_CIRCUIT_FAILURE_THRESHOLD, Constants.MARKET_CIRCUIT_OPEN_MILLIS));
+        if (!breaker.allowRequest()) {
+            throw new CircuitOpenException(endpoint);
+        }
+
+        try {
+            String body = request.execute();
+            breaker.onSuccess();
+            return body;
+        } catch (MarketRequestException e) {
+            // A client error means the endpoint itself is healthy
+            if (MarketResponse.isThrottled(e.getStatus())) {
+                breaker.onFailure();
+            } else {
+                breaker.onSuccess();
+            }
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            breaker.onFailure();
+            throw e;
+        }
+    }
+
+    private String hedged(String endpoint, HedgeableRequest request) throws IOException {
+        long hedgeAfterNanos = tracker(endpoint).percentile(HEDGE_PERCENTILE, MIN_SAMPLES_FOR_HEDGING);
+        if (hedgeAfterNanos < 0) {
+            return request.execute(new Attempt());
+        }
+
+        Attempt primaryAttempt = new Attempt();
+        CompletableFuture<String> primary =
+                CompletableFuture.supplyAsync(() -> unchecked(request, primaryAttempt), HEDGE_EXECUTOR);
+        try {
+            return await(primary, hedgeAfterNanos);
+        } catch (TimeoutException e) {
+            log.debug("Hedging request to {} after {} ms", endpoint, TimeUnit.NANOSECONDS.toMillis(hedgeAfterNanos));
+        }
+
+        Attempt hedgeAttempt = new Attempt();
+        CompletableFuture<String> hedge =
+                CompletableFuture.supplyAsync(() -> unchecked(request, hedgeAttempt), HEDGE_EXECUTOR);
+        CompletableFuture<String> firstSuccess = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<String> attempt : List.of(primary, hedge)) {
+            attempt.whenComplete((body, failure) -> {
+                if (failure == null) {
+                    firstSuccess.complete(body);
+                } else if (failures.incrementAndGet() == 2) {
+                    firstSuccess.completeExceptionally(failure);
+                }
+            });
+        }
+
+        try {
+            return await(firstSuccess, Long.MAX_VALUE);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Unbounded wait timed out", e);
+        } finally {
+            // The loser is still waiting for its response; both are done once either won or both failed
+            primaryAttempt.cancel();
+            hedgeAttempt.cancel();
+        }
+    }
+
+    private static String await(CompletableFuture<String> future, long timeoutNanos) throws IOException, TimeoutException {
+        try {
+            return future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for market response");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static String unchecked(HedgeableRequest request, Attempt attempt) {
+        try {
+            return request.execute(attempt);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private MarketResponse timed(String endpoint, MarketRequestScheduler.MarketCall call) throws IOException {
+        long start = System.nanoTime();
+        MarketResponse response = call.execute();
+        long duration = System.nanoTime() - start;
+        MetricsRegistry.global().timer("market.fetch." + metricName(endpoint)).record(duration);
+        if (response.isSuccessful()) {
+            tracker(endpoint).record(duration);
+        }
+        return response;
+    }
+
+    private LatencyTracker tracker(String endpoint) {
+        return latencyTrackers.computeIfAbsent(endpoint, key -> new LatencyTracker(LATENCY_SAMPLES));
+    }
+
+    private static ExecutorService hedgeExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(Constants.MARKET_HEDGE_THREADS,
+                Constants.MARKET_HEDGE_THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new DaemonThreadFactory("market-hedge"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Endpoints are identified by host and path, query parameters like item ids are ignored.
+     */
+    static String endpointOf(String url) {
+        int query = url.indexOf('?');
+        return query < 0 ? url : url.substring(0, query);
+    }
+
+    /**
+     * Endpoint without the scheme, e.g. {@code api.arsha.io/v2/eu/GetWorldMarketSubList}.
+     */
+    static String metricName(String endpoint) {
+        int scheme = endpoint.indexOf("://");
+        return scheme < 0 ? endpoint : endpoint.substring(scheme + 3);
+    }
+
+    private static MarketResponse send(String method, String url, Map<String, String> headers,
+                                       String formData, Attempt attempt) throws IOException {
+        MarketRequestEvent event = new MarketRequestEvent();
+        event.begin();
+        MarketResponse response = null;
+        HttpURLConnection con = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            attempt.open(con);
+            con.setRequestMethod(method);
+            con.setConnectTimeout(Constants.MARKET_CONNECT_TIMEOUT_MILLIS);
+            con.setReadTimeout(Constants.MARKET_READ_TIMEOUT_MILLIS);
+            headers.forEach(con::setRequestProperty);
+
+            if (formData != null) {
+                byte[] postDataBytes = formData.getBytes(StandardCharsets.UTF_8);
+                con.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+                con.setRequestProperty("Content-Length", String.valueOf(postDataBytes.length));
+                con.setDoOutput(true);
+                try (var os = con.getOutputStream()) {
+                    os.write(postDataBytes);
+                }
+            }
+
+            int status = con.getResponseCode();
+            InputStream stream = status < HttpURLConnection.HTTP_BAD_REQUEST ? con.getInputStream() : con.getErrorStream();
+            response = new MarketResponse(status, readBody(stream),
+                    parseRetryAfter(con.getHeaderField("Retry-After")));
+            return response;
+        } catch (IOException e) {
+            if (attempt.cancelled) {
+                // Not a failure of the endpoint, so the scheduler must neither retry nor back off
+                throw new CancellationException("Hedged request no longer needed");
+            }
+            throw e;
+        } finally {
+            con.disconnect();
+            commit(event, method, url, formData, response);
+        }
+    }
+
+    private static void commit(MarketRequestEvent event, String method, String url, String formData,
+                               MarketResponse response) {
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        int query = url.indexOf('?');
+        String parameters = formData != null ? formData : query < 0 ? null : url.substring(query + 1);
+        event.method = method;
+        event.endpoint = endpointOf(url);
+        event.itemId = Math.max(MarketRequestEvent.parameter(parameters, "id"),
+                MarketRequestEvent.parameter(parameters, "mainKey"));
+        event.subId = MarketRequestEvent.parameter(parameters, "sid");
+        if (response != null) {
+            event.status = response.getStatus();
+            event.bytes = response.getBody().getBytes(StandardCharsets.UTF_8).length;
+        }
+        event.commit();
+    }
+
+    private static String readBody(InputStream stream) throws IOException {
+        if (stream == null) {
+            return "";
+        }
+
+        StringBuilder result = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                result.append(line);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Parses a {@code Retry-After} header given either as delta seconds or as HTTP date.
+     *
+     * @return The delay in milliseconds, or -1 if the header is absent or malformed
+     */
+    static long parseRetryAfter(String header) {
+        if (header == null || header.isBlank()) {
+            return -1;
+        }
+
+        String value = header.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            // Not delta seconds, try the HTTP date form below
+        }
+
+        try {
+            ZonedDateTime retryAt = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME);
+            return Math.max(0, Duration.between(ZonedDateTime.now(retryAt.getZone()), retryAt).toMillis());
+        } catch (DateTimeParseException e) {
+            return -1;
+        }
+    }
+}
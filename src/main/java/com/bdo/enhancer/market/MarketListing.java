@@ -0,0 +1,18 @@
+package com.bdo.enhancer.market;
+
+import com.bdo.enhancer.model.item.Accessory;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Items of the category listings, filtered but not yet enriched with order book prices.
+ */
+@Getter
+@AllArgsConstructor
+public class MarketListing {
+
+    private final List<Accessory> accessories;
+    private final List<String> failedCategories;
+}
@@ -0,0 +1,19 @@
+package com.bdo.enhancer.market;
+
+import lombok.Getter;
+
+import java.io.IOException;
+
+/**
+ * Signals that a market request was answered with a non-successful HTTP status.
+ */
+@Getter
+public class MarketRequestException extends IOException {
+
+    private final int status;
+
+    public MarketRequestException(String request, int status) {
+        super(String.format("HTTP error for %s: %d", request, status));
+        this.status = status;
+    }
+}
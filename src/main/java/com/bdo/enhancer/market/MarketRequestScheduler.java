@@ -0,0 +1,186 @@
+package com.bdo.enhancer.market;
+
+import com.bdo.enhancer.metrics.Counter;
+import com.bdo.enhancer.metrics.MetricsRegistry;
+import com.bdo.enhancer.model.constants.Constants;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.ToLongFunction;
+
+/**
+ * Admits market requests through a token bucket and an adaptive concurrency limit.
+ *
+ * <p>Every request first waits for a free concurrency slot and then for a
+ * token. Its outcome is fed back into the limiter so that the refresh runs as
+ * fast as the server tolerates. Throttled requests are retried, honoring
+ * {@code Retry-After} when the server sends it and using exponential backoff
+ * with full jitter otherwise.</p>
+ */
+@Slf4j
+public class MarketRequestScheduler {
+
+    private static final long DEFAULT_BACKOFF_BASE_MILLIS = 250;
+
+    private static final Counter REQUESTS = MetricsRegistry.global().counter("market.requests");
+    private static final Counter RETRIES = MetricsRegistry.global().counter("market.retries");
+    // Limiters of all schedulers, held weakly so the gauges keep no discarded scheduler alive
+    private static final Set<AdaptiveConcurrencyLimiter> LIMITERS =
+            Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+
+    static {
+        // Registered once; they sum over all schedulers, i.e. show the total load on the market API
+        MetricsRegistry.global().gauge("market.requests.inFlight",
+                () -> sum(AdaptiveConcurrencyLimiter::getInFlight));
+        MetricsRegistry.global().gauge("market.requests.limit", () -> sum(AdaptiveConcurrencyLimiter::getLimit));
+    }
+
+    // After LIMITERS, which its constructor registers with
+    private static final MarketRequestScheduler SHARED = new MarketRequestScheduler();
+
+    /**
+     * A single HTTP exchange which can be repeated on retry.
+     */
+    @FunctionalInterface
+    public interface MarketCall {
+        MarketResponse execute() throws IOException;
+    }
+
+    @Getter
+    private final TokenBucket tokenBucket;
+    @Getter
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final int maxRetries;
+    private final long backoffBaseMillis;
+
+    public MarketRequestScheduler() {
+        this(new TokenBucket(Constants.MARKET_REQUESTS_PER_SECOND, Constants.MARKET_REQUEST_BURST),
+                new AdaptiveConcurrencyLimiter(
+                        Constants.MARKET_MIN_CONCURRENCY,
+                        Constants.MARKET_INITIAL_CONCURRENCY,
+                        Constants.MARKET_MAX_CONCURRENCY),
+                Constants.MARKET_MAX_RETRIES,
+                DEFAULT_BACKOFF_BASE_MILLIS);
+    }
+
+    /**
+     * @return The scheduler shared by all market connectors of this process, so that together they
+     * stay within one request rate and concurrency limit
+     */
+    public static MarketRequestScheduler shared() {
+        return SHARED;
+    }
+
+    MarketRequestScheduler(TokenBucket tokenBucket, AdaptiveConcurrencyLimiter limiter,
+                           int maxRetries, long backoffBaseMillis) {
+        this.tokenBucket = tokenBucket;
+        this.limiter = limiter;
+        this.maxRetries = maxRetries;
+        this.backoffBaseMillis = backoffBaseMillis;
+        LIMITERS.add(limiter);
+    }
+
+    private static long sum(ToLongFunction<AdaptiveConcurrencyLimiter> value) {
+        synchronized (LIMITERS) {
+            return LIMITERS.stream().mapToLong(value).sum();
+        }
+    }
+
+    /**
+     * Executes the call once admitted and returns the body of the first successful response.
+     *
+     * @param description Short request description used in errors and logs
+     * @param call The HTTP exchange
+     * @return The response body
+     * @throws MarketRequestException if the server keeps failing or answers with a client error
+     * @throws IOException if the connection keeps failing
+     */
+    public String execute(String description, MarketCall call) throws IOException {
+        IOException lastFailure = null;
+
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            if (lastFailure != null) {
+                RETRIES.increment();
+                log.debug("Retrying {} (attempt {}): {}", description, attempt + 1, lastFailure.getMessage());
+            }
+
+            acquire(description);
+            REQUESTS.increment();
+            long start = System.nanoTime();
+            MarketResponse response;
+            try {
+                response = call.execute();
+            } catch (IOException e) {
+                limiter.onDropped();
+                lastFailure = e;
+                backoff(attempt, -1, description);
+                continue;
+            } catch (RuntimeException e) {
+                limiter.onIgnored();
+                throw e;
+            }
+            long latency = System.nanoTime() - start;
+
+            if (response.isSuccessful()) {
+                limiter.onSuccess(latency);
+                return response.getBody();
+            }
+
+            if (response.isThrottled()) {
+                limiter.onDropped();
+                lastFailure = new MarketRequestException(description, response.getStatus());
+                if (response.getRetryAfterMillis() >= 0) {
+                    // The server told us when to come back; hold back every request, not just this one
+                    tokenBucket.pause(response.getRetryAfterMillis());
+                } else {
+                    backoff(attempt, response.getStatus(), description);
+                }
+                continue;
+            }
+
+            limiter.onIgnored();
+            throw new MarketRequestException(description, response.getStatus());
+        }
+
+        throw lastFailure;
+    }
+
+    private void acquire(String description) throws InterruptedIOException {
+        try {
+            limiter.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to send " + description);
+        }
+
+        try {
+            tokenBucket.acquire();
+        } catch (InterruptedException e) {
+            limiter.onIgnored();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to send " + description);
+        }
+    }
+
+    private void backoff(int attempt, int status, String description) throws InterruptedIOException {
+        if (attempt >= maxRetries || backoffBaseMillis <= 0) {
+            return;
+        }
+
+        long ceiling = backoffBaseMillis << Math.min(attempt, 10);
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        log.debug("Backing off {} ms after status {} for {}", delay, status, description);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while backing off " + description);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.bdo.enhancer.market;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Raw answer of a single market HTTP exchange.
+ */
+@Getter
+@AllArgsConstructor
+public class MarketResponse {
+
+    /** HTTP status code */
+    private final int status;
+
+    /** Response body, empty if the server did not send one */
+    private final String body;
+
+    /** Delay requested by a {@code Retry-After} header in milliseconds, or -1 if absent */
+    private final long retryAfterMillis;
+
+    public boolean isSuccessful() {
+        return status >= 200 && status < 300;
+    }
+
+    /**
+     * Statuses which signal an overloaded or temporarily unavailable server.
+     */
+    public boolean isThrottled() {
+        return isThrottled(status);
+    }
+
+    public static boolean isThrottled(int status) {
+        return status == 408 || status == 425 || status == 429 || status >= 500;
+    }
+}
@@ -0,0 +1,65 @@
+package com.bdo.enhancer.market;
+
+import com.bdo.enhancer.model.constants.Constants;
+import com.bdo.enhancer.model.item.Material;
+import com.bdo.enhancer.model.item.MaterialPrices;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Provides the current market prices of enhancement materials.
+ *
+ * <p>Prices are fetched through the market connector, so they share its
+ * request pacing and order book cache, and are kept for a TTL. A material whose
+ * price cannot be fetched keeps its last known price, or the default from
+ * {@link Constants} if it was never fetched.</p>
+ */
+@Slf4j
+public class MaterialPriceProvider {
+
+    private final BDOMarketConnector marketConnector;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    private MaterialPrices prices = MaterialPrices.defaults();
+    private long fetchedAtMillis = Long.MIN_VALUE;
+
+    public MaterialPriceProvider(BDOMarketConnector marketConnector) {
+        this(marketConnector, Constants.MATERIAL_PRICE_TTL_MILLIS, System::currentTimeMillis);
+    }
+
+    MaterialPriceProvider(BDOMarketConnector marketConnector, long ttlMillis, LongSupplier clock) {
+        this.marketConnector = marketConnector;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * @return The cached prices, refetched first if they are older than the TTL
+     */
+    public synchronized MaterialPrices getPrices() {
+        long now = clock.getAsLong();
+        if (fetchedAtMillis != Long.MIN_VALUE && now - fetchedAtMillis <= ttlMillis) {
+            return prices;
+        }
+
+        MaterialPrices fetched = prices;
+        for (Material material : Material.VALUES) {
+            try {
+                long price = marketConnector.fetchLowestPrice(material.getItemId());
+                if (price > 0) {
+                    fetched = fetched.with(material, price);
+                } else {
+                    log.debug("No sell orders for {}, keeping {}", material, fetched.get(material));
+                }
+            } catch (Exception e) {
+                log.warn("Could not fetch the price of {}, keeping {}: {}", material, fetched.get(material), e.getMessage());
+            }
+        }
+
+        prices = fetched;
+        fetchedAtMillis = now;
+        return prices;
+    }
+}
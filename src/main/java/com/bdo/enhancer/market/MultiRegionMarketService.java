@@ -0,0 +1,94 @@
+package com.bdo.enhancer.market;
+
+import com.bdo.enhancer.model.constants.MarketRegion;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Fetches several market regions concurrently.
+ *
+ * <p>Every region has its own {@link MarketDataService} and therefore its own
+ * delta cache, but all of them send their requests through one
+ * {@link MarketRequestScheduler}, so adding a region does not raise the
+ * request rate towards the market API.</p>
+ */
+@Slf4j
+public class MultiRegionMarketService {
+
+    @Getter
+    private final MarketRequestScheduler scheduler;
+    // Creates the service of a region on top of the shared scheduler
+    private final BiFunction<MarketRegion, MarketRequestScheduler, MarketDataService> serviceFactory;
+    private final Map<MarketRegion, MarketDataService> services = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory("market-region"));
+
+    @Setter
+    private Consumer<String> progressCallback;
+
+    public MultiRegionMarketService() {
+        this(MarketRequestScheduler.shared());
+    }
+
+    public MultiRegionMarketService(MarketRequestScheduler scheduler) {
+        this(scheduler, MarketDataService::new);
+    }
+
+    /**
+     * @param scheduler Scheduler shared by all regions
+     * @param serviceFactory Creates the service of a region; it has to send its requests through the given scheduler
+     */
+    public MultiRegionMarketService(MarketRequestScheduler scheduler,
+                                    BiFunction<MarketRegion, MarketRequestScheduler, MarketDataService> serviceFactory) {
+        this.scheduler = scheduler;
+        this.serviceFactory = serviceFactory;
+    }
+
+    /**
+     * @return The service of the region, created on first use
+     */
+    public MarketDataService getService(MarketRegion region) {
+        return services.computeIfAbsent(region, key -> serviceFactory.apply(key, scheduler));
+    }
+
+    /**
+     * Runs a delta refresh of every given region in parallel.
+     *
+     * @return The refresh result per region; a region whose refresh failed is missing
+     */
+    public Map<MarketRegion, DeltaRefreshResult> refreshRegions(Collection<MarketRegion> regions) {
+        Map<MarketRegion, CompletableFuture<DeltaRefreshResult>> futures = new EnumMap<>(MarketRegion.class);
+        for (MarketRegion region : regions) {
+            MarketDataService service = getService(region);
+            service.setProgressCallback(message -> updateProgress(region.name() + ": " + message));
+            futures.put(region, CompletableFuture.supplyAsync(service::refreshAccessories, executor));
+        }
+
+        Map<MarketRegion, DeltaRefreshResult> results = new EnumMap<>(MarketRegion.class);
+        futures.forEach((region, future) -> {
+            try {
+                results.put(region, future.join());
+            } catch (Exception e) {
+                log.error("Refresh of region {} failed", region, e);
+                updateProgress(region.name() + ": refresh failed: " + e.getMessage());
+            }
+        });
+        return results;
+    }
+
+    private void updateProgress(String message) {
+        if (progressCallback != null) {
+            progressCallback.accept(message);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.bdo.enhancer.market;
+
+import com.bdo.enhancer.model.constants.Constants;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory cache of order book responses keyed by region, item id and enhancement level (sid).
+ *
+ * <p>Entries expire after a TTL and the least recently used entries are evicted
+ * once the cache is full. Concurrent callers asking for the same key share a
+ * single in-flight request, so a fetch, a calculation and a background refresh
+ * hitting the same item at once cause only one network call.</p>
+ */
+public class OrderBookCache {
+
+    private static final OrderBookCache SHARED =
+            new OrderBookCache(Constants.ORDER_BOOK_TTL_MILLIS, Constants.ORDER_BOOK_CACHE_SIZE);
+
+    /**
+     * Loads an order book when it is neither cached nor already being fetched.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        String load() throws IOException;
+    }
+
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final Map<Key, Entry> entries;
+    private final Map<Key, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    public OrderBookCache(long ttlMillis, int maxEntries) {
+        this(ttlMillis, maxEntries, System::currentTimeMillis);
+    }
+
+    OrderBookCache(long ttlMillis, int maxEntries, LongSupplier clock) {
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return The cache shared by all market connectors of this process
+     */
+    public static OrderBookCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the cached order book or loads it, joining a request already in flight for the same key.
+     */
+    public String get(String region, int id, int sid, Loader loader) throws IOException {
+        Key key = new Key(region, id, sid);
+        String cached = getFresh(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, created);
+        if (running != null) {
+            return await(running);
+        }
+
+        try {
+            String body = loader.load();
+            synchronized (entries) {
+                entries.put(key, new Entry(body, clock.getAsLong()));
+            }
+            created.complete(body);
+            return body;
+        } catch (IOException | RuntimeException e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, created);
+        }
+    }
+
+    /**
+     * Drops all cached levels of an item, e.g. because its listing changed.
+     */
+    public void invalidate(String region, int id) {
+        synchronized (entries) {
+            entries.keySet().removeIf(key -> key.id == id && key.region.equals(region));
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private String getFresh(Key key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (clock.getAsLong() - entry.fetchedAtMillis > ttlMillis) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.body;
+        }
+    }
+
+    private static String await(CompletableFuture<String> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a shared order book request");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static final class Key {
+        private final String region;
+        private final int id;
+        private final int sid;
+    }
+
+    @AllArgsConstructor
+    private static final class Entry {
+        private final String body;
+        private final long fetchedAtMillis;
+    }
+}
@@ -0,0 +1,227 @@
+package com.bdo.enhancer.market;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * One memory-mapped file of the {@link PriceHistoryStore}.
+ *
+ * <p>The rows are stored column by column: all item ids, then all levels, prices, seller
+ * and buyer counts and timestamps, each column sized for the capacity of the segment.
+ * The row count in the header is written after the columns, so a crash while appending
+ * never exposes a half written row. A sorted segment is ordered by item, level and
+ * timestamp and is found by binary search; an unsorted one is the append log.</p>
+ *
+ * <p>Header (big-endian): magic, format version, capacity, sorted flag, row count and the
+ * first and last append log a sorted segment was built from.</p>
+ */
+final class PriceHistorySegment {
+
+    static final int MAGIC = 0x42444F48; // "BDOH"
+    static final int FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int ROW_BYTES = Integer.BYTES + Byte.BYTES + Long.BYTES + Integer.BYTES * 2 + Long.BYTES;
+
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int SORTED_OFFSET = 12;
+    private static final int COUNT_OFFSET = 16;
+    private static final int SOURCE_FROM_OFFSET = 20;
+    private static final int SOURCE_TO_OFFSET = 24;
+
+    final Path file;
+    final int sequence;
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final boolean sorted;
+    private final int sourceFrom;
+    private final int sourceTo;
+    private int count;
+
+    private final int levelColumn;
+    private final int priceColumn;
+    private final int sellersColumn;
+    private final int buyersColumn;
+    private final int timestampColumn;
+
+    private PriceHistorySegment(Path file, int sequence, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.sequence = sequence;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Not a price history segment: " + file);
+        }
+        this.capacity = buffer.getInt(CAPACITY_OFFSET);
+        this.sorted = buffer.getInt(SORTED_OFFSET) != 0;
+        this.count = buffer.getInt(COUNT_OFFSET);
+        this.sourceFrom = buffer.getInt(SOURCE_FROM_OFFSET);
+        this.sourceTo = buffer.getInt(SOURCE_TO_OFFSET);
+        if (capacity < 0 || count < 0 || count > capacity || buffer.capacity() < bytes(capacity)) {
+            throw new IOException("Damaged price history segment: " + file);
+        }
+
+        this.levelColumn = HEADER_BYTES + capacity * Integer.BYTES;
+        this.priceColumn = levelColumn + capacity;
+        this.sellersColumn = priceColumn + capacity * Long.BYTES;
+        this.buyersColumn = sellersColumn + capacity * Integer.BYTES;
+        this.timestampColumn = buyersColumn + capacity * Integer.BYTES;
+    }
+
+    /**
+     * Creates and maps a new, empty segment.
+     *
+     * @param sourceFrom First sequence number a sorted segment was built from, 0 for the append log
+     * @param sourceTo Last sequence number a sorted segment was built from, 0 for the append log
+     */
+    static PriceHistorySegment create(Path file, int sequence, int capacity, boolean sorted,
+                                      int sourceFrom, int sourceTo) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes(capacity));
+            buffer.putInt(0, MAGIC)
+                    .putInt(4, FORMAT_VERSION)
+                    .putInt(CAPACITY_OFFSET, capacity)
+                    .putInt(SORTED_OFFSET, sorted ? 1 : 0)
+                    .putInt(COUNT_OFFSET, 0)
+                    .putInt(SOURCE_FROM_OFFSET, sourceFrom)
+                    .putInt(SOURCE_TO_OFFSET, sourceTo);
+            return new PriceHistorySegment(file, sequence, buffer);
+        }
+    }
+
+    /**
+     * Maps an existing segment; sorted segments are only read, but mapped the same way.
+     */
+    static PriceHistorySegment open(Path file, int sequence) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            return new PriceHistorySegment(file, sequence, buffer);
+        }
+    }
+
+    static long bytes(int capacity) {
+        return HEADER_BYTES + (long) capacity * ROW_BYTES;
+    }
+
+    /**
+     * Key by which sorted segments are ordered; item ids are never negative.
+     */
+    static long key(int id, int level) {
+        return ((long) id << 8) | (level & 0xff);
+    }
+
+    void append(int id, int level, long price, int sellers, int buyers, long timestamp) {
+        int row = count;
+        buffer.putInt(HEADER_BYTES + row * Integer.BYTES, id);
+        buffer.put(levelColumn + row, (byte) level);
+        buffer.putLong(priceColumn + row * Long.BYTES, price);
+        buffer.putInt(sellersColumn + row * Integer.BYTES, sellers);
+        buffer.putInt(buyersColumn + row * Integer.BYTES, buyers);
+        buffer.putLong(timestampColumn + row * Long.BYTES, timestamp);
+        count = row + 1;
+        buffer.putInt(COUNT_OFFSET, count);
+    }
+
+    /**
+     * Copies a row of another segment to the end of this one.
+     */
+    void append(PriceHistorySegment source, int row) {
+        append(source.id(row), source.level(row), source.price(row), source.sellers(row), source.buyers(row),
+                source.timestamp(row));
+    }
+
+    /**
+     * Writes the mapped pages to disk.
+     */
+    void force() {
+        if (buffer instanceof MappedByteBuffer mapped) {
+            mapped.force();
+        }
+    }
+
+    /**
+     * @return The first row of the item and level recorded at or after the given time in a sorted
+     *         segment, or -1 if there is none
+     */
+    int firstRow(int id, int level, long fromMillis) {
+        long key = key(id, level);
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            long middleKey = key(middle);
+            if (middleKey < key || (middleKey == key && timestamp(middle) < fromMillis)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low < count && key(low) == key ? low : -1;
+    }
+
+    long key(int row) {
+        return key(id(row), level(row));
+    }
+
+    int id(int row) {
+        return buffer.getInt(HEADER_BYTES + row * Integer.BYTES);
+    }
+
+    int level(int row) {
+        return buffer.get(levelColumn + row);
+    }
+
+    long price(int row) {
+        return buffer.getLong(priceColumn + row * Long.BYTES);
+    }
+
+    int sellers(int row) {
+        return buffer.getInt(sellersColumn + row * Integer.BYTES);
+    }
+
+    int buyers(int row) {
+        return buffer.getInt(buyersColumn + row * Integer.BYTES);
+    }
+
+    long timestamp(int row) {
+        return buffer.getLong(timestampColumn + row * Long.BYTES);
+    }
+
+    int count() {
+        return count;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    boolean isFull() {
+        return count >= capacity;
+    }
+
+    boolean isSorted() {
+        return sorted;
+    }
+
+    /**
+     * @return True if this sorted segment was built from the append logs of the other segment
+     */
+    boolean covers(PriceHistorySegment other) {
+        return sorted && other != this && sourceFrom <= other.firstSource() && other.lastSource() <= sourceTo;
+    }
+
+    /**
+     * @return The first append log this segment holds rows of; an append log holds its own
+     */
+    int firstSource() {
+        return sorted ? sourceFrom : sequence;
+    }
+
+    int lastSource() {
+        return sorted ? sourceTo : sequence;
+    }
+
+}
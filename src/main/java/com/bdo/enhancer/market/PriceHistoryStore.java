@@ -0,0 +1,587 @@
+package com.bdo.enhancer.market;
+
+import com.bdo.enhancer.model.constants.Constants;
+import com.bdo.enhancer.model.constants.MarketRegion;
+import com.bdo.enhancer.model.item.Item;
+import com.bdo.enhancer.model.item.PriceLadder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only price history on disk, so volatility, trends and sales speed can be
+ * estimated from previous refreshes instead of only the latest prices.
+ *
+ * <p>Every recorded order book becomes one row (item id, level, lowest ask, listed units,
+ * wanted units, timestamp) in a memory-mapped, columnar {@link PriceHistorySegment}. New
+ * rows go to the append log, which is indexed in memory by item and level. A full log is
+ * sorted by item, level and time into a read-only segment, and whenever
+ * {@value Constants#PRICE_HISTORY_COMPACT_AFTER} small sorted segments piled up they are
+ * merged into one and rows past the retention are dropped. Reading a series is therefore
+ * a binary search per sorted segment plus an index lookup in the log.</p>
+ *
+ * <p>Every sorted segment records the range of append logs it was built from, and only
+ * neighbouring segments are merged, so these ranges never overlap. If the process dies
+ * between writing a segment and deleting its sources, the sources are recognized as
+ * covered on the next open and dropped instead of being counted twice.</p>
+ *
+ * <p>The window, the batch mode and the server share the directory of a region. An open
+ * store holds an exclusive lock on {@value #LOCK_FILE}, so only one process at a time
+ * appends to the log, seals it and deletes merged segments; a second open fails.</p>
+ */
+@Slf4j
+public class PriceHistoryStore implements Closeable {
+
+    static final String LOCK_FILE = "history.lock";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.bin");
+    private static final int[] RECORDED_LEVELS = {0, 2, 3, 4};
+    // Rows of the append log are numbered in the low bits of its sort keys
+    private static final int MAX_SEGMENT_ROWS = 1 << 24;
+
+    @Getter
+    private final Path directory;
+    private final int segmentRows;
+    private final int compactAfter;
+    private final int compactedRows;
+    private final long retentionMillis;
+    private final LongSupplier clock;
+
+    private final List<PriceHistorySegment> sortedSegments = new ArrayList<>();
+    private PriceHistorySegment appendLog;
+    // Rows of the append log by item and level key
+    private final Map<Long, RowList> logIndex = new HashMap<>();
+    private int nextSequence = 1;
+    private FileChannel lockChannel;
+
+    private PriceHistoryStore(Path directory, int segmentRows, int compactAfter, int compactedRows,
+                              long retentionMillis, LongSupplier clock) {
+        if (segmentRows <= 0 || segmentRows > MAX_SEGMENT_ROWS) {
+            throw new IllegalArgumentException("Segment rows must be in (0, " + MAX_SEGMENT_ROWS + "]: " + segmentRows);
+        }
+        this.directory = directory;
+        this.segmentRows = segmentRows;
+        this.compactAfter = compactAfter;
+        this.compactedRows = compactedRows;
+        this.retentionMillis = retentionMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Opens the store in the given directory, creating it if needed.
+     */
+    public static PriceHistoryStore open(Path directory) throws IOException {
+        return open(directory, Constants.PRICE_HISTORY_SEGMENT_ROWS, Constants.PRICE_HISTORY_COMPACT_AFTER,
+                Constants.PRICE_HISTORY_COMPACTED_ROWS, TimeUnit.DAYS.toMillis(Constants.PRICE_HISTORY_RETENTION_DAYS),
+                System::currentTimeMillis);
+    }
+
+    /**
+     * Opens the history of one market region below {@link Constants#PRICE_HISTORY_DIRECTORY}.
+     *
+     * @return The store, or null if it cannot be opened; prices are then simply not recorded
+     */
+    public static PriceHistoryStore openForRegion(MarketRegion region) {
+        return openForRegion(Path.of(Constants.PRICE_HISTORY_DIRECTORY), region);
+    }
+
+    /**
+     * Opens the history of one market region below the given history directory.
+     *
+     * @return The store, or null if it cannot be opened; prices are then simply not recorded
+     */
+    public static PriceHistoryStore openForRegion(Path historyDirectory, MarketRegion region) {
+        Path directory = historyDirectory.resolve(region.getCode());
+        try {
+            return open(directory);
+        } catch (InUseException e) {
+            log.info("Price history in {} is in use by another process, prices are not recorded", directory);
+            return null;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Price history in {} is unavailable", directory, e);
+            return null;
+        }
+    }
+
+    static PriceHistoryStore open(Path directory, int segmentRows, int compactAfter, int compactedRows,
+                                  long retentionMillis, LongSupplier clock) throws IOException {
+        PriceHistoryStore store = new PriceHistoryStore(directory, segmentRows, compactAfter, compactedRows,
+                retentionMillis, clock);
+        store.lock();
+        try {
+            store.load();
+        } catch (IOException | RuntimeException e) {
+            store.unlock();
+            throw e;
+        }
+        return store;
+    }
+
+    /**
+     * Records the order books of a freshly fetched item, one row per level that has a price.
+     */
+    public void record(Item item, long timestamp) throws IOException {
+        for (int level : RECORDED_LEVELS) {
+            PriceLadder ladder = item.getPriceLadder(level);
+            long price = ladder.isEmpty() ? listedPrice(item, level) : ladder.lowestAsk();
+            if (price > 0) {
+                append(item.getId(), level, price, (int) Math.min(Integer.MAX_VALUE, ladder.askDepth()),
+                        (int) Math.min(Integer.MAX_VALUE, ladder.bidDepth()), timestamp);
+            }
+        }
+    }
+
+    /**
+     * Records all items fetched by one refresh with the same timestamp; failures are only logged,
+     * as a missing sample must not fail the refresh.
+     */
+    public void recordAll(List<? extends Item> items) {
+        long now = clock.getAsLong();
+        try {
+            for (Item item : items) {
+                record(item, now);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not record price history in {}", directory, e);
+        }
+    }
+
+    public synchronized void append(int id, int level, long price, int sellers, int buyers, long timestamp)
+            throws IOException {
+        if (id < 0) {
+            throw new IllegalArgumentException("Item ids are never negative: " + id);
+        }
+        if (appendLog == null || appendLog.isFull()) {
+            rollOver();
+        }
+        int row = appendLog.count();
+        appendLog.append(id, level, price, sellers, buyers, timestamp);
+        logIndex.computeIfAbsent(PriceHistorySegment.key(id, level), key -> new RowList()).add(row);
+    }
+
+    /**
+     * Reads the samples of one item and level recorded in the given time range, oldest first.
+     */
+    public synchronized PriceSeries series(int id, int level, long fromMillis, long toMillis) {
+        SeriesBuilder builder = new SeriesBuilder();
+        for (PriceHistorySegment segment : sortedSegments) {
+            int first = segment.firstRow(id, level, fromMillis);
+            if (first < 0) {
+                continue;
+            }
+            long key = PriceHistorySegment.key(id, level);
+            for (int row = first; row < segment.count() && segment.key(row) == key
+                    && segment.timestamp(row) <= toMillis; row++) {
+                builder.addIfIn(segment, row, fromMillis, toMillis);
+            }
+        }
+        RowList rows = logIndex.get(PriceHistorySegment.key(id, level));
+        if (rows != null) {
+            for (int index = 0; index < rows.size; index++) {
+                builder.addIfIn(appendLog, rows.rows[index], fromMillis, toMillis);
+            }
+        }
+        return builder.build(id, level);
+    }
+
+    /**
+     * @return The samples of one item and level within the retention period
+     */
+    public PriceSeries series(int id, int level) {
+        long now = clock.getAsLong();
+        return series(id, level, now - retentionMillis, now);
+    }
+
+    /**
+     * @return Number of stored rows
+     */
+    public synchronized long size() {
+        long rows = appendLog == null ? 0 : appendLog.count();
+        for (PriceHistorySegment segment : sortedSegments) {
+            rows += segment.count();
+        }
+        return rows;
+    }
+
+    /**
+     * Sorts the append log into a segment of its own and merges small sorted segments, dropping
+     * rows past the retention. Runs by itself whenever the log is full.
+     */
+    public synchronized void compact() throws IOException {
+        if (appendLog != null && appendLog.count() > 0) {
+            sealLog();
+        }
+        mergeSmallSegments(true);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (appendLog != null) {
+            appendLog.force();
+        }
+        unlock();
+    }
+
+    /**
+     * Takes the lock of the directory before anything in it is read or written.
+     *
+     * @throws InUseException If another store holds it
+     */
+    private void lock() throws IOException {
+        Files.createDirectories(directory);
+        FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Held by another store of this process
+            lock = null;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        if (lock == null) {
+            channel.close();
+            throw new InUseException(directory);
+        }
+        lockChannel = channel;
+    }
+
+    private void unlock() {
+        if (lockChannel == null) {
+            return;
+        }
+        try {
+            // Closing the channel releases its lock
+            lockChannel.close();
+        } catch (IOException e) {
+            log.warn("Could not release the price history lock in {}", directory, e);
+        }
+        lockChannel = null;
+    }
+
+    private void load() throws IOException {
+        List<PriceHistorySegment> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*.bin")) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                int sequence = Integer.parseInt(matcher.group(1));
+                nextSequence = Math.max(nextSequence, sequence + 1);
+                try {
+                    segments.add(PriceHistorySegment.open(file, sequence));
+                } catch (IOException e) {
+                    log.warn("Ignoring unreadable price history segment {}", file, e);
+                }
+            }
+        }
+        segments.sort(Comparator.comparingInt(segment -> segment.sequence));
+
+        for (PriceHistorySegment segment : segments) {
+            // Left over from a merge that was interrupted before its sources were deleted
+            if (segments.stream().anyMatch(other -> other.covers(segment))) {
+                deleteSegment(segment);
+            } else if (segment.isSorted()) {
+                sortedSegments.add(segment);
+            } else if (appendLog == null || segment.sequence > appendLog.sequence) {
+                if (appendLog != null) {
+                    sortSegment(appendLog);
+                }
+                appendLog = segment;
+            } else {
+                sortSegment(segment);
+            }
+        }
+        sortedSegments.sort(Comparator.comparingInt(PriceHistorySegment::firstSource));
+        if (appendLog != null) {
+            for (int row = 0; row < appendLog.count(); row++) {
+                logIndex.computeIfAbsent(appendLog.key(row), key -> new RowList()).add(row);
+            }
+        }
+        log.info("Opened price history in {} with {} rows", directory, size());
+    }
+
+    private void rollOver() throws IOException {
+        if (appendLog != null) {
+            sealLog();
+            mergeSmallSegments(false);
+        }
+        int sequence = nextSequence++;
+        appendLog = PriceHistorySegment.create(segmentFile(sequence), sequence, segmentRows, false, 0, 0);
+    }
+
+    private void sealLog() throws IOException {
+        PriceHistorySegment full = appendLog;
+        appendLog = null;
+        logIndex.clear();
+        sortSegment(full);
+    }
+
+    /**
+     * Rewrites an append log in item, level and time order.
+     */
+    private void sortSegment(PriceHistorySegment source) throws IOException {
+        long cutoff = clock.getAsLong() - retentionMillis;
+        long[] order = new long[source.count()];
+        int kept = 0;
+        for (int row = 0; row < source.count(); row++) {
+            if (source.timestamp(row) >= cutoff) {
+                order[kept++] = source.key(row) << 24 | row;
+            }
+        }
+        // Rows of the same item and level keep their append order, which is their time order
+        Arrays.sort(order, 0, kept);
+
+        int sequence = nextSequence++;
+        PriceHistorySegment sorted = createSorted(sequence, kept, source.sequence, source.sequence);
+        for (int index = 0; index < kept; index++) {
+            sorted.append(source, (int) (order[index] & (MAX_SEGMENT_ROWS - 1)));
+        }
+        publish(sorted, List.of(source));
+    }
+
+    /**
+     * Merges sorted segments smaller than the compacted size, once enough of them piled up or if forced.
+     */
+    private void mergeSmallSegments(boolean force) throws IOException {
+        // Only neighbouring segments are merged, so the covered append logs of all segments stay disjoint
+        List<PriceHistorySegment> small = new ArrayList<>();
+        List<PriceHistorySegment> run = new ArrayList<>();
+        long rows = 0;
+        for (PriceHistorySegment segment : sortedSegments) {
+            if (segment.count() >= compactedRows || rows + segment.count() > compactedRows) {
+                if (run.size() > small.size()) {
+                    small = run;
+                }
+                run = new ArrayList<>();
+                rows = 0;
+            }
+            if (segment.count() < compactedRows) {
+                run.add(segment);
+                rows += segment.count();
+            }
+        }
+        if (run.size() > small.size()) {
+            small = run;
+        }
+        if (small.size() < 2 || (!force && small.size() < compactAfter)) {
+            dropExpiredSegments();
+            return;
+        }
+
+        long cutoff = clock.getAsLong() - retentionMillis;
+        int kept = 0;
+        for (PriceHistorySegment segment : small) {
+            for (int row = 0; row < segment.count(); row++) {
+                if (segment.timestamp(row) >= cutoff) {
+                    kept++;
+                }
+            }
+        }
+
+        int sequence = nextSequence++;
+        PriceHistorySegment merged = createSorted(sequence, kept, small.get(0).firstSource(),
+                small.get(small.size() - 1).lastSource());
+
+        // k-way merge by item, level and time; memory stays independent of the history size
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>();
+        for (PriceHistorySegment segment : small) {
+            Cursor cursor = new Cursor(segment);
+            if (cursor.skipExpired(cutoff)) {
+                cursors.add(cursor);
+            }
+        }
+        while (!cursors.isEmpty()) {
+            Cursor cursor = cursors.poll();
+            merged.append(cursor.segment, cursor.row);
+            cursor.row++;
+            if (cursor.skipExpired(cutoff)) {
+                cursors.add(cursor);
+            }
+        }
+        log.info("Merged {} price history segments into {} rows", small.size(), kept);
+        publish(merged, small);
+        dropExpiredSegments();
+    }
+
+    private void dropExpiredSegments() {
+        long cutoff = clock.getAsLong() - retentionMillis;
+        List<PriceHistorySegment> expired = new ArrayList<>();
+        for (PriceHistorySegment segment : sortedSegments) {
+            boolean anyCurrent = false;
+            for (int row = 0; row < segment.count() && !anyCurrent; row++) {
+                anyCurrent = segment.timestamp(row) >= cutoff;
+            }
+            if (!anyCurrent) {
+                expired.add(segment);
+            }
+        }
+        sortedSegments.removeAll(expired);
+        expired.forEach(this::deleteSegment);
+    }
+
+    private PriceHistorySegment createSorted(int sequence, int rows, int sourceFrom, int sourceTo) throws IOException {
+        Path temporary = directory.resolve(segmentFile(sequence).getFileName() + ".tmp");
+        Files.deleteIfExists(temporary);
+        return PriceHistorySegment.create(temporary, sequence, rows, true, sourceFrom, sourceTo);
+    }
+
+    /**
+     * Moves a finished sorted segment into place and only then deletes the segments it replaces.
+     */
+    private void publish(PriceHistorySegment written, List<PriceHistorySegment> sources) throws IOException {
+        written.force();
+        Path file = segmentFile(written.sequence);
+        Files.move(written.file, file, StandardCopyOption.ATOMIC_MOVE);
+        PriceHistorySegment published = PriceHistorySegment.open(file, written.sequence);
+
+        sortedSegments.removeAll(sources);
+        sortedSegments.add(published);
+        sortedSegments.sort(Comparator.comparingInt(PriceHistorySegment::firstSource));
+        sources.forEach(this::deleteSegment);
+    }
+
+    private void deleteSegment(PriceHistorySegment segment) {
+        try {
+            Files.deleteIfExists(segment.file);
+        } catch (IOException e) {
+            // Still mapped on some platforms; the next open drops it as covered
+            log.warn("Could not delete price history segment {}", segment.file, e);
+        }
+    }
+
+    private Path segmentFile(int sequence) {
+        return directory.resolve(String.format("segment-%09d.bin", sequence));
+    }
+
+    private static long listedPrice(Item item, int level) {
+        return switch (level) {
+            case 0 -> item.getBasePrice();
+            case 2 -> item.getDuoPrice();
+            case 3 -> item.getTriPrice();
+            case 4 -> item.getTetPrice();
+            default -> -1;
+        };
+    }
+
+    /**
+     * Another store, usually of another process, has the directory open.
+     */
+    static final class InUseException extends IOException {
+        InUseException(Path directory) {
+            super("Price history in " + directory + " is in use");
+        }
+    }
+
+    private static final class Cursor implements Comparable<Cursor> {
+        private final PriceHistorySegment segment;
+        private int row;
+
+        private Cursor(PriceHistorySegment segment) {
+            this.segment = segment;
+        }
+
+        private boolean skipExpired(long cutoff) {
+            while (row < segment.count() && segment.timestamp(row) < cutoff) {
+                row++;
+            }
+            return row < segment.count();
+        }
+
+        @Override
+        public int compareTo(Cursor other) {
+            int byKey = Long.compare(segment.key(row), other.segment.key(other.row));
+            return byKey != 0 ? byKey : Long.compare(segment.timestamp(row), other.segment.timestamp(other.row));
+        }
+    }
+
+    private static final class RowList {
+        private int[] rows = new int[8];
+        private int size;
+
+        private void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+    }
+
+    /**
+     * Collects samples into growing primitive arrays and sorts them by time at the end.
+     */
+    private static final class SeriesBuilder {
+        private long[] timestamps = new long[64];
+        private long[] prices = new long[64];
+        private int[] sellers = new int[64];
+        private int[] buyers = new int[64];
+        private int size;
+        private boolean ordered = true;
+
+        private void addIfIn(PriceHistorySegment segment, int row, long fromMillis, long toMillis) {
+            long timestamp = segment.timestamp(row);
+            if (timestamp < fromMillis || timestamp > toMillis) {
+                return;
+            }
+            if (size == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, size * 2);
+                prices = Arrays.copyOf(prices, size * 2);
+                sellers = Arrays.copyOf(sellers, size * 2);
+                buyers = Arrays.copyOf(buyers, size * 2);
+            }
+            ordered &= size == 0 || timestamps[size - 1] <= timestamp;
+            timestamps[size] = timestamp;
+            prices[size] = segment.price(row);
+            sellers[size] = segment.sellers(row);
+            buyers[size] = segment.buyers(row);
+            size++;
+        }
+
+        private PriceSeries build(int id, int level) {
+            if (ordered) {
+                return new PriceSeries(id, level, Arrays.copyOf(timestamps, size), Arrays.copyOf(prices, size),
+                        Arrays.copyOf(sellers, size), Arrays.copyOf(buyers, size));
+            }
+
+            Integer[] order = new Integer[size];
+            for (int index = 0; index < size; index++) {
+                order[index] = index;
+            }
+            Arrays.sort(order, Comparator.comparingLong(index -> timestamps[index]));
+            long[] sortedTimestamps = new long[size];
+            long[] sortedPrices = new long[size];
+            int[] sortedSellers = new int[size];
+            int[] sortedBuyers = new int[size];
+            for (int index = 0; index < size; index++) {
+                sortedTimestamps[index] = timestamps[order[index]];
+                sortedPrices[index] = prices[order[index]];
+                sortedSellers[index] = sellers[order[index]];
+                sortedBuyers[index] = buyers[order[index]];
+            }
+            return new PriceSeries(id, level, sortedTimestamps, sortedPrices, sortedSellers, sortedBuyers);
+        }
+    }
+}
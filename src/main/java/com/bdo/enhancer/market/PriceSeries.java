@@ -0,0 +1,156 @@
+package com.bdo.enhancer.market;
+
+/**
+ * Recorded prices of one item and enhancement level, oldest first, read from the
+ * {@link PriceHistoryStore}. Besides the raw samples it estimates how much the price
+ * moves, where it is heading and how quickly listed units sell.
+ */
+public final class PriceSeries {
+
+    private static final double MILLIS_PER_DAY = 24 * 60 * 60 * 1000.0;
+    private static final double MILLIS_PER_HOUR = 60 * 60 * 1000.0;
+
+    private final int id;
+    private final int level;
+    private final long[] timestamps;
+    private final long[] prices;
+    private final int[] sellers;
+    private final int[] buyers;
+
+    PriceSeries(int id, int level, long[] timestamps, long[] prices, int[] sellers, int[] buyers) {
+        this.id = id;
+        this.level = level;
+        this.timestamps = timestamps;
+        this.prices = prices;
+        this.sellers = sellers;
+        this.buyers = buyers;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int size() {
+        return timestamps.length;
+    }
+
+    public boolean isEmpty() {
+        return timestamps.length == 0;
+    }
+
+    public long timestamp(int sample) {
+        return timestamps[sample];
+    }
+
+    public long price(int sample) {
+        return prices[sample];
+    }
+
+    public int sellers(int sample) {
+        return sellers[sample];
+    }
+
+    public int buyers(int sample) {
+        return buyers[sample];
+    }
+
+    /**
+     * @return The most recent price, or -1 without samples
+     */
+    public long lastPrice() {
+        return isEmpty() ? -1 : prices[prices.length - 1];
+    }
+
+    /**
+     * Daily volatility: the standard deviation of the log returns between samples,
+     * scaled to one day, so irregular sampling does not distort it.
+     *
+     * @return The relative price movement per day, 0 with fewer than two priced samples
+     */
+    public double dailyVolatility() {
+        double squaredReturns = 0;
+        double days = 0;
+        int previous = -1;
+        for (int sample = 0; sample < prices.length; sample++) {
+            if (prices[sample] <= 0) {
+                continue;
+            }
+            if (previous >= 0 && timestamps[sample] > timestamps[previous]) {
+                double logReturn = Math.log((double) prices[sample] / prices[previous]);
+                squaredReturns += logReturn * logReturn;
+                days += (timestamps[sample] - timestamps[previous]) / MILLIS_PER_DAY;
+            }
+            previous = sample;
+        }
+        return days > 0 ? Math.sqrt(squaredReturns / days) : 0;
+    }
+
+    /**
+     * Least-squares slope of the log price over time.
+     *
+     * @return The relative price change per day, e.g. -0.01 for a price falling 1% a day
+     */
+    public double dailyTrend() {
+        int samples = 0;
+        double sumTime = 0;
+        double sumLogPrice = 0;
+        for (int sample = 0; sample < prices.length; sample++) {
+            if (prices[sample] > 0) {
+                samples++;
+                sumTime += days(sample);
+                sumLogPrice += Math.log(prices[sample]);
+            }
+        }
+        if (samples < 2) {
+            return 0;
+        }
+
+        double meanTime = sumTime / samples;
+        double meanLogPrice = sumLogPrice / samples;
+        double covariance = 0;
+        double variance = 0;
+        for (int sample = 0; sample < prices.length; sample++) {
+            if (prices[sample] > 0) {
+                double time = days(sample) - meanTime;
+                covariance += time * (Math.log(prices[sample]) - meanLogPrice);
+                variance += time * time;
+            }
+        }
+        return variance > 0 ? Math.expm1(covariance / variance) : 0;
+    }
+
+    /**
+     * Units sold per hour, estimated from how far the listed units dropped between samples.
+     * New listings in between hide sales, so this is a lower bound.
+     */
+    public double salesPerHour() {
+        long sold = 0;
+        for (int sample = 1; sample < sellers.length; sample++) {
+            sold += Math.max(0, sellers[sample - 1] - sellers[sample]);
+        }
+        double hours = isEmpty() ? 0 : (timestamps[timestamps.length - 1] - timestamps[0]) / MILLIS_PER_HOUR;
+        return hours > 0 ? sold / hours : 0;
+    }
+
+    /**
+     * Hours until the given units sell when listed now, queued behind the units already listed.
+     *
+     * @return The estimated hours, or {@link Double#POSITIVE_INFINITY} if no sales were observed
+     */
+    public double estimatedHoursToSell(int units) {
+        double rate = salesPerHour();
+        if (rate <= 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int listed = isEmpty() ? 0 : sellers[sellers.length - 1];
+        return (listed + units) / rate;
+    }
+
+    private double days(int sample) {
+        return (timestamps[sample] - timestamps[0]) / MILLIS_PER_DAY;
+    }
+}
@@ -0,0 +1,96 @@
+package com.bdo.enhancer.market;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket that paces outgoing market requests.
+ *
+ * <p>Tokens refill continuously at a fixed rate up to the burst capacity.
+ * When the server answers with {@code Retry-After} the bucket can be paused,
+ * which holds back every caller until the requested instant has passed.</p>
+ */
+public class TokenBucket {
+
+    private final double tokensPerNano;
+    private final double capacity;
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+
+    public TokenBucket(double tokensPerSecond, int capacity) {
+        this(tokensPerSecond, capacity, System::nanoTime);
+    }
+
+    TokenBucket(double tokensPerSecond, int capacity, LongSupplier nanoClock) {
+        if (tokensPerSecond <= 0 || capacity < 1) {
+            throw new IllegalArgumentException("Token bucket needs a positive rate and capacity");
+        }
+        this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = capacity;
+        this.nanoClock = nanoClock;
+        this.tokens = capacity;
+        this.lastRefillNanos = nanoClock.getAsLong();
+        this.pausedUntilNanos = lastRefillNanos;
+    }
+
+    /**
+     * Blocks until a token is available and consumes it.
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = tryAcquire()) > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * Consumes a token if one is available.
+     *
+     * @return 0 if a token was taken, otherwise the nanoseconds to wait before trying again
+     */
+    synchronized long tryAcquire() {
+        long now = nanoClock.getAsLong();
+        if (now < pausedUntilNanos) {
+            return pausedUntilNanos - now;
+        }
+
+        refill(now);
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        return Math.max(1, (long) Math.ceil((1 - tokens) / tokensPerNano));
+    }
+
+    /**
+     * Suspends token issuing for the given delay, e.g. as requested by {@code Retry-After}.
+     * Overlapping pauses keep the later deadline.
+     */
+    public synchronized void pause(long delayMillis) {
+        if (delayMillis <= 0) {
+            return;
+        }
+        long until = nanoClock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        if (until > pausedUntilNanos) {
+            pausedUntilNanos = until;
+            // Do not let a burst pile up while the server asked us to back off
+            tokens = Math.min(tokens, 1);
+        }
+    }
+
+    synchronized double getAvailableTokens() {
+        refill(nanoClock.getAsLong());
+        return tokens;
+    }
+
+    private void refill(long now) {
+        long elapsed = now - Math.max(lastRefillNanos, Math.min(now, pausedUntilNanos));
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed * tokensPerNano);
+        }
+        lastRefillNanos = now;
+    }
+}
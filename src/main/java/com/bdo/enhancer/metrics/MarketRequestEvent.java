@@ -0,0 +1,70 @@
+package com.bdo.enhancer.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a single market HTTP exchange, including every retry and
+ * hedged duplicate. The event duration is the request latency.
+ *
+ * <p>Disabled unless a recording uses {@code src/main/jfr/bdo-enhancer.jfc}; a disabled
+ * event costs one allocation that escape analysis usually removes.</p>
+ */
+@Name("com.bdo.enhancer.MarketRequest")
+@Label("Market Request")
+@Category({"BDO Enhancer", "Market"})
+@Description("HTTP request to the trade market or the market API")
+@Enabled(false)
+@StackTrace(false)
+public final class MarketRequestEvent extends jdk.jfr.Event {
+
+    @Label("Method")
+    public String method;
+
+    @Label("Endpoint")
+    @Description("URL without query parameters")
+    public String endpoint;
+
+    @Label("Item Id")
+    @Description("Requested item, or -1 for category listings")
+    public int itemId = -1;
+
+    @Label("Sub Id")
+    @Description("Requested enhancement level (sid), or -1 if not part of the request")
+    public int subId = -1;
+
+    @Label("Status")
+    @Description("HTTP status, or -1 if the connection failed")
+    public int status = -1;
+
+    @Label("Response Size")
+    @DataAmount
+    public long bytes;
+
+    /**
+     * Reads an integer parameter from a query string or form body such as {@code id=705037&sid=2}.
+     *
+     * @return The value, or -1 if the parameter is absent or not a number
+     */
+    public static int parameter(String query, String name) {
+        if (query == null) {
+            return -1;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0 && pair.substring(0, separator).equals(name)) {
+                try {
+                    return Integer.parseInt(pair.substring(separator + 1));
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,149 @@
+package com.bdo.enhancer.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Named counters, timers and gauges describing where a refresh, calculation or
+ * optimization spends its time.
+ *
+ * <p>Metrics are created on first use and live for the whole process, so hot code
+ * keeps them in static fields. Counters and timers are backed by striped
+ * {@link java.util.concurrent.atomic.LongAdder}s and are cheap enough for the
+ * enhancement loops. The registry can be browsed over JMX as
+ * {@value #OBJECT_NAME} and dumped to a JSON file after each run.</p>
+ */
+@Slf4j
+public final class MetricsRegistry {
+
+    public static final String OBJECT_NAME = "com.bdo.enhancer:type=Metrics";
+
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    MetricsRegistry() {
+    }
+
+    /**
+     * @return The registry shared by the whole application
+     */
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, key -> new Counter());
+    }
+
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, key -> new Timer());
+    }
+
+    /**
+     * Registers a gauge that is read whenever the metrics are read, replacing a previous
+     * gauge of the same name.
+     */
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * @return All current values by name; timers contribute count, total, mean and max entries
+     */
+    public SortedMap<String, Number> snapshot() {
+        SortedMap<String, Number> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.get()));
+        timers.forEach((name, timer) -> {
+            values.put(name + ".count", timer.getCount());
+            values.put(name + ".totalMillis", timer.getTotalMillis());
+            values.put(name + ".meanMillis", timer.getMeanMillis());
+            values.put(name + ".maxMillis", timer.getMaxMillis());
+        });
+        gauges.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("timestamp", Instant.now().toString());
+
+        JSONObject counterValues = new JSONObject();
+        counters.forEach((name, counter) -> counterValues.put(name, counter.get()));
+        json.put("counters", counterValues);
+
+        JSONObject timerValues = new JSONObject();
+        timers.forEach((name, timer) -> timerValues.put(name, new JSONObject()
+                .put("count", timer.getCount())
+                .put("totalMillis", timer.getTotalMillis())
+                .put("meanMillis", timer.getMeanMillis())
+                .put("maxMillis", timer.getMaxMillis())));
+        json.put("timers", timerValues);
+
+        JSONObject gaugeValues = new JSONObject();
+        gauges.forEach((name, gauge) -> gaugeValues.put(name, gauge.getAsLong()));
+        json.put("gauges", gaugeValues);
+        return json;
+    }
+
+    /**
+     * Writes the current values to the file, replacing it atomically. Failures are only
+     * logged, metrics must never break a run.
+     */
+    public void writeJson(Path file) {
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                Files.writeString(temporary, toJson().toString(2), StandardCharsets.UTF_8);
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            log.warn("Could not write metrics to {}", file, e);
+        }
+    }
+
+    /**
+     * Makes the metrics readable over JMX, e.g. with JConsole. Does nothing if already registered.
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsMBean(this), name);
+            }
+        } catch (JMException e) {
+            log.warn("Could not register metrics MBean", e);
+        }
+    }
+
+    /**
+     * Resets counters and timers, e.g. between benchmark or test runs. Gauges are kept.
+     */
+    public void reset() {
+        counters.values().forEach(Counter::reset);
+        timers.values().forEach(Timer::reset);
+    }
+}
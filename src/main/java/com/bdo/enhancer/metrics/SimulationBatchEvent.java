@@ -0,0 +1,35 @@
+package com.bdo.enhancer.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for one batch of simulation runs of a stack combination. The
+ * statistics are shared by all items of an enhancement type, so a batch belongs to a
+ * type and target level rather than to a single item.
+ */
+@Name("com.bdo.enhancer.SimulationBatch")
+@Label("Simulation Batch")
+@Category({"BDO Enhancer", "Calculation"})
+@Description("Simulated enhancement runs for one stack combination and target level")
+@Enabled(false)
+@StackTrace(false)
+public final class SimulationBatchEvent extends jdk.jfr.Event {
+
+    @Label("Enhancement Type")
+    public String enhancementType;
+
+    @Label("Stacks")
+    @Description("Stack counts of the attempted levels, e.g. 30/40/45")
+    public String stacks;
+
+    @Label("Target Level")
+    public int targetLevel;
+
+    @Label("Runs")
+    public int runs;
+}
@@ -0,0 +1,35 @@
+package com.bdo.enhancer.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a stack combination priced by the optimizer. The coordinate
+ * search prices a few dozen per item, so the profile records all of them.
+ */
+@Name("com.bdo.enhancer.StackCombination")
+@Label("Stack Combination")
+@Category({"BDO Enhancer", "Optimization"})
+@Description("Profit of one stack combination evaluated by the stack optimizer")
+@Enabled(false)
+@StackTrace(false)
+public final class StackCombinationEvent extends jdk.jfr.Event {
+
+    @Label("Item Id")
+    public int itemId;
+
+    @Label("Item")
+    public String itemName;
+
+    @Label("Stacks")
+    @Description("Stack counts of the attempted levels, e.g. 30/40/45")
+    public String stacks;
+
+    @Label("Profit")
+    @Description("Expected TRI profit in silver")
+    public long profit;
+}
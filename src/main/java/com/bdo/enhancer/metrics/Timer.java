@@ -0,0 +1,57 @@
+package com.bdo.enhancer.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count, total and maximum duration of a phase.
+ *
+ * <pre>{@code
+ * long start = System.nanoTime();
+ * ...
+ * timer.recordSince(start);
+ * }</pre>
+ */
+public final class Timer {
+
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    Timer() {
+    }
+
+    public void record(long durationNanos) {
+        count.increment();
+        totalNanos.add(durationNanos);
+        maxNanos.accumulate(durationNanos);
+    }
+
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getTotalMillis() {
+        return totalNanos.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public double getMeanMillis() {
+        long samples = getCount();
+        return samples == 0 ? 0 : getTotalMillis() / samples;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    void reset() {
+        count.reset();
+        totalNanos.reset();
+        maxNanos.reset();
+    }
+}
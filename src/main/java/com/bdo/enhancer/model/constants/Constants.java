@@ -18,14 +18,89 @@ public class Constants {
 
     public static final int SIMULATION_RUN_COUNT = 100000;
     public static final int OPTIMIZATION_RUN_COUNT = 20000;
+    // Stack range, starting stacks (PRI, DUO, TRI) and coordinate search rounds of the stack optimizer
+    public static final int OPTIMIZATION_MIN_STACK = 1;
+    public static final int OPTIMIZATION_MAX_STACK = 60;
+    public static final int[] OPTIMIZATION_START_STACKS = {40, 40, 45};
+    public static final int OPTIMIZATION_MAX_ROUNDS = 4;
 
-    public static final String FUNCTIONAL_ARMOR_CALL_URL = "https://api.arsha.io/v2/eu/GetWorldMarketList?mainCategory=15&subCategory=5";
-    public static final String ENHANCED_COST_URL = "https://eu-trade.naeu.playblackdesert.com/Trademarket/GetWorldMarketSubList";
-    public static final String BIDDING_INFO_LIST_URL = "https://api.arsha.io/v2/eu/GetBiddingInfoList";
+    // Stacks a failed click adds per attempted level (PRI, DUO, TRI, TET); one stack, as the
+    // enhancer's chance increase per failed attempt assumes
+    public static final int[] SESSION_STACK_GROWTH = {1, 1, 1, 1};
+    // Independent sessions simulated per enhancement type in batch mode
+    public static final int SESSION_COUNT = 1000;
 
-    public static final String ACCESSORY_RING_CALL_URL = "https://api.arsha.io/v2/eu/GetWorldMarketList?mainCategory=20&subCategory=1";
-    public static final String ACCESSORY_NECKLACE_CALL_URL = "https://api.arsha.io/v2/eu/GetWorldMarketList?mainCategory=20&subCategory=2";
-    public static final String ACCESSORY_EARRING_CALL_URL = "https://api.arsha.io/v2/eu/GetWorldMarketList?mainCategory=20&subCategory=3";
-    public static final String ACCESSORY_BELT_CALL_URL = "https://api.arsha.io/v2/eu/GetWorldMarketList?mainCategory=20&subCategory=4";
+    // Simulated consumption statistics persisted between sessions
+    public static final String STATISTICS_LIBRARY_FILE = "cache/consumption-statistics.bin";
+
+    // Counters and phase timers, rewritten after every calculation and optimization
+    public static final String METRICS_FILE = "logs/metrics.json";
+
+    // Numbers of enhancements whose profit is priced along the order books
+    public static final int[] DEPTH_QUANTITIES = {1, 5, 20};
+
+    // Price history, one row per item, level and refresh
+    public static final String PRICE_HISTORY_DIRECTORY = "cache/price-history";
+    public static final int PRICE_HISTORY_SEGMENT_ROWS = 1 << 20;
+    public static final int PRICE_HISTORY_COMPACT_AFTER = 4;
+    public static final int PRICE_HISTORY_COMPACTED_ROWS = 1 << 23;
+    public static final int PRICE_HISTORY_RETENTION_DAYS = 180;
+
+    // Risk-adjusted ranking: standard deviations subtracted from the mean profit by default,
+    // the days a listing is exposed to price moves and the price history the volatility is taken from
+    public static final double RISK_AVERSION = 1.0;
+    public static final double RISK_HORIZON_DAYS = 3;
+    public static final int VOLATILITY_WINDOW_DAYS = 14;
+
+    // Resolution of the budget in the portfolio optimizer
+    public static final int PORTFOLIO_BUDGET_STEPS = 4000;
+
+    // Ranking server mode
+    public static final int RANKING_SERVER_PORT = 8080;
+    public static final int RANKING_SERVER_THREADS = 8;
+    public static final long RANKING_SERVER_REFRESH_MINUTES = 10;
+    public static final int RANKING_SERVER_OPTIMIZE_RETRY_SECONDS = 5;
+
+    // What-if recalculation while browsing stack options
+    public static final int WHAT_IF_DEBOUNCE_MILLIS = 80;
+    public static final int WHAT_IF_PREVIEW_RUNS = 2000;
+
+    // Market request scheduling
+    public static final double MARKET_REQUESTS_PER_SECOND = 10.0;
+    public static final int MARKET_REQUEST_BURST = 10;
+    public static final int MARKET_MIN_CONCURRENCY = 1;
+    public static final int MARKET_INITIAL_CONCURRENCY = 4;
+    public static final int MARKET_MAX_CONCURRENCY = 16;
+    public static final int MARKET_MAX_RETRIES = 3;
+    // Threads for hedged requests of all clients: a primary and a hedge per admitted request
+    public static final int MARKET_HEDGE_THREADS = 2 * MARKET_MAX_CONCURRENCY;
+    public static final int MARKET_CONNECT_TIMEOUT_MILLIS = 5000;
+    public static final int MARKET_READ_TIMEOUT_MILLIS = 10000;
+    public static final int MARKET_CIRCUIT_FAILURE_THRESHOLD = 5;
+    public static final long MARKET_CIRCUIT_OPEN_MILLIS = 30000;
+    public static final long MARKET_REFRESH_DEADLINE_SECONDS = 120;
+    public static final long MARKET_ITEM_TTL_MILLIS = 15 * 60 * 1000;
+
+    public static final MarketRegion DEFAULT_MARKET_REGION = MarketRegion.EU;
+
+    // Shared order book cache
+    public static final long ORDER_BOOK_TTL_MILLIS = 60 * 1000;
+    public static final int ORDER_BOOK_CACHE_SIZE = 4096;
+    public static final long MATERIAL_PRICE_TTL_MILLIS = 10 * 60 * 1000;
+
+    // Background refresh of the most valuable items
+    public static final int BACKGROUND_REFRESH_REQUESTS_PER_MINUTE = 120;
+    public static final int REQUESTS_PER_ITEM_REFRESH = 5;
+    public static final long BACKGROUND_REFRESH_TARGET_AGE_MILLIS = 60 * 1000;
+
+    // Url templates, filled in with MarketRegion#apiUrl or MarketRegion#tradeUrl
+    public static final String FUNCTIONAL_ARMOR_CALL_URL = "https://api.arsha.io/v2/%s/GetWorldMarketList?mainCategory=15&subCategory=5";
+    public static final String ENHANCED_COST_URL = "%s/Trademarket/GetWorldMarketSubList";
+    public static final String BIDDING_INFO_LIST_URL = "https://api.arsha.io/v2/%s/GetBiddingInfoList";
+
+    public static final String ACCESSORY_RING_CALL_URL = "https://api.arsha.io/v2/%s/GetWorldMarketList?mainCategory=20&subCategory=1";
+    public static final String ACCESSORY_NECKLACE_CALL_URL = "https://api.arsha.io/v2/%s/GetWorldMarketList?mainCategory=20&subCategory=2";
+    public static final String ACCESSORY_EARRING_CALL_URL = "https://api.arsha.io/v2/%s/GetWorldMarketList?mainCategory=20&subCategory=3";
+    public static final String ACCESSORY_BELT_CALL_URL = "https://api.arsha.io/v2/%s/GetWorldMarketList?mainCategory=20&subCategory=4";
 
 }
@@ -0,0 +1,46 @@
+package com.bdo.enhancer.model.constants;
+
+import lombok.Getter;
+
+/**
+ * Central market regions. The region code selects the arsha.io API path and the
+ * trade host the official enhancement endpoint is called on.
+ */
+@Getter
+public enum MarketRegion {
+    EU("eu", "https://eu-trade.naeu.playblackdesert.com"),
+    NA("na", "https://na-trade.naeu.playblackdesert.com"),
+    SEA("sea", "https://trade.sea.playblackdesert.com"),
+    KR("kr", "https://trade.kr.playblackdesert.com");
+
+    private final String code;
+    private final String tradeHost;
+
+    MarketRegion(String code, String tradeHost) {
+        this.code = code;
+        this.tradeHost = tradeHost;
+    }
+
+    /**
+     * Fills the region code into an API url template from {@link Constants}.
+     */
+    public String apiUrl(String template) {
+        return String.format(template, code);
+    }
+
+    /**
+     * Fills the trade host into an official trade market url template from {@link Constants}.
+     */
+    public String tradeUrl(String template) {
+        return String.format(template, tradeHost);
+    }
+
+    public static MarketRegion fromCode(String code) {
+        for (MarketRegion region : values()) {
+            if (region.code.equalsIgnoreCase(code)) {
+                return region;
+            }
+        }
+        throw new IllegalArgumentException("Unknown market region: " + code);
+    }
+}
@@ -1,6 +1,11 @@
 package com.bdo.enhancer.model.item;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 
 @Data
 public class Item {
@@ -10,9 +15,17 @@ public class Item {
 	private final EnhancementType enhancementType;
 	private long basePrice;
 	private int baseStock;
+	private long currentStock;
 	private long duoPrice;
 	private long triPrice;
 	private long tetPrice;
+	// Order books by result level (0 = base item), EMPTY until fetched
+	@Getter(AccessLevel.NONE)
+	@Setter(AccessLevel.NONE)
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	private final PriceLadder[] priceLadders = {PriceLadder.EMPTY, PriceLadder.EMPTY, PriceLadder.EMPTY,
+			PriceLadder.EMPTY, PriceLadder.EMPTY};
 
 	public Item(String name, int id) {
 		this(name, id, EnhancementType.fromItemName(name));
@@ -24,6 +37,17 @@ public class Item {
 		this.enhancementType = enhancementType;
 	}
 
+	/**
+	 * @param level Result level: 0 for the base item, 2 = DUO, 3 = TRI, 4 = TET
+	 */
+	public PriceLadder getPriceLadder(int level) {
+		return priceLadders[level];
+	}
+
+	public void setPriceLadder(int level, PriceLadder priceLadder) {
+		priceLadders[level] = priceLadder;
+	}
+
 	public boolean isCostume() {
 		return enhancementType == EnhancementType.SILVER_EMBROIDERED_CLOTHING;
 	}
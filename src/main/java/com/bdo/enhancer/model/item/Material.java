@@ -0,0 +1,27 @@
+package com.bdo.enhancer.model.item;
+
+import com.bdo.enhancer.model.constants.Constants;
+import lombok.Getter;
+
+/**
+ * Enhancement materials whose prices are taken from the Central Market.
+ * The default price is used until a market price is known.
+ */
+@Getter
+public enum Material {
+    BLACK_STONE(16001, Constants.BLACK_STONE_PRICE),
+    CRYSTALLIZED_DESPAIR(8411, Constants.CRYSTALLIZED_DESPAIR_PRICE),
+    BLACK_GEM(5000, Constants.BLACK_GEM_PRICE),
+    CONCENTRATED_MAGICAL_BLACK_GEM(4987, Constants.CONCENTRATED_MAGICAL_BLACK_GEM_PRICE),
+    MEMORY_FRAGMENT(44195, Constants.MEMORY_FRAGMENT_PRICE);
+
+    public static final Material[] VALUES = values();
+
+    private final int itemId;
+    private final long defaultPrice;
+
+    Material(int itemId, long defaultPrice) {
+        this.itemId = itemId;
+        this.defaultPrice = defaultPrice;
+    }
+}
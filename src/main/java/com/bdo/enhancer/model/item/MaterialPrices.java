@@ -0,0 +1,84 @@
+package com.bdo.enhancer.model.item;
+
+import java.util.Arrays;
+
+/**
+ * Immutable price vector with one price per {@link Material}, indexed by ordinal.
+ *
+ * <p>Enhancers count material units and the calculators turn them into silver
+ * with {@link #cost(double[])}, so new prices only need a dot product instead of
+ * a new simulation.</p>
+ */
+public final class MaterialPrices {
+
+    private static final MaterialPrices DEFAULTS = new MaterialPrices(
+            Arrays.stream(Material.VALUES).mapToLong(Material::getDefaultPrice).toArray());
+
+    private final long[] prices;
+
+    private MaterialPrices(long[] prices) {
+        this.prices = prices;
+    }
+
+    /**
+     * @return The compile-time default prices from {@link com.bdo.enhancer.model.constants.Constants}
+     */
+    public static MaterialPrices defaults() {
+        return DEFAULTS;
+    }
+
+    public long get(Material material) {
+        return prices[material.ordinal()];
+    }
+
+    /**
+     * @return A copy with the price of one material replaced
+     */
+    public MaterialPrices with(Material material, long price) {
+        long[] copy = prices.clone();
+        copy[material.ordinal()] = price;
+        return new MaterialPrices(copy);
+    }
+
+    /**
+     * @param units Material units indexed by {@link Material#ordinal()}
+     * @return The silver cost of these units
+     */
+    public double cost(double[] units) {
+        double cost = 0;
+        for (int i = 0; i < prices.length; i++) {
+            cost += units[i] * prices[i];
+        }
+        return cost;
+    }
+
+    public long cost(long[] units) {
+        long cost = 0;
+        for (int i = 0; i < prices.length; i++) {
+            cost += units[i] * prices[i];
+        }
+        return cost;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof MaterialPrices other && Arrays.equals(prices, other.prices);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(prices);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("MaterialPrices{");
+        for (Material material : Material.VALUES) {
+            if (material.ordinal() > 0) {
+                builder.append(", ");
+            }
+            builder.append(material).append('=').append(get(material));
+        }
+        return builder.append('}').toString();
+    }
+}
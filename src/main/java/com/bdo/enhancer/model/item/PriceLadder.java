@@ -0,0 +1,140 @@
+package com.bdo.enhancer.model.item;
+
+/**
+ * Immutable order book of one item and enhancement level: every price step with the
+ * units listed for sale and the units wanted by buy orders, in ascending price order.
+ *
+ * <p>The lowest ask alone assumes unlimited supply at that price. Buying many base
+ * items instead walks up the sell orders, and selling many enhanced items walks down
+ * the buy orders, which is what {@link #costToBuy} and {@link #revenueFromSelling}
+ * price. The steps are kept in parallel primitive arrays, so the ladders of a whole
+ * market stay small.</p>
+ */
+public final class PriceLadder {
+
+    public static final PriceLadder EMPTY = new PriceLadder(new long[0], new int[0], new int[0]);
+
+    private final long[] prices;
+    // Units listed for sale per price step
+    private final int[] sellers;
+    // Units wanted by buy orders per price step
+    private final int[] buyers;
+
+    /**
+     * @param prices Price steps in ascending order
+     * @param sellers Units listed for sale at each step
+     * @param buyers Units wanted by buy orders at each step
+     */
+    public PriceLadder(long[] prices, int[] sellers, int[] buyers) {
+        if (prices.length != sellers.length || prices.length != buyers.length) {
+            throw new IllegalArgumentException("Price, seller and buyer steps differ in length");
+        }
+        for (int step = 1; step < prices.length; step++) {
+            if (prices[step] <= prices[step - 1]) {
+                throw new IllegalArgumentException("Price steps must be strictly ascending");
+            }
+        }
+        this.prices = prices.clone();
+        this.sellers = sellers.clone();
+        this.buyers = buyers.clone();
+    }
+
+    public int steps() {
+        return prices.length;
+    }
+
+    public boolean isEmpty() {
+        return prices.length == 0;
+    }
+
+    public long price(int step) {
+        return prices[step];
+    }
+
+    public int sellers(int step) {
+        return sellers[step];
+    }
+
+    public int buyers(int step) {
+        return buyers[step];
+    }
+
+    /**
+     * @return The cheapest price with units for sale, or -1 if nothing is listed
+     */
+    public long lowestAsk() {
+        for (int step = 0; step < prices.length; step++) {
+            if (sellers[step] > 0) {
+                return prices[step];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return All units listed for sale
+     */
+    public long askDepth() {
+        long depth = 0;
+        for (int units : sellers) {
+            depth += units;
+        }
+        return depth;
+    }
+
+    /**
+     * @return All units wanted by buy orders
+     */
+    public long bidDepth() {
+        long depth = 0;
+        for (int units : buyers) {
+            depth += units;
+        }
+        return depth;
+    }
+
+    /**
+     * Silver needed to buy the given units, taking the cheapest listings first. Units
+     * beyond the listed depth are assumed to cost as much as the most expensive listing
+     * bought, or the fallback price if nothing is listed.
+     */
+    public long costToBuy(long units, long fallbackPrice) {
+        long remaining = units;
+        long cost = 0;
+        long lastPrice = fallbackPrice;
+        for (int step = 0; step < prices.length && remaining > 0; step++) {
+            if (sellers[step] > 0) {
+                long bought = Math.min(remaining, sellers[step]);
+                cost += bought * prices[step];
+                remaining -= bought;
+                lastPrice = prices[step];
+            }
+        }
+        return cost + remaining * lastPrice;
+    }
+
+    /**
+     * Silver received for selling the given units. The first unit is listed at the listing
+     * price, as the single unit profit assumes; every further unit fills the buy orders from
+     * the highest bid down. Units beyond the bid depth go for the lowest bid filled, or the
+     * listing price if there are no buy orders.
+     */
+    public long revenueFromSelling(long units, long listingPrice) {
+        if (units <= 0) {
+            return 0;
+        }
+
+        long remaining = units - 1;
+        long revenue = listingPrice;
+        long lastPrice = listingPrice;
+        for (int step = prices.length - 1; step >= 0 && remaining > 0; step--) {
+            if (buyers[step] > 0) {
+                long sold = Math.min(remaining, buyers[step]);
+                revenue += sold * prices[step];
+                remaining -= sold;
+                lastPrice = prices[step];
+            }
+        }
+        return revenue + remaining * lastPrice;
+    }
+}
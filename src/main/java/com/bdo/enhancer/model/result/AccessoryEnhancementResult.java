@@ -1,6 +1,7 @@
 package com.bdo.enhancer.model.result;
 
 public class AccessoryEnhancementResult {
+	public int id;
 	public String name;
 	public long baseStock;
 	public long triItems;
@@ -12,8 +13,20 @@ public class AccessoryEnhancementResult {
 	public double duoProfitPerItem;
 	public double triProfitPerItem;
 	public double tetProfitPerItem;
+	// Total profit of enhancing Constants.DEPTH_QUANTITIES copies, priced along the order books
+	public long[] duoDepthProfits = new long[0];
+	public long[] triDepthProfits = new long[0];
+	public long[] tetDepthProfits = new long[0];
+	public ProfitRisk duoRisk = ProfitRisk.NONE;
+	public ProfitRisk triRisk = ProfitRisk.NONE;
+	public ProfitRisk tetRisk = ProfitRisk.NONE;
 
 	public AccessoryEnhancementResult(String name, long baseStock, long duoItems, long duoProfit, long triItems, long triProfit, long tetItems, long tetProfit) {
+		this(0, name, baseStock, duoItems, duoProfit, triItems, triProfit, tetItems, tetProfit);
+	}
+
+	public AccessoryEnhancementResult(int id, String name, long baseStock, long duoItems, long duoProfit, long triItems, long triProfit, long tetItems, long tetProfit) {
+		this.id = id;
 		this.name = name;
 		this.baseStock = baseStock;
 
@@ -30,4 +43,35 @@ public class AccessoryEnhancementResult {
 		this.triProfitPerItem = (double) triProfit / triItems;
 		this.tetProfitPerItem = (double) tetProfit / tetItems;
 	}
+
+	/**
+	 * @param level 2 = DUO, 3 = TRI, 4 = TET
+	 */
+	public long[] getDepthProfits(int level) {
+		return switch (level) {
+			case 2 -> duoDepthProfits;
+			case 3 -> triDepthProfits;
+			case 4 -> tetDepthProfits;
+			default -> throw new IllegalArgumentException("Unsupported enhancement level: " + level);
+		};
+	}
+
+	/**
+	 * @param level 2 = DUO, 3 = TRI, 4 = TET
+	 */
+	public ProfitRisk getRisk(int level) {
+		return switch (level) {
+			case 2 -> duoRisk;
+			case 3 -> triRisk;
+			case 4 -> tetRisk;
+			default -> throw new IllegalArgumentException("Unsupported enhancement level: " + level);
+		};
+	}
+
+	/**
+	 * @return The highest risk-adjusted profit of all levels
+	 */
+	public long bestRiskAdjustedProfit() {
+		return Math.max(duoRisk.riskAdjustedProfit, Math.max(triRisk.riskAdjustedProfit, tetRisk.riskAdjustedProfit));
+	}
 }
@@ -0,0 +1,65 @@
+package com.bdo.enhancer.model.result;
+
+import com.bdo.enhancer.model.item.Material;
+import com.bdo.enhancer.model.item.MaterialPrices;
+
+/**
+ * Price independent outcome of an enhancement simulation: the average number of
+ * base items and material units consumed and their covariance. Combined with a base
+ * item price and material prices it yields the average cost and its variance, so one
+ * simulation can be priced for any market region and any material prices.
+ */
+public class EnhancementStatistics {
+	public final double avgItems;
+	// Average material units indexed by Material ordinal
+	public final double[] avgMaterialUnits;
+	// Covariance over (base items, material units by ordinal) per run, upper triangle row by row
+	public final double[] covariance;
+
+	public EnhancementStatistics(double avgItems, double[] avgMaterialUnits) {
+		this(avgItems, avgMaterialUnits, new double[covarianceSize(avgMaterialUnits.length)]);
+	}
+
+	public EnhancementStatistics(double avgItems, double[] avgMaterialUnits, double[] covariance) {
+		if (covariance.length != covarianceSize(avgMaterialUnits.length)) {
+			throw new IllegalArgumentException("Covariance does not match " + avgMaterialUnits.length + " materials");
+		}
+		this.avgItems = avgItems;
+		this.avgMaterialUnits = avgMaterialUnits;
+		this.covariance = covariance;
+	}
+
+	/**
+	 * @return Entries of the packed covariance over the base items and the given number of materials
+	 */
+	public static int covarianceSize(int materials) {
+		int dimensions = materials + 1;
+		return dimensions * (dimensions + 1) / 2;
+	}
+
+	public long avgCost(long basePrice, MaterialPrices materialPrices) {
+		return (long) (avgItems * basePrice + materialPrices.cost(avgMaterialUnits));
+	}
+
+	/**
+	 * Variance of the cost of a single run, the quadratic form of the covariance with the prices.
+	 */
+	public double costVariance(long basePrice, MaterialPrices materialPrices) {
+		int dimensions = avgMaterialUnits.length + 1;
+		double[] prices = new double[dimensions];
+		prices[0] = basePrice;
+		for (int material = 1; material < dimensions; material++) {
+			prices[material] = materialPrices.get(Material.VALUES[material - 1]);
+		}
+
+		double variance = 0;
+		int entry = 0;
+		for (int row = 0; row < dimensions; row++) {
+			for (int column = row; column < dimensions; column++) {
+				double term = prices[row] * prices[column] * covariance[entry++];
+				variance += row == column ? term : 2 * term;
+			}
+		}
+		return Math.max(0, variance);
+	}
+}
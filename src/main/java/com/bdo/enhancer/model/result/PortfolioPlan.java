@@ -0,0 +1,47 @@
+package com.bdo.enhancer.model.result;
+
+import java.util.List;
+
+/**
+ * What to enhance with a silver budget: the number of enhancements per item and target
+ * level that maximizes the expected profit.
+ */
+public class PortfolioPlan {
+	public final long budget;
+	public final long totalCost;
+	public final long expectedProfit;
+	public final List<Position> positions;
+
+	public PortfolioPlan(long budget, List<Position> positions) {
+		this.budget = budget;
+		this.positions = List.copyOf(positions);
+		this.totalCost = positions.stream().mapToLong(position -> position.totalCost).sum();
+		this.expectedProfit = positions.stream().mapToLong(position -> position.expectedProfit).sum();
+	}
+
+	/**
+	 * Enhancing one item to one level a number of times.
+	 */
+	public static class Position {
+		public final int id;
+		public final String name;
+		// Target level: 2 = DUO, 3 = TRI, 4 = TET
+		public final int level;
+		public final int quantity;
+		// Base items expected to be consumed by all enhancements of this position
+		public final double expectedItems;
+		public final long totalCost;
+		public final long expectedProfit;
+
+		public Position(int id, String name, int level, int quantity, double expectedItems,
+						long totalCost, long expectedProfit) {
+			this.id = id;
+			this.name = name;
+			this.level = level;
+			this.quantity = quantity;
+			this.expectedItems = expectedItems;
+			this.totalCost = totalCost;
+			this.expectedProfit = expectedProfit;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package com.bdo.enhancer.model.result;
+
+/**
+ * Spread of the profit of one enhancement around its mean, from the simulated cost
+ * distribution and the recent volatility of the sale price.
+ */
+public class ProfitRisk {
+	public static final ProfitRisk NONE = new ProfitRisk(0, 0, 0);
+
+	// Standard deviation of the profit in silver
+	public final double stdDev;
+	// Probability that the enhancement loses silver
+	public final double lossProbability;
+	// Profit after the penalty of the configured risk measure, used for ranking
+	public final long riskAdjustedProfit;
+
+	public ProfitRisk(double stdDev, double lossProbability, long riskAdjustedProfit) {
+		this.stdDev = stdDev;
+		this.lossProbability = lossProbability;
+		this.riskAdjustedProfit = riskAdjustedProfit;
+	}
+}
@@ -0,0 +1,63 @@
+package com.bdo.enhancer.model.result;
+
+import java.util.List;
+
+/**
+ * Profits of every item and target level across the scenarios of a what-if grid,
+ * with the prices at which each enhancement breaks even.
+ */
+public class ScenarioReport {
+	public final int scenarios;
+	public final long elapsedNanos;
+	public final List<Outcome> outcomes;
+
+	public ScenarioReport(int scenarios, long elapsedNanos, List<Outcome> outcomes) {
+		this.scenarios = scenarios;
+		this.elapsedNanos = elapsedNanos;
+		this.outcomes = List.copyOf(outcomes);
+	}
+
+	/**
+	 * Enhancing one item to one level under all scenarios.
+	 */
+	public static class Outcome {
+		public final int id;
+		public final String name;
+		// Target level: 2 = DUO, 3 = TRI, 4 = TET
+		public final int level;
+		// Profit at the current prices, as in the ranking
+		public final long currentProfit;
+		public final long worstProfit;
+		public final String worstScenario;
+		public final long bestProfit;
+		public final long meanProfit;
+		// Share of the scenarios with a positive profit
+		public final double profitableShare;
+		// Current sale price at which the profit is 0
+		public final long breakEvenSalePrice;
+		// Current sale price at which no scenario makes a loss
+		public final long robustBreakEvenSalePrice;
+		// Base item price at which the profit is 0, -1 if no base item is consumed
+		public final long breakEvenBasePrice;
+		// Material prices at which the profit is 0 by Material ordinal, -1 if the material is not consumed
+		public final long[] breakEvenMaterialPrices;
+
+		public Outcome(int id, String name, int level, long currentProfit, long worstProfit, String worstScenario,
+					   long bestProfit, long meanProfit, double profitableShare, long breakEvenSalePrice,
+					   long robustBreakEvenSalePrice, long breakEvenBasePrice, long[] breakEvenMaterialPrices) {
+			this.id = id;
+			this.name = name;
+			this.level = level;
+			this.currentProfit = currentProfit;
+			this.worstProfit = worstProfit;
+			this.worstScenario = worstScenario;
+			this.bestProfit = bestProfit;
+			this.meanProfit = meanProfit;
+			this.profitableShare = profitableShare;
+			this.breakEvenSalePrice = breakEvenSalePrice;
+			this.robustBreakEvenSalePrice = robustBreakEvenSalePrice;
+			this.breakEvenBasePrice = breakEvenBasePrice;
+			this.breakEvenMaterialPrices = breakEvenMaterialPrices;
+		}
+	}
+}
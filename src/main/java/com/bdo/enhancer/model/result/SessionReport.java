@@ -0,0 +1,99 @@
+package com.bdo.enhancer.model.result;
+
+import com.bdo.enhancer.model.item.Material;
+import com.bdo.enhancer.model.item.MaterialPrices;
+
+/**
+ * Consumption of simulated enhancement sessions, one entry per session. Like
+ * {@link EnhancementStatistics} it does not depend on prices; the cost per finished
+ * item is priced on demand.
+ */
+public class SessionReport {
+	public final int targetLevel;
+	public final int itemsPerSession;
+	public final long elapsedNanos;
+	public final long[] clicks;
+	public final long[] baseItems;
+	// Black stones spent building stacks during the session
+	public final long[] boughtBlackStones;
+	// Black stones the successful clicks would have cost with a freshly built stack each
+	public final long[] freshBlackStones;
+	// Black stone value of the stacks on hand at the end minus at the start
+	public final long[] stockChange;
+
+	public SessionReport(int targetLevel, int itemsPerSession, long elapsedNanos, long[] clicks, long[] baseItems,
+						 long[] boughtBlackStones, long[] freshBlackStones, long[] stockChange) {
+		this.targetLevel = targetLevel;
+		this.itemsPerSession = itemsPerSession;
+		this.elapsedNanos = elapsedNanos;
+		this.clicks = clicks;
+		this.baseItems = baseItems;
+		this.boughtBlackStones = boughtBlackStones;
+		this.freshBlackStones = freshBlackStones;
+		this.stockChange = stockChange;
+	}
+
+	public int sessions() {
+		return clicks.length;
+	}
+
+	public long totalClicks() {
+		long total = 0;
+		for (long sessionClicks : clicks) {
+			total += sessionClicks;
+		}
+		return total;
+	}
+
+	public double clicksPerItem() {
+		return perItem(clicks);
+	}
+
+	public double baseItemsPerItem() {
+		return perItem(baseItems);
+	}
+
+	/**
+	 * @return Black stones spent per finished item, less what the stacks left on hand gained in value
+	 */
+	public double blackStonesPerItem() {
+		return perItem(boughtBlackStones) - perItem(stockChange);
+	}
+
+	/**
+	 * @return Black stones per finished item if every successful click used a freshly built stack
+	 */
+	public double freshBlackStonesPerItem() {
+		return perItem(freshBlackStones);
+	}
+
+	public long costPerItem(long basePrice, MaterialPrices materialPrices) {
+		return Math.round(baseItemsPerItem() * basePrice
+				+ blackStonesPerItem() * materialPrices.get(Material.BLACK_STONE));
+	}
+
+	/**
+	 * @return Standard deviation of the cost per finished item between sessions
+	 */
+	public double costPerItemStdDev(long basePrice, MaterialPrices materialPrices) {
+		long blackStonePrice = materialPrices.get(Material.BLACK_STONE);
+		double sum = 0;
+		double sumOfSquares = 0;
+		for (int session = 0; session < clicks.length; session++) {
+			double cost = (baseItems[session] * (double) basePrice
+					+ (boughtBlackStones[session] - stockChange[session]) * (double) blackStonePrice) / itemsPerSession;
+			sum += cost;
+			sumOfSquares += cost * cost;
+		}
+		double mean = sum / clicks.length;
+		return Math.sqrt(Math.max(0, sumOfSquares / clicks.length - mean * mean));
+	}
+
+	private double perItem(long[] perSession) {
+		long total = 0;
+		for (long value : perSession) {
+			total += value;
+		}
+		return (double) total / ((long) itemsPerSession * perSession.length);
+	}
+}
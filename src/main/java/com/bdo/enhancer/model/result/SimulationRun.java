@@ -3,9 +3,12 @@ package com.bdo.enhancer.model.result;
 public class SimulationRun {
 	public final long cost;
 	public final long items;
+	// Consumed material units indexed by Material ordinal
+	public final long[] materialUnits;
 
-	public SimulationRun(long cost, long items) {
+	public SimulationRun(long cost, long items, long[] materialUnits) {
 		this.cost = cost;
 		this.items = items;
+		this.materialUnits = materialUnits;
 	}
-}
\ No newline at end of file
+}
@@ -1,5 +1,8 @@
 package com.bdo.enhancer.model.stack;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class AccessoryStack extends AbstractStack {
     // Statische Factory-Methoden für die vordefinierten Stacks
     public static final AccessoryStack TEN = new AccessoryStack(12, 50, 20, 15, 5, 10);
@@ -24,17 +27,26 @@ public class AccessoryStack extends AbstractStack {
             SIXTY, SEVENTY_FREE, EIGHTY_FREE, NINETY_FREE, HUNDRED_FREE, HUNDREDTEN_FREE
     };
 
+    // Stacks between the presets, created on first use
+    private static final Map<Integer, AccessoryStack> MODELED = new ConcurrentHashMap<>();
+
     private AccessoryStack(int blackStoneCount, double mon, double duo, double tri, double tet, int stackCount) {
         super(blackStoneCount, mon, duo, tri, tet, stackCount);
     }
 
+    /**
+     * @return The preset with the stack count, or a stack following the {@link FailstackModel}
+     *         for any other count; the same instance for the same count
+     */
     public static AccessoryStack findByStackCount(int stackCount) {
         for (AccessoryStack stack : VALUES) {
             if (stack.getStackCount() == stackCount) {
                 return stack;
             }
         }
-        throw new IllegalArgumentException("Kein AccessoryStack mit stackCount " + stackCount + " gefunden");
+        return MODELED.computeIfAbsent(stackCount, count -> new AccessoryStack(FailstackModel.blackStones(count),
+                FailstackModel.ACCESSORY.chance(0, count), FailstackModel.ACCESSORY.chance(1, count),
+                FailstackModel.ACCESSORY.chance(2, count), FailstackModel.ACCESSORY.chance(3, count), count));
     }
 
 }
\ No newline at end of file
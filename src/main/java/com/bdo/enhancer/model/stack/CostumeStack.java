@@ -1,5 +1,8 @@
 package com.bdo.enhancer.model.stack;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public class CostumeStack extends AbstractStack {
     // Statische Factory-Methoden für die vordefinierten Stacks
     public static final CostumeStack TEN = new CostumeStack(12, 60, 20, 15, 5, 10);
@@ -24,17 +27,25 @@ public class CostumeStack extends AbstractStack {
             SIXTY, SEVENTY_FREE, EIGHTY_FREE, NINETY_FREE, HUNDRED_FREE, HUNDREDTEN_FREE
     };
 
+    // Stacks between the presets, created on first use
+    private static final Map<Integer, CostumeStack> MODELED = new ConcurrentHashMap<>();
+
     private CostumeStack(int blackStoneCount, double mon, double duo, double tri, double tet, int stackCount) {
         super(blackStoneCount, mon, duo, tri, tet, stackCount);
     }
 
-    // Methode zum Finden eines Stacks nach Stack-Anzahl
+    /**
+     * @return The preset with the stack count, or a stack following the {@link FailstackModel}
+     *         for any other count; the same instance for the same count
+     */
     public static CostumeStack findByStackCount(int stackCount) {
         for (CostumeStack stack : VALUES) {
             if (stack.getStackCount() == stackCount) {
                 return stack;
             }
         }
-        throw new IllegalArgumentException("Kein CostumeStack mit stackCount " + stackCount + " gefunden");
+        return MODELED.computeIfAbsent(stackCount, count -> new CostumeStack(FailstackModel.blackStones(count),
+                FailstackModel.COSTUME.chance(0, count), FailstackModel.COSTUME.chance(1, count),
+                FailstackModel.COSTUME.chance(2, count), FailstackModel.COSTUME.chance(3, count), count));
     }
 }
\ No newline at end of file
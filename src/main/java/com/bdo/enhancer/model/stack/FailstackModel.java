@@ -0,0 +1,148 @@
+package com.bdo.enhancer.model.stack;
+
+import java.util.Arrays;
+
+/**
+ * Success chances and black stone cost of any failstack, so stacks between the presets
+ * of {@link AccessoryStack} and {@link CostumeStack} can be used as well.
+ *
+ * <p>Per level the chance is interpolated linearly between the presets, so every preset
+ * keeps its chances and the chance never jumps from one stack to the next. Below the first
+ * and beyond the last preset it continues with the slope of the nearest preset step and
+ * never exceeds {@value #MAX_CHANCE}%. Building a stack costs black stones; between the
+ * bought presets the cost is interpolated geometrically. Stacks past the last bought preset
+ * cannot be bought, only grown from it by failing, so they cost as much as that preset;
+ * from the first free preset on they cost nothing, like the presets.</p>
+ */
+public final class FailstackModel {
+
+    public static final double MAX_CHANCE = 90;
+    public static final int MIN_STACK = 1;
+    public static final int MAX_STACK = 200;
+
+    public static final FailstackModel ACCESSORY = fromPresets(AccessoryStack.VALUES);
+    public static final FailstackModel COSTUME = fromPresets(CostumeStack.VALUES);
+
+    // First stack of the free presets, identical for accessories and costumes
+    private static final int FIRST_FREE_STACK = firstFreeStack(AccessoryStack.VALUES);
+
+    // Black stones to build the bought presets, by stack
+    private static final int[] COST_STACKS = {0, 10, 15, 20, 25, 30, 35, 40, 45, 55, 60};
+    private static final int[] COST_BLACK_STONES = {0, 12, 21, 33, 53, 84, 136, 230, 406, 850, 1540};
+
+    /**
+     * Chance of one level as a function of the stack, in percent, through the preset chances.
+     */
+    static final class Curve {
+        final int[] stacks;
+        final double[] chances;
+
+        Curve(int[] stacks, double[] chances) {
+            this.stacks = stacks;
+            this.chances = chances;
+        }
+
+        double chance(int stack) {
+            int segment = 0;
+            while (segment < stacks.length - 2 && stacks[segment + 1] < stack) {
+                segment++;
+            }
+            double slope = (chances[segment + 1] - chances[segment]) / (stacks[segment + 1] - stacks[segment]);
+            double chance = chances[segment] + slope * (stack - stacks[segment]);
+            return Math.max(0, Math.min(MAX_CHANCE, chance));
+        }
+
+        int hash() {
+            return 31 * Arrays.hashCode(stacks) + Arrays.hashCode(chances);
+        }
+    }
+
+    private final Curve[] curves;
+
+    private FailstackModel(Curve... curves) {
+        this.curves = curves;
+    }
+
+    /**
+     * @param presets Stacks in ascending order of their stack count
+     */
+    private static FailstackModel fromPresets(AbstractStack[] presets) {
+        int[] stacks = new int[presets.length];
+        double[][] chances = new double[4][presets.length];
+        for (int index = 0; index < presets.length; index++) {
+            AbstractStack preset = presets[index];
+            stacks[index] = preset.getStackCount();
+            chances[0][index] = preset.getMonChance();
+            chances[1][index] = preset.getDuoChance();
+            chances[2][index] = preset.getTriChance();
+            chances[3][index] = preset.getTetChance();
+        }
+        return new FailstackModel(new Curve(stacks, chances[0]), new Curve(stacks, chances[1]),
+                new Curve(stacks, chances[2]), new Curve(stacks, chances[3]));
+    }
+
+    /**
+     * @param level Attempted level: 0 = PRI, 1 = DUO, 2 = TRI, 3 = TET
+     * @return The success chance in percent
+     */
+    public double chance(int level, int stack) {
+        checkStack(stack);
+        return curves[level].chance(stack);
+    }
+
+    /**
+     * @return Black stones needed to build the stack, at most those of the last bought preset
+     */
+    public static int blackStones(int stack) {
+        checkStack(stack);
+        if (stack >= FIRST_FREE_STACK) {
+            return 0;
+        }
+        int last = COST_STACKS.length - 1;
+        if (stack >= COST_STACKS[last]) {
+            return COST_BLACK_STONES[last];
+        }
+
+        int segment = 0;
+        while (COST_STACKS[segment + 1] < stack) {
+            segment++;
+        }
+        int from = COST_STACKS[segment];
+        int to = COST_STACKS[segment + 1];
+        double share = (double) (stack - from) / (to - from);
+        if (COST_BLACK_STONES[segment] == 0) {
+            return (int) Math.round(COST_BLACK_STONES[segment + 1] * share);
+        }
+        return (int) Math.round(COST_BLACK_STONES[segment]
+                * Math.pow((double) COST_BLACK_STONES[segment + 1] / COST_BLACK_STONES[segment], share));
+    }
+
+    /**
+     * Hash over the curves and costs, used to detect stale persisted statistics.
+     */
+    public static int rulesHashCode() {
+        int hash = 31 * Double.hashCode(MAX_CHANCE) + Arrays.hashCode(COST_STACKS) + FIRST_FREE_STACK;
+        hash = 31 * hash + Arrays.hashCode(COST_BLACK_STONES);
+        for (FailstackModel model : new FailstackModel[] {ACCESSORY, COSTUME}) {
+            for (Curve curve : model.curves) {
+                hash = 31 * hash + curve.hash();
+            }
+        }
+        return hash;
+    }
+
+    private static int firstFreeStack(AbstractStack[] presets) {
+        for (AbstractStack preset : presets) {
+            if (preset.getBlackStoneCount() == 0) {
+                return preset.getStackCount();
+            }
+        }
+        return MAX_STACK + 1;
+    }
+
+    private static void checkStack(int stack) {
+        if (stack < MIN_STACK || stack > MAX_STACK) {
+            throw new IllegalArgumentException("Stack must be between " + MIN_STACK + " and " + MAX_STACK + ": " + stack);
+        }
+    }
+}
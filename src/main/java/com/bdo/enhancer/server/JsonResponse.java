@@ -0,0 +1,79 @@
+package com.bdo.enhancer.server;
+
+import lombok.Getter;
+import org.json.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A rendered JSON body with its entity tag. Bodies are rendered once per refresh and
+ * then served to every client as is.
+ */
+@Getter
+final class JsonResponse {
+
+    private final int status;
+    private final byte[] body;
+    private final String etag;
+
+    private JsonResponse(int status, byte[] body, String etag) {
+        this.status = status;
+        this.body = body;
+        this.etag = etag;
+    }
+
+    /**
+     * @param json The body
+     * @param versionedContent What the body depends on besides timestamps; the entity tag is a
+     *                         weak one over this content, so a recomputation with identical
+     *                         results keeps the tag and clients keep getting 304s
+     */
+    static JsonResponse ok(JSONObject json, String versionedContent) {
+        return new JsonResponse(200, json.toString().getBytes(StandardCharsets.UTF_8),
+                "W/\"" + digest(versionedContent) + "\"");
+    }
+
+    /**
+     * A computation that was started or is still running; the client asks again later.
+     */
+    static JsonResponse accepted(String message) {
+        return new JsonResponse(202, new JSONObject().put("status", message).toString()
+                .getBytes(StandardCharsets.UTF_8), null);
+    }
+
+    static JsonResponse error(int status, String message) {
+        return new JsonResponse(status, new JSONObject().put("error", message).toString()
+                .getBytes(StandardCharsets.UTF_8), null);
+    }
+
+    /**
+     * @return True if an {@code If-None-Match} header value lists this entity tag
+     */
+    boolean matches(String ifNoneMatch) {
+        if (etag == null || ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag) || ("W/" + tag).equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String digest(String content) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 12; i++) {
+                hex.append(String.format("%02x", hash[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.bdo.enhancer.server;
+
+import com.bdo.enhancer.calculator.AccessoryProfitCalculator;
+import com.bdo.enhancer.calculator.StatisticsLibrary;
+import com.bdo.enhancer.market.DaemonThreadFactory;
+import com.bdo.enhancer.market.MarketDataService;
+import com.bdo.enhancer.market.PriceHistoryStore;
+import com.bdo.enhancer.market.MarketRequestScheduler;
+import com.bdo.enhancer.metrics.MetricsRegistry;
+import com.bdo.enhancer.metrics.Timer;
+import com.bdo.enhancer.model.constants.Constants;
+import com.bdo.enhancer.model.constants.MarketRegion;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the rankings of a {@link RankingService} as JSON, so several users share one
+ * market refresh and simulation instead of each running their own.
+ *
+ * <ul>
+ *   <li>{@code GET /rankings} – all items ranked by TRI profit</li>
+ *   <li>{@code GET /item/{id}} – one ranked item with the prices it was calculated with</li>
+ *   <li>{@code GET /optimize/{id}} – the optimal TRI stacks of one item</li>
+ * </ul>
+ *
+ * <p>Request threads never wait for a simulation: an optimization that is not finished yet
+ * is answered with 202 and {@code Retry-After}, and the client asks again.</p>
+ *
+ * <p>Bodies are rendered once per refresh and carry an entity tag; clients sending it back
+ * in {@code If-None-Match} get a body-less 304 until the results change.</p>
+ */
+@Slf4j
+public class RankingServer {
+
+    private static final Timer REQUEST_TIMER = MetricsRegistry.global().timer("server.request");
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: java -jar BlackDesertEnhancer.jar --serve [options]",
+            "  --port <port>             HTTP port, default " + Constants.RANKING_SERVER_PORT,
+            "  --region eu|na|sea|kr     Market region, default " + Constants.DEFAULT_MARKET_REGION.getCode(),
+            "  --runs <n>                Simulation runs per stack combination, default " + Constants.SIMULATION_RUN_COUNT,
+            "  --refresh-minutes <n>     Delay between market refreshes, default " + Constants.RANKING_SERVER_REFRESH_MINUTES);
+
+    private final RankingService service;
+    private final HttpServer server;
+    private final ExecutorService requestExecutor =
+            Executors.newFixedThreadPool(Constants.RANKING_SERVER_THREADS, new DaemonThreadFactory("ranking-http"));
+
+    public RankingServer(RankingService service, int port) throws IOException {
+        this.service = service;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/rankings", exchange -> handle(exchange, this::rankings));
+        server.createContext("/item/", exchange -> handle(exchange, this::item));
+        server.createContext("/optimize/", exchange -> handle(exchange, this::optimize));
+        server.setExecutor(requestExecutor);
+    }
+
+    /**
+     * @return True if the arguments ask for the server mode instead of the window
+     */
+    public static boolean isServerMode(String[] args) {
+        return args.length > 0 && "--serve".equals(args[0]);
+    }
+
+    public static void main(String[] args) {
+        // Everything is validated before anything starts, so a bad value cannot leave a half-started server
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        AccessoryProfitCalculator calculator = new AccessoryProfitCalculator();
+        calculator.getStatisticsCache().attach(new StatisticsLibrary(Path.of(Constants.STATISTICS_LIBRARY_FILE)));
+        calculator.setSimulationRuns(options.runs);
+        MarketDataService marketService = new MarketDataService(options.region, MarketRequestScheduler.shared());
+        PriceHistoryStore priceHistory = PriceHistoryStore.openForRegion(options.region);
+        marketService.setPriceHistory(priceHistory);
+        calculator.setPriceHistory(priceHistory);
+        RankingService service = new RankingService(marketService, calculator, Constants.OPTIMIZATION_RUN_COUNT);
+        MetricsRegistry.global().registerMBean();
+
+        try {
+            RankingServer server = new RankingServer(service, options.port);
+            server.start();
+            service.start(options.refreshMinutes);
+            log.info("Serving {} rankings on port {}, refreshing every {} minutes", options.region, options.port,
+                    options.refreshMinutes);
+        } catch (IOException e) {
+            System.err.println("Could not start the ranking server: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        requestExecutor.shutdownNow();
+        service.stop();
+    }
+
+    /**
+     * @return The bound port, useful when started on port 0
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @FunctionalInterface
+    private interface Route {
+        JsonResponse respond(RankingSnapshot snapshot, String path);
+    }
+
+    private void handle(HttpExchange exchange, Route route) throws IOException {
+        long start = System.nanoTime();
+        try {
+            JsonResponse response;
+            RankingSnapshot snapshot = service.getSnapshot();
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                response = JsonResponse.error(405, "Only GET is supported");
+            } else if (snapshot == null) {
+                exchange.getResponseHeaders().set("Retry-After", "30");
+                response = JsonResponse.error(503, "The first market refresh is still running");
+            } else {
+                response = route.respond(snapshot, exchange.getRequestURI().getPath());
+            }
+            send(exchange, response);
+        } catch (RuntimeException e) {
+            log.error("Error serving {}", exchange.getRequestURI(), e);
+        } finally {
+            exchange.close();
+            REQUEST_TIMER.recordSince(start);
+        }
+    }
+
+    private JsonResponse rankings(RankingSnapshot snapshot, String path) {
+        return "/rankings".equals(path) || "/rankings/".equals(path)
+                ? snapshot.getRankings()
+                : JsonResponse.error(404, "Not found: " + path);
+    }
+
+    private JsonResponse item(RankingSnapshot snapshot, String path) {
+        Integer id = itemId(path, "/item/");
+        if (id == null) {
+            return JsonResponse.error(400, "Expected /item/{id}");
+        }
+        JsonResponse item = snapshot.getItem(id);
+        return item != null ? item : JsonResponse.error(404, "Unknown item " + id);
+    }
+
+    private JsonResponse optimize(RankingSnapshot snapshot, String path) {
+        Integer id = itemId(path, "/optimize/");
+        if (id == null) {
+            return JsonResponse.error(400, "Expected /optimize/{id}");
+        }
+        CompletableFuture<JsonResponse> optimization = service.optimize(snapshot, id);
+        if (!optimization.isDone()) {
+            return JsonResponse.accepted("Optimizing item " + id);
+        }
+        try {
+            return optimization.join();
+        } catch (CompletionException e) {
+            log.error("Optimizing item {} failed", id, e.getCause());
+            return JsonResponse.error(500, "Optimization failed: " + e.getCause().getMessage());
+        }
+    }
+
+    private static Integer itemId(String path, String prefix) {
+        try {
+            return Integer.parseInt(path.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void send(HttpExchange exchange, JsonResponse response) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        // Clients may cache, but have to revalidate with the entity tag
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        if (response.getEtag() != null) {
+            exchange.getResponseHeaders().set("ETag", response.getEtag());
+            if (response.matches(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+        }
+
+        if (response.getStatus() == 202) {
+            exchange.getResponseHeaders().set("Retry-After",
+                    String.valueOf(Constants.RANKING_SERVER_OPTIMIZE_RETRY_SECONDS));
+        }
+        byte[] body = response.getBody();
+        exchange.sendResponseHeaders(response.getStatus(), body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Parsed and range-checked command line.
+     */
+    static final class Options {
+        int port = Constants.RANKING_SERVER_PORT;
+        MarketRegion region = Constants.DEFAULT_MARKET_REGION;
+        int runs = Constants.SIMULATION_RUN_COUNT;
+        long refreshMinutes = Constants.RANKING_SERVER_REFRESH_MINUTES;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int index = isServerMode(args) ? 1 : 0; index < args.length; index += 2) {
+                String option = args[index];
+                if (index + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                String value = args[index + 1];
+                switch (option) {
+                    case "--port" -> options.port = (int) inRange(value, option, 1, 65_535);
+                    case "--region" -> options.region = MarketRegion.fromCode(value);
+                    case "--runs" -> options.runs = (int) inRange(value, option, 1, Integer.MAX_VALUE);
+                    case "--refresh-minutes" -> options.refreshMinutes = inRange(value, option, 1, Long.MAX_VALUE);
+                    default -> throw new IllegalArgumentException("Unknown option: " + option);
+                }
+            }
+            return options;
+        }
+
+        private static long inRange(String value, String option, long min, long max) {
+            try {
+                long number = Long.parseLong(value);
+                if (number >= min && number <= max) {
+                    return number;
+                }
+            } catch (NumberFormatException e) {
+                // Reported below
+            }
+            throw new IllegalArgumentException(option + " expects a number from " + min + " to " + max + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.bdo.enhancer.server;
+
+import com.bdo.enhancer.calculator.AccessoryProfitCalculator;
+import com.bdo.enhancer.calculator.OptimalStackCalculator;
+import com.bdo.enhancer.cli.RankingWriter;
+import com.bdo.enhancer.market.DaemonThreadFactory;
+import com.bdo.enhancer.market.DeltaRefreshResult;
+import com.bdo.enhancer.market.MarketDataService;
+import com.bdo.enhancer.metrics.MetricsRegistry;
+import com.bdo.enhancer.metrics.Timer;
+import com.bdo.enhancer.model.constants.Constants;
+import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.result.AccessoryEnhancementResult;
+import com.bdo.enhancer.model.result.OptimalStackResult;
+import lombok.extern.slf4j.Slf4j;
+import org.json.JSONObject;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the market data and the calculated ranking warm for the {@link RankingServer}.
+ *
+ * <p>A single background thread refreshes the market incrementally on a fixed delay and
+ * recalculates only the changed items. Requests only read the current
+ * {@link RankingSnapshot}, so they never wait for a computation, except for the first
+ * optimization of an item, which all clients asking for it share.</p>
+ */
+@Slf4j
+public class RankingService {
+
+    private static final Timer REFRESH_TIMER = MetricsRegistry.global().timer("server.refresh");
+
+    private final MarketDataService marketService;
+    private final AccessoryProfitCalculator calculator;
+    private final int optimizationRuns;
+    private final ScheduledExecutorService refreshExecutor =
+            Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("ranking-refresh"));
+    private final ExecutorService optimizeExecutor;
+
+    private volatile RankingSnapshot snapshot;
+
+    /**
+     * @param marketService Market access, refreshed incrementally
+     * @param calculator Calculator with the stacks and simulation runs to rank with
+     * @param optimizationRuns Simulation runs per stack combination for {@code /optimize}
+     */
+    public RankingService(MarketDataService marketService, AccessoryProfitCalculator calculator,
+                          int optimizationRuns) {
+        this(marketService, calculator, optimizationRuns,
+                Executors.newSingleThreadExecutor(new DaemonThreadFactory("ranking-optimize")));
+    }
+
+    RankingService(MarketDataService marketService, AccessoryProfitCalculator calculator, int optimizationRuns,
+                   ExecutorService optimizeExecutor) {
+        this.marketService = marketService;
+        this.calculator = calculator;
+        this.optimizationRuns = optimizationRuns;
+        this.optimizeExecutor = optimizeExecutor;
+    }
+
+    /**
+     * Refreshes now and then every {@code intervalMinutes} after the previous refresh finished.
+     */
+    public void start(long intervalMinutes) {
+        refreshExecutor.scheduleWithFixedDelay(this::refreshSafely, 0, intervalMinutes, TimeUnit.MINUTES);
+    }
+
+    public void stop() {
+        refreshExecutor.shutdownNow();
+        optimizeExecutor.shutdownNow();
+    }
+
+    /**
+     * Fetches the changed items, recalculates them and publishes a new snapshot.
+     */
+    public void refresh() {
+        long start = System.nanoTime();
+        calculator.setMaterialPrices(marketService.getMaterialPrices());
+        DeltaRefreshResult refreshResult = marketService.refreshAccessories();
+        List<Accessory> accessories = refreshResult.getAccessories();
+        if (accessories.isEmpty()) {
+            log.warn("Market refresh returned no usable items, keeping the previous ranking");
+            return;
+        }
+
+        List<AccessoryEnhancementResult> results =
+                calculator.recalculateChangedProfits(accessories, refreshResult.getChangedAccessories());
+        snapshot = new RankingSnapshot(accessories, results, calculator.getMaterialPrices(), refreshResult.getFetchResult().describe(),
+                refreshResult.getFetchResult().isComplete());
+        REFRESH_TIMER.recordSince(start);
+        log.info("Ranking refreshed: {} items, {} refetched", results.size(),
+                refreshResult.getChangedAccessories().size());
+    }
+
+    /**
+     * @return The current snapshot, or null before the first refresh finished
+     */
+    RankingSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Finds the optimal TRI stacks of an item with the current prices. The consumption
+     * statistics are shared with the ranking, so only the first item of each enhancement
+     * type simulates; later ones are priced in milliseconds.
+     */
+    CompletableFuture<JsonResponse> optimize(RankingSnapshot current, int id) {
+        Accessory accessory = current.getAccessory(id);
+        if (accessory == null) {
+            return CompletableFuture.completedFuture(JsonResponse.error(404, "Unknown item " + id));
+        }
+        if (!accessory.usesFailstacks()) {
+            return CompletableFuture.completedFuture(
+                    JsonResponse.error(422, accessory.getName() + " has fixed chances, failstacks do not matter"));
+        }
+
+        return current.optimization(id, key -> CompletableFuture.supplyAsync(() -> {
+            OptimalStackCalculator optimizer = new OptimalStackCalculator(optimizationRuns,
+                    Runtime.getRuntime().availableProcessors(), calculator.getStatisticsCache());
+            optimizer.setMaterialPrices(current.getMaterialPrices());
+            OptimalStackResult optimal = optimizer.findOptimalStacks(List.of(accessory), null).get(0);
+            JSONObject stacks = RankingWriter.toJson(optimal);
+            JSONObject json = new JSONObject()
+                    .put("id", id)
+                    .put("name", accessory.getName())
+                    .put("optimalStacks", stacks);
+            return JsonResponse.ok(json, json.toString());
+        }, optimizeExecutor));
+    }
+
+    private void refreshSafely() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            // A failed refresh must not cancel the schedule
+            log.error("Ranking refresh failed, keeping the previous ranking", e);
+        } finally {
+            MetricsRegistry.global().writeJson(Path.of(Constants.METRICS_FILE));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.bdo.enhancer.server;
+
+import com.bdo.enhancer.cli.RankingWriter;
+import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.item.MaterialPrices;
+import com.bdo.enhancer.model.result.AccessoryEnhancementResult;
+import lombok.Getter;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Immutable result of one background computation: the pre-rendered ranking, every item
+ * and the stack optimizations requested since. Replaced as a whole after each refresh,
+ * so requests never see a half-updated state and optimizations of old prices expire with it.
+ */
+final class RankingSnapshot {
+
+    @Getter
+    private final JsonResponse rankings;
+    // Prices the ranking was calculated with, used by its optimizations as well
+    @Getter
+    private final MaterialPrices materialPrices;
+    private final Map<Integer, JsonResponse> items = new HashMap<>();
+    private final Map<Integer, Accessory> accessories = new HashMap<>();
+    // Started on first request; shared by all clients asking for the same item
+    private final Map<Integer, CompletableFuture<JsonResponse>> optimizations = new ConcurrentHashMap<>();
+
+    RankingSnapshot(List<Accessory> accessories, List<AccessoryEnhancementResult> results,
+                    MaterialPrices materialPrices, String marketStatus, boolean complete) {
+        this.materialPrices = materialPrices;
+        RankingWriter writer = new RankingWriter(results, List.of(), marketStatus, complete);
+        JSONObject json = writer.toJson();
+        JSONArray ranked = json.getJSONArray("results");
+        // The status describes the refresh like the timestamp does, only the results decide the tag
+        this.rankings = JsonResponse.ok(json, ranked + "|" + complete);
+
+        String generatedAt = json.getString("generatedAt");
+        accessories.forEach(accessory -> this.accessories.put(accessory.getId(), accessory));
+        for (int index = 0; index < ranked.length(); index++) {
+            JSONObject item = ranked.getJSONObject(index);
+            Accessory accessory = this.accessories.get(item.getInt("id"));
+            if (accessory != null) {
+                item.put("prices", new JSONObject()
+                        .put("base", accessory.getBasePrice())
+                        .put("duo", accessory.getDuoPrice())
+                        .put("tri", accessory.getTriPrice())
+                        .put("tet", accessory.getTetPrice()));
+            }
+            String content = item.toString();
+            item.put("generatedAt", generatedAt);
+            items.put(item.getInt("id"), JsonResponse.ok(item, content));
+        }
+    }
+
+    /**
+     * @return The rendered item, or null if the item is not ranked
+     */
+    JsonResponse getItem(int id) {
+        return items.get(id);
+    }
+
+    /**
+     * @return The market data the item was ranked with, or null if unknown
+     */
+    Accessory getAccessory(int id) {
+        return accessories.get(id);
+    }
+
+    /**
+     * @return The running or finished optimization of the item, started if there is none yet
+     */
+    CompletableFuture<JsonResponse> optimization(int id, Function<Integer, CompletableFuture<JsonResponse>> start) {
+        return optimizations.computeIfAbsent(id, start);
+    }
+}
@@ -1,9 +1,19 @@
 package com.bdo.enhancer.ui;
 
 import com.bdo.enhancer.calculator.AccessoryProfitCalculator;
+import com.bdo.enhancer.calculator.ConsumptionStatisticsCache;
+import com.bdo.enhancer.calculator.ProfitPipeline;
+import com.bdo.enhancer.calculator.StatisticsLibrary;
+import com.bdo.enhancer.market.BackgroundRefreshScheduler;
+import com.bdo.enhancer.market.DeltaRefreshResult;
 import com.bdo.enhancer.market.MarketDataService;
+import com.bdo.enhancer.market.PriceHistoryStore;
+import com.bdo.enhancer.metrics.MetricsRegistry;
+import com.bdo.enhancer.model.constants.Constants;
 import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.item.MaterialPrices;
 import com.bdo.enhancer.model.result.AccessoryEnhancementResult;
+import com.bdo.enhancer.model.result.ProfitRisk;
 import com.bdo.enhancer.model.stack.AbstractStack;
 import com.bdo.enhancer.model.stack.AccessoryStack;
 import com.bdo.enhancer.ui.util.DisplayNameResolver;
@@ -14,13 +24,15 @@ import javax.swing.*;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableCellRenderer;
-import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -29,7 +41,13 @@ import java.util.stream.Collectors;
 @Slf4j
 public class EnhancerMainFrame extends JFrame {
     private JTable mainTable;
+    private ResultTableModel tableModel;
     private final AccessoryProfitCalculator calculator;
+    // Keeps the per-item market state so that later fetches only reload changed items
+    private final MarketDataService marketService = new MarketDataService();
+    // Keeps the most profitable items fresh while auto refresh is enabled
+    private final BackgroundRefreshScheduler backgroundRefresh = new BackgroundRefreshScheduler(marketService);
+    private JCheckBox autoRefreshCheckBox;
     private List<AccessoryEnhancementResult> results;
     private final JLabel statusLabel;
     private JSpinner simulationRunsSpinner;
@@ -51,12 +69,25 @@ public class EnhancerMainFrame extends JFrame {
     private JComboBox<AbstractStack> triStackCombo;
     private JComboBox<AbstractStack> tetStackCombo;
 
+    // Debounces stack changes so browsing through the combo boxes triggers one recalculation
+    private final Timer whatIfTimer = new Timer(Constants.WHAT_IF_DEBOUNCE_MILLIS, e -> recalculateWhatIf());
+    // Results of superseded what-if recalculations and background refreshes are dropped; written on
+    // the EDT after the new stacks are set, read by the background refresh thread
+    private volatile int whatIfGeneration;
+
     /**
      * Konstruktor - initialisiert das Hauptfenster
      */
     public EnhancerMainFrame() {
         super("BDO Accessory Enhancement Analyzer");
         this.calculator = new AccessoryProfitCalculator();
+        // Start with the consumption statistics simulated in earlier sessions
+        calculator.getStatisticsCache().attach(new StatisticsLibrary(Path.of(Constants.STATISTICS_LIBRARY_FILE)));
+        MetricsRegistry.global().registerMBean();
+        PriceHistoryStore priceHistory = PriceHistoryStore.openForRegion(marketService.getRegion());
+        marketService.setPriceHistory(priceHistory);
+        calculator.setPriceHistory(priceHistory);
+        whatIfTimer.setRepeats(false);
 
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setSize(1000, 700);
@@ -166,6 +197,21 @@ public class EnhancerMainFrame extends JFrame {
         // Button for optimizing selected accessories
         JButton optimizeSelectedButton = getOptimizeSelectedButton();
 
+        // Plan what to enhance with a fixed budget
+        JButton budgetPlanButton = new JButton("Plan Budget");
+        budgetPlanButton.setToolTipText("Choose what to enhance and how often for a silver budget");
+        budgetPlanButton.addActionListener(e -> {
+            if (marketAccessories == null || marketAccessories.isEmpty()) {
+                JOptionPane.showMessageDialog(this,
+                        "Please load market data first!",
+                        "No Data",
+                        JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            applyCalculatorSettings();
+            PortfolioDialog.showDialog(this, marketAccessories, calculator);
+        });
+
         // Simulation Runs Konfiguration hinzufügen
         JLabel simulationRunsLabel = new JLabel("Simulation Runs:");
         SpinnerNumberModel spinnerModel = new SpinnerNumberModel(
@@ -184,13 +230,69 @@ public class EnhancerMainFrame extends JFrame {
         controlPanel.add(calculateButton);
         controlPanel.add(optimizeButton);
         controlPanel.add(optimizeSelectedButton);
+        controlPanel.add(budgetPlanButton);
         controlPanel.add(Box.createHorizontalStrut(20)); // Abstand zwischen Elementen
         controlPanel.add(simulationRunsLabel);
         controlPanel.add(simulationRunsSpinner);
 
+        // Background refresh of the most valuable items
+        autoRefreshCheckBox = new JCheckBox("Auto Refresh");
+        autoRefreshCheckBox.setToolTipText("Continuously refresh the most profitable accessories in the background");
+        autoRefreshCheckBox.addActionListener(e -> toggleAutoRefresh(autoRefreshCheckBox.isSelected()));
+        controlPanel.add(Box.createHorizontalStrut(20));
+        controlPanel.add(autoRefreshCheckBox);
+
         return controlPanel;
     }
 
+    private void toggleAutoRefresh(boolean enabled) {
+        if (!enabled) {
+            backgroundRefresh.stop();
+            statusLabel.setText("Auto refresh stopped");
+            return;
+        }
+
+        if (marketAccessories == null || marketAccessories.isEmpty()) {
+            autoRefreshCheckBox.setSelected(false);
+            JOptionPane.showMessageDialog(this,
+                    "Please load market data first!",
+                    "No Data",
+                    JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        backgroundRefresh.track(marketAccessories, System.currentTimeMillis());
+        if (results != null) {
+            backgroundRefresh.updateProfits(results);
+        }
+        backgroundRefresh.setRefreshListener(this::onBackgroundRefresh);
+        backgroundRefresh.start();
+        statusLabel.setText("Auto refresh started");
+    }
+
+    /**
+     * Called on the background refresh thread after an item's market data was refetched
+     */
+    private void onBackgroundRefresh(Accessory refreshed) {
+        // A what-if started after this point may already show results for other stacks
+        int generation = whatIfGeneration;
+        List<Accessory> accessories = marketService.getCachedAccessories();
+        List<AccessoryEnhancementResult> updatedResults =
+                calculator.recalculateChangedProfits(accessories, List.of(refreshed));
+        backgroundRefresh.updateProfits(updatedResults);
+
+        SwingUtilities.invokeLater(() -> {
+            marketAccessories = accessories;
+            if (generation != whatIfGeneration) {
+                // Possibly calculated with replaced stacks; the newer what-if shows its own results
+                return;
+            }
+            results = updatedResults;
+            updateTable();
+            statusLabel.setText("Auto refresh: updated " + refreshed.getName());
+        });
+    }
+
     private JButton getOptimizeSelectedButton() {
         optimizeSelectedButton = new JButton("Optimize Selected");
         optimizeSelectedButton.setToolTipText("Find optimal failstack combinations for selected accessories only");
@@ -222,16 +324,15 @@ public class EnhancerMainFrame extends JFrame {
                 modelIndices[i] = mainTable.convertRowIndexToModel(selectedRows[i]);
             }
 
-            // Get accessory names from the selected rows
-            List<String> selectedAccessoryNames = new ArrayList<>();
+            // Get accessory ids from the selected rows
+            Set<Integer> selectedAccessoryIds = new HashSet<>();
             for (int modelIndex : modelIndices) {
-                String accessoryName = (String) mainTable.getModel().getValueAt(modelIndex, 0);
-                selectedAccessoryNames.add(accessoryName);
+                selectedAccessoryIds.add(tableModel.getResultAt(modelIndex).id);
             }
 
             // Filter market accessories to only those selected
             List<Accessory> selectedAccessories = marketAccessories.stream()
-                    .filter(accessory -> selectedAccessoryNames.contains(accessory.getName()))
+                    .filter(accessory -> selectedAccessoryIds.contains(accessory.getId()))
                     .collect(Collectors.toList());
 
             // Run optimization on selected accessories
@@ -314,7 +415,10 @@ public class EnhancerMainFrame extends JFrame {
         monStackCombo = new JComboBox<>(AccessoryStack.VALUES);
         monStackCombo.setSelectedItem(calculator.getMonStack());
         monStackCombo.setRenderer(new StackComboRenderer());
-        monStackCombo.addActionListener(e -> calculator.setMonStack((AbstractStack) monStackCombo.getSelectedItem()));
+        monStackCombo.addActionListener(e -> {
+            calculator.setMonStack((AbstractStack) monStackCombo.getSelectedItem());
+            whatIfTimer.restart();
+        });
         stackPanel.add(monStackCombo, gbc);
 
         // DUO stack selection
@@ -324,7 +428,10 @@ public class EnhancerMainFrame extends JFrame {
         duoStackCombo = new JComboBox<>(AccessoryStack.VALUES);
         duoStackCombo.setSelectedItem(calculator.getDuoStack());
         duoStackCombo.setRenderer(new StackComboRenderer());
-        duoStackCombo.addActionListener(e -> calculator.setDuoStack((AbstractStack) duoStackCombo.getSelectedItem()));
+        duoStackCombo.addActionListener(e -> {
+            calculator.setDuoStack((AbstractStack) duoStackCombo.getSelectedItem());
+            whatIfTimer.restart();
+        });
         stackPanel.add(duoStackCombo, gbc);
 
         // TRI stack selection
@@ -334,7 +441,10 @@ public class EnhancerMainFrame extends JFrame {
         triStackCombo = new JComboBox<>(AccessoryStack.VALUES);
         triStackCombo.setSelectedItem(calculator.getTriStack());
         triStackCombo.setRenderer(new StackComboRenderer());
-        triStackCombo.addActionListener(e -> calculator.setTriStack((AbstractStack) triStackCombo.getSelectedItem()));
+        triStackCombo.addActionListener(e -> {
+            calculator.setTriStack((AbstractStack) triStackCombo.getSelectedItem());
+            whatIfTimer.restart();
+        });
         stackPanel.add(triStackCombo, gbc);
 
         // TET stack selection
@@ -344,7 +454,10 @@ public class EnhancerMainFrame extends JFrame {
         tetStackCombo = new JComboBox<>(AccessoryStack.VALUES);
         tetStackCombo.setSelectedItem(calculator.getTetStack());
         tetStackCombo.setRenderer(new StackComboRenderer());
-        tetStackCombo.addActionListener(e -> calculator.setTetStack((AbstractStack) tetStackCombo.getSelectedItem()));
+        tetStackCombo.addActionListener(e -> {
+            calculator.setTetStack((AbstractStack) tetStackCombo.getSelectedItem());
+            whatIfTimer.restart();
+        });
         stackPanel.add(tetStackCombo, gbc);
 
         return stackPanel;
@@ -381,18 +494,18 @@ public class EnhancerMainFrame extends JFrame {
 
     private void createMainTable() {
         // Create table with the required columns
-        DefaultTableModel model = getDefaultTableModel();
+        tableModel = new ResultTableModel();
 
-        mainTable = new JTable(model);
+        mainTable = new JTable(tableModel);
         mainTable.setRowHeight(25);
         setupTableSelectionListener();
 
         // Use TableRowSorter for both sorting and filtering
-        tableRowSorter = new TableRowSorter<>(model);
+        tableRowSorter = new TableRowSorter<>(tableModel);
         mainTable.setRowSorter(tableRowSorter);
 
         // Set default sorting to TRI Profit column (index 5) in descending order
-        tableRowSorter.setSortKeys(List.of(new RowSorter.SortKey(5, SortOrder.ASCENDING)));
+        tableRowSorter.setSortKeys(List.of(new RowSorter.SortKey(ResultTableModel.TRI_PROFIT_COLUMN, SortOrder.ASCENDING)));
 
         // Make first click on any column header sort in descending order
         for (int i = 0; i < mainTable.getColumnCount(); i++) {
@@ -427,46 +540,57 @@ public class EnhancerMainFrame extends JFrame {
 
                     setText(String.format("%,d", profit));
                 }
+                setToolTipText(table.convertColumnIndexToModel(column) == ResultTableModel.RISK_ADJUSTED_COLUMN
+                        ? riskToolTip(table, row)
+                        : depthToolTip(table, row, column));
 
                 return c;
             }
         };
 
         // Apply renderers to profit columns
-        mainTable.getColumnModel().getColumn(4).setCellRenderer(profitRenderer); // DUO Profit
-        mainTable.getColumnModel().getColumn(5).setCellRenderer(profitRenderer); // TRI Profit
-        mainTable.getColumnModel().getColumn(6).setCellRenderer(profitRenderer); // TET Profit
+        mainTable.getColumnModel().getColumn(ResultTableModel.DUO_PROFIT_COLUMN).setCellRenderer(profitRenderer);
+        mainTable.getColumnModel().getColumn(ResultTableModel.TRI_PROFIT_COLUMN).setCellRenderer(profitRenderer);
+        mainTable.getColumnModel().getColumn(ResultTableModel.TET_PROFIT_COLUMN).setCellRenderer(profitRenderer);
+        mainTable.getColumnModel().getColumn(ResultTableModel.RISK_ADJUSTED_COLUMN).setCellRenderer(profitRenderer);
     }
 
-    private static DefaultTableModel getDefaultTableModel() {
-        String[] columnNames = {
-                "Name",
-                "DUO Items",
-                "TRI Items",
-                "TET Items",
-                "DUO Profit",
-                "TRI Profit",
-                "TET Profit"
-        };
-
-        // Item count columns
-        // Profit columns
-        return new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
+    // Spread and chance of a loss behind the risk-adjusted profit of every level
+    private String riskToolTip(JTable table, int row) {
+        AccessoryEnhancementResult result = tableModel.getResultAt(table.convertRowIndexToModel(row));
+        StringBuilder toolTip = new StringBuilder("<html>");
+        String[] names = {"DUO", "TRI", "TET"};
+        for (int level = 2; level <= 4; level++) {
+            ProfitRisk risk = result.getRisk(level);
+            toolTip.append(String.format("%s: &sigma; %,d, P(loss) %.1f%%, adjusted %,d<br>",
+                    names[level - 2], Math.round(risk.stdDev), risk.lossProbability * 100, risk.riskAdjustedProfit));
+        }
+        return toolTip.append("</html>").toString();
+    }
 
-            @Override
-            public Class<?> getColumnClass(int column) {
-                if (column >= 1 && column <= 3) { // Item count columns
-                    return Integer.class;
-                } else if (column >= 4) { // Profit columns
-                    return Long.class;
-                }
-                return String.class;
-            }
+    // Profit for several enhancements of the row's item, priced along the order books
+    private String depthToolTip(JTable table, int row, int column) {
+        int level = switch (table.convertColumnIndexToModel(column)) {
+            case ResultTableModel.DUO_PROFIT_COLUMN -> 2;
+            case ResultTableModel.TRI_PROFIT_COLUMN -> 3;
+            case ResultTableModel.TET_PROFIT_COLUMN -> 4;
+            default -> 0;
         };
+        if (level == 0) {
+            return null;
+        }
+        long[] depthProfits = tableModel.getResultAt(table.convertRowIndexToModel(row)).getDepthProfits(level);
+        if (depthProfits.length == 0) {
+            return null;
+        }
+
+        StringBuilder toolTip = new StringBuilder("<html>");
+        for (int index = 0; index < depthProfits.length; index++) {
+            int quantity = Constants.DEPTH_QUANTITIES[index];
+            toolTip.append(String.format("%d&times;: %,d (%,d each)<br>",
+                    quantity, depthProfits[index], depthProfits[index] / quantity));
+        }
+        return toolTip.append("</html>").toString();
     }
 
     private void loadMarketData() {
@@ -477,29 +601,49 @@ public class EnhancerMainFrame extends JFrame {
 
         statusLabel.setText("Loading market data...");
 
-        SwingWorker<List<Accessory>, Void> worker = new SwingWorker<>() {
+        // Items are calculated while the fetch is still running, so the stacks are taken now
+        applyCalculatorSettings();
+
+        SwingWorker<DeltaRefreshResult, AccessoryEnhancementResult> worker = new SwingWorker<>() {
             @Override
-            protected List<Accessory> doInBackground() {
-                MarketDataService marketService = new MarketDataService();
+            protected DeltaRefreshResult doInBackground() {
                 marketService.setProgressCallback(statusText -> {
                     // Update status from background thread to EDT
                     SwingUtilities.invokeLater(() -> statusLabel.setText("Market data: " + statusText));
                 });
 
-                return marketService.getAccessories();
+                // Material prices first, every streamed calculation depends on them
+                calculator.setMaterialPrices(marketService.getMaterialPrices());
+
+                // Only items whose listing changed or expired are refetched; each one is
+                // calculated as soon as its order books arrive
+                ProfitPipeline pipeline = new ProfitPipeline(calculator);
+                pipeline.onResult(result -> publish(result));
+                DeltaRefreshResult refreshResult = marketService.refreshAccessories(pipeline::submit);
+                pipeline.completeAndAwait();
+                return refreshResult;
+            }
+
+            @Override
+            protected void process(List<AccessoryEnhancementResult> chunks) {
+                chunks.forEach(tableModel::upsert);
             }
 
             @Override
             protected void done() {
                 try {
-                    marketAccessories = get();
-                    statusLabel.setText("Market data loaded. " + marketAccessories.size() + " accessories found.");
+                    DeltaRefreshResult refreshResult = get();
+                    marketAccessories = refreshResult.getAccessories();
+                    statusLabel.setText(String.format("Market data loaded. %d accessories, %d refetched (%s).",
+                            marketAccessories.size(), refreshResult.getChangedAccessories().size(),
+                            refreshResult.getFetchResult().describe()));
 
                     // Setze die geladenen Daten im Calculator
                     calculator.setCachedAccessories(marketAccessories);
+                    backgroundRefresh.track(refreshResult.getChangedAccessories(), System.currentTimeMillis());
 
-                    // Nach dem Laden direkt die Berechnung starten
-                    calculateProfitsWithLoadedData();
+                    // Geänderte Items sind bereits berechnet, es fehlen nur Items ohne Ergebnis
+                    calculateProfitsWithLoadedData(List.of());
 
                     // Enable both buttons
                     loadMarketDataButton.setEnabled(true);
@@ -534,18 +678,14 @@ public class EnhancerMainFrame extends JFrame {
         }
 
         // Direkt zur Berechnung fortfahren
-        calculateProfitsWithLoadedData();
+        calculateProfitsWithLoadedData(null);
     }
 
-    private void calculateProfitsWithLoadedData() {
-        // Update the calculator with the current stack selections
-        calculator.setMonStack((AbstractStack) monStackCombo.getSelectedItem());
-        calculator.setDuoStack((AbstractStack) duoStackCombo.getSelectedItem());
-        calculator.setTriStack((AbstractStack) triStackCombo.getSelectedItem());
-        calculator.setTetStack((AbstractStack) tetStackCombo.getSelectedItem());
-
-        // Set the number of simulation runs
-        calculator.setSimulationRuns((Integer) simulationRunsSpinner.getValue());
+    /**
+     * @param changedAccessories Accessories to recalculate, or null to recalculate all
+     */
+    private void calculateProfitsWithLoadedData(List<Accessory> changedAccessories) {
+        applyCalculatorSettings();
 
         // Display which stacks are being used in the status
         statusLabel.setText(String.format("Calculating with PRI:%s DUO:%s TRI:%s TET:%s, Runs: %,d",
@@ -564,12 +704,19 @@ public class EnhancerMainFrame extends JFrame {
         SwingWorker<List<AccessoryEnhancementResult>, Void> worker = new SwingWorker<>() {
             @Override
             protected List<AccessoryEnhancementResult> doInBackground() {
-                if (marketAccessories != null && !marketAccessories.isEmpty()) {
-                    // Benutze die vorhandenen Daten direkt für die Berechnung
-                    return calculator.calculateProfitsWithAccessories(marketAccessories);
-                } else {
-                    // Fallback, falls aus irgendeinem Grund keine Daten vorhanden sind
-                    return calculator.calculateProfits();
+                try {
+                    if (marketAccessories != null && !marketAccessories.isEmpty() && changedAccessories != null) {
+                        // Nur geänderte Items neu berechnen, der Rest kommt aus dem letzten Ergebnis
+                        return calculator.recalculateChangedProfits(marketAccessories, changedAccessories);
+                    } else if (marketAccessories != null && !marketAccessories.isEmpty()) {
+                        // Benutze die vorhandenen Daten direkt für die Berechnung
+                        return calculator.calculateProfitsWithAccessories(marketAccessories);
+                    } else {
+                        // Fallback, falls aus irgendeinem Grund keine Daten vorhanden sind
+                        return calculator.calculateProfits();
+                    }
+                } finally {
+                    MetricsRegistry.global().writeJson(Path.of(Constants.METRICS_FILE));
                 }
             }
 
@@ -577,13 +724,9 @@ public class EnhancerMainFrame extends JFrame {
             protected void done() {
                 try {
                     results = get();
+                    backgroundRefresh.updateProfits(results);
                     updateTable();
                     statusLabel.setText("Calculation complete");
-
-                    // Reapply filter if one exists
-                    if (!filterTextField.getText().trim().isEmpty()) {
-                        updateFilter();
-                    }
                 } catch (Exception e) {
                     statusLabel.setText("Calculation error: " + e.getMessage());
                     log.error("Error calculating profits", e);
@@ -599,29 +742,109 @@ public class EnhancerMainFrame extends JFrame {
         worker.execute();
     }
 
+    /**
+     * Recalculates the table for the currently selected stacks. Stack sets simulated before are
+     * only repriced; for new ones a short preview simulation is shown first while the full
+     * simulation fills the statistics cache in the background.
+     */
+    private void recalculateWhatIf() {
+        // Without data or while loading/calculating, the running job picks up the new stacks itself
+        if (marketAccessories == null || marketAccessories.isEmpty() || !calculateButton.isEnabled()) {
+            return;
+        }
+
+        // Stacks first: a background refresh that sees the new generation also sees the new stacks
+        applyCalculatorSettings();
+        int generation = ++whatIfGeneration;
+        List<Accessory> accessories = marketAccessories;
+        boolean simulated = calculator.hasStatisticsFor(accessories);
+        statusLabel.setText(simulated ? "Updating for new stacks..." : "Simulating new stacks in the background...");
+
+        SwingWorker<List<AccessoryEnhancementResult>, List<AccessoryEnhancementResult>> worker = new SwingWorker<>() {
+            @Override
+            protected List<AccessoryEnhancementResult> doInBackground() {
+                if (!simulated) {
+                    publish(calculator.calculatePreviewProfits(accessories, Constants.WHAT_IF_PREVIEW_RUNS));
+                }
+                return calculator.recalculateChangedProfits(accessories, List.of());
+            }
+
+            @Override
+            protected void process(List<List<AccessoryEnhancementResult>> chunks) {
+                if (generation == whatIfGeneration) {
+                    showResults(chunks.get(chunks.size() - 1));
+                    statusLabel.setText("Preview for new stacks, full simulation running...");
+                }
+            }
+
+            @Override
+            protected void done() {
+                if (generation != whatIfGeneration) {
+                    return;
+                }
+                try {
+                    showResults(get());
+                    backgroundRefresh.updateProfits(results);
+                    statusLabel.setText("Calculation complete");
+                } catch (Exception e) {
+                    statusLabel.setText("Calculation error: " + e.getMessage());
+                    log.error("Error recalculating for new stacks", e);
+                }
+            }
+        };
+
+        worker.execute();
+    }
+
+    private void showResults(List<AccessoryEnhancementResult> newResults) {
+        results = newResults;
+        updateTable();
+    }
+
+    private void applyCalculatorSettings() {
+        // Update the calculator with the current stack selections
+        calculator.setMonStack((AbstractStack) monStackCombo.getSelectedItem());
+        calculator.setDuoStack((AbstractStack) duoStackCombo.getSelectedItem());
+        calculator.setTriStack((AbstractStack) triStackCombo.getSelectedItem());
+        calculator.setTetStack((AbstractStack) tetStackCombo.getSelectedItem());
+
+        // Set the number of simulation runs
+        calculator.setSimulationRuns((Integer) simulationRunsSpinner.getValue());
+    }
+
     private void updateTable() {
         if (results == null || results.isEmpty()) {
             log.warn("No results to display");
             return;
         }
 
-        DefaultTableModel model = (DefaultTableModel) mainTable.getModel();
-        model.setRowCount(0);
-
-        for (AccessoryEnhancementResult result : results) {
-            model.addRow(new Object[]{
-                    result.name,
-                    result.duoItems,
-                    result.triItems,
-                    result.tetItems,
-                    result.duoProfit,
-                    result.triProfit,
-                    result.tetProfit
-            });
+        // Only rows whose values changed are updated; sort order and filter stay in place
+        tableModel.setResults(results);
+    }
+
+    /**
+     * @return Die zuletzt vom Markt geladenen Materialpreise
+     */
+    public MaterialPrices getMaterialPrices() {
+        return calculator.getMaterialPrices();
+    }
+
+    /**
+     * @return TRI-Profit je Item-ID aus der letzten Berechnung, leer wenn noch nicht berechnet wurde
+     */
+    public Map<Integer, Long> getTriProfits() {
+        if (results == null) {
+            return Map.of();
         }
+        return results.stream().collect(Collectors.toMap(result -> result.id, result -> result.triProfit,
+                (first, second) -> first));
+    }
 
-        // Force table repaint to ensure proper formatting
-        mainTable.repaint();
+    /**
+     * @return Der simulierte Verbrauch, geteilt zwischen Profit-Rechner und Stack-Optimierung
+     */
+    public ConsumptionStatisticsCache getStatisticsCache() {
+        return calculator.getStatisticsCache();
     }
 
     /**
@@ -1,6 +1,8 @@
 package com.bdo.enhancer.ui;
 
 import com.bdo.enhancer.calculator.OptimalStackCalculator;
+import com.bdo.enhancer.metrics.MetricsRegistry;
+import com.bdo.enhancer.model.constants.Constants;
 import com.bdo.enhancer.model.item.Accessory;
 import com.bdo.enhancer.model.result.OptimalStackResult;
 import lombok.extern.slf4j.Slf4j;
@@ -10,34 +12,46 @@ import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.TableRowSorter;
 import java.awt.*;
+import java.nio.file.Path;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 /**
- * Dialog for displaying optimal failstack combinations (optimized for TRI enhancement)
- * Simplified version without select/apply logic
+ * Dialog for displaying optimal failstack combinations (optimized for TRI enhancement).
+ * Opens right away and fills in each accessory as soon as its optimum is found; the
+ * optimization can be cancelled and keeps the results found so far.
  */
 @Slf4j
 public class OptimizationDialog extends JDialog {
 
-    private final List<OptimalStackResult> optimalResults;
+    private final DefaultTableModel resultsModel = createResultsModel();
+    private final JLabel progressLabel = new JLabel("Starting optimization...");
+    private final JLabel itemsLabel = new JLabel();
+    private final JButton cancelButton = new JButton("Cancel");
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final int totalItems;
 
     /**
      * Constructor for the dialog
      *
      * @param owner Parent frame
-     * @param optimalResults List of optimal stack results
-     * @param isSelectionBased True if only selected accessories were optimized
+     * @param totalItems Number of accessories being optimized
+     * @param isSelectionBased True if only selected accessories are optimized
      */
-    public OptimizationDialog(Frame owner, List<OptimalStackResult> optimalResults, boolean isSelectionBased) {
+    public OptimizationDialog(Frame owner, int totalItems, boolean isSelectionBased) {
         super(owner,
                 isSelectionBased ?
                         "Optimal Stack Combinations - Selected Accessories (TRI Optimized)" :
                         "Optimal Stack Combinations (TRI Optimized)",
-                true);
-        this.optimalResults = optimalResults;
+                false);
+        this.totalItems = totalItems;
 
         setSize(750, 500);
         setLocationRelativeTo(owner);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
 
         // Main panel with BorderLayout
         JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
@@ -60,27 +74,87 @@ public class OptimizationDialog extends JDialog {
         JScrollPane scrollPane = new JScrollPane(resultsTable);
         mainPanel.add(scrollPane, BorderLayout.CENTER);
 
-        // Close button at the bottom
+        // Progress readout on the left, cancel and close buttons on the right
+        JPanel progressPanel = new JPanel(new GridLayout(2, 1));
+        progressPanel.add(itemsLabel);
+        progressPanel.add(progressLabel);
+        updateItemsLabel();
+
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        cancelButton.setToolTipText("Stop the optimization and keep the results found so far");
+        cancelButton.addActionListener(e -> cancel());
+        buttonPanel.add(cancelButton);
         JButton closeButton = new JButton("Close");
         closeButton.addActionListener(e -> dispose());
         buttonPanel.add(closeButton);
-        mainPanel.add(buttonPanel, BorderLayout.SOUTH);
+
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.add(progressPanel, BorderLayout.CENTER);
+        bottomPanel.add(buttonPanel, BorderLayout.EAST);
+        mainPanel.add(bottomPanel, BorderLayout.SOUTH);
 
         setContentPane(mainPanel);
     }
 
+    @Override
+    public void dispose() {
+        // Closing the dialog stops the optimization as well
+        cancelled.set(true);
+        super.dispose();
+    }
+
     /**
-     * Creates the results table
+     * Adds the optimum of one accessory to the table
      */
-    private JTable createResultsTable() {
+    public void addResult(OptimalStackResult result) {
+        resultsModel.addRow(new Object[] {
+                result.getAccessoryName(),
+                result.getOptimalPriStack().getStackCount(),
+                result.getOptimalDuoStack().getStackCount(),
+                result.getOptimalTriStack().getStackCount(),
+                result.getTotalProfit() // Important: Use raw Long values for sorting
+        });
+        updateItemsLabel();
+    }
+
+    /**
+     * Shows the latest progress message of the optimizer, including throughput and ETA
+     */
+    public void updateProgress(String message) {
+        progressLabel.setText(message);
+    }
+
+    /**
+     * Called once the optimization has stopped, finished or cancelled
+     */
+    public void finish(String message) {
+        cancelButton.setEnabled(false);
+        progressLabel.setText(message);
+        updateItemsLabel();
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    private void cancel() {
+        cancelled.set(true);
+        cancelButton.setEnabled(false);
+        progressLabel.setText("Cancelling, keeping the results found so far...");
+    }
+
+    private void updateItemsLabel() {
+        itemsLabel.setText(String.format("Optimized %d of %d items", resultsModel.getRowCount(), totalItems));
+    }
+
+    private static DefaultTableModel createResultsModel() {
         // Column headers
         String[] columnNames = {
                 "Accessory", "PRI Stack", "DUO Stack", "TRI Stack", "TRI Profit"
         };
 
         // Table model with non-editable cells
-        DefaultTableModel model = new DefaultTableModel(columnNames, 0) {
+        return new DefaultTableModel(columnNames, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
                 return false; // All cells non-editable
@@ -93,24 +167,19 @@ public class OptimizationDialog extends JDialog {
                 return String.class;
             }
         };
+    }
 
-        // Add data to table
-        for (OptimalStackResult result : optimalResults) {
-            model.addRow(new Object[] {
-                    result.getAccessoryName(),
-                    result.getOptimalPriStack().getStackCount(),
-                    result.getOptimalDuoStack().getStackCount(),
-                    result.getOptimalTriStack().getStackCount(),
-                    result.getTotalProfit() // Important: Use raw Long values for sorting
-            });
-        }
-
+    /**
+     * Creates the results table
+     */
+    private JTable createResultsTable() {
         // Create table
-        JTable table = new JTable(model);
+        JTable table = new JTable(resultsModel);
         table.setRowHeight(25);
 
-        // Configure TableRowSorter for correct sorting
-        TableRowSorter<DefaultTableModel> sorter = new TableRowSorter<>(model);
+        // Configure TableRowSorter for correct sorting, also while rows are streamed in
+        TableRowSorter<DefaultTableModel> sorter = new TableRowSorter<>(resultsModel);
+        sorter.setSortsOnUpdates(true);
         table.setRowSorter(sorter);
 
         // Define special comparators for each column
@@ -177,7 +246,9 @@ public class OptimizationDialog extends JDialog {
     }
 
     /**
-     * Method to execute stack optimization and display the dialog
+     * Method to execute stack optimization and display the dialog. The dialog opens
+     * immediately; accessories are optimized highest TRI profit first and shown as
+     * soon as their optimum is found.
      *
      * @param parent Parent frame
      * @param accessories List of accessories
@@ -186,59 +257,68 @@ public class OptimizationDialog extends JDialog {
      */
     public static void optimizeAndShowDialog(Frame parent, List<Accessory> accessories,
                                              EnhancerMainFrame parentGUI, boolean isSelectionBased) {
-        // Disable parent frame during calculation
-        parent.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        // Most profitable items first, items without a calculated profit last
+        Map<Integer, Long> triProfits = parentGUI.getTriProfits();
+        List<Accessory> prioritizedAccessories = accessories.stream()
+                .filter(Accessory::usesFailstacks)
+                .sorted(Comparator.comparingLong(
+                        (Accessory accessory) -> triProfits.getOrDefault(accessory.getId(), Long.MIN_VALUE)).reversed())
+                .collect(Collectors.toList());
+
+        if (prioritizedAccessories.isEmpty()) {
+            JOptionPane.showMessageDialog(parent,
+                    "The selected Manos clothing uses fixed enhancement chances and cannot be optimized with failstacks.",
+                    "No Stack-Dependent Items",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        OptimizationDialog dialog = new OptimizationDialog(parent, prioritizedAccessories.size(), isSelectionBased);
 
         // Start calculation in a separate thread
-        SwingWorker<List<OptimalStackResult>, String> worker = new SwingWorker<>() {
+        SwingWorker<List<OptimalStackResult>, Object> worker = new SwingWorker<>() {
             @Override
             protected List<OptimalStackResult> doInBackground() {
-                OptimalStackCalculator calculator = new OptimalStackCalculator();
+                OptimalStackCalculator calculator = new OptimalStackCalculator(parentGUI.getStatisticsCache());
+                calculator.setMaterialPrices(parentGUI.getMaterialPrices());
 
-                // Forward status messages to the GUI
-                return calculator.findOptimalStacks(accessories, this::publish);
+                // Forward status messages and results to the dialog
+                try {
+                    return calculator.findOptimalStacks(prioritizedAccessories, this::publish, this::publish,
+                            dialog::isCancelled);
+                } finally {
+                    MetricsRegistry.global().writeJson(Path.of(Constants.METRICS_FILE));
+                }
             }
 
             @Override
-            protected void process(List<String> chunks) {
-                // Show the latest status message in the GUI
-                if (!chunks.isEmpty()) {
-                    parentGUI.updateStatus(chunks.get(chunks.size() - 1));
+            protected void process(List<Object> chunks) {
+                for (Object chunk : chunks) {
+                    if (chunk instanceof OptimalStackResult result) {
+                        dialog.addResult(result);
+                    } else {
+                        dialog.updateProgress(chunk.toString());
+                    }
                 }
             }
 
             @Override
             protected void done() {
                 try {
-                    // Get results
                     List<OptimalStackResult> results = get();
-
-                    if (results.isEmpty()) {
-                        JOptionPane.showMessageDialog(parent,
-                                "The selected Manos clothing uses fixed enhancement chances and cannot be optimized with failstacks.",
-                                "No Stack-Dependent Items",
-                                JOptionPane.INFORMATION_MESSAGE);
-                        return;
-                    }
-
-                    // Show dialog with isSelectionBased parameter
-                    OptimizationDialog dialog = new OptimizationDialog(parent, results, isSelectionBased);
-                    dialog.setVisible(true);
-
+                    dialog.finish(dialog.isCancelled()
+                            ? String.format("Cancelled, %d of %d items optimized", results.size(), prioritizedAccessories.size())
+                            : "Optimization complete");
                 } catch (Exception e) {
                     log.error("Error during stack optimization", e);
-                    JOptionPane.showMessageDialog(parent,
-                            "Error optimizing stacks: " + e.getMessage(),
-                            "Optimization Error",
-                            JOptionPane.ERROR_MESSAGE);
+                    dialog.finish("Error optimizing stacks: " + e.getMessage());
                 } finally {
-                    // Re-enable parent frame
-                    parent.setCursor(Cursor.getDefaultCursor());
                     parentGUI.updateStatus("Ready");
                 }
             }
         };
 
+        dialog.setVisible(true);
         worker.execute();
     }
 
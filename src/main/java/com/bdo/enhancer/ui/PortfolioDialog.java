@@ -0,0 +1,167 @@
+package com.bdo.enhancer.ui;
+
+import com.bdo.enhancer.calculator.AccessoryProfitCalculator;
+import com.bdo.enhancer.calculator.PortfolioOptimizer;
+import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.result.PortfolioPlan;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.DefaultTableModel;
+import javax.swing.table.TableRowSorter;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * Dialog that plans what to enhance with a silver budget. The expected cost and profit
+ * of every item and level are computed once when the dialog opens; changing the budget
+ * or the risk tolerance only reruns the {@link PortfolioOptimizer}, which takes a few
+ * milliseconds, so the plan follows the spinners while they are being changed.
+ */
+@Slf4j
+public class PortfolioDialog extends JDialog {
+
+    private static final String[] LEVEL_NAMES = {"", "", "DUO", "TRI", "TET"};
+    private static final long SILVER_PER_MILLION = 1_000_000L;
+
+    private final PortfolioOptimizer optimizer = new PortfolioOptimizer();
+    private final DefaultTableModel planModel = createPlanModel();
+    private final JSpinner budgetSpinner = new JSpinner(new SpinnerNumberModel(10_000, 1, 10_000_000, 500));
+    private final JSpinner riskSpinner = new JSpinner(new SpinnerNumberModel(25, 1, 100, 5));
+    private final JLabel summaryLabel = new JLabel("Calculating expected costs...");
+
+    private List<PortfolioOptimizer.Candidate> candidates;
+
+    public PortfolioDialog(Frame owner) {
+        super(owner, "Budget Plan", false);
+        setSize(800, 500);
+        setLocationRelativeTo(owner);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        JPanel settingsPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        budgetSpinner.setEditor(new JSpinner.NumberEditor(budgetSpinner, "#,###"));
+        budgetSpinner.setPreferredSize(new Dimension(120, budgetSpinner.getPreferredSize().height));
+        budgetSpinner.addChangeListener(e -> updatePlan());
+        riskSpinner.setToolTipText("Largest share of the budget a single item may take");
+        riskSpinner.addChangeListener(e -> updatePlan());
+        settingsPanel.add(new JLabel("Budget (million silver):"));
+        settingsPanel.add(budgetSpinner);
+        settingsPanel.add(Box.createHorizontalStrut(20));
+        settingsPanel.add(new JLabel("Max. per item (%):"));
+        settingsPanel.add(riskSpinner);
+        mainPanel.add(settingsPanel, BorderLayout.NORTH);
+
+        mainPanel.add(new JScrollPane(createPlanTable()), BorderLayout.CENTER);
+
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.add(summaryLabel, BorderLayout.CENTER);
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+        bottomPanel.add(closeButton, BorderLayout.EAST);
+        mainPanel.add(bottomPanel, BorderLayout.SOUTH);
+
+        setContentPane(mainPanel);
+    }
+
+    /**
+     * Opens the dialog and computes the candidates in the background; stacks and simulation
+     * runs are the ones currently set on the calculator.
+     */
+    public static void showDialog(Frame owner, List<Accessory> accessories, AccessoryProfitCalculator calculator) {
+        PortfolioDialog dialog = new PortfolioDialog(owner);
+        dialog.setVisible(true);
+
+        new SwingWorker<List<PortfolioOptimizer.Candidate>, Void>() {
+            @Override
+            protected List<PortfolioOptimizer.Candidate> doInBackground() {
+                return calculator.portfolioCandidates(accessories);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    dialog.setCandidates(get());
+                } catch (Exception e) {
+                    log.error("Error calculating budget plan candidates", e);
+                    dialog.summaryLabel.setText("Error calculating expected costs: " + e.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    void setCandidates(List<PortfolioOptimizer.Candidate> candidates) {
+        this.candidates = candidates;
+        updatePlan();
+    }
+
+    private void updatePlan() {
+        if (candidates == null) {
+            return;
+        }
+
+        long budget = ((Number) budgetSpinner.getValue()).longValue() * SILVER_PER_MILLION;
+        double riskTolerance = ((Number) riskSpinner.getValue()).doubleValue() / 100;
+        long start = System.nanoTime();
+        PortfolioPlan plan = optimizer.optimize(candidates, budget, riskTolerance);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        planModel.setRowCount(0);
+        for (PortfolioPlan.Position position : plan.positions) {
+            planModel.addRow(new Object[] {
+                    position.name,
+                    LEVEL_NAMES[position.level],
+                    position.quantity,
+                    Math.round(position.expectedItems),
+                    position.totalCost,
+                    position.expectedProfit
+            });
+        }
+        summaryLabel.setText(String.format("%d positions, cost %,d of %,d silver, expected profit %,d (%d ms)",
+                plan.positions.size(), plan.totalCost, plan.budget, plan.expectedProfit, millis));
+    }
+
+    private static DefaultTableModel createPlanModel() {
+        String[] columnNames = {"Item", "Level", "Enhancements", "Base Items", "Cost", "Expected Profit"};
+        return new DefaultTableModel(columnNames, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+
+            @Override
+            public Class<?> getColumnClass(int column) {
+                return switch (column) {
+                    case 0, 1 -> String.class;
+                    case 2 -> Integer.class;
+                    default -> Long.class;
+                };
+            }
+        };
+    }
+
+    private JTable createPlanTable() {
+        JTable table = new JTable(planModel);
+        table.setRowHeight(25);
+
+        TableRowSorter<DefaultTableModel> sorter = new TableRowSorter<>(planModel);
+        sorter.setSortsOnUpdates(true);
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(5, SortOrder.DESCENDING)));
+        table.setRowSorter(sorter);
+
+        DefaultTableCellRenderer silverRenderer = new DefaultTableCellRenderer() {
+            @Override
+            protected void setValue(Object value) {
+                setText(value instanceof Long ? String.format("%,d", (Long) value) : String.valueOf(value));
+                setHorizontalAlignment(SwingConstants.RIGHT);
+            }
+        };
+        table.getColumnModel().getColumn(4).setCellRenderer(silverRenderer);
+        table.getColumnModel().getColumn(5).setCellRenderer(silverRenderer);
+        table.getColumnModel().getColumn(0).setPreferredWidth(250);
+        return table;
+    }
+}
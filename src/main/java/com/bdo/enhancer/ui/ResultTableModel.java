@@ -0,0 +1,189 @@
+package com.bdo.enhancer.ui;
+
+import com.bdo.enhancer.model.result.AccessoryEnhancementResult;
+
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Table model over the calculation results, indexed by accessory id.
+ *
+ * <p>Changes only fire events for the affected rows, so the row sorter can keep its
+ * order and filter and re-sort just those rows instead of the whole table. Streamed
+ * results are collected and applied once per frame, which keeps a live-updating
+ * table with thousands of rows smooth. All methods must be called on the EDT.</p>
+ */
+public class ResultTableModel extends AbstractTableModel {
+
+    static final int FRAME_MILLIS = 16;
+
+    public static final int NAME_COLUMN = 0;
+    public static final int DUO_PROFIT_COLUMN = 4;
+    public static final int TRI_PROFIT_COLUMN = 5;
+    public static final int TET_PROFIT_COLUMN = 6;
+    public static final int RISK_ADJUSTED_COLUMN = 7;
+
+    private static final String[] COLUMN_NAMES = {
+            "Name",
+            "DUO Items",
+            "TRI Items",
+            "TET Items",
+            "DUO Profit",
+            "TRI Profit",
+            "TET Profit",
+            "Risk-Adj. Profit"
+    };
+
+    private final List<AccessoryEnhancementResult> rows = new ArrayList<>();
+    private final Map<Integer, Integer> rowById = new HashMap<>();
+    // Results waiting for the next frame, by accessory id
+    private final Map<Integer, AccessoryEnhancementResult> pending = new LinkedHashMap<>();
+    private final Timer frameTimer = new Timer(FRAME_MILLIS, e -> flush());
+
+    public ResultTableModel() {
+        frameTimer.setRepeats(false);
+    }
+
+    /**
+     * Queues a result; it replaces the row of its accessory or is appended with the next frame.
+     */
+    public void upsert(AccessoryEnhancementResult result) {
+        pending.put(result.id, result);
+        if (!frameTimer.isRunning()) {
+            frameTimer.start();
+        }
+    }
+
+    /**
+     * Shows exactly the given results. Rows whose values did not change fire no event;
+     * only if accessories disappeared the whole table is refreshed.
+     */
+    public void setResults(Collection<AccessoryEnhancementResult> results) {
+        flush();
+
+        Set<Integer> ids = results.stream().map(result -> result.id).collect(Collectors.toSet());
+        if (rows.removeIf(row -> !ids.contains(row.id))) {
+            reindex();
+            fireTableDataChanged();
+        }
+
+        results.forEach(result -> pending.put(result.id, result));
+        flush();
+    }
+
+    /**
+     * @return The result shown in the given model row
+     */
+    public AccessoryEnhancementResult getResultAt(int row) {
+        return rows.get(row);
+    }
+
+    /**
+     * Applies the queued results and fires one event per contiguous range of changed rows.
+     */
+    void flush() {
+        frameTimer.stop();
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Integer> updatedRows = new ArrayList<>();
+        int firstInserted = rows.size();
+        for (AccessoryEnhancementResult result : pending.values()) {
+            Integer row = rowById.get(result.id);
+            if (row == null) {
+                rowById.put(result.id, rows.size());
+                rows.add(result);
+            } else if (!sameValues(rows.get(row), result)) {
+                rows.set(row, result);
+                updatedRows.add(row);
+            } else {
+                rows.set(row, result);
+            }
+        }
+        pending.clear();
+
+        fireUpdatedRanges(updatedRows);
+        if (rows.size() > firstInserted) {
+            fireTableRowsInserted(firstInserted, rows.size() - 1);
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == NAME_COLUMN ? String.class : Long.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        AccessoryEnhancementResult result = rows.get(row);
+        return switch (column) {
+            case 0 -> result.name;
+            case 1 -> result.duoItems;
+            case 2 -> result.triItems;
+            case 3 -> result.tetItems;
+            case 4 -> result.duoProfit;
+            case 5 -> result.triProfit;
+            case 6 -> result.tetProfit;
+            case 7 -> result.bestRiskAdjustedProfit();
+            default -> throw new IndexOutOfBoundsException("Unknown column: " + column);
+        };
+    }
+
+    private void fireUpdatedRanges(List<Integer> updatedRows) {
+        int[] sorted = updatedRows.stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(sorted);
+        int index = 0;
+        while (index < sorted.length) {
+            int first = sorted[index];
+            int last = first;
+            while (index + 1 < sorted.length && sorted[index + 1] == last + 1) {
+                last = sorted[++index];
+            }
+            fireTableRowsUpdated(first, last);
+            index++;
+        }
+    }
+
+    private void reindex() {
+        rowById.clear();
+        for (int row = 0; row < rows.size(); row++) {
+            rowById.put(rows.get(row).id, row);
+        }
+    }
+
+    private static boolean sameValues(AccessoryEnhancementResult shown, AccessoryEnhancementResult result) {
+        return shown.name.equals(result.name)
+                && shown.duoItems == result.duoItems
+                && shown.triItems == result.triItems
+                && shown.tetItems == result.tetItems
+                && shown.duoProfit == result.duoProfit
+                && shown.triProfit == result.triProfit
+                && shown.tetProfit == result.tetProfit
+                && shown.bestRiskAdjustedProfit() == result.bestRiskAdjustedProfit();
+    }
+}
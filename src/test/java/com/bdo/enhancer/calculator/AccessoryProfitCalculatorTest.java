@@ -1,14 +1,30 @@
 package com.bdo.enhancer.calculator;
 
+import com.bdo.enhancer.market.PriceHistoryStore;
+import com.bdo.enhancer.model.constants.MarketRegion;
 import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.item.Material;
+import com.bdo.enhancer.model.item.MaterialPrices;
+import com.bdo.enhancer.model.item.PriceLadder;
 import com.bdo.enhancer.model.result.AccessoryEnhancementResult;
 import com.bdo.enhancer.model.stack.AccessoryStack;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
+import static com.bdo.enhancer.model.item.TestItems.ring;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class AccessoryProfitCalculatorTest {
 
@@ -39,4 +55,173 @@ class AccessoryProfitCalculatorTest {
         assertSame(AccessoryStack.TWENTY, calculator.getTriStack());
         assertSame(AccessoryStack.TWENTYFIVE, calculator.getTetStack());
     }
+
+    @Test
+    void pipelinePublishesAResultForEverySubmittedAccessory() {
+        AccessoryProfitCalculator calculator = new AccessoryProfitCalculator();
+        calculator.setSimulationRuns(5);
+
+        List<AccessoryEnhancementResult> results = new CopyOnWriteArrayList<>();
+        ProfitPipeline pipeline = new ProfitPipeline(calculator, 2);
+        pipeline.onResult(results::add);
+
+        List<Accessory> accessories = new ArrayList<>();
+        for (int id = 1; id <= 10; id++) {
+            Accessory ring = new Accessory("Test Ring " + id, id);
+            ring.setBasePrice(10_000_000);
+            ring.setDuoPrice(100_000_000);
+            ring.setTriPrice(300_000_000);
+            ring.setTetPrice(900_000_000);
+            accessories.add(ring);
+            pipeline.submit(ring);
+        }
+        pipeline.completeAndAwait();
+
+        assertEquals(10, results.size());
+        assertTrue(results.stream().allMatch(result -> result.duoItems > 0));
+
+        // Streamed results count as cached, so nothing is recalculated afterwards
+        List<AccessoryEnhancementResult> merged = calculator.recalculateChangedProfits(accessories, List.of());
+        assertEquals(10, merged.size());
+        assertTrue(merged.containsAll(results));
+    }
+
+    @Test
+    void pricesOneSimulationForEveryRegion() {
+        AccessoryProfitCalculator calculator = new AccessoryProfitCalculator();
+        calculator.setSimulationRuns(50);
+
+        Accessory euRing = ring(1, "Test Ring", 10_000_000, 300_000_000);
+        Accessory naRing = ring(1, "Test Ring", 12_000_000, 450_000_000);
+
+        Map<MarketRegion, List<AccessoryEnhancementResult>> results = calculator.calculateRegionalProfits(
+                Map.of(MarketRegion.EU, List.of(euRing), MarketRegion.NA, List.of(naRing)));
+
+        AccessoryEnhancementResult eu = results.get(MarketRegion.EU).get(0);
+        AccessoryEnhancementResult na = results.get(MarketRegion.NA).get(0);
+
+        // Same simulation, so the same item consumption; only the prices differ
+        assertEquals(eu.duoItems, na.duoItems);
+        assertEquals(eu.tetItems, na.tetItems);
+        assertNotEquals(eu.duoProfit, na.duoProfit);
+    }
+
+    @Test
+    void repricesMaterialChangesWithoutSimulatingAgain() {
+        AccessoryProfitCalculator calculator = new AccessoryProfitCalculator();
+        calculator.setSimulationRuns(50);
+        List<Accessory> accessories = List.of(ring(1, "Test Ring", 10_000_000, 300_000_000));
+
+        long before = calculator.calculateProfitsWithAccessories(accessories).get(0).tetProfit;
+        int simulatedCombinations = calculator.getStatisticsCache().size();
+
+        calculator.setMaterialPrices(MaterialPrices.defaults().with(Material.BLACK_STONE, 1_000_000));
+        long after = calculator.recalculateChangedProfits(accessories, List.of()).get(0).tetProfit;
+
+        assertEquals(simulatedCombinations, calculator.getStatisticsCache().size());
+        assertTrue(after < before);
+    }
+
+    @Test
+    void knowsWhenAStackSetIsServedFromTheStatisticsCache() {
+        AccessoryProfitCalculator calculator = new AccessoryProfitCalculator();
+        calculator.setSimulationRuns(50);
+        List<Accessory> accessories = List.of(ring(1, "Test Ring", 10_000_000, 300_000_000));
+
+        calculator.calculateProfitsWithAccessories(accessories);
+        assertTrue(calculator.hasStatisticsFor(accessories));
+
+        calculator.setTriStack(AccessoryStack.FIFTYFIVE);
+        assertFalse(calculator.hasStatisticsFor(accessories));
+
+        // The preview simulates with fewer runs and does not count as the full simulation
+        assertEquals(1, calculator.calculatePreviewProfits(accessories, 10).size());
+        assertFalse(calculator.hasStatisticsFor(accessories));
+    }
+
+    @Test
+    void keepsTheStacksACalculationStartedWith() {
+        AccessoryProfitCalculator calculator = new AccessoryProfitCalculator();
+        calculator.setSimulationRuns(50);
+        List<Accessory> accessories = List.of(ring(1, "Test Ring", 10_000_000, 300_000_000));
+
+        // A what-if changes the stacks while the calculation is pricing
+        calculator.setProgressCallback(message -> {
+            if (message.startsWith("Pricing")) {
+                calculator.setTriStack(AccessoryStack.FIFTYFIVE);
+            }
+        });
+        AccessoryEnhancementResult result = calculator.calculateProfitsWithAccessories(accessories).get(0);
+        calculator.setProgressCallback(null);
+
+        calculator.setTriStack(AccessoryStack.FOURTYFIVE);
+        AccessoryEnhancementResult unchanged = calculator.calculatePreviewProfits(accessories, 50).get(0);
+        assertEquals(unchanged.duoProfit, result.duoProfit);
+        assertEquals(unchanged.triProfit, result.triProfit);
+        assertEquals(unchanged.tetProfit, result.tetProfit);
+    }
+
+    @Test
+    void pricesSeveralEnhancementsAlongTheOrderBooks() {
+        AccessoryProfitCalculator calculator = new AccessoryProfitCalculator();
+        calculator.setSimulationRuns(50);
+        Accessory ring = ring(1, "Test Ring", 10_000_000, 300_000_000);
+        AccessoryEnhancementResult flat = calculator.calculateProfitsWithAccessories(List.of(ring)).get(0);
+
+        // Without order books every further copy costs and sells like the first
+        assertEquals(flat.duoProfit, flat.duoDepthProfits[0]);
+        assertEquals(5 * flat.duoProfit, flat.duoDepthProfits[1], 5);
+
+        ring.setPriceLadder(0, new PriceLadder(new long[] {10_000_000, 15_000_000}, new int[] {30, 1_000}, new int[2]));
+        ring.setPriceLadder(2, new PriceLadder(new long[] {80_000_000, 100_000_000}, new int[] {0, 2}, new int[] {10, 0}));
+        AccessoryEnhancementResult deep = calculator.calculatePreviewProfits(List.of(ring), 50).get(0);
+
+        assertEquals(flat.duoProfit, deep.duoDepthProfits[0]);
+        assertTrue(deep.duoDepthProfits[2] < 20 * flat.duoProfit);
+        assertTrue(calculator.marginalProfit(ring, 2, 20) < calculator.marginalProfit(ring, 2, 1));
+    }
+
+    @Test
+    void ranksByTheProfitLessItsSpread() {
+        AccessoryProfitCalculator calculator = new AccessoryProfitCalculator();
+        calculator.setSimulationRuns(200);
+        AccessoryEnhancementResult result = calculator.calculateProfitsWithAccessories(
+                List.of(ring(1, "Test Ring", 10_000_000, 300_000_000))).get(0);
+
+        // Failed attempts make the cost of a TET spread more than that of a DUO
+        assertTrue(result.tetRisk.stdDev > result.duoRisk.stdDev);
+        assertTrue(result.duoRisk.stdDev > 0);
+        assertEquals(result.tetProfit - Math.round(result.tetRisk.stdDev), result.tetRisk.riskAdjustedProfit, 1);
+
+        calculator.setRiskModel(RiskModel.meanMinusSigma(0));
+        AccessoryEnhancementResult neutral = calculator.recalculateChangedProfits(
+                List.of(ring(1, "Test Ring", 10_000_000, 300_000_000)), List.of()).get(0);
+        assertEquals(neutral.tetProfit, neutral.tetRisk.riskAdjustedProfit);
+    }
+
+    @Test
+    void readsTheSaleVolatilityOncePerMarketRefresh(@TempDir Path directory) throws IOException {
+        AccessoryProfitCalculator calculator = new AccessoryProfitCalculator();
+        calculator.setSimulationRuns(50);
+        Accessory ring = ring(1, "Test Ring", 10_000_000, 300_000_000);
+        List<Accessory> accessories = List.of(ring);
+
+        try (PriceHistoryStore history = PriceHistoryStore.open(directory)) {
+            calculator.setPriceHistory(history);
+            double calm = calculator.calculateProfitsWithAccessories(accessories).get(0).triRisk.stdDev;
+
+            long now = System.currentTimeMillis();
+            for (int day = 5; day >= 1; day--) {
+                history.append(ring.getId(), 3, day % 2 == 0 ? 200_000_000 : 400_000_000, 1, 0,
+                        now - TimeUnit.DAYS.toMillis(day));
+            }
+
+            // Repricing for another risk model keeps the volatility of the last refresh
+            calculator.setRiskModel(RiskModel.meanMinusSigma(0));
+            assertEquals(calm, calculator.recalculateChangedProfits(accessories, List.of()).get(0).triRisk.stdDev);
+
+            // A refresh of the item reads the new samples
+            assertTrue(calculator.recalculateChangedProfits(accessories, accessories).get(0).triRisk.stdDev > calm);
+        }
+    }
 }
@@ -1,11 +1,16 @@
 package com.bdo.enhancer.calculator;
 
 import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.item.EnhancementType;
+import com.bdo.enhancer.model.result.OptimalStackResult;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
+import static com.bdo.enhancer.model.item.TestItems.ring;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class OptimalStackCalculatorTest {
@@ -19,4 +24,78 @@ class OptimalStackCalculatorTest {
         assertTrue(calculator.findOptimalStacks(List.of(manosClothes), progressMessages::add).isEmpty());
         assertTrue(progressMessages.stream().anyMatch(message -> message.contains("fixed-chance")));
     }
+
+    @Test
+    void streamsResultsInTheGivenOrderAndKeepsThemWhenCancelled() {
+        List<Accessory> accessories = List.of(ring(1, "First Ring"), ring(2, "Second Ring"), ring(3, "Third Ring"));
+        List<OptimalStackResult> streamed = new ArrayList<>();
+        OptimalStackCalculator calculator = new OptimalStackCalculator(1, 2);
+
+        List<OptimalStackResult> results = calculator.findOptimalStacks(accessories, null, streamed::add,
+                () -> streamed.size() >= 2);
+
+        assertEquals(List.of("First Ring", "Second Ring"), streamed.stream()
+                .map(OptimalStackResult::getAccessoryName)
+                .collect(Collectors.toList()));
+        assertEquals(streamed, results);
+    }
+
+    @Test
+    void optimizesMixedTypesInTheGivenOrder() {
+        Accessory clothes = new Accessory("Silver Embroidered Cook's Clothes", 14017,
+                EnhancementType.SILVER_EMBROIDERED_CLOTHING);
+        clothes.setBasePrice(5_000_000);
+        clothes.setTriPrice(100_000_000);
+        List<OptimalStackResult> streamed = new ArrayList<>();
+        OptimalStackCalculator calculator = new OptimalStackCalculator(1, 1);
+
+        calculator.findOptimalStacks(List.of(ring(1, "First Ring"), clothes, ring(3, "Third Ring")), null,
+                streamed::add, () -> false);
+
+        assertEquals(List.of("First Ring", "Silver Embroidered Cook's Clothes", "Third Ring"), streamed.stream()
+                .map(OptimalStackResult::getAccessoryName)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void stopsRunningSearchesWhenCancelled() {
+        ConsumptionStatisticsCache cache = new ConsumptionStatisticsCache();
+        OptimalStackCalculator calculator = new OptimalStackCalculator(1, 1, cache);
+
+        List<OptimalStackResult> results = calculator.findOptimalStacks(List.of(ring(1, "Test Ring")), null,
+                result -> { }, () -> cache.size() >= 2);
+
+        assertTrue(results.isEmpty());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void findsTheMaximumWithFewEvaluations() {
+        List<Integer> evaluated = new ArrayList<>();
+        int best = OptimalStackCalculator.maximize(1, 60, stack -> {
+            evaluated.add(stack);
+            return -(stack - 37L) * (stack - 37L);
+        });
+
+        assertEquals(37, best);
+        assertTrue(evaluated.size() < 20, "evaluated " + evaluated);
+        assertEquals(evaluated.size(), evaluated.stream().distinct().count());
+        assertEquals(1, OptimalStackCalculator.maximize(1, 60, stack -> -stack));
+        assertEquals(60, OptimalStackCalculator.maximize(1, 60, stack -> stack));
+    }
+
+    @Test
+    void searchesStacksBetweenThePresets() {
+        OptimalStackCalculator calculator = new OptimalStackCalculator(200, 2);
+        List<String> progressMessages = new ArrayList<>();
+
+        OptimalStackResult result = calculator.findOptimalStacks(List.of(ring(1, "Test Ring")), progressMessages::add).get(0);
+
+        int pri = result.getOptimalPriStack().getStackCount();
+        int duo = result.getOptimalDuoStack().getStackCount();
+        int tri = result.getOptimalTriStack().getStackCount();
+        assertTrue(1 <= pri && pri <= duo && duo <= tri && tri <= 60, result.getFormattedStacks());
+        // A cartesian product of every stack up to 60 would need tens of thousands of simulations
+        assertTrue(calculator.getStatisticsCache().size() < 200, "simulated " + calculator.getStatisticsCache().size());
+    }
 }
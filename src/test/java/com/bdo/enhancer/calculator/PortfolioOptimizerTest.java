@@ -0,0 +1,80 @@
+package com.bdo.enhancer.calculator;
+
+import com.bdo.enhancer.model.result.PortfolioPlan;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PortfolioOptimizerTest {
+
+    @Test
+    void staysWithinBudgetStockAndItemShare() {
+        List<PortfolioOptimizer.Candidate> candidates = List.of(
+                new PortfolioOptimizer.Candidate(1, "Ring", 2, 100, 50, 3, 9),
+                new PortfolioOptimizer.Candidate(2, "Belt", 2, 100, 20, 3, 1_000));
+
+        PortfolioPlan plan = new PortfolioOptimizer(1_000).optimize(candidates, 1_000, 0.5);
+
+        // Stock allows three rings, the share of the budget five belts
+        assertEquals(2, plan.positions.size());
+        assertEquals(3, quantity(plan, 1));
+        assertEquals(5, quantity(plan, 2));
+        assertEquals(800, plan.totalCost);
+        assertEquals(250, plan.expectedProfit);
+    }
+
+    @Test
+    void prefersTheMixWithTheHigherTotalProfit() {
+        // Greedy by profit per silver would take the single expensive enhancement
+        List<PortfolioOptimizer.Candidate> candidates = List.of(
+                new PortfolioOptimizer.Candidate(1, "Necklace", 4, 600, 330, 5, 100),
+                new PortfolioOptimizer.Candidate(2, "Earring", 3, 500, 250, 2, 100),
+                new PortfolioOptimizer.Candidate(2, "Earring", 2, 100, 5, 1, 100));
+
+        PortfolioPlan plan = new PortfolioOptimizer(1_000).optimize(candidates, 1_000, 1);
+
+        assertEquals(500, plan.expectedProfit);
+        assertEquals(1, plan.positions.size());
+        assertEquals(3, plan.positions.get(0).level);
+        assertEquals(2, plan.positions.get(0).quantity);
+    }
+
+    @Test
+    void rejectsRiskToleranceOutsideTheUnitInterval() {
+        PortfolioOptimizer optimizer = new PortfolioOptimizer();
+        assertThrows(IllegalArgumentException.class, () -> optimizer.optimize(List.of(), 1_000, 0));
+        assertThrows(IllegalArgumentException.class, () -> optimizer.optimize(List.of(), 1_000, 1.5));
+    }
+
+    @Test
+    void plansTheWholeMarketInteractively() {
+        List<PortfolioOptimizer.Candidate> candidates = new ArrayList<>();
+        for (int id = 0; id < 250; id++) {
+            for (int level = 2; level <= 4; level++) {
+                long cost = 10_000_000L * level * level + id * 100_000L;
+                candidates.add(new PortfolioOptimizer.Candidate(id, "Item " + id, level,
+                        cost, cost / (3 + id % 7), level * 2.5, 50));
+            }
+        }
+
+        long start = System.nanoTime();
+        PortfolioPlan plan = new PortfolioOptimizer().optimize(candidates, 10_000_000_000L, 0.2);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(plan.totalCost <= plan.budget);
+        assertTrue(plan.positions.stream().allMatch(position -> position.totalCost <= plan.budget * 0.2));
+        assertTrue(millis < 1_000, "took " + millis + " ms");
+    }
+
+    private static int quantity(PortfolioPlan plan, int id) {
+        return plan.positions.stream()
+                .filter(position -> position.id == id)
+                .mapToInt(position -> position.quantity)
+                .sum();
+    }
+}
@@ -0,0 +1,49 @@
+package com.bdo.enhancer.calculator;
+
+import com.bdo.enhancer.model.result.ProfitRisk;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RiskModelTest {
+
+    @Test
+    void approximatesTheNormalDistribution() {
+        assertEquals(0.5, RiskModel.normalCdf(0), 1e-7);
+        assertEquals(0.841345, RiskModel.normalCdf(1), 1e-6);
+        assertEquals(0.022750, RiskModel.normalCdf(-2), 1e-6);
+        assertEquals(-1.644854, RiskModel.inverseNormalCdf(0.05), 1e-6);
+        assertEquals(2.326348, RiskModel.inverseNormalCdf(0.99), 1e-6);
+        for (double p : new double[] {0.001, 0.1, 0.5, 0.9}) {
+            assertEquals(p, RiskModel.normalCdf(RiskModel.inverseNormalCdf(p)), 1e-6);
+        }
+    }
+
+    @Test
+    void penalizesTheSpreadOfTheProfit() {
+        ProfitRisk sigma = RiskModel.meanMinusSigma(1).assess(1_000, 400 * 400);
+        assertEquals(400, sigma.stdDev, 1e-9);
+        assertEquals(600, sigma.riskAdjustedProfit);
+        assertEquals(RiskModel.normalCdf(-2.5), sigma.lossProbability, 1e-12);
+
+        // The mean of the worst 5% lies about 2.06 standard deviations below the mean
+        ProfitRisk cvar = RiskModel.conditionalValueAtRisk(0.05).assess(1_000, 400 * 400);
+        assertEquals(1_000 - Math.round(2.0627 * 400), cvar.riskAdjustedProfit, 1);
+
+        ProfitRisk certain = RiskModel.defaults().assess(-5, 0);
+        assertEquals(-5, certain.riskAdjustedProfit);
+        assertEquals(1, certain.lossProbability);
+    }
+
+    @Test
+    void parsesTheCommandLineForm() {
+        assertEquals(RiskModel.meanMinusSigma(2), RiskModel.parse("sigma:2"));
+        assertEquals(RiskModel.conditionalValueAtRisk(0.05), RiskModel.parse("CVaR: 0.05"));
+        assertEquals("cvar:0.05", RiskModel.parse("cvar:0.05").toString());
+        assertThrows(IllegalArgumentException.class, () -> RiskModel.parse("cvar:1.5"));
+        assertThrows(IllegalArgumentException.class, () -> RiskModel.parse("sigma"));
+        assertTrue(RiskModel.parse("sigma:0").assess(10, 100).riskAdjustedProfit == 10);
+    }
+}
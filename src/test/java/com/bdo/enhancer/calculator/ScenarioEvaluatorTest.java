@@ -0,0 +1,99 @@
+package com.bdo.enhancer.calculator;
+
+import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.item.Material;
+import com.bdo.enhancer.model.item.MaterialPrices;
+import com.bdo.enhancer.model.result.AccessoryEnhancementResult;
+import com.bdo.enhancer.model.result.EnhancementStatistics;
+import com.bdo.enhancer.model.result.ScenarioReport;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.bdo.enhancer.model.item.TestItems.ring;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScenarioEvaluatorTest {
+
+    @Test
+    void unchangedPricesReproduceTheRanking() {
+        AccessoryProfitCalculator calculator = new AccessoryProfitCalculator();
+        calculator.setSimulationRuns(50);
+        List<Accessory> accessories = List.of(ring(1, "Test Ring 1", 10_000_000, 300_000_000),
+                ring(2, "Test Ring 2", 3_000_000, 120_000_000));
+        List<AccessoryEnhancementResult> results = calculator.calculateProfitsWithAccessories(accessories);
+
+        ScenarioReport report = new ScenarioEvaluator(calculator.getMaterialPrices())
+                .evaluate(calculator.scenarioInputs(accessories), ScenarioGrid.unchanged());
+
+        assertEquals(1, report.scenarios);
+        assertEquals(6, report.outcomes.size());
+        for (ScenarioReport.Outcome outcome : report.outcomes) {
+            AccessoryEnhancementResult result = results.stream().filter(r -> r.id == outcome.id).findFirst().orElseThrow();
+            long profit = outcome.level == 2 ? result.duoProfit : outcome.level == 3 ? result.triProfit : result.tetProfit;
+            assertEquals(profit, outcome.currentProfit);
+            assertEquals(profit, outcome.worstProfit);
+            assertEquals(profit, outcome.bestProfit);
+            assertEquals("unchanged", outcome.worstScenario);
+        }
+    }
+
+    @Test
+    void findsTheWorstScenarioAndTheBreakEvenPrices() {
+        // Two base items and ten black stones per enhancement
+        double[] units = new double[Material.VALUES.length];
+        units[Material.BLACK_STONE.ordinal()] = 10;
+        MaterialPrices prices = MaterialPrices.defaults().with(Material.BLACK_STONE, 100_000);
+        ScenarioEvaluator.Input input = new ScenarioEvaluator.Input(7, "Test Ring", 4, 1_000_000, 10_000_000,
+                new EnhancementStatistics(2, units));
+        ScenarioGrid grid = ScenarioGrid.unchanged()
+                .withMaterial(Material.BLACK_STONE, 0.5, 1, 2)
+                .withSalePrice(4, 0.8, 1);
+
+        ScenarioReport.Outcome outcome = new ScenarioEvaluator(prices).evaluate(List.of(input), grid).outcomes.get(0);
+
+        // Cost 3,000,000 and taxed sale price 8,450,000
+        assertEquals(5_450_000, outcome.currentProfit);
+        assertEquals((long) (8_000_000 * 0.845) - 4_000_000, outcome.worstProfit);
+        assertEquals("BLACK_STONE x2.0, TET x0.8", outcome.worstScenario);
+        assertEquals((long) (10_000_000 * 0.845) - 2_500_000, outcome.bestProfit);
+        assertEquals(1.0, outcome.profitableShare);
+        assertEquals((long) Math.ceil(3_000_000 / 0.845), outcome.breakEvenSalePrice);
+        assertEquals((long) Math.ceil(4_000_000 / (0.8 * 0.845)), outcome.robustBreakEvenSalePrice);
+        assertEquals(1_000_000 + 5_450_000 / 2, outcome.breakEvenBasePrice);
+        assertEquals(100_000 + 545_000, outcome.breakEvenMaterialPrices[Material.BLACK_STONE.ordinal()]);
+        assertEquals(-1, outcome.breakEvenMaterialPrices[Material.MEMORY_FRAGMENT.ordinal()]);
+    }
+
+    @Test
+    void evaluatesLargeGridsInParallel() {
+        List<ScenarioEvaluator.Input> inputs = new ArrayList<>();
+        double[] units = new double[Material.VALUES.length];
+        units[Material.CRYSTALLIZED_DESPAIR.ordinal()] = 3;
+        for (int id = 0; id < 300; id++) {
+            inputs.add(new ScenarioEvaluator.Input(id, "Ring " + id, 2 + id % 3, 1_000_000 + id, 50_000_000,
+                    new EnhancementStatistics(4, units)));
+        }
+        ScenarioGrid grid = ScenarioGrid.parse("CRYSTALLIZED_DESPAIR=0.5..1.5/0.05;BASE=0.8..1.2/0.1;"
+                + "DUO=0.9,1;TRI=0.9,1;TET=0.8..1.2/0.1");
+
+        ScenarioReport report = new ScenarioEvaluator(MaterialPrices.defaults()).evaluate(inputs, grid);
+
+        assertEquals(21 * 5 * 2 * 2 * 5, report.scenarios);
+        ScenarioReport.Outcome outcome = report.outcomes.get(0);
+        assertTrue(outcome.worstProfit <= outcome.meanProfit && outcome.meanProfit <= outcome.bestProfit);
+        assertTrue(outcome.worstScenario.contains("CRYSTALLIZED_DESPAIR x1.5"));
+    }
+
+    @Test
+    void rejectsMalformedGrids() {
+        assertEquals(3, ScenarioGrid.parse("black_stone=0.9..1.1/0.1").size());
+        assertEquals("TRI x0.9", ScenarioGrid.parse("TRI=0.9,1").describe(0));
+        assertThrows(IllegalArgumentException.class, () -> ScenarioGrid.parse("TET"));
+        assertThrows(IllegalArgumentException.class, () -> ScenarioGrid.parse("TET=-1"));
+        assertThrows(IllegalArgumentException.class, () -> ScenarioGrid.parse("TET=1..0.5/0.1"));
+    }
+}
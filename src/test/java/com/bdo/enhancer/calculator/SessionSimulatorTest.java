@@ -0,0 +1,88 @@
+package com.bdo.enhancer.calculator;
+
+import com.bdo.enhancer.model.item.EnhancementType;
+import com.bdo.enhancer.model.item.MaterialPrices;
+import com.bdo.enhancer.model.result.SessionReport;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionSimulatorTest {
+
+    private static final StackPolicy POLICY = StackPolicy.byLevelTargets(30, 40, 45, 110);
+
+    @Test
+    void carriedStacksCostLessThanFreshOnes() {
+        SessionReport report = new SessionSimulator(EnhancementType.ACCESSORY, 3, POLICY, new int[0])
+                .simulate(2_000, 50, 42);
+
+        assertEquals(2_000, report.sessions());
+        assertTrue(report.totalClicks() > 500_000, "clicks " + report.totalClicks());
+        assertTrue(report.clicksPerItem() > 1);
+        // Every finished TRI item used at least the two base items of its first click and one per level after
+        assertTrue(report.baseItemsPerItem() >= 4);
+        assertTrue(report.blackStonesPerItem() < report.freshBlackStonesPerItem(),
+                report.blackStonesPerItem() + " vs " + report.freshBlackStonesPerItem());
+        assertTrue(report.costPerItem(10_000_000, MaterialPrices.defaults()) > 40_000_000);
+        assertTrue(report.costPerItemStdDev(10_000_000, MaterialPrices.defaults()) > 0);
+    }
+
+    @Test
+    void stacksGrownPastSixtyAreWorthNoMoreThanTheLastBoughtPreset() {
+        // TET clicks at 60 fail often, so the stacks grow well past the bought presets
+        SessionReport report = new SessionSimulator(EnhancementType.ACCESSORY, 4,
+                StackPolicy.byLevelTargets(30, 40, 45, 60), new int[0]).simulate(500, 10, 11);
+
+        assertTrue(report.blackStonesPerItem() > 0, "black stones " + report.blackStonesPerItem());
+        // Growing a stack never gains more than the stacks bought in the session
+        for (int session = 0; session < report.sessions(); session++) {
+            assertTrue(report.stockChange[session] <= report.boughtBlackStones[session], "session " + session);
+        }
+    }
+
+    @Test
+    void freeTargetStacksCostNothing() {
+        SessionReport free = new SessionSimulator(EnhancementType.ACCESSORY, 4,
+                StackPolicy.byLevelTargets(70, 80, 90, 110), new int[0]).simulate(200, 5, 13);
+
+        assertEquals(0, free.blackStonesPerItem());
+        assertEquals(0, free.freshBlackStonesPerItem());
+
+        // Only the bought PRI to TRI stacks cost anything when TET clicks on the free 110
+        SessionReport tet = new SessionSimulator(EnhancementType.ACCESSORY, 4, POLICY, new int[0])
+                .simulate(200, 5, 13);
+        assertTrue(tet.freshBlackStonesPerItem() < 10_000, "fresh " + tet.freshBlackStonesPerItem());
+    }
+
+    @Test
+    void aSeedReproducesTheParallelSessions() {
+        SessionSimulator simulator = new SessionSimulator(EnhancementType.SILVER_EMBROIDERED_CLOTHING, 4, POLICY,
+                new int[] {20, 50});
+
+        SessionReport first = simulator.simulate(200, 5, 7);
+        SessionReport second = simulator.simulate(200, 5, 7);
+
+        assertArrayEquals(first.clicks, second.clicks);
+        assertArrayEquals(first.boughtBlackStones, second.boughtBlackStones);
+        assertArrayEquals(first.stockChange, second.stockChange);
+    }
+
+    @Test
+    void picksTheSmallestStackWithinTheRangeOfTheLevel() {
+        int[] stacks = {50, 31, 29, 41, 0};
+
+        assertEquals(1, POLICY.select(0, stacks, 4));
+        assertEquals(3, POLICY.select(1, stacks, 4));
+        assertEquals(0, POLICY.select(2, stacks, 4));
+        // The 41 stack is kept for DUO once the PRI stacks are gone
+        assertEquals(-1, POLICY.select(0, new int[] {41, 50}, 2));
+        assertEquals(-1, POLICY.select(3, stacks, 4));
+        assertEquals(110, POLICY.stackToBuild(3));
+        assertThrows(IllegalArgumentException.class, () -> StackPolicy.byLevelTargets(30, 40, 45));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SessionSimulator(EnhancementType.MANOS_CLOTHING, 3, POLICY, new int[0]));
+    }
+}
@@ -0,0 +1,121 @@
+package com.bdo.enhancer.calculator;
+
+import com.bdo.enhancer.model.item.EnhancementType;
+import com.bdo.enhancer.model.item.Material;
+import com.bdo.enhancer.model.result.EnhancementStatistics;
+import com.bdo.enhancer.model.stack.AccessoryStack;
+import com.bdo.enhancer.model.stack.CostumeStack;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.bdo.enhancer.model.item.TestItems.ring;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatisticsLibraryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripsStatisticsOfEveryEnhancementType() throws IOException {
+        ConsumptionStatisticsCache.Key accessory = ConsumptionStatisticsCache.Key.of(EnhancementType.ACCESSORY,
+                List.of(AccessoryStack.TEN, AccessoryStack.FIFTEEN, AccessoryStack.TWENTY), 2, 10);
+        ConsumptionStatisticsCache.Key costume = ConsumptionStatisticsCache.Key.of(EnhancementType.SILVER_EMBROIDERED_CLOTHING,
+                List.of(AccessoryStack.TEN, AccessoryStack.FIFTEEN, AccessoryStack.TWENTY), 3, 10);
+        ConsumptionStatisticsCache.Key manos = ConsumptionStatisticsCache.Key.of(EnhancementType.MANOS_CLOTHING,
+                List.of(AccessoryStack.TEN, AccessoryStack.FIFTEEN, AccessoryStack.TWENTY), 2, 10);
+        StatisticsLibrary library = new StatisticsLibrary(directory.resolve("statistics.bin"));
+
+        library.save(Map.of(accessory, statistics(3.5), costume, statistics(7.25), manos, statistics(1)));
+        Map<ConsumptionStatisticsCache.Key, EnhancementStatistics> loaded = library.load();
+
+        assertEquals(3, loaded.size());
+        assertEquals(3.5, loaded.get(accessory).avgItems);
+        assertArrayEquals(statistics(7.25).avgMaterialUnits, loaded.get(costume).avgMaterialUnits);
+        assertEquals(List.of(CostumeStack.TEN, CostumeStack.FIFTEEN, CostumeStack.TWENTY),
+                loaded.keySet().stream().filter(key -> key.equals(costume)).findFirst().orElseThrow().getStacks());
+        assertEquals(1, loaded.get(manos).avgItems);
+
+        // Saving again replaces the file that was just read
+        library.save(Map.of(manos, statistics(2)));
+        assertEquals(2, library.load().get(manos).avgItems);
+    }
+
+    @Test
+    void roundTripsStacksBetweenThePresets() throws IOException {
+        ConsumptionStatisticsCache.Key key = ConsumptionStatisticsCache.Key.of(EnhancementType.ACCESSORY,
+                List.of(AccessoryStack.findByStackCount(23), AccessoryStack.findByStackCount(37),
+                        AccessoryStack.findByStackCount(52)), 3, 10);
+        StatisticsLibrary library = new StatisticsLibrary(directory.resolve("statistics.bin"));
+
+        library.save(Map.of(key, statistics(4)));
+
+        assertEquals(4, library.load().get(key).avgItems);
+    }
+
+    @Test
+    void ignoresLibrariesWrittenUnderOtherRules() throws IOException {
+        Path file = directory.resolve("statistics.bin");
+        StatisticsLibrary library = new StatisticsLibrary(file);
+        library.save(Map.of(ConsumptionStatisticsCache.Key.of(EnhancementType.MANOS_CLOTHING, List.of(), 0, 10),
+                statistics(1)));
+
+        // Flip a bit of the rules hash that follows magic and format version
+        byte[] content = Files.readAllBytes(file);
+        content[2 * Integer.BYTES] ^= 1;
+        Files.write(file, content);
+
+        assertTrue(library.load().isEmpty());
+    }
+
+    @Test
+    void ignoresMissingAndTruncatedLibraries() throws IOException {
+        Path file = directory.resolve("statistics.bin");
+        StatisticsLibrary library = new StatisticsLibrary(file);
+        assertTrue(library.load().isEmpty());
+
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES * 4 + Long.BYTES)
+                .putInt(StatisticsLibrary.MAGIC)
+                .putInt(StatisticsLibrary.FORMAT_VERSION)
+                .putLong(StatisticsLibrary.rulesHash())
+                .putInt(Material.VALUES.length)
+                .putInt(5);
+        Files.write(file, header.array());
+        assertTrue(library.load().isEmpty());
+    }
+
+    @Test
+    void optimizerStartsWarmFromTheLibrary() {
+        StatisticsLibrary library = new StatisticsLibrary(directory.resolve("statistics.bin"));
+        ConsumptionStatisticsCache firstSession = new ConsumptionStatisticsCache();
+        firstSession.attach(library);
+        new OptimalStackCalculator(1, 2, firstSession).findOptimalStacks(List.of(ring(1, "Test Ring")), null);
+
+        ConsumptionStatisticsCache secondSession = new ConsumptionStatisticsCache();
+        int loaded = secondSession.attach(library);
+        List<String> messages = new ArrayList<>();
+        new OptimalStackCalculator(1, 2, secondSession).findOptimalStacks(List.of(ring(1, "Test Ring")), messages::add);
+
+        assertEquals(firstSession.size(), loaded);
+        assertEquals(loaded, secondSession.size());
+        assertTrue(messages.stream().noneMatch(message -> message.startsWith("Simulating")));
+    }
+
+    private static EnhancementStatistics statistics(double avgItems) {
+        double[] units = new double[Material.VALUES.length];
+        for (int material = 0; material < units.length; material++) {
+            units[material] = avgItems * (material + 1);
+        }
+        return new EnhancementStatistics(avgItems, units);
+    }
+}
@@ -0,0 +1,212 @@
+package com.bdo.enhancer.cli;
+
+import com.bdo.enhancer.market.BDOMarketConnector;
+import com.bdo.enhancer.market.ItemFetchStatus;
+import com.bdo.enhancer.market.MarketDataService;
+import com.bdo.enhancer.market.MarketFetchResult;
+import com.bdo.enhancer.market.MarketListing;
+import com.bdo.enhancer.market.MarketRequestScheduler;
+import com.bdo.enhancer.market.MultiRegionMarketService;
+import com.bdo.enhancer.market.OrderBookCache;
+import com.bdo.enhancer.model.constants.Constants;
+import com.bdo.enhancer.model.constants.MarketRegion;
+import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.item.EnhancementType;
+import com.bdo.enhancer.model.item.Material;
+import com.bdo.enhancer.model.item.MaterialPrices;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static com.bdo.enhancer.model.item.TestItems.ring;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EnhancerCliTest {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    void ranksASavedSnapshotByTriProfit(@TempDir Path directory) throws Exception {
+        Path snapshot = directory.resolve("market.json");
+        new MarketSnapshot(List.of(ring(1, "Cheap Ring", 10_000_000, 100_000_000),
+                ring(2, "Pricey Ring", 10_000_000, 900_000_000)), MaterialPrices.defaults()).write(snapshot);
+        Path output = directory.resolve("ranking.json");
+
+        int exitCode = run("--batch", "--input", snapshot.toString(), "--output", output.toString(), "--runs", "50");
+
+        assertEquals(EnhancerCli.EXIT_OK, exitCode);
+        JSONArray results = new JSONObject(Files.readString(output)).getJSONArray("results");
+        assertEquals(2, results.length());
+        assertEquals("Pricey Ring", results.getJSONObject(0).getString("name"));
+        assertEquals(1, results.getJSONObject(0).getInt("rank"));
+        assertTrue(Files.isRegularFile(dataDirectory.resolve(Constants.METRICS_FILE)));
+        assertTrue(Files.isRegularFile(dataDirectory.resolve(Constants.STATISTICS_LIBRARY_FILE)));
+        // A snapshot is no new price sample
+        assertFalse(Files.exists(dataDirectory.resolve(Constants.PRICE_HISTORY_DIRECTORY)));
+    }
+
+    @Test
+    void writesCsvToStandardOutput(@TempDir Path directory) throws Exception {
+        Path snapshot = directory.resolve("market.json");
+        new MarketSnapshot(List.of(ring(1, "Ring, \"Special\"")), MaterialPrices.defaults())
+                .write(snapshot);
+
+        assertEquals(EnhancerCli.EXIT_OK, run("--input", snapshot.toString(), "--runs", "20"));
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\\R");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("rank,id,name,"));
+        assertTrue(lines[1].startsWith("1,1,\"Ring, \"\"Special\"\"\","));
+    }
+
+    @Test
+    void writesScenarioProfitsAndBreakEvenPrices(@TempDir Path directory) throws Exception {
+        Path snapshot = directory.resolve("market.json");
+        new MarketSnapshot(List.of(ring(1, "Test Ring")), MaterialPrices.defaults()).write(snapshot);
+        Path scenarios = directory.resolve("scenarios.csv");
+
+        assertEquals(EnhancerCli.EXIT_OK, run("--input", snapshot.toString(), "--runs", "20",
+                "--scenarios", "BASE=0.8..1.2/0.1;TET=0.9,1", "--scenario-output", scenarios.toString()));
+
+        List<String> lines = Files.readAllLines(scenarios);
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(0).startsWith("id,name,level,currentProfit,worstProfit,"));
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("10 scenarios evaluated"));
+    }
+
+    @Test
+    void reportsEnhancementSessions(@TempDir Path directory) throws Exception {
+        Path snapshot = directory.resolve("market.json");
+        new MarketSnapshot(List.of(ring(1, "Test Ring")), MaterialPrices.defaults()).write(snapshot);
+
+        assertEquals(EnhancerCli.EXIT_OK, run("--input", snapshot.toString(), "--runs", "20", "--session", "3"));
+
+        assertTrue(err.toString(StandardCharsets.UTF_8).contains("ACCESSORY sessions of 3 TRI items"));
+    }
+
+    @Test
+    void reportsMissingDataAndUsageErrorsInTheExitCode(@TempDir Path directory) throws Exception {
+        Path empty = directory.resolve("empty.json");
+        new MarketSnapshot(List.of(), MaterialPrices.defaults()).write(empty);
+
+        assertEquals(EnhancerCli.EXIT_NO_DATA, run("--input", empty.toString()));
+        assertEquals(EnhancerCli.EXIT_USAGE, run("--runs", "0"));
+        assertEquals(EnhancerCli.EXIT_USAGE, run("--format", "xml"));
+        assertEquals(EnhancerCli.EXIT_USAGE, run("--scenarios", "TET=0.9"));
+        assertEquals(EnhancerCli.EXIT_USAGE, run("--scenarios", "GOLD=2", "--scenario-output", "out.csv"));
+        assertEquals(EnhancerCli.EXIT_FAILURE, run("--input", directory.resolve("missing.json").toString()));
+    }
+
+    @Test
+    void ranksSeveralRegionsWithOneSchedulerAndOneSimulation(@TempDir Path directory) throws Exception {
+        List<MarketRequestScheduler> schedulers = new CopyOnWriteArrayList<>();
+        MultiRegionMarketService markets = new MultiRegionMarketService(new MarketRequestScheduler(),
+                (region, scheduler) -> {
+                    schedulers.add(scheduler);
+                    return new MarketDataService(new RegionConnector(scheduler, region,
+                            region == MarketRegion.EU ? 300_000_000 : 600_000_000));
+                });
+        Path output = directory.resolve("ranking.csv");
+
+        int exitCode = EnhancerCli.runRegions(EnhancerCli.Options.parse(new String[] {"--region", "eu,na",
+                "--output", output.toString(), "--runs", "20", "--data-dir", dataDirectory.toString()}),
+                markets, new PrintStream(err, true, StandardCharsets.UTF_8));
+
+        assertEquals(EnhancerCli.EXIT_OK, exitCode);
+        assertEquals(2, schedulers.size());
+        assertSame(markets.getScheduler(), schedulers.get(0));
+        assertSame(markets.getScheduler(), schedulers.get(1));
+        List<String> simulations = err.toString(StandardCharsets.UTF_8).lines()
+                .filter(line -> line.matches("Simulating \\d+ stack and level combinations.*"))
+                .collect(Collectors.toList());
+        assertEquals(List.of("Simulating 3 stack and level combinations..."), simulations);
+
+        String eu = Files.readAllLines(directory.resolve("ranking-eu.csv")).get(1);
+        String na = Files.readAllLines(directory.resolve("ranking-na.csv")).get(1);
+        assertTrue(eu.startsWith("1,1,Test Ring,"));
+        assertFalse(eu.equals(na));
+    }
+
+    @Test
+    void rejectsOptionsThatTakeASingleRegion() {
+        assertEquals(EnhancerCli.EXIT_USAGE, run("--region", "eu,na"));
+        assertEquals(EnhancerCli.EXIT_USAGE, run("--region", "eu,na", "--output", "out.csv", "--optimize"));
+        assertEquals(EnhancerCli.EXIT_USAGE, run("--region", "eu,mars", "--output", "out.csv"));
+        assertEquals(List.of(MarketRegion.EU, MarketRegion.NA),
+                EnhancerCli.Options.parse(new String[] {"--region", "eu, na,eu", "--output", "out.csv"}).regions);
+    }
+
+    @Test
+    void snapshotKeepsPricesAndEnhancementTypes(@TempDir Path directory) throws Exception {
+        Accessory manos = new Accessory("Manos Cook's Clothes", 705037, EnhancementType.MANOS_CLOTHING);
+        manos.setBasePrice(218_000_000);
+        manos.setTetPrice(5_500_000_000L);
+        MaterialPrices prices = MaterialPrices.defaults().with(Material.BLACK_STONE, 123_456);
+        Path file = directory.resolve("market.json");
+
+        new MarketSnapshot(List.of(manos), prices).write(file);
+        MarketSnapshot read = MarketSnapshot.read(file);
+
+        assertEquals(prices, read.getMaterialPrices());
+        assertEquals(EnhancementType.MANOS_CLOTHING, read.getAccessories().get(0).getEnhancementType());
+        assertEquals(5_500_000_000L, read.getAccessories().get(0).getTetPrice());
+    }
+
+    private int run(String... args) {
+        // Keeps caches and metrics out of the working directory
+        String[] withDataDirectory = Arrays.copyOf(args, args.length + 2);
+        withDataDirectory[args.length] = "--data-dir";
+        withDataDirectory[args.length + 1] = dataDirectory.toString();
+        return EnhancerCli.run(withDataDirectory, new PrintStream(out, true, StandardCharsets.UTF_8),
+                new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Market of one region with a single ring, without any requests.
+     */
+    private static class RegionConnector extends BDOMarketConnector {
+        private final long triPrice;
+
+        RegionConnector(MarketRequestScheduler scheduler, MarketRegion region, long triPrice) {
+            super(scheduler, OrderBookCache.shared(), region);
+            this.triPrice = triPrice;
+        }
+
+        @Override
+        public MarketListing fetchListing() {
+            return new MarketListing(List.of(ring(1, "Test Ring", 10_000_000, triPrice)), List.of());
+        }
+
+        @Override
+        public MarketFetchResult enrichAccessories(List<Accessory> accessories, List<String> failedCategories,
+                                                   Consumer<Accessory> enrichedListener) {
+            Map<Integer, ItemFetchStatus> statuses = accessories.stream()
+                    .collect(Collectors.toMap(Accessory::getId, accessory -> ItemFetchStatus.OK));
+            return new MarketFetchResult(accessories, statuses, failedCategories);
+        }
+
+        @Override
+        public long fetchLowestPrice(int itemId) {
+            return -1;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.bdo.enhancer.core;
 
 import com.bdo.enhancer.model.constants.Constants;
+import com.bdo.enhancer.model.item.Material;
+import com.bdo.enhancer.model.item.MaterialPrices;
 import org.junit.jupiter.api.Test;
 
 import java.util.Random;
@@ -57,6 +59,25 @@ class ManosClothingEnhancerTest {
         }
     }
 
+    @Test
+    void countsMaterialUnitsAndPricesThemWithTheGivenPrices() {
+        MaterialPrices prices = MaterialPrices.defaults().with(Material.BLACK_GEM, 1_000);
+        Random successfulRolls = new Random() {
+            @Override
+            public double nextDouble() {
+                return 0.0;
+            }
+        };
+        ManosClothingEnhancer enhancer = new ManosClothingEnhancer(100_000_000, prices, successfulRolls);
+        while (enhancer.getCurrentLevel() < 15) {
+            enhancer.enhance();
+        }
+
+        // 5 x 1 + 3 x 2 + 3 x 3 + 2 x 4 + 2 x 5 black gems up to +15
+        assertEquals(38, enhancer.getMaterialUnits()[Material.BLACK_GEM.ordinal()]);
+        assertEquals(100_000_000 + 38 * 1_000, enhancer.getTotalEnhanceCost());
+    }
+
     @Test
     void failuresDoNotIncreaseTheDisplayedChance() {
         AtomicInteger rolls = new AtomicInteger();
@@ -1,10 +1,17 @@
 package com.bdo.enhancer.market;
 
+import com.bdo.enhancer.metrics.MetricsRegistry;
+import com.bdo.enhancer.model.constants.MarketRegion;
 import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.item.PriceLadder;
+import org.json.JSONArray;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -13,6 +20,36 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class BDOMarketConnectorTest {
 
+    @Test
+    void keepsEveryPriceStepOfTheOrderBook() {
+        JSONArray orders = new JSONArray("[{\"price\":120,\"sellers\":3,\"buyers\":0},"
+                + "{\"price\":100,\"sellers\":0,\"buyers\":5},"
+                + "{\"price\":110,\"sellers\":2,\"buyers\":1}]");
+
+        PriceLadder ladder = BDOMarketConnector.parsePriceLadder(orders);
+
+        assertEquals(3, ladder.steps());
+        assertEquals(100, ladder.price(0));
+        assertEquals(110, ladder.lowestAsk());
+        assertEquals(5, ladder.askDepth());
+        assertEquals(6, ladder.bidDepth());
+    }
+
+    @Test
+    void registersOneQueueGaugePerRegion() {
+        String gauge = "market.enrichment.queued." + MarketRegion.SEA.getCode();
+        MarketRequestScheduler scheduler = new MarketRequestScheduler();
+        BDOMarketConnector first = new BDOMarketConnector(scheduler, OrderBookCache.shared(), MarketRegion.SEA);
+        BDOMarketConnector second = new BDOMarketConnector(scheduler, OrderBookCache.shared(), MarketRegion.SEA);
+
+        Set<ThreadPoolExecutor> executors = BDOMarketConnector.ENRICHMENT_EXECUTORS.get(MarketRegion.SEA.getCode());
+        assertTrue(executors.size() >= 2, "both connectors feed the gauge");
+        assertEquals(0L, MetricsRegistry.global().snapshot().get(gauge));
+        // The executors are held weakly, so the connectors must stay reachable up to here
+        assertEquals(MarketRegion.SEA, first.getRegion());
+        assertEquals(MarketRegion.SEA, second.getRegion());
+    }
+
     @Test
     void includesManosClothesButStillExcludesManosAccessories() {
         Accessory manosClothes = item("Manos Cook's Clothes", 705037);
@@ -104,6 +141,21 @@ class BDOMarketConnectorTest {
         assertEquals(400_000_000L, accessory.getTetPrice());
     }
 
+    @Test
+    void keepsPartiallyPricedItemsButDropsItemsWithoutTargetPrices() {
+        Accessory partiallyPriced = item("Tungrad Ring", 12061);
+        partiallyPriced.setTriPrice(300_000_000L);
+        Accessory unpriced = item("Ogre Ring", 11607);
+
+        assertEquals(ItemFetchStatus.OK, BDOMarketConnector.classifyEnrichment(partiallyPriced, List.of()));
+        assertEquals(ItemFetchStatus.PARTIAL, BDOMarketConnector.classifyEnrichment(partiallyPriced,
+                List.of(new IOException("read timed out"))));
+        assertEquals(ItemFetchStatus.CIRCUIT_OPEN, BDOMarketConnector.classifyEnrichment(unpriced,
+                List.of(new CircuitOpenException("orderbook"), new CircuitOpenException("orderbook"))));
+        assertEquals(ItemFetchStatus.FAILED, BDOMarketConnector.classifyEnrichment(unpriced,
+                List.of(new MarketRequestException("orderbook", 503))));
+    }
+
     private Accessory item(String name, int id) {
         Accessory accessory = new Accessory(name, id);
         accessory.setBasePrice(100_000_000);
@@ -0,0 +1,57 @@
+package com.bdo.enhancer.market;
+
+import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.item.Item;
+import com.bdo.enhancer.model.result.AccessoryEnhancementResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BackgroundRefreshSchedulerTest {
+
+    @Test
+    void refreshesTheMostProfitableItemFirstAndLetsOthersCatchUpWithAge() {
+        AtomicLong now = new AtomicLong(0);
+        BackgroundRefreshScheduler scheduler = new BackgroundRefreshScheduler(
+                new MarketDataService(new FakeConnector()), 60, 60_000, now::get);
+        Accessory valuable = accessory("Tungrad Ring", 12061);
+        Accessory cheap = accessory("Ogre Ring", 11607);
+
+        scheduler.track(List.of(valuable, cheap), 0);
+        scheduler.updateProfits(List.of(
+                new AccessoryEnhancementResult(12061, "Tungrad Ring", 0, 1, 10, 1, 500_000_000L, 1, 900_000_000L),
+                new AccessoryEnhancementResult(11607, "Ogre Ring", 0, 1, 10, 1, 1_000_000L, 1, 2_000_000L)));
+
+        now.set(30_000);
+        assertEquals(12061, scheduler.selectNext().getId());
+
+        // Refreshing the valuable item resets its age, the cheap one is next
+        List<Accessory> refreshed = new ArrayList<>();
+        scheduler.setRefreshListener(refreshed::add);
+        scheduler.tick();
+        now.addAndGet(1_000);
+
+        assertEquals(List.of(12061), refreshed.stream().map(Accessory::getId).collect(Collectors.toList()));
+        assertEquals(11607, scheduler.selectNext().getId());
+    }
+
+    private static Accessory accessory(String name, int id) {
+        Accessory accessory = new Accessory(name, id);
+        accessory.setBasePrice(100_000_000L);
+        accessory.setTriPrice(600_000_000L);
+        return accessory;
+    }
+
+    private static class FakeConnector extends BDOMarketConnector {
+        @Override
+        public ItemFetchStatus enrichItem(Item item) {
+            item.setTriPrice(650_000_000L);
+            return ItemFetchStatus.OK;
+        }
+    }
+}
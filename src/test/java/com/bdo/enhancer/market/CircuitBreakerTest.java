@@ -0,0 +1,60 @@
+package com.bdo.enhancer.market;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterConsecutiveFailuresAndLetsOneTrialThroughAfterTheCoolDown() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(3, 1000, now::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(breaker.allowRequest());
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void failedTrialReopensTheCircuit() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker(1, 1000, now::get);
+
+        breaker.onFailure();
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(breaker.allowRequest());
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+    }
+
+    @Test
+    void latencyTrackerReportsPercentilesOnceEnoughSamplesExist() {
+        LatencyTracker tracker = new LatencyTracker(100);
+        assertEquals(-1, tracker.percentile(0.95, 1));
+
+        for (int i = 1; i <= 100; i++) {
+            tracker.record(i);
+        }
+        assertEquals(95, tracker.percentile(0.95, 20));
+        assertEquals(-1, tracker.percentile(0.95, 101));
+    }
+}
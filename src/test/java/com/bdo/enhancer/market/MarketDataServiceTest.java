@@ -0,0 +1,90 @@
+package com.bdo.enhancer.market;
+
+import com.bdo.enhancer.model.item.Accessory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarketDataServiceTest {
+
+    @Test
+    void refetchesOnlyItemsWhoseListingChanged() {
+        FakeConnector connector = new FakeConnector();
+        connector.listing.put(12061, listed("Tungrad Ring", 12061, 100_000_000L, 5));
+        connector.listing.put(11607, listed("Ogre Ring", 11607, 200_000_000L, 3));
+        MarketDataService service = new MarketDataService(connector);
+
+        DeltaRefreshResult first = service.refreshAccessories();
+        assertTrue(first.isFullRefresh());
+        assertEquals(List.of(11607, 12061), ids(connector.lastEnriched));
+
+        connector.listing.put(11607, listed("Ogre Ring", 11607, 210_000_000L, 3));
+        DeltaRefreshResult second = service.refreshAccessories();
+
+        assertFalse(second.isFullRefresh());
+        assertEquals(List.of(11607), ids(connector.lastEnriched));
+        assertEquals(List.of(11607, 12061), ids(second.getAccessories()));
+    }
+
+    @Test
+    void refetchesExpiredItemsAndDropsDelistedOnes() {
+        FakeConnector connector = new FakeConnector();
+        connector.listing.put(12061, listed("Tungrad Ring", 12061, 100_000_000L, 5));
+        connector.listing.put(11607, listed("Ogre Ring", 11607, 200_000_000L, 3));
+        MarketDataService service = new MarketDataService(connector);
+        service.refreshAccessories();
+
+        service.setItemTtlMillis(-1);
+        connector.listing.remove(12061);
+        DeltaRefreshResult refresh = service.refreshAccessories();
+
+        assertEquals(List.of(11607), ids(connector.lastEnriched));
+        assertEquals(List.of(11607), ids(refresh.getAccessories()));
+    }
+
+    private static Accessory listed(String name, int id, long basePrice, long stock) {
+        Accessory accessory = new Accessory(name, id);
+        accessory.setBasePrice(basePrice);
+        accessory.setCurrentStock(stock);
+        return accessory;
+    }
+
+    private static List<Integer> ids(List<Accessory> accessories) {
+        return accessories.stream().map(Accessory::getId).sorted().collect(Collectors.toList());
+    }
+
+    private static class FakeConnector extends BDOMarketConnector {
+        private final Map<Integer, Accessory> listing = new HashMap<>();
+        private List<Accessory> lastEnriched = List.of();
+
+        @Override
+        public MarketListing fetchListing() {
+            // Fresh copies, like a real listing request
+            List<Accessory> accessories = new ArrayList<>();
+            listing.values().forEach(item -> accessories.add(listed(item.getName(), item.getId(),
+                    item.getBasePrice(), item.getCurrentStock())));
+            return new MarketListing(accessories, List.of());
+        }
+
+        @Override
+        public MarketFetchResult enrichAccessories(List<Accessory> accessories, List<String> failedCategories,
+                                                   Consumer<Accessory> enrichedListener) {
+            lastEnriched = accessories;
+            if (enrichedListener != null) {
+                accessories.forEach(enrichedListener);
+            }
+            Map<Integer, ItemFetchStatus> statuses = new HashMap<>();
+            accessories.forEach(accessory -> statuses.put(accessory.getId(), ItemFetchStatus.OK));
+            return new MarketFetchResult(accessories, statuses, failedCategories);
+        }
+    }
+}
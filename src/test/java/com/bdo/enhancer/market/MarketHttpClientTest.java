@@ -0,0 +1,76 @@
+package com.bdo.enhancer.market;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarketHttpClientTest {
+
+    @Test
+    void cutsOffTheSlowerAttemptOfAHedgedRequest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger slowRequests = new AtomicInteger();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        ExecutorService handlers = Executors.newCachedThreadPool();
+        server.setExecutor(handlers);
+        server.createContext("/orders", exchange -> {
+            // The first slow request hangs until the test ends, its hedge answers at once
+            if (exchange.getRequestURI().getQuery().contains("slow") && slowRequests.incrementAndGet() == 1) {
+                try {
+                    release.await(20, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            respond(exchange, slowRequests.get() > 0 ? "hedge" : "ok");
+        });
+        server.start();
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 8, 16);
+        MarketHttpClient client = new MarketHttpClient(
+                new MarketRequestScheduler(new TokenBucket(1_000, 100), limiter, 0, 0));
+        String url = "http://localhost:" + server.getAddress().getPort() + "/orders?id=";
+        try {
+            // Enough fast samples for the client to learn when to hedge
+            for (int id = 0; id < 25; id++) {
+                assertEquals("ok", client.get(url + id, Map.of()));
+            }
+
+            assertEquals("hedge", client.get(url + "slow", Map.of()));
+
+            // The hanging attempt is disconnected instead of waiting for the read timeout
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (limiter.getInFlight() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, limiter.getInFlight());
+            assertTrue(release.getCount() > 0, "the server still holds the slow request");
+        } finally {
+            release.countDown();
+            server.stop(0);
+            handlers.shutdownNow();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
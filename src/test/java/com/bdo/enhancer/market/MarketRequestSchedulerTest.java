@@ -0,0 +1,133 @@
+package com.bdo.enhancer.market;
+
+import com.bdo.enhancer.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MarketRequestSchedulerTest {
+
+    @Test
+    void halvesTheLimitOnThrottlingAndGrowsItBackOnFastResponses() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 8, 16);
+
+        limiter.acquire();
+        limiter.onDropped();
+        assertEquals(4, limiter.getLimit());
+
+        for (int i = 0; i < 40; i++) {
+            limiter.acquire();
+            limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+        assertTrue(limiter.getLimit() > 4);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void gaugesSumTheLoadOfAllSchedulers() throws InterruptedException {
+        AdaptiveConcurrencyLimiter first = new AdaptiveConcurrencyLimiter(1, 3, 16);
+        AdaptiveConcurrencyLimiter second = new AdaptiveConcurrencyLimiter(1, 5, 16);
+        new MarketRequestScheduler(new TokenBucket(1000, 10), first, 0, 0);
+        new MarketRequestScheduler(new TokenBucket(1000, 10), second, 0, 0);
+        long inFlight = gauge("market.requests.inFlight");
+
+        first.acquire();
+        second.acquire();
+
+        assertEquals(inFlight + 2, gauge("market.requests.inFlight"));
+        assertTrue(gauge("market.requests.limit") >= first.getLimit() + second.getLimit());
+        first.onIgnored();
+        second.onIgnored();
+    }
+
+    @Test
+    void connectorsShareTheProcessWideSchedulerByDefault() {
+        assertSame(MarketRequestScheduler.shared(), new MultiRegionMarketService().getScheduler());
+    }
+
+    @Test
+    void backsOffWhenLatencyClimbsFarAboveTheBaseline() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 10, 16);
+
+        limiter.acquire();
+        limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(50));
+        int limitBeforeSlowResponse = limiter.getLimit();
+
+        limiter.acquire();
+        limiter.onSuccess(TimeUnit.MILLISECONDS.toNanos(500));
+        assertTrue(limiter.getLimit() < limitBeforeSlowResponse);
+    }
+
+    @Test
+    void tokenBucketHonoursBurstRateAndPause() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(2, 2, now::get);
+
+        assertEquals(0, bucket.tryAcquire());
+        assertEquals(0, bucket.tryAcquire());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), bucket.tryAcquire());
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(0, bucket.tryAcquire());
+
+        bucket.pause(3000);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertEquals(TimeUnit.SECONDS.toNanos(2), bucket.tryAcquire());
+
+        // No tokens accumulate while paused
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertEquals(0, bucket.getAvailableTokens(), 1e-9);
+    }
+
+    @Test
+    void retriesThrottledRequestsAndReturnsTheFirstSuccessfulBody() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 4, 16);
+        MarketRequestScheduler scheduler = new MarketRequestScheduler(new TokenBucket(1000, 10), limiter, 3, 0);
+        AtomicInteger calls = new AtomicInteger();
+
+        String body = scheduler.execute("test", () -> calls.incrementAndGet() < 3
+                ? new MarketResponse(429, "", 0)
+                : new MarketResponse(200, "[]", -1));
+
+        assertEquals("[]", body);
+        assertEquals(3, calls.get());
+        assertTrue(limiter.getLimit() < 4);
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 4, 16);
+        MarketRequestScheduler scheduler = new MarketRequestScheduler(new TokenBucket(1000, 10), limiter, 3, 0);
+        AtomicInteger calls = new AtomicInteger();
+
+        MarketRequestException exception = assertThrows(MarketRequestException.class,
+                () -> scheduler.execute("test", () -> {
+                    calls.incrementAndGet();
+                    return new MarketResponse(404, "", -1);
+                }));
+
+        assertEquals(404, exception.getStatus());
+        assertEquals(1, calls.get());
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    void parsesRetryAfterSecondsAndRejectsGarbage() {
+        assertEquals(120_000, MarketHttpClient.parseRetryAfter("120"));
+        assertEquals(0, MarketHttpClient.parseRetryAfter("Thu, 01 Jan 1970 00:00:00 GMT"));
+        assertEquals(-1, MarketHttpClient.parseRetryAfter("soon"));
+        assertEquals(-1, MarketHttpClient.parseRetryAfter(null));
+    }
+
+    private static long gauge(String name) {
+        return MetricsRegistry.global().snapshot().get(name).longValue();
+    }
+}
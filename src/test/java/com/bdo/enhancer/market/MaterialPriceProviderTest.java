@@ -0,0 +1,43 @@
+package com.bdo.enhancer.market;
+
+import com.bdo.enhancer.model.item.Material;
+import com.bdo.enhancer.model.item.MaterialPrices;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MaterialPriceProviderTest {
+
+    @Test
+    void cachesPricesAndKeepsDefaultsForFailedMaterials() {
+        AtomicLong now = new AtomicLong();
+        AtomicInteger requests = new AtomicInteger();
+        BDOMarketConnector connector = new BDOMarketConnector() {
+            @Override
+            public long fetchLowestPrice(int itemId) throws IOException {
+                requests.incrementAndGet();
+                if (itemId == Material.MEMORY_FRAGMENT.getItemId()) {
+                    throw new IOException("boom");
+                }
+                return itemId == Material.BLACK_STONE.getItemId() ? 150_000 : -1;
+            }
+        };
+        MaterialPriceProvider provider = new MaterialPriceProvider(connector, 1000, now::get);
+
+        MaterialPrices prices = provider.getPrices();
+        assertEquals(150_000, prices.get(Material.BLACK_STONE));
+        assertEquals(Material.MEMORY_FRAGMENT.getDefaultPrice(), prices.get(Material.MEMORY_FRAGMENT));
+        assertEquals(Material.BLACK_GEM.getDefaultPrice(), prices.get(Material.BLACK_GEM));
+
+        provider.getPrices();
+        assertEquals(Material.VALUES.length, requests.get());
+
+        now.addAndGet(1001);
+        provider.getPrices();
+        assertEquals(2 * Material.VALUES.length, requests.get());
+    }
+}
@@ -0,0 +1,93 @@
+package com.bdo.enhancer.market;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OrderBookCacheTest {
+
+    @Test
+    void concurrentCallersShareOneInFlightRequest() throws Exception {
+        OrderBookCache cache = new OrderBookCache(60_000, 16);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            CompletableFuture<?>[] callers = new CompletableFuture<?>[4];
+            for (int i = 0; i < callers.length; i++) {
+                callers[i] = CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return cache.get("eu", 11607, 2, () -> {
+                            loads.incrementAndGet();
+                            awaitRelease(release);
+                            return "{\"orders\":[]}";
+                        });
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }, executor);
+            }
+
+            // Give every caller the chance to join the pending request before it completes
+            Thread.sleep(200);
+            release.countDown();
+            CompletableFuture.allOf(callers).get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void expiresEntriesAndEvictsTheLeastRecentlyUsed() throws IOException {
+        AtomicLong now = new AtomicLong();
+        OrderBookCache cache = new OrderBookCache(1000, 2, now::get);
+        AtomicInteger loads = new AtomicInteger();
+        OrderBookCache.Loader loader = () -> "body" + loads.incrementAndGet();
+
+        assertEquals("body1", cache.get("eu", 1, 0, loader));
+        assertEquals("body1", cache.get("eu", 1, 0, loader));
+        assertEquals("body2", cache.get("eu", 2, 0, loader));
+
+        // Touch item 1 so item 2 is the least recently used when item 3 arrives
+        cache.get("eu", 1, 0, loader);
+        assertEquals("body3", cache.get("eu", 3, 0, loader));
+        assertEquals("body4", cache.get("eu", 2, 0, loader));
+
+        now.addAndGet(1001);
+        assertEquals("body5", cache.get("eu", 2, 0, loader));
+    }
+
+    @Test
+    void doesNotCacheFailures() throws IOException {
+        OrderBookCache cache = new OrderBookCache(60_000, 16);
+
+        assertThrows(IOException.class, () -> cache.get("eu", 1, 2, () -> {
+            throw new IOException("boom");
+        }));
+        assertEquals("ok", cache.get("eu", 1, 2, () -> "ok"));
+    }
+
+    private static void awaitRelease(CountDownLatch release) throws InterruptedIOException {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+    }
+}
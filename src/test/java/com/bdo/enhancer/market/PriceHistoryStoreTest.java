@@ -0,0 +1,140 @@
+package com.bdo.enhancer.market;
+
+import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.item.PriceLadder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceHistoryStoreTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @TempDir
+    Path directory;
+
+    private final AtomicLong clock = new AtomicLong(TimeUnit.DAYS.toMillis(1_000));
+
+    @Test
+    void readsSeriesAcrossSortedSegmentsAndTheAppendLog() throws IOException {
+        try (PriceHistoryStore store = open()) {
+            // Ten items per sample and eight rows per segment, so the history spans many segments
+            for (int sample = 0; sample < 30; sample++) {
+                for (int id = 1; id <= 10; id++) {
+                    store.append(id, 3, 1_000 + sample, 10 - sample % 10, 0, clock.get());
+                }
+                clock.addAndGet(HOUR);
+            }
+
+            PriceSeries series = store.series(7, 3);
+            assertEquals(30, series.size());
+            for (int sample = 0; sample < 30; sample++) {
+                assertEquals(1_000 + sample, series.price(sample));
+            }
+            assertEquals(0, store.series(7, 4).size());
+            assertEquals(300, store.size());
+            assertTrue(segmentFiles() < 300 / 8, "small segments are merged");
+        }
+    }
+
+    @Test
+    void keepsTheHistoryWhenReopened() throws IOException {
+        Accessory ring = new Accessory("Test Ring", 11);
+        ring.setBasePrice(5_000);
+        ring.setTriPrice(90_000);
+        ring.setPriceLadder(3, new PriceLadder(new long[] {90_000, 95_000}, new int[] {2, 3}, new int[] {4, 0}));
+
+        try (PriceHistoryStore store = open()) {
+            for (int sample = 0; sample < 20; sample++) {
+                store.record(ring, clock.addAndGet(HOUR));
+            }
+        }
+
+        try (PriceHistoryStore reopened = open()) {
+            PriceSeries tri = reopened.series(11, 3);
+            assertEquals(20, tri.size());
+            assertEquals(90_000, tri.lastPrice());
+            assertEquals(5, tri.sellers(0));
+            assertEquals(4, tri.buyers(0));
+            assertEquals(20, reopened.series(11, 0).size());
+            // No order book and no price for DUO and TET
+            assertEquals(0, reopened.series(11, 2).size());
+        }
+    }
+
+    @Test
+    void dropsRowsPastTheRetention() throws IOException {
+        try (PriceHistoryStore store = open()) {
+            for (int sample = 0; sample < 40; sample++) {
+                store.append(1, 2, 100, 1, 0, clock.addAndGet(TimeUnit.DAYS.toMillis(1)));
+            }
+            store.compact();
+
+            // Ten days of retention
+            PriceSeries series = store.series(1, 2, 0, Long.MAX_VALUE);
+            assertTrue(series.size() <= 11, "kept " + series.size());
+            assertTrue(series.size() >= 10);
+        }
+    }
+
+    @Test
+    void estimatesTrendVolatilityAndTimeToSell() {
+        int samples = 48;
+        long[] timestamps = new long[samples];
+        long[] prices = new long[samples];
+        int[] sellers = new int[samples];
+        for (int sample = 0; sample < samples; sample++) {
+            timestamps[sample] = sample * HOUR;
+            // Falls 1% a day and sells one unit every two hours
+            prices[sample] = Math.round(1_000_000 * Math.pow(0.99, sample / 24.0));
+            sellers[sample] = 30 - sample / 2;
+        }
+        PriceSeries series = new PriceSeries(1, 3, timestamps, prices, sellers, new int[samples]);
+
+        assertEquals(-0.01, series.dailyTrend(), 1e-4);
+        assertTrue(series.dailyVolatility() < 0.02);
+        assertEquals(0.5, series.salesPerHour(), 0.02);
+        assertEquals((7 + 1) / series.salesPerHour(), series.estimatedHoursToSell(1), 1e-9);
+    }
+
+    @Test
+    void aSecondStoreOnTheSameDirectoryDoesNotWrite() throws IOException {
+        try (PriceHistoryStore store = open()) {
+            for (int sample = 0; sample < 5; sample++) {
+                store.append(1, 3, 1_000 + sample, 1, 0, clock.addAndGet(HOUR));
+            }
+            long files = segmentFiles();
+
+            assertThrows(PriceHistoryStore.InUseException.class, this::open);
+
+            store.append(1, 3, 2_000, 1, 0, clock.addAndGet(HOUR));
+            assertEquals(6, store.series(1, 3).size());
+            assertEquals(files, segmentFiles());
+        }
+
+        // Closing releases the lock
+        try (PriceHistoryStore reopened = open()) {
+            assertEquals(6, reopened.series(1, 3).size());
+        }
+    }
+
+    private PriceHistoryStore open() throws IOException {
+        return PriceHistoryStore.open(directory, 8, 4, 64, TimeUnit.DAYS.toMillis(10), clock::get);
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("segment-")).count();
+        }
+    }
+}
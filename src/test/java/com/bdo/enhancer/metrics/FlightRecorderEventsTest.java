@@ -0,0 +1,56 @@
+package com.bdo.enhancer.metrics;
+
+import com.bdo.enhancer.calculator.AccessoryProfitCalculator;
+import com.bdo.enhancer.model.item.Accessory;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlightRecorderEventsTest {
+
+    @Test
+    void profileRecordsSimulationBatches(@TempDir Path directory) throws Exception {
+        Accessory ring = new Accessory("Test Ring", 1);
+        ring.setBasePrice(10_000_000);
+        ring.setDuoPrice(100_000_000);
+        ring.setTriPrice(300_000_000);
+        ring.setTetPrice(900_000_000);
+        AccessoryProfitCalculator calculator = new AccessoryProfitCalculator();
+        calculator.setSimulationRuns(7);
+
+        Path file = directory.resolve("recording.jfr");
+        try (Recording recording = new Recording(Configuration.create(Path.of("src/main/jfr/bdo-enhancer.jfc")))) {
+            recording.start();
+            calculator.calculateProfitsWithAccessories(List.of(ring));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> batches = RecordingFile.readAllEvents(file).stream()
+                .filter(event -> event.getEventType().getName().equals("com.bdo.enhancer.SimulationBatch"))
+                .collect(Collectors.toList());
+        assertFalse(batches.isEmpty());
+        assertTrue(batches.stream().allMatch(event -> event.getInt("runs") == 7));
+        assertTrue(batches.stream().anyMatch(event -> event.getString("stacks").split("/").length == 4));
+    }
+
+    @Test
+    void readsItemAndLevelFromRequestParameters() {
+        assertEquals(705037, MarketRequestEvent.parameter("id=705037&sid=2", "id"));
+        assertEquals(2, MarketRequestEvent.parameter("id=705037&sid=2", "sid"));
+        assertEquals(11653, MarketRequestEvent.parameter("keyType=0&mainKey=11653", "mainKey"));
+        assertEquals(-1, MarketRequestEvent.parameter("keyType=0&mainKey=11653", "id"));
+        assertEquals(-1, MarketRequestEvent.parameter(null, "id"));
+    }
+}
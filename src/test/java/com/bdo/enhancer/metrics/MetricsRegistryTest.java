@@ -0,0 +1,64 @@
+package com.bdo.enhancer.metrics;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MetricsRegistryTest {
+
+    @Test
+    void countsAndTimesAcrossThreads() {
+        MetricsRegistry registry = new MetricsRegistry();
+        Counter counter = registry.counter("enhance.calls");
+        Timer timer = registry.timer("simulate");
+
+        IntStream.range(0, 1000).parallel().forEach(i -> {
+            counter.increment();
+            timer.record(TimeUnit.MILLISECONDS.toNanos(i % 10 + 1));
+        });
+
+        assertSame(counter, registry.counter("enhance.calls"));
+        assertEquals(1000, counter.get());
+        assertEquals(1000, timer.getCount());
+        assertEquals(10.0, timer.getMaxMillis(), 1e-9);
+        assertEquals(5.5, timer.getMeanMillis(), 1e-9);
+    }
+
+    @Test
+    void dumpsAllMetricsAsJson(@TempDir Path directory) throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("market.requests").add(3);
+        registry.timer("market.enrich.item").record(TimeUnit.MILLISECONDS.toNanos(2));
+        registry.gauge("market.enrichment.queued.eu", () -> 7);
+
+        Path file = directory.resolve("metrics.json");
+        registry.writeJson(file);
+
+        JSONObject json = new JSONObject(Files.readString(file));
+        assertEquals(3, json.getJSONObject("counters").getLong("market.requests"));
+        assertEquals(1, json.getJSONObject("timers").getJSONObject("market.enrich.item").getLong("count"));
+        assertEquals(7, json.getJSONObject("gauges").getLong("market.enrichment.queued.eu"));
+    }
+
+    @Test
+    void exposesMetricsOverJmx() throws Exception {
+        MetricsRegistry.global().counter("test.jmx").increment();
+        MetricsRegistry.global().registerMBean();
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Object value = server.getAttribute(new ObjectName(MetricsRegistry.OBJECT_NAME), "test.jmx");
+
+        assertEquals(MetricsRegistry.global().counter("test.jmx").get(), value);
+    }
+}
@@ -0,0 +1,45 @@
+package com.bdo.enhancer.model.item;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PriceLadderTest {
+
+    private final PriceLadder ladder = new PriceLadder(
+            new long[] {90, 95, 100, 110, 120},
+            new int[] {0, 0, 2, 3, 10},
+            new int[] {4, 1, 0, 0, 0});
+
+    @Test
+    void buyingWalksUpTheSellOrders() {
+        assertEquals(100, ladder.lowestAsk());
+        assertEquals(15, ladder.askDepth());
+        assertEquals(200, ladder.costToBuy(2, 100));
+        assertEquals(2 * 100 + 3 * 110 + 120, ladder.costToBuy(6, 100));
+        // Beyond the listed units the most expensive listing is assumed
+        assertEquals(2 * 100 + 3 * 110 + 10 * 120 + 5 * 120, ladder.costToBuy(20, 100));
+    }
+
+    @Test
+    void sellingListsOneUnitAndFillsTheBuyOrdersFromTheTop() {
+        assertEquals(100, ladder.revenueFromSelling(1, 100));
+        assertEquals(100 + 95 + 90, ladder.revenueFromSelling(3, 100));
+        assertEquals(100 + 95 + 4 * 90 + 4 * 90, ladder.revenueFromSelling(10, 100));
+        assertEquals(0, ladder.revenueFromSelling(0, 100));
+    }
+
+    @Test
+    void emptyLadderFallsBackToTheSingleUnitPrice() {
+        assertEquals(-1, PriceLadder.EMPTY.lowestAsk());
+        assertEquals(500, PriceLadder.EMPTY.costToBuy(5, 100));
+        assertEquals(500, PriceLadder.EMPTY.revenueFromSelling(5, 100));
+    }
+
+    @Test
+    void rejectsUnsortedSteps() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new PriceLadder(new long[] {100, 90}, new int[2], new int[2]));
+    }
+}
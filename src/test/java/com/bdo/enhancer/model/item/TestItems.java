@@ -0,0 +1,29 @@
+package com.bdo.enhancer.model.item;
+
+/**
+ * Items with fixed prices shared by the tests.
+ */
+public final class TestItems {
+
+    private TestItems() {
+    }
+
+    /**
+     * @return A ring selling for the given TRI price, for a third of it as DUO and three times as much as TET
+     */
+    public static Accessory ring(int id, String name, long basePrice, long triPrice) {
+        Accessory ring = new Accessory(name, id, EnhancementType.ACCESSORY);
+        ring.setBasePrice(basePrice);
+        ring.setDuoPrice(triPrice / 3);
+        ring.setTriPrice(triPrice);
+        ring.setTetPrice(triPrice * 3);
+        return ring;
+    }
+
+    /**
+     * @return A ring bought for 10M that sells for 300M as TRI
+     */
+    public static Accessory ring(int id, String name) {
+        return ring(id, name, 10_000_000, 300_000_000);
+    }
+}
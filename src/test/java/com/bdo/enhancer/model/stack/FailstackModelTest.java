@@ -0,0 +1,89 @@
+package com.bdo.enhancer.model.stack;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FailstackModelTest {
+
+    @Test
+    void reproducesEveryPresetOnEveryLevel() {
+        assertFollowsThePresets(FailstackModel.ACCESSORY, AccessoryStack.VALUES);
+        assertFollowsThePresets(FailstackModel.COSTUME, CostumeStack.VALUES);
+        assertEquals(FailstackModel.MAX_CHANCE, FailstackModel.ACCESSORY.chance(0, 200));
+        assertEquals(FailstackModel.MAX_CHANCE, FailstackModel.COSTUME.chance(0, 45));
+    }
+
+    @Test
+    void neverDecreasesAlongTheStacks() {
+        for (FailstackModel model : new FailstackModel[] {FailstackModel.ACCESSORY, FailstackModel.COSTUME}) {
+            for (int level = 0; level < 4; level++) {
+                double previous = 0;
+                for (int stack = FailstackModel.MIN_STACK; stack <= FailstackModel.MAX_STACK; stack++) {
+                    double chance = model.chance(level, stack);
+                    assertTrue(chance >= previous, "level " + level + ", stack " + stack);
+                    previous = chance;
+                }
+            }
+        }
+        // Between the presets 45 and 55 the chance rises evenly
+        assertEquals((AccessoryStack.FOURTYFIVE.getTriChance() + AccessoryStack.FIFTYFIVE.getTriChance()) / 2,
+                FailstackModel.ACCESSORY.chance(2, 50), 1e-9);
+    }
+
+    @Test
+    void interpolatesTheBlackStonesBetweenThePresets() {
+        for (AccessoryStack preset : AccessoryStack.VALUES) {
+            assertEquals(preset.getBlackStoneCount(), FailstackModel.blackStones(preset.getStackCount()));
+        }
+        for (CostumeStack preset : CostumeStack.VALUES) {
+            assertEquals(preset.getBlackStoneCount(), FailstackModel.blackStones(preset.getStackCount()));
+        }
+        int previous = 0;
+        for (int stack = FailstackModel.MIN_STACK; stack <= 60; stack++) {
+            int blackStones = FailstackModel.blackStones(stack);
+            assertTrue(blackStones >= previous, "stack " + stack);
+            previous = blackStones;
+        }
+        assertThrows(IllegalArgumentException.class, () -> FailstackModel.blackStones(0));
+    }
+
+    @Test
+    void pricesStacksPastTheBoughtPresetsLikeThePresets() {
+        for (int stack = 61; stack <= FailstackModel.MAX_STACK; stack++) {
+            int blackStones = FailstackModel.blackStones(stack);
+            if (stack < AccessoryStack.SEVENTY_FREE.getStackCount()) {
+                assertEquals(AccessoryStack.SIXTY.getBlackStoneCount(), blackStones, "stack " + stack);
+            } else {
+                assertEquals(0, blackStones, "stack " + stack);
+            }
+        }
+        assertEquals(0, AccessoryStack.findByStackCount(105).getBlackStoneCount());
+        assertEquals(AccessoryStack.SIXTY.getBlackStoneCount(), CostumeStack.findByStackCount(65).getBlackStoneCount());
+    }
+
+    @Test
+    void resolvesEveryStackCountToOneInstance() {
+        AccessoryStack stack = AccessoryStack.findByStackCount(37);
+
+        assertEquals(37, stack.getStackCount());
+        assertEquals(47, stack.getDuoChance(), 1e-9);
+        assertSame(stack, AccessoryStack.findByStackCount(37));
+        assertSame(AccessoryStack.FOURTY, AccessoryStack.findByStackCount(40));
+        assertEquals(CostumeStack.findByStackCount(52).getMonChance(), 90);
+        assertThrows(IllegalArgumentException.class, () -> AccessoryStack.findByStackCount(500));
+    }
+
+    private static void assertFollowsThePresets(FailstackModel model, AbstractStack[] presets) {
+        for (AbstractStack preset : presets) {
+            int stack = preset.getStackCount();
+            assertEquals(preset.getMonChance(), model.chance(0, stack), 1e-9, "PRI " + stack);
+            assertEquals(preset.getDuoChance(), model.chance(1, stack), 1e-9, "DUO " + stack);
+            assertEquals(preset.getTriChance(), model.chance(2, stack), 1e-9, "TRI " + stack);
+            assertEquals(preset.getTetChance(), model.chance(3, stack), 1e-9, "TET " + stack);
+        }
+    }
+}
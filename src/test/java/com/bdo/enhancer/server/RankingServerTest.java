@@ -0,0 +1,191 @@
+package com.bdo.enhancer.server;
+
+import com.bdo.enhancer.calculator.AccessoryProfitCalculator;
+import com.bdo.enhancer.market.BDOMarketConnector;
+import com.bdo.enhancer.market.DeltaRefreshResult;
+import com.bdo.enhancer.market.MarketDataService;
+import com.bdo.enhancer.market.MarketFetchResult;
+import com.bdo.enhancer.model.item.Accessory;
+import com.bdo.enhancer.model.item.EnhancementType;
+import com.bdo.enhancer.model.item.MaterialPrices;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RankingServerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private FakeMarket market;
+    private RankingService service;
+    private RankingServer server;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        market = new FakeMarket();
+        AccessoryProfitCalculator calculator = new AccessoryProfitCalculator();
+        calculator.setSimulationRuns(50);
+        service = new RankingService(market, calculator, 20);
+        server = new RankingServer(service, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop();
+    }
+
+    @Test
+    void rejectsOutOfRangeOptionsBeforeStarting() {
+        RankingServer.Options options = RankingServer.Options.parse(
+                new String[] {"--serve", "--port", "8081", "--runs", "200", "--refresh-minutes", "5"});
+        assertEquals(8081, options.port);
+        assertEquals(200, options.runs);
+        assertEquals(5, options.refreshMinutes);
+
+        for (String[] args : List.of(new String[] {"--refresh-minutes", "0"}, new String[] {"--runs", "0"},
+                new String[] {"--port", "-1"}, new String[] {"--port", "70000"}, new String[] {"--runs", "many"},
+                new String[] {"--port"})) {
+            assertThrows(IllegalArgumentException.class, () -> RankingServer.Options.parse(args), args[0]);
+        }
+    }
+
+    @Test
+    void answersUnavailableBeforeTheFirstRefresh() throws Exception {
+        assertEquals(503, get("/rankings", null).statusCode());
+    }
+
+    @Test
+    void servesRankingsWithEntityTags() throws Exception {
+        service.refresh();
+
+        HttpResponse<String> first = get("/rankings", null);
+        assertEquals(200, first.statusCode());
+        assertEquals(2, new JSONObject(first.body()).getJSONArray("results").length());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+
+        assertEquals(304, get("/rankings", etag).statusCode());
+
+        // Same prices again: the results did not change, neither does the tag
+        service.refresh();
+        assertEquals(304, get("/rankings", etag).statusCode());
+
+        market.ring.setTriPrice(market.ring.getTriPrice() * 2);
+        market.changed = List.of(market.ring);
+        service.refresh();
+        assertEquals(200, get("/rankings", etag).statusCode());
+    }
+
+    @Test
+    void servesItemsAndOptimizations() throws Exception {
+        service.refresh();
+
+        HttpResponse<String> item = get("/item/11653", null);
+        assertEquals(200, item.statusCode());
+        assertEquals(900_000_000L, new JSONObject(item.body()).getJSONObject("prices").getLong("tri"));
+        assertEquals(404, get("/item/1", null).statusCode());
+        assertEquals(400, get("/item/ring", null).statusCode());
+
+        HttpResponse<String> optimized = getWhenDone("/optimize/11653");
+        assertEquals(200, optimized.statusCode());
+        assertNotNull(new JSONObject(optimized.body()).getJSONObject("optimalStacks"));
+        assertEquals(422, get("/optimize/705037", null).statusCode());
+        assertTrue(get("/optimize/11653", null).headers().firstValue("ETag").isPresent());
+    }
+
+    @Test
+    void answersRunningOptimizationsWithoutWaiting() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService blockedExecutor = Executors.newSingleThreadExecutor();
+        blockedExecutor.submit(() -> {
+            release.await();
+            return null;
+        });
+        server.stop();
+        AccessoryProfitCalculator calculator = new AccessoryProfitCalculator();
+        calculator.setSimulationRuns(50);
+        service = new RankingService(market, calculator, 20, blockedExecutor);
+        server = new RankingServer(service, 0);
+        server.start();
+        service.refresh();
+
+        HttpResponse<String> running = get("/optimize/11653", null);
+        assertEquals(202, running.statusCode());
+        assertTrue(running.headers().firstValue("Retry-After").isPresent());
+        // The ranking routes do not wait for the simulation
+        assertEquals(200, get("/rankings", null).statusCode());
+        assertEquals(202, get("/optimize/11653", null).statusCode());
+
+        release.countDown();
+        assertEquals(200, getWhenDone("/optimize/11653").statusCode());
+        blockedExecutor.shutdownNow();
+    }
+
+    /**
+     * Asks again while the server answers 202, like a client following {@code Retry-After}.
+     */
+    private HttpResponse<String> getWhenDone(String path) throws Exception {
+        HttpResponse<String> response = get(path, null);
+        for (int attempt = 0; response.statusCode() == 202 && attempt < 600; attempt++) {
+            Thread.sleep(50);
+            response = get(path, null);
+        }
+        return response;
+    }
+
+    private HttpResponse<String> get(String path, String ifNoneMatch) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path));
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static class FakeMarket extends MarketDataService {
+        final Accessory ring = item("Ring of Crescent Guardian", 11653, EnhancementType.ACCESSORY);
+        final Accessory manos = item("Manos Cook's Clothes", 705037, EnhancementType.MANOS_CLOTHING);
+        List<Accessory> changed = List.of(ring, manos);
+
+        FakeMarket() {
+            super(new BDOMarketConnector());
+        }
+
+        @Override
+        public DeltaRefreshResult refreshAccessories(Consumer<Accessory> fetchedListener) {
+            List<Accessory> refetched = changed;
+            changed = List.of();
+            return new DeltaRefreshResult(List.of(ring, manos), refetched,
+                    new MarketFetchResult(refetched, Map.of(), List.of()));
+        }
+
+        @Override
+        public MaterialPrices getMaterialPrices() {
+            return MaterialPrices.defaults();
+        }
+
+        private static Accessory item(String name, int id, EnhancementType type) {
+            Accessory accessory = new Accessory(name, id, type);
+            accessory.setBasePrice(20_000_000);
+            accessory.setDuoPrice(250_000_000);
+            accessory.setTriPrice(900_000_000);
+            accessory.setTetPrice(3_000_000_000L);
+            return accessory;
+        }
+    }
+}
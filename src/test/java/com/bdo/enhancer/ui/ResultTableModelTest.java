@@ -0,0 +1,75 @@
+package com.bdo.enhancer.ui;
+
+import com.bdo.enhancer.model.result.AccessoryEnhancementResult;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ResultTableModelTest {
+
+    @Test
+    void batchesStreamedResultsIntoOneInsertPerFrame() {
+        ResultTableModel model = new ResultTableModel();
+        List<TableModelEvent> events = recordEvents(model);
+
+        model.upsert(result(1, 100));
+        model.upsert(result(2, 200));
+        model.upsert(result(1, 150));
+        assertEquals(0, model.getRowCount());
+
+        model.flush();
+
+        assertEquals(2, model.getRowCount());
+        assertEquals(150L, model.getValueAt(0, ResultTableModel.TRI_PROFIT_COLUMN));
+        assertEquals(1, events.size());
+        assertEvent(events.get(0), TableModelEvent.INSERT, 0, 1);
+    }
+
+    @Test
+    void firesUpdatesOnlyForChangedRows() {
+        ResultTableModel model = new ResultTableModel();
+        model.setResults(List.of(result(1, 100), result(2, 200), result(3, 300), result(4, 400)));
+        List<TableModelEvent> events = recordEvents(model);
+
+        model.setResults(List.of(result(1, 100), result(2, 250), result(3, 350), result(4, 400), result(5, 500)));
+
+        assertEquals(2, events.size());
+        assertEvent(events.get(0), TableModelEvent.UPDATE, 1, 2);
+        assertEvent(events.get(1), TableModelEvent.INSERT, 4, 4);
+        assertEquals(5, model.getResultAt(4).id);
+    }
+
+    @Test
+    void refreshesTheTableWhenAccessoriesDisappear() {
+        ResultTableModel model = new ResultTableModel();
+        model.setResults(List.of(result(1, 100), result(2, 200), result(3, 300)));
+
+        model.setResults(List.of(result(1, 100), result(3, 300)));
+        model.upsert(result(3, 350));
+        model.flush();
+
+        assertEquals(2, model.getRowCount());
+        assertEquals(3, model.getResultAt(1).id);
+        assertEquals(350L, model.getValueAt(1, ResultTableModel.TRI_PROFIT_COLUMN));
+    }
+
+    private static List<TableModelEvent> recordEvents(ResultTableModel model) {
+        List<TableModelEvent> events = new ArrayList<>();
+        model.addTableModelListener(events::add);
+        return events;
+    }
+
+    private static void assertEvent(TableModelEvent event, int type, int firstRow, int lastRow) {
+        assertEquals(type, event.getType());
+        assertEquals(firstRow, event.getFirstRow());
+        assertEquals(lastRow, event.getLastRow());
+    }
+
+    private static AccessoryEnhancementResult result(int id, long triProfit) {
+        return new AccessoryEnhancementResult(id, "Ring " + id, 1, 2, triProfit / 2, 3, triProfit, 4, triProfit * 2);
+    }
+}